@@ -0,0 +1,102 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+
+package org.aspectj.runtime.reflect;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
+
+/**
+ * Bootstrap for the invokedynamic call sites that classes woven with <tt>-Xset:invokedynamicStaticParts=true</tt> use to get
+ * the static part of a join point, in place of a static field set up by the static initializer of the class. The static part is
+ * only built the first time one of its call sites is executed, and after that the call site just answers it.
+ * <p>
+ * Every call site for the same join point answers the same static part, as reading the field did. Needs Java 7, so this lives in
+ * aspectj7rt rather than alongside the rest of the package in runtime, which is still compiled for 1.1 VMs.
+ */
+public final class StaticPartCallSites {
+
+	private static final ClassValue<StaticParts> staticParts = new ClassValue<StaticParts>() {
+		@Override
+		protected StaticParts computeValue(Class<?> type) {
+			return new StaticParts();
+		}
+	};
+
+	// the static parts of one class, by id
+	private static class StaticParts {
+		Factory factory;
+		final Map<Integer, JoinPoint.StaticPart> byId = new HashMap<Integer, JoinPoint.StaticPart>();
+	}
+
+	private StaticPartCallSites() {
+	}
+
+	/**
+	 * @param lookup the lookup of the woven class
+	 * @param name unused
+	 * @param type ()JoinPoint$StaticPart or ()JoinPoint$EnclosingStaticPart
+	 * @param filename the source file of the woven class
+	 * @param id the id of the join point, unique within the woven class
+	 * @param kind the kind of the join point
+	 * @param signatureMaker the name of the Factory method that makes the signature from its string form, eg. makeMethodSig
+	 * @param signature the string form of the signature
+	 * @param line the source line of the join point
+	 */
+	public static CallSite staticPart(MethodHandles.Lookup lookup, String name, MethodType type, String filename, int id,
+			String kind, String signatureMaker, String signature, int line) {
+		Class<?> lexicalClass = lookup.lookupClass();
+		StaticParts parts = staticParts.get(lexicalClass);
+		JoinPoint.StaticPart staticPart;
+		synchronized (parts) {
+			staticPart = parts.byId.get(id);
+			if (staticPart == null) {
+				if (parts.factory == null) {
+					parts.factory = new Factory(filename, lexicalClass);
+				}
+				Signature sig = makeSignature(parts.factory, signatureMaker, signature);
+				if (type.returnType() == JoinPoint.EnclosingStaticPart.class) {
+					staticPart = new JoinPointImpl.EnclosingStaticPartImpl(id, kind, sig, parts.factory.makeSourceLoc(line, -1));
+				} else {
+					staticPart = new JoinPointImpl.StaticPartImpl(id, kind, sig, parts.factory.makeSourceLoc(line, -1));
+				}
+				parts.byId.put(id, staticPart);
+			}
+		}
+		return new ConstantCallSite(MethodHandles.constant(type.returnType(), staticPart));
+	}
+
+	private static Signature makeSignature(Factory factory, String signatureMaker, String signature) {
+		if (signatureMaker.equals("makeMethodSig")) {
+			return factory.makeMethodSig(signature);
+		} else if (signatureMaker.equals("makeConstructorSig")) {
+			return factory.makeConstructorSig(signature);
+		} else if (signatureMaker.equals("makeFieldSig")) {
+			return factory.makeFieldSig(signature);
+		} else if (signatureMaker.equals("makeCatchClauseSig")) {
+			return factory.makeCatchClauseSig(signature);
+		} else if (signatureMaker.equals("makeInitializerSig")) {
+			return factory.makeInitializerSig(signature);
+		} else if (signatureMaker.equals("makeAdviceSig")) {
+			return factory.makeAdviceSig(signature);
+		} else if (signatureMaker.equals("makeLockSig")) {
+			return factory.makeLockSig(signature);
+		} else if (signatureMaker.equals("makeUnlockSig")) {
+			return factory.makeUnlockSig(signature);
+		}
+		throw new IllegalArgumentException("Unknown signature maker " + signatureMaker);
+	}
+}
@@ -140,6 +140,17 @@ public interface Constants {
 			"CONSTANT_Double", "CONSTANT_Class", "CONSTANT_String", "CONSTANT_Fieldref", "CONSTANT_Methodref",
 			"CONSTANT_InterfaceMethodref", "CONSTANT_NameAndType","","","CONSTANT_MethodHandle","CONSTANT_MethodType","","CONSTANT_InvokeDynamic" };
 
+	/** Kinds of method handle constant */
+	public final static byte REF_getField = 1;
+	public final static byte REF_getStatic = 2;
+	public final static byte REF_putField = 3;
+	public final static byte REF_putStatic = 4;
+	public final static byte REF_invokeVirtual = 5;
+	public final static byte REF_invokeStatic = 6;
+	public final static byte REF_invokeSpecial = 7;
+	public final static byte REF_newInvokeSpecial = 8;
+	public final static byte REF_invokeInterface = 9;
+
 	/**
 	 * The name of the static initializer, also called &quot;class initialization method&quot; or &quot;interface initialization
 	 * method&quot;. This is &quot;&lt;clinit&gt;&quot;.
@@ -349,7 +349,7 @@ public class ConstantsInitializer {
 				"1111311111111111" + // ior > d2l
 				"1111111113333333" + // d2f > if_icmpeq
 				"3333333332..1111" + // if_icmpne > dreturn
-				"1133333335/32311" + // areturn > athrow
+				"1133333335532311" + // areturn > athrow
 				"3311.433551/////").toCharArray(); // checkcast >
 		int count = 0;
 		for (; count < lengths.length; count++) {
@@ -99,7 +99,7 @@ public final class BootstrapMethods extends Attribute {
 		isInPackedState = true;
 	}
 	
-	static class BootstrapMethod {
+	public static class BootstrapMethod {
 		private int bootstrapMethodRef;
 		private int[] bootstrapArguments;
 
@@ -116,11 +116,27 @@ public final class BootstrapMethods extends Attribute {
 			return bootstrapArguments;
 		}
 		
-		BootstrapMethod(int bootstrapMethodRef, int[] bootstrapArguments) {
+		/**
+		 * @param bootstrapMethodRef index of the method handle for the bootstrap method
+		 * @param bootstrapArguments indexes of the constants passed as the static arguments of the bootstrap method
+		 */
+		public BootstrapMethod(int bootstrapMethodRef, int[] bootstrapArguments) {
 			this.bootstrapMethodRef = bootstrapMethodRef;
 			this.bootstrapArguments = bootstrapArguments;
 		}
 
+		public final int getBootstrapMethodRef() {
+			return bootstrapMethodRef;
+		}
+
+		public final int[] getBootstrapArguments() {
+			return bootstrapArguments;
+		}
+
+		final int getLength() {
+			return 4 + 2 * bootstrapArguments.length;
+		}
+
 		public final void dump(DataOutputStream file) throws IOException {
 			file.writeShort(bootstrapMethodRef);
 			int len = bootstrapArguments.length;
@@ -183,6 +199,24 @@ public final class BootstrapMethods extends Attribute {
 		}
 	}
 
+	/**
+	 * Append a bootstrap method, for an invokedynamic call site being added to the class.
+	 * 
+	 * @return the index of the new bootstrap method, for the CONSTANT_InvokeDynamic of the call site
+	 */
+	public final int addBootstrapMethod(BootstrapMethod bootstrapMethod) {
+		unpack();
+		int index = bootstrapMethods == null ? 0 : bootstrapMethods.length;
+		BootstrapMethod[] newBootstrapMethods = new BootstrapMethod[index + 1];
+		if (index > 0) {
+			System.arraycopy(bootstrapMethods, 0, newBootstrapMethods, 0, index);
+		}
+		newBootstrapMethods[index] = bootstrapMethod;
+		setBootstrapMethods(newBootstrapMethods);
+		length += bootstrapMethod.getLength();
+		return index;
+	}
+
 	public final BootstrapMethod[] getBootstrapMethods() {
 		unpack();
 		return bootstrapMethods;
@@ -60,6 +60,7 @@ import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.aspectj.apache.bcel.Constants;
 
@@ -105,6 +106,15 @@ public final class ClassParser {
 	    this.file = new DataInputStream(baos);
   }
 
+  /**
+   * Parse class from the remaining bytes of the given buffer, for example a memory mapped class file or a
+   * buffer holding a class read from a jar. The bytes are read in place, without an intermediate stream buffer.
+   */
+  public ClassParser(ByteBuffer buffer, String filename) {
+    this.filename = filename;
+    this.file = new DataInputStream(new ByteBufferInputStream(buffer));
+  }
+
   /** Parse class from given .class file */
   public ClassParser(String file_name) throws IOException {    
     this.filename = file_name;
@@ -54,6 +54,7 @@ package org.aspectj.apache.bcel.classfile;
  * <http://www.apache.org/>.
  */
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -81,6 +82,11 @@ public final class Code extends Attribute {
 	private byte[] code; // Actual byte code
 	private CodeException[] exceptionTable;
 	private Attribute[] attributes;
+	// Undecoded remainder of the attribute (everything after max_locals) when read from a class file, see unpack()
+	private volatile byte[] packedBody;
+	// The same bytes kept once decoded, so that code that was looked at but not changed is still dumped exactly as it was read.
+	// Dropped by the setters, anything changed in place (eg. an entry of a table attribute) must be set again to be written out
+	private byte[] originalBody;
 	private static final CodeException[] NO_EXCEPTIONS = new CodeException[] {};
 
 	/**
@@ -92,36 +98,69 @@ public final class Code extends Attribute {
 				.getAttributes(), c.getConstantPool());
 	}
 
+	/**
+	 * Construct object from file stream. Only max_stack and max_locals are decoded here, the byte code, exception table and
+	 * nested attributes are kept as they are in the class file until something asks for them. Most methods of most types a
+	 * world resolves are never looked inside, so they are never decoded.
+	 */
 	Code(int name_index, int length, DataInputStream file, ConstantPool constant_pool) throws IOException {
-		// Initialize with some default values which will be overwritten later
-		this(name_index, length, file.readUnsignedShort(), file.readUnsignedShort(), (byte[]) null, (CodeException[]) null,
-				(Attribute[]) null, constant_pool);
-
-		int len = file.readInt();
-		code = new byte[len]; // Read byte code
-		file.readFully(code);
-
-		/*
-		 * Read exception table that contains all regions where an exception handler is active, i.e., a try { ... } catch() block.
-		 */
-		len = file.readUnsignedShort();
-		if (len == 0) {
-			exceptionTable = NO_EXCEPTIONS;
-		} else {
-			exceptionTable = new CodeException[len];
-			for (int i = 0; i < len; i++) {
-				exceptionTable[i] = new CodeException(file);
+		super(Constants.ATTR_CODE, name_index, length, constant_pool);
+		maxStack = file.readUnsignedShort();
+		maxLocals = file.readUnsignedShort();
+		byte[] body = new byte[length - 4];
+		file.readFully(body);
+		packedBody = body;
+	}
+
+	/**
+	 * Decode the byte code, exception table and attributes kept by the stream constructor.
+	 */
+	private synchronized void unpack() {
+		byte[] body = packedBody;
+		if (body == null) {
+			return;
+		}
+		try {
+			DataInputStream file = new DataInputStream(new ByteArrayInputStream(body));
+			int len = file.readInt();
+			code = new byte[len]; // Read byte code
+			file.readFully(code);
+
+			/*
+			 * Read exception table that contains all regions where an exception handler is active, i.e., a try { ... } catch()
+			 * block.
+			 */
+			len = file.readUnsignedShort();
+			if (len == 0) {
+				exceptionTable = NO_EXCEPTIONS;
+			} else {
+				exceptionTable = new CodeException[len];
+				for (int i = 0; i < len; i++) {
+					exceptionTable[i] = new CodeException(file);
+				}
 			}
+
+			// Read all attributes, eg: LineNumberTable, LocalVariableTable
+			attributes = AttributeUtils.readAttributes(file, cpool);
+		} catch (IOException e) {
+			throw new ClassFormatException("IOException whilst reading code attribute: " + e.toString());
 		}
+		originalBody = body;
+		packedBody = null;
+	}
 
-		// Read all attributes, eg: LineNumberTable, LocalVariableTable
-		attributes = AttributeUtils.readAttributes(file, constant_pool);
+	/**
+	 * @return true if the byte code, exception table and attributes have not yet been decoded
+	 */
+	public final boolean isPacked() {
+		return packedBody != null;
+	}
 
-		/*
-		 * Adjust length, because of setAttributes in this(), s.b. length is incorrect, because it didn't take the internal
-		 * attributes into account yet! Very subtle bug, fixed in 3.1.1.
-		 */
-		this.length = length;
+	/**
+	 * @return true if this code will be dumped exactly as it was read from the class file, decoded or not
+	 */
+	public final boolean isVerbatim() {
+		return packedBody != null || originalBody != null;
 	}
 
 	/**
@@ -169,6 +208,15 @@ public final class Code extends Attribute {
 
 		file.writeShort(maxStack);
 		file.writeShort(maxLocals);
+		byte[] body = packedBody;
+		if (body == null) {
+			body = originalBody;
+		}
+		if (body != null) {
+			// never changed since it was read
+			file.write(body, 0, body.length);
+			return;
+		}
 		file.writeInt(code.length);
 		file.write(code, 0, code.length);
 
@@ -188,6 +236,9 @@ public final class Code extends Attribute {
 	 * @see Attribute
 	 */
 	public final Attribute[] getAttributes() {
+		if (packedBody != null) {
+			unpack();
+		}
 		return attributes;
 	}
 
@@ -195,6 +246,7 @@ public final class Code extends Attribute {
 	 * @return LineNumberTable of Code, if it has one
 	 */
 	public LineNumberTable getLineNumberTable() {
+		Attribute[] attributes = getAttributes();
 		for (int i = 0; i < attributes.length; i++) {
 			if (attributes[i].tag == Constants.ATTR_LINE_NUMBER_TABLE) {
 				return (LineNumberTable) attributes[i];
@@ -207,6 +259,7 @@ public final class Code extends Attribute {
 	 * @return LocalVariableTable of Code, if it has one
 	 */
 	public LocalVariableTable getLocalVariableTable() {
+		Attribute[] attributes = getAttributes();
 		for (int i = 0; i < attributes.length; i++) {
 			if (attributes[i].tag == Constants.ATTR_LOCAL_VARIABLE_TABLE) {
 				return (LocalVariableTable) attributes[i];
@@ -219,6 +272,9 @@ public final class Code extends Attribute {
 	 * @return Actual byte code of the method.
 	 */
 	public final byte[] getCode() {
+		if (packedBody != null) {
+			unpack();
+		}
 		return code;
 	}
 
@@ -227,6 +283,9 @@ public final class Code extends Attribute {
 	 * @see CodeException
 	 */
 	public final CodeException[] getExceptionTable() {
+		if (packedBody != null) {
+			unpack();
+		}
 		return exceptionTable;
 	}
 
@@ -273,6 +332,10 @@ public final class Code extends Attribute {
 	 * @param attributes.
 	 */
 	public final void setAttributes(Attribute[] attributes) {
+		if (packedBody != null) {
+			unpack();
+		}
+		originalBody = null;
 		this.attributes = attributes;
 		length = calculateLength(); // Adjust length
 	}
@@ -281,6 +344,10 @@ public final class Code extends Attribute {
 	 * @param code byte code
 	 */
 	public final void setCode(byte[] code) {
+		if (packedBody != null) {
+			unpack();
+		}
+		originalBody = null;
 		this.code = code;
 	}
 
@@ -288,6 +355,10 @@ public final class Code extends Attribute {
 	 * @param exception_table exception table
 	 */
 	public final void setExceptionTable(CodeException[] exception_table) {
+		if (packedBody != null) {
+			unpack();
+		}
+		originalBody = null;
 		this.exceptionTable = exception_table;
 	}
 
@@ -310,6 +381,9 @@ public final class Code extends Attribute {
 	 */
 	public final String toString(boolean verbose) {
 		StringBuffer buf;
+		if (packedBody != null) {
+			unpack();
+		}
 
 		buf = new StringBuffer("Code(max_stack = " + maxStack + ", max_locals = " + maxLocals + ", code_length = " + code.length
 				+ ")\n" + Utility.codeToString(code, cpool, 0, -1, verbose));
@@ -365,6 +439,9 @@ public final class Code extends Attribute {
 	 * whether two pieces of code are equivalent.
 	 */
 	public String getCodeString() {
+		if (packedBody != null) {
+			unpack();
+		}
 		StringBuffer codeString = new StringBuffer();
 		codeString.append("Code(max_stack = ").append(maxStack);
 		codeString.append(", max_locals = ").append(maxLocals);
@@ -106,6 +106,10 @@ public final class ConstantInvokeDynamic extends Constant {
 //		return cp.constantToString(getSignatureIndex(), Constants.CONSTANT_Utf8);
 //	}
 	
+	public final int getBootstrapMethodAttrIndex() {
+		return bootstrapMethodAttrIndex;
+	}
+
 	public final int getNameAndTypeIndex() {
 		return nameAndTypeIndex;
 	}
@@ -71,9 +71,21 @@ public class ConstantPool implements Node {
 	private Constant[] pool;
 	private int poolSize; // number of entries in the pool (could be < pool.length as the array is resized in 'chunks')
 
-	private Map<String, Integer> utf8Cache = new HashMap<String, Integer>();
-	private Map<String, Integer> methodCache = new HashMap<String, Integer>();
-	private Map<String, Integer> fieldCache = new HashMap<String, Integer>();
+	// Complete indexes from each constant to its (first) position in the pool. They are built by the first lookup, see
+	// buildIndexes(), and then kept up to date by the add methods. Keys for constants that refer to others are made by joining
+	// the names with '.', which cannot appear in an internal class name or a member name.
+	private boolean indexed;
+	private Map<String, Integer> utf8Index;
+	private Map<String, Integer> classIndex;
+	private Map<String, Integer> stringIndex;
+	private Map<String, Integer> nameAndTypeIndex;
+	private Map<String, Integer> fieldrefIndex;
+	private Map<String, Integer> methodrefIndex;
+	private Map<String, Integer> interfaceMethodrefIndex;
+	private Map<Integer, Integer> integerIndex;
+	private Map<Integer, Integer> floatIndex;
+	private Map<Long, Integer> longIndex;
+	private Map<Long, Integer> doubleIndex;
 
 	public int getSize() {
 		return poolSize;
@@ -208,6 +220,11 @@ public class ConstantPool implements Node {
 					((ConstantCP) c).getNameAndTypeIndex(), Constants.CONSTANT_NameAndType));
 			break;
 
+		case Constants.CONSTANT_InvokeDynamic:
+			str = "#" + ((ConstantInvokeDynamic) c).getBootstrapMethodAttrIndex() + ":"
+					+ constantToString(((ConstantInvokeDynamic) c).getNameAndTypeIndex(), Constants.CONSTANT_NameAndType);
+			break;
+
 		default: // Never reached
 			throw new RuntimeException("Unknown constant type " + c.tag);
 		}
@@ -296,45 +313,137 @@ public class ConstantPool implements Node {
 		return buf.toString();
 	}
 
-	public int lookupInteger(int n) {
+	private void buildIndexes() {
+		utf8Index = new HashMap<String, Integer>();
+		classIndex = new HashMap<String, Integer>();
+		stringIndex = new HashMap<String, Integer>();
+		nameAndTypeIndex = new HashMap<String, Integer>();
+		fieldrefIndex = new HashMap<String, Integer>();
+		methodrefIndex = new HashMap<String, Integer>();
+		interfaceMethodrefIndex = new HashMap<String, Integer>();
+		integerIndex = new HashMap<Integer, Integer>();
+		floatIndex = new HashMap<Integer, Integer>();
+		longIndex = new HashMap<Long, Integer>();
+		doubleIndex = new HashMap<Long, Integer>();
+		indexed = true;
 		for (int i = 1; i < poolSize; i++) {
-			if (pool[i] instanceof ConstantInteger) {
-				ConstantInteger c = (ConstantInteger) pool[i];
-				if (c.getValue() == n)
-					return i;
+			if (pool[i] != null) {
+				index(pool[i], i);
 			}
 		}
-		return -1;
 	}
 
-	public int lookupUtf8(String string) {
-		Integer pos = utf8Cache.get(string);
-		if (pos != null) {
-			return pos;
+	private String utf8At(int index) {
+		return ((ConstantUtf8) pool[index]).getValue();
+	}
+
+	private static String key(String a, String b) {
+		return new StringBuilder(a.length() + b.length() + 1).append(a).append('.').append(b).toString();
+	}
+
+	private static String key(String a, String b, String c) {
+		return new StringBuilder(a.length() + b.length() + c.length() + 2).append(a).append('.').append(b).append('.').append(c)
+				.toString();
+	}
+
+	private String refKey(ConstantCP ref) {
+		ConstantNameAndType cnat = (ConstantNameAndType) pool[ref.getNameAndTypeIndex()];
+		return key(utf8At(((ConstantClass) pool[ref.getClassIndex()]).getNameIndex()), utf8At(cnat.getNameIndex()),
+				utf8At(cnat.getSignatureIndex()));
+	}
+
+	/**
+	 * Record the constant at the given position in the indexes, unless an equal constant is already recorded at an earlier one.
+	 * Does nothing if the indexes have not been built yet.
+	 */
+	private void index(Constant c, int i) {
+		if (!indexed) {
+			return;
 		}
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_Utf8) {
-				if (((ConstantUtf8) c).getValue().equals(string)) {
-					utf8Cache.put(string, i);
-					return i;
-				}
-			}
+		Integer pos = i;
+		switch (c.tag) {
+		case Constants.CONSTANT_Utf8:
+			putIfAbsent(utf8Index, ((ConstantUtf8) c).getValue(), pos);
+			break;
+		case Constants.CONSTANT_Class:
+			putIfAbsent(classIndex, utf8At(((ConstantClass) c).getNameIndex()), pos);
+			break;
+		case Constants.CONSTANT_String:
+			putIfAbsent(stringIndex, utf8At(((ConstantString) c).getStringIndex()), pos);
+			break;
+		case Constants.CONSTANT_NameAndType:
+			ConstantNameAndType cnat = (ConstantNameAndType) c;
+			putIfAbsent(nameAndTypeIndex, key(utf8At(cnat.getNameIndex()), utf8At(cnat.getSignatureIndex())), pos);
+			break;
+		case Constants.CONSTANT_Fieldref:
+			putIfAbsent(fieldrefIndex, refKey((ConstantCP) c), pos);
+			break;
+		case Constants.CONSTANT_Methodref:
+			putIfAbsent(methodrefIndex, refKey((ConstantCP) c), pos);
+			break;
+		case Constants.CONSTANT_InterfaceMethodref:
+			putIfAbsent(interfaceMethodrefIndex, refKey((ConstantCP) c), pos);
+			break;
+		case Constants.CONSTANT_Integer:
+			putIfAbsent(integerIndex, ((ConstantInteger) c).getValue(), pos);
+			break;
+		case Constants.CONSTANT_Float:
+			putIfAbsent(floatIndex, Float.floatToIntBits(((ConstantFloat) c).getValue()), pos);
+			break;
+		case Constants.CONSTANT_Long:
+			putIfAbsent(longIndex, ((ConstantLong) c).getValue(), pos);
+			break;
+		case Constants.CONSTANT_Double:
+			putIfAbsent(doubleIndex, Double.doubleToLongBits(((ConstantDouble) c).getValue()), pos);
+			break;
+		}
+	}
+
+	private static <K> void putIfAbsent(Map<K, Integer> map, K key, Integer pos) {
+		if (!map.containsKey(key)) {
+			map.put(key, pos);
+		}
+	}
+
+	private static int indexOf(Map<?, Integer> map, Object key) {
+		Integer pos = map.get(key);
+		return pos == null ? -1 : pos.intValue();
+	}
+
+	/**
+	 * Add a new constant to the end of the pool, the caller having made sure there is room (see adjustSize()).
+	 * 
+	 * @return the position of the constant
+	 */
+	private int append(Constant c) {
+		int ret = poolSize;
+		pool[poolSize++] = c;
+		if (c.tag == Constants.CONSTANT_Double || c.tag == Constants.CONSTANT_Long) {
+			poolSize++;
 		}
-		return -1;
+		index(c, ret);
+		return ret;
+	}
+
+	public int lookupInteger(int n) {
+		if (!indexed) {
+			buildIndexes();
+		}
+		return indexOf(integerIndex, n);
+	}
+
+	public int lookupUtf8(String string) {
+		if (!indexed) {
+			buildIndexes();
+		}
+		return indexOf(utf8Index, string);
 	}
 
 	public int lookupClass(String classname) {
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_Class) {
-				int cIndex = ((ConstantClass) c).getNameIndex();
-				String cName = ((ConstantUtf8) pool[cIndex]).getValue();
-				if (cName.equals(classname))
-					return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(classIndex, classname);
 	}
 
 	public int addUtf8(String n) {
@@ -342,9 +451,7 @@ public class ConstantPool implements Node {
 		if (ret != -1)
 			return ret;
 		adjustSize();
-		ret = poolSize;
-		pool[poolSize++] = new ConstantUtf8(n);
-		return ret;
+		return append(new ConstantUtf8(n));
 	}
 
 	public int addInteger(int n) {
@@ -352,9 +459,7 @@ public class ConstantPool implements Node {
 		if (ret != -1)
 			return ret;
 		adjustSize();
-		ret = poolSize;
-		pool[poolSize++] = new ConstantInteger(n);
-		return ret;
+		return append(new ConstantInteger(n));
 	}
 
 	public int addArrayClass(ArrayType type) {
@@ -371,10 +476,7 @@ public class ConstantPool implements Node {
 		if (ret != -1)
 			return ret;
 		adjustSize();
-		ConstantClass c = new ConstantClass(addUtf8(toAdd));
-		ret = poolSize;
-		pool[poolSize++] = c;
-		return ret;
+		return append(new ConstantClass(addUtf8(toAdd)));
 	}
 
 	private void adjustSize() {
@@ -398,43 +500,14 @@ public class ConstantPool implements Node {
 
 		class_index = addClass(class_name);
 		name_and_type_index = addNameAndType(field_name, signature);
-		ret = poolSize;
-		pool[poolSize++] = new ConstantFieldref(class_index, name_and_type_index);
-
-		return ret;
+		return append(new ConstantFieldref(class_index, name_and_type_index));
 	}
 
 	public int lookupFieldref(String searchClassname, String searchFieldname, String searchSignature) {
-		searchClassname = searchClassname.replace('.', '/');
-		String k = new StringBuffer().append(searchClassname).append(searchFieldname).append(searchSignature).toString();
-		Integer pos = fieldCache.get(k);
-		if (pos != null)
-			return pos.intValue();
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_Fieldref) {
-				ConstantFieldref cfr = (ConstantFieldref) c;
-				ConstantNameAndType cnat = (ConstantNameAndType) pool[cfr.getNameAndTypeIndex()];
-
-				// check the class
-				int cIndex = cfr.getClassIndex();
-				ConstantClass cc = (ConstantClass) pool[cIndex];
-				String cName = ((ConstantUtf8) pool[cc.getNameIndex()]).getValue();
-				if (!cName.equals(searchClassname))
-					continue;
-
-				// check the name and type
-				String name = ((ConstantUtf8) pool[cnat.getNameIndex()]).getValue();
-				if (!name.equals(searchFieldname))
-					continue; // not this one
-				String typeSignature = ((ConstantUtf8) pool[cnat.getSignatureIndex()]).getValue();
-				if (!typeSignature.equals(searchSignature))
-					continue;
-				fieldCache.put(k, new Integer(i));
-				return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(fieldrefIndex, key(searchClassname.replace('.', '/'), searchFieldname, searchSignature));
 	}
 
 	public int addNameAndType(String name, String signature) {
@@ -444,26 +517,14 @@ public class ConstantPool implements Node {
 		adjustSize();
 		int name_index = addUtf8(name);
 		int signature_index = addUtf8(signature);
-		ret = poolSize;
-		pool[poolSize++] = new ConstantNameAndType(name_index, signature_index);
-		return ret;
+		return append(new ConstantNameAndType(name_index, signature_index));
 	}
 
 	public int lookupNameAndType(String searchName, String searchTypeSignature) {
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_NameAndType) {
-				ConstantNameAndType cnat = (ConstantNameAndType) c;
-				String name = ((ConstantUtf8) pool[cnat.getNameIndex()]).getValue();
-				if (!name.equals(searchName))
-					continue; // not this one
-				String typeSignature = ((ConstantUtf8) pool[cnat.getSignatureIndex()]).getValue();
-				if (!typeSignature.equals(searchTypeSignature))
-					continue;
-				return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(nameAndTypeIndex, key(searchName, searchTypeSignature));
 	}
 
 	public int addFloat(float f) {
@@ -471,22 +532,14 @@ public class ConstantPool implements Node {
 		if (ret != -1)
 			return ret;
 		adjustSize();
-		ret = poolSize;
-		pool[poolSize++] = new ConstantFloat(f);
-		return ret;
+		return append(new ConstantFloat(f));
 	}
 
 	public int lookupFloat(float f) {
-		int bits = Float.floatToIntBits(f);
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_Float) {
-				ConstantFloat cf = (ConstantFloat) c;
-				if (Float.floatToIntBits(cf.getValue()) == bits)
-					return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(floatIndex, Float.floatToIntBits(f));
 	}
 
 	public int addDouble(double d) {
@@ -494,23 +547,14 @@ public class ConstantPool implements Node {
 		if (ret != -1)
 			return ret;
 		adjustSize();
-		ret = poolSize;
-		pool[poolSize] = new ConstantDouble(d);
-		poolSize += 2;
-		return ret;
+		return append(new ConstantDouble(d));
 	}
 
 	public int lookupDouble(double d) {
-		long bits = Double.doubleToLongBits(d);
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_Double) {
-				ConstantDouble cf = (ConstantDouble) c;
-				if (Double.doubleToLongBits(cf.getValue()) == bits)
-					return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(doubleIndex, Double.doubleToLongBits(d));
 	}
 
 	public int addLong(long l) {
@@ -518,23 +562,14 @@ public class ConstantPool implements Node {
 		if (ret != -1)
 			return ret;
 		adjustSize();
-		ret = poolSize;
-		pool[poolSize] = new ConstantLong(l);
-		poolSize += 2;
-		return ret;
+		return append(new ConstantLong(l));
 	}
 
 	public int lookupString(String s) {
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_String) {
-				ConstantString cs = (ConstantString) c;
-				ConstantUtf8 cu8 = (ConstantUtf8) pool[cs.getStringIndex()];
-				if (cu8.getValue().equals(s))
-					return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(stringIndex, s);
 	}
 
 	public int addString(String str) {
@@ -543,22 +578,14 @@ public class ConstantPool implements Node {
 			return ret;
 		int utf8 = addUtf8(str);
 		adjustSize();
-		ConstantString s = new ConstantString(utf8);
-		ret = poolSize;
-		pool[poolSize++] = s;
-		return ret;
+		return append(new ConstantString(utf8));
 	}
 
 	public int lookupLong(long l) {
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_Long) {
-				ConstantLong cf = (ConstantLong) c;
-				if (cf.getValue() == l)
-					return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(longIndex, l);
 	}
 
 	public int addConstant(Constant c, ConstantPool cp) {
@@ -637,7 +664,31 @@ public class ConstantPool implements Node {
 		}
 	}
 
-	// OPTIMIZE should put it in the cache now
+	/**
+	 * Add a method handle. Unlike the other add methods this does not look for an existing equal entry first.
+	 * 
+	 * @param referenceKind one of the Constants.REF_ kinds
+	 * @param referenceIndex index of the field or method reference the handle is for
+	 * @return index of the new entry
+	 */
+	public int addMethodHandle(byte referenceKind, int referenceIndex) {
+		adjustSize();
+		return append(new ConstantMethodHandle(referenceKind, referenceIndex));
+	}
+
+	/**
+	 * Add the entry for an invokedynamic call site. Unlike the other add methods this does not look for an existing equal entry
+	 * first.
+	 * 
+	 * @param bootstrapMethodAttrIndex index of the call site's bootstrap method in the BootstrapMethods attribute of the class
+	 * @return index of the new entry
+	 */
+	public int addInvokeDynamic(int bootstrapMethodAttrIndex, String name, String signature) {
+		adjustSize();
+		int nameAndTypeIndex = addNameAndType(name, signature);
+		return append(new ConstantInvokeDynamic(bootstrapMethodAttrIndex, nameAndTypeIndex));
+	}
+
 	public int addMethodref(String class_name, String method_name, String signature) {
 		int ret, class_index, name_and_type_index;
 		if ((ret = lookupMethodref(class_name, method_name, signature)) != -1)
@@ -647,9 +698,7 @@ public class ConstantPool implements Node {
 
 		name_and_type_index = addNameAndType(method_name, signature);
 		class_index = addClass(class_name);
-		ret = poolSize;
-		pool[poolSize++] = new ConstantMethodref(class_index, name_and_type_index);
-		return ret;
+		return append(new ConstantMethodref(class_index, name_and_type_index));
 	}
 
 	public int addInterfaceMethodref(String class_name, String method_name, String signature) {
@@ -662,68 +711,21 @@ public class ConstantPool implements Node {
 
 		class_index = addClass(class_name);
 		name_and_type_index = addNameAndType(method_name, signature);
-		ret = poolSize;
-		pool[poolSize++] = new ConstantInterfaceMethodref(class_index, name_and_type_index);
-		return ret;
+		return append(new ConstantInterfaceMethodref(class_index, name_and_type_index));
 	}
 
 	public int lookupInterfaceMethodref(String searchClassname, String searchMethodName, String searchSignature) {
-		searchClassname = searchClassname.replace('.', '/');
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_InterfaceMethodref) {
-				ConstantInterfaceMethodref cfr = (ConstantInterfaceMethodref) c;
-
-				ConstantClass cc = (ConstantClass) pool[cfr.getClassIndex()];
-				String cName = ((ConstantUtf8) pool[cc.getNameIndex()]).getValue();
-				if (!cName.equals(searchClassname))
-					continue;
-
-				// check the name and type
-				ConstantNameAndType cnat = (ConstantNameAndType) pool[cfr.getNameAndTypeIndex()];
-				String name = ((ConstantUtf8) pool[cnat.getNameIndex()]).getValue();
-				if (!name.equals(searchMethodName))
-					continue; // not this one
-				String typeSignature = ((ConstantUtf8) pool[cnat.getSignatureIndex()]).getValue();
-				if (!typeSignature.equals(searchSignature))
-					continue;
-				return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(interfaceMethodrefIndex, key(searchClassname.replace('.', '/'), searchMethodName, searchSignature));
 	}
 
 	public int lookupMethodref(String searchClassname, String searchMethodName, String searchSignature) {
-		String key = new StringBuffer().append(searchClassname).append(searchMethodName).append(searchSignature).toString();
-		Integer cached = methodCache.get(key);
-		if (cached != null)
-			return cached.intValue();
-		searchClassname = searchClassname.replace('.', '/');
-		for (int i = 1; i < poolSize; i++) {
-			Constant c = pool[i];
-			if (c != null && c.tag == Constants.CONSTANT_Methodref) {
-				ConstantMethodref cfr = (ConstantMethodref) c;
-				ConstantNameAndType cnat = (ConstantNameAndType) pool[cfr.getNameAndTypeIndex()];
-
-				// check the class
-				int cIndex = cfr.getClassIndex();
-				ConstantClass cc = (ConstantClass) pool[cIndex];
-				String cName = ((ConstantUtf8) pool[cc.getNameIndex()]).getValue();
-				if (!cName.equals(searchClassname))
-					continue;
-
-				// check the name and type
-				String name = ((ConstantUtf8) pool[cnat.getNameIndex()]).getValue();
-				if (!name.equals(searchMethodName))
-					continue; // not this one
-				String typeSignature = ((ConstantUtf8) pool[cnat.getSignatureIndex()]).getValue();
-				if (!typeSignature.equals(searchSignature))
-					continue;
-				methodCache.put(key, new Integer(i));
-				return i;
-			}
+		if (!indexed) {
+			buildIndexes();
 		}
-		return -1;
+		return indexOf(methodrefIndex, key(searchClassname.replace('.', '/'), searchMethodName, searchSignature));
 	}
 
 	public ConstantPool getFinalConstantPool() {
@@ -69,11 +69,14 @@ import org.aspectj.apache.bcel.Constants;
  * @see Constant
  */
 public final class ConstantUtf8 extends Constant implements SimpleConstant {
-	private String string;
+	// Either may be null: a constant read from a class file keeps its encoded bytes until the string is asked for
+	private volatile String string;
+	private volatile byte[] bytes;
 
 	ConstantUtf8(DataInputStream file) throws IOException {
 		super(Constants.CONSTANT_Utf8);
-		string = file.readUTF();
+		bytes = new byte[file.readUnsignedShort()];
+		file.readFully(bytes);
 	}
 
 	public ConstantUtf8(String string) {
@@ -82,6 +85,32 @@ public final class ConstantUtf8 extends Constant implements SimpleConstant {
 		this.string = string;
 	}
 
+	/**
+	 * Decode the (modified) UTF-8 held in the class file, see DataInput.readUTF().
+	 */
+	private static String decode(byte[] bytes) {
+		int len = bytes.length;
+		char[] chars = new char[len];
+		int count = 0;
+		int i = 0;
+		while (i < len) {
+			int c = bytes[i] & 0xff;
+			if (c < 0x80) {
+				chars[count++] = (char) c;
+				i++;
+			} else if ((c >> 5) == 0x6 && i + 1 < len && (bytes[i + 1] & 0xc0) == 0x80) {
+				chars[count++] = (char) (((c & 0x1f) << 6) | (bytes[i + 1] & 0x3f));
+				i += 2;
+			} else if ((c >> 4) == 0xe && i + 2 < len && (bytes[i + 1] & 0xc0) == 0x80 && (bytes[i + 2] & 0xc0) == 0x80) {
+				chars[count++] = (char) (((c & 0x0f) << 12) | ((bytes[i + 1] & 0x3f) << 6) | (bytes[i + 2] & 0x3f));
+				i += 3;
+			} else {
+				throw new ClassFormatException("Malformed UTF-8 constant at byte " + i);
+			}
+		}
+		return new String(chars, 0, count);
+	}
+
 	@Override
 	public void accept(ClassVisitor v) {
 		v.visitConstantUtf8(this);
@@ -90,20 +119,37 @@ public final class ConstantUtf8 extends Constant implements SimpleConstant {
 	@Override
 	public final void dump(DataOutputStream file) throws IOException {
 		file.writeByte(tag);
-		file.writeUTF(string);
+		byte[] encoded = bytes;
+		if (encoded != null) {
+			file.writeShort(encoded.length);
+			file.write(encoded);
+		} else {
+			file.writeUTF(string);
+		}
 	}
 
 	@Override
 	public final String toString() {
-		return super.toString() + "(\"" + Utility.replace(string, "\n", "\\n") + "\")";
+		return super.toString() + "(\"" + Utility.replace(getValue(), "\n", "\\n") + "\")";
 	}
 
 	@Override
 	public String getValue() {
-		return string;
+		String value = string;
+		if (value == null) {
+			byte[] encoded = bytes;
+			if (encoded == null) {
+				// decoded by another thread since string was read
+				return string;
+			}
+			value = decode(encoded);
+			string = value;
+			bytes = null;
+		}
+		return value;
 	}
 
 	public String getStringValue() {
-		return string;
+		return getValue();
 	}
 }
@@ -102,7 +102,14 @@ public final class InvokeDynamic extends InvokeInstruction {
 	public Type[] getArgumentTypes(ConstantPool cp) {
 		return Type.getArgumentTypes(getSignature(cp));
 	}
-	
+
+	/**
+	 * Unlike the other invokes there is no receiver, only the arguments are consumed.
+	 */
+	public int consumeStack(ConstantPool cpg) {
+		return Type.getArgumentSizes(getSignature(cpg));
+	}
+
 	public String getSignature(ConstantPool cp) {
 		if (signature == null) {
 			ConstantInvokeDynamic cid = (ConstantInvokeDynamic)cp.getConstant(index);
@@ -112,6 +112,11 @@ public class MethodGen extends FieldGenOrMethodGen {
 	private boolean hasParameterAnnotations = false;
 	private boolean haveUnpackedParameterAnnotations = false;
 
+	// if set getMethod() computes the StackMapTable for the code
+	private TypeLattice typeLattice;
+	private boolean stackMapComputed;
+	private RuntimeException stackMapFailure;
+
 	/**
 	 * Declare method. If the method is non-static the constructor automatically declares a local variable `$this' in slot 0. The
 	 * actual code is contained in the `il' parameter, which may further manipulated by the user. But he must take care not to
@@ -703,8 +708,26 @@ public class MethodGen extends FieldGenOrMethodGen {
 
 		LineNumberTable lnt = null;
 		LocalVariableTable lvt = null;
+		Attribute smt = null;
 		// J5TODO: LocalVariableTypeTable support!
 
+		stackMapComputed = false;
+		stackMapFailure = null;
+		if (typeLattice != null && byte_code != null && !isAbstract()) {
+			// any frames read in with the code describe the code as it was
+			removeStackMapTable();
+			try {
+				smt = StackMapGen.getStackMapTable(this, byte_code.length, typeLattice);
+				stackMapComputed = true;
+			} catch (RuntimeException e) {
+				// code the frames cannot be worked out for is written without them, see isStackMapComputed()
+				stackMapFailure = e;
+			}
+			if (smt != null) {
+				addCodeAttribute(smt);
+			}
+		}
+
 		/*
 		 * Create LocalVariableTable and LineNumberTable attributes (for debuggers, e.g.)
 		 */
@@ -768,6 +791,9 @@ public class MethodGen extends FieldGenOrMethodGen {
 		if (lnt != null) {
 			removeCodeAttribute(lnt);
 		}
+		if (smt != null) {
+			removeCodeAttribute(smt);
+		}
 		if (code != null) {
 			removeAttribute(code);
 		}
@@ -914,6 +940,37 @@ public class MethodGen extends FieldGenOrMethodGen {
 		stripAttributes = flag;
 	}
 
+	/**
+	 * Have getMethod() compute the StackMapTable for the code, as class files from version 50 on expect, rather than leaving it
+	 * to some later pass over the class file. The lattice answers the type hierarchy questions that come up (see StackMapGen).
+	 */
+	public void setTypeLattice(TypeLattice typeLattice) {
+		this.typeLattice = typeLattice;
+	}
+
+	/**
+	 * @return true if the last call to getMethod() gave the code the frames it needs, false if there was no type lattice or the
+	 *         code could not be described by frames (see StackMapGen)
+	 */
+	public boolean isStackMapComputed() {
+		return stackMapComputed;
+	}
+
+	/**
+	 * @return why the last call to getMethod() could not compute the frames for the code, or null if it did not try or did not fail
+	 */
+	public RuntimeException getStackMapFailure() {
+		return stackMapFailure;
+	}
+
+	private void removeStackMapTable() {
+		for (Iterator<Attribute> iter = codeAttributesList.iterator(); iter.hasNext();) {
+			if (iter.next().getName().equals("StackMapTable")) {
+				iter.remove();
+			}
+		}
+	}
+
 	static final class BranchTarget {
 		InstructionHandle target;
 		int stackDepth;
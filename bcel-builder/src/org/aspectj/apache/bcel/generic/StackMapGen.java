@@ -0,0 +1,1092 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.apache.bcel.generic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.aspectj.apache.bcel.Constants;
+import org.aspectj.apache.bcel.classfile.Attribute;
+import org.aspectj.apache.bcel.classfile.Constant;
+import org.aspectj.apache.bcel.classfile.ConstantPool;
+import org.aspectj.apache.bcel.classfile.Unknown;
+
+/**
+ * Computes the StackMapTable attribute for the code of a MethodGen (JVMS 4.7.4). The types of the locals and stack entries are
+ * worked out by data flow over the instruction list, the positions of the instructions having already been fixed by
+ * InstructionList.getByteCode(). A frame is recorded at every branch target, every exception handler and every instruction
+ * following an unconditional transfer of control. Where paths meet with different classes in the same slot the TypeLattice is
+ * asked for their common superclass.
+ *
+ * Code that cannot be described this way - jsr/ret subroutines or unreachable instructions, neither of which javac generates for a
+ * class file version that needs frames - causes a ClassGenException and the caller can decide what to do instead.
+ */
+public final class StackMapGen implements Constants {
+
+	// frame types, the verification type tags are the ITEM_ constants
+	private static final int SAME_LOCALS_1_STACK_ITEM = 64;
+	private static final int SAME_LOCALS_1_STACK_ITEM_EXTENDED = 247;
+	private static final int SAME_FRAME_EXTENDED = 251;
+	private static final int FULL_FRAME = 255;
+
+	private static final VType TOP = new VType(ITEM_Bogus, null, -1);
+	private static final VType INTEGER = new VType(ITEM_Integer, null, -1);
+	private static final VType FLOAT = new VType(ITEM_Float, null, -1);
+	private static final VType DOUBLE = new VType(ITEM_Double, null, -1);
+	private static final VType LONG = new VType(ITEM_Long, null, -1);
+	private static final VType NULL = new VType(ITEM_Null, null, -1);
+	private static final VType UNINITIALIZED_THIS = new VType(ITEM_InitObject, null, -1);
+	private static final VType OBJECT = object("java/lang/Object");
+	private static final VType STRING = object("java/lang/String");
+	private static final VType THROWABLE = object("java/lang/Throwable");
+
+	private final MethodGen mg;
+	private final ConstantPool cp;
+	private final TypeLattice lattice;
+	private final String className;
+	private final int maxLocals;
+	private final int maxStack;
+
+	private final InstructionHandle[] handles;
+	private final int[] indexAtPosition;
+
+	// exception handlers, as indexes into handles (the end is inclusive)
+	private final int[] handlerStart;
+	private final int[] handlerEnd;
+	private final int[] handlerTarget;
+	private final VType[] handlerType;
+
+	private final boolean[] framePoint;
+	private final Frame[] frames;
+	private final int[] worklist;
+	private int worklistSize;
+	private final boolean[] queued;
+
+	/**
+	 * A verification type. Those without a name are shared, Object carries the internal name of the class (or the descriptor of
+	 * an array type) and Uninitialized carries the offset and class of the 'new' that created it.
+	 */
+	private static final class VType {
+		final int tag;
+		final String name;
+		final int offset;
+
+		VType(int tag, String name, int offset) {
+			this.tag = tag;
+			this.name = name;
+			this.offset = offset;
+		}
+
+		boolean isCategory2() {
+			return tag == ITEM_Long || tag == ITEM_Double;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof VType)) {
+				return false;
+			}
+			VType o = (VType) other;
+			return tag == o.tag && offset == o.offset && (name == null ? o.name == null : name.equals(o.name));
+		}
+
+		@Override
+		public int hashCode() {
+			return tag * 37 + offset + (name == null ? 0 : name.hashCode());
+		}
+	}
+
+	/**
+	 * The types of the locals, one entry per slot with a long or double followed by Top, and of the stack, one entry per value.
+	 */
+	private static final class Frame {
+		final VType[] locals;
+		final VType[] stack;
+		int top;
+
+		Frame(int maxLocals, int maxStack) {
+			locals = new VType[maxLocals];
+			stack = new VType[maxStack];
+		}
+
+		void copyFrom(Frame f) {
+			System.arraycopy(f.locals, 0, locals, 0, locals.length);
+			System.arraycopy(f.stack, 0, stack, 0, f.top);
+			top = f.top;
+		}
+
+		void push(VType t) {
+			stack[top++] = t;
+		}
+
+		VType pop() {
+			if (top == 0) {
+				throw new ClassGenException("Stack underflow");
+			}
+			return stack[--top];
+		}
+
+		void pop(int n) {
+			if (top < n) {
+				throw new ClassGenException("Stack underflow");
+			}
+			top -= n;
+		}
+
+		void store(int index, VType t) {
+			if (index > 0 && locals[index - 1].isCategory2()) {
+				locals[index - 1] = TOP;
+			}
+			locals[index] = t;
+			if (t.isCategory2()) {
+				locals[index + 1] = TOP;
+			}
+		}
+
+		void initialize(VType uninitialized, VType initialized) {
+			for (int i = 0; i < locals.length; i++) {
+				if (locals[i].equals(uninitialized)) {
+					locals[i] = initialized;
+				}
+			}
+			for (int i = 0; i < top; i++) {
+				if (stack[i].equals(uninitialized)) {
+					stack[i] = initialized;
+				}
+			}
+		}
+
+		/**
+		 * Copies entries of the top 'words' words of the stack to below the 'skipWords' words beneath them.
+		 */
+		void dup(int words, int skipWords) {
+			int copied = entries(0, words);
+			int skipped = entries(copied, skipWords);
+			int at = top - copied - skipped;
+			System.arraycopy(stack, at, stack, at + copied, copied + skipped);
+			System.arraycopy(stack, top, stack, at, copied);
+			top += copied;
+		}
+
+		private int entries(int from, int words) {
+			int count = 0;
+			while (words > 0) {
+				VType t = stack[top - 1 - from - count];
+				words -= t.isCategory2() ? 2 : 1;
+				count++;
+			}
+			if (words < 0) {
+				throw new ClassGenException("Stack manipulation splits a long or double");
+			}
+			return count;
+		}
+	}
+
+	private StackMapGen(MethodGen mg, TypeLattice lattice, int codeLength) {
+		this.mg = mg;
+		this.cp = mg.getConstantPool();
+		this.lattice = lattice;
+		this.className = mg.getClassName().replace('.', '/');
+		this.maxLocals = mg.getMaxLocals();
+		this.maxStack = mg.getMaxStack();
+
+		handles = mg.getInstructionList().getInstructionHandles();
+		indexAtPosition = new int[codeLength];
+		for (int i = 0; i < handles.length; i++) {
+			indexAtPosition[handles[i].getPosition()] = i;
+		}
+
+		CodeExceptionGen[] handlers = mg.getExceptionHandlers();
+		handlerStart = new int[handlers.length];
+		handlerEnd = new int[handlers.length];
+		handlerTarget = new int[handlers.length];
+		handlerType = new VType[handlers.length];
+		for (int h = 0; h < handlers.length; h++) {
+			CodeExceptionGen handler = handlers[h];
+			handlerStart[h] = indexOf(handler.getStartPC());
+			handlerEnd[h] = indexOf(handler.getEndPC());
+			handlerTarget[h] = indexOf(handler.getHandlerPC());
+			ObjectType catchType = handler.getCatchType();
+			handlerType[h] = catchType == null ? THROWABLE : object(catchType.getClassName().replace('.', '/'));
+		}
+
+		framePoint = new boolean[handles.length];
+		frames = new Frame[handles.length];
+		worklist = new int[handles.length];
+		queued = new boolean[handles.length];
+	}
+
+	/**
+	 * Compute the frames for the code of a method. The instruction list must have had its positions set, as getByteCode() does,
+	 * and the max locals and max stack of the method must be correct.
+	 *
+	 * @param mg the method, whose class name is used for 'this'
+	 * @param codeLength the length of the byte code
+	 * @param lattice answers common superclass questions where two paths meet with different classes in a slot
+	 * @return the StackMapTable attribute, or null if the method needs no frames
+	 * @throws ClassGenException if frames cannot be computed for this code
+	 */
+	public static Attribute getStackMapTable(MethodGen mg, int codeLength, TypeLattice lattice) {
+		InstructionList il = mg.getInstructionList();
+		if (il == null || il.isEmpty()) {
+			return null;
+		}
+		return new StackMapGen(mg, lattice, codeLength).generate();
+	}
+
+	private Attribute generate() {
+		boolean needed = markFramePoints();
+		if (!needed) {
+			return null;
+		}
+		Frame initial = initialFrame();
+		frames[0] = new Frame(maxLocals, maxStack);
+		frames[0].copyFrom(initial);
+		enqueue(0);
+		Frame current = new Frame(maxLocals, maxStack);
+		while (worklistSize > 0) {
+			int index = worklist[--worklistSize];
+			queued[index] = false;
+			current.copyFrom(frames[index]);
+			flow(index, current);
+		}
+		return encode(initial);
+	}
+
+	/**
+	 * @return true if there are any frames to record
+	 */
+	private boolean markFramePoints() {
+		boolean any = false;
+		for (int i = 0; i < handles.length; i++) {
+			Instruction ins = handles[i].getInstruction();
+			short opcode = ins.opcode;
+			if (opcode == JSR || opcode == JSR_W || opcode == RET) {
+				throw new ClassGenException("Cannot compute frames for code using jsr/ret");
+			}
+			if (ins instanceof InstructionBranch) {
+				framePoint[indexOf(((InstructionBranch) ins).getTarget())] = true;
+				if (ins instanceof InstructionSelect) {
+					InstructionHandle[] targets = ((InstructionSelect) ins).getTargets();
+					for (int t = 0; t < targets.length; t++) {
+						framePoint[indexOf(targets[t])] = true;
+					}
+				}
+				any = true;
+			}
+			if (endsBlock(opcode) && i + 1 < handles.length) {
+				framePoint[i + 1] = true;
+				any = true;
+			}
+		}
+		for (int h = 0; h < handlerTarget.length; h++) {
+			framePoint[handlerTarget[h]] = true;
+			any = true;
+		}
+		return any;
+	}
+
+	private Frame initialFrame() {
+		Frame frame = new Frame(maxLocals, maxStack);
+		for (int i = 0; i < maxLocals; i++) {
+			frame.locals[i] = TOP;
+		}
+		int slot = 0;
+		if (!mg.isStatic()) {
+			boolean uninitialized = mg.getName().equals("<init>") && !className.equals("java/lang/Object");
+			frame.locals[slot++] = uninitialized ? UNINITIALIZED_THIS : object(className);
+		}
+		Type[] parameterTypes = mg.getArgumentTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			frame.store(slot, typeOf(parameterTypes[i].getSignature(), 0));
+			slot += parameterTypes[i].getSize();
+		}
+		return frame;
+	}
+
+	/**
+	 * Run the instructions from a frame point until control leaves the straight line of code, merging the frame into every place
+	 * control can go.
+	 */
+	private void flow(int index, Frame frame) {
+		while (true) {
+			InstructionHandle ih = handles[index];
+			Instruction ins = ih.getInstruction();
+			mergeIntoHandlers(index, frame);
+			if (execute(ih, frame)) {
+				// locals changed, the handlers must also accept them as they are after the instruction
+				mergeIntoHandlers(index, frame);
+			}
+			if (ins instanceof InstructionBranch) {
+				merge(indexOf(((InstructionBranch) ins).getTarget()), frame, null);
+				if (ins instanceof InstructionSelect) {
+					InstructionHandle[] targets = ((InstructionSelect) ins).getTargets();
+					for (int t = 0; t < targets.length; t++) {
+						merge(indexOf(targets[t]), frame, null);
+					}
+				}
+			}
+			if (endsBlock(ins.opcode)) {
+				return;
+			}
+			index++;
+			if (index == handles.length) {
+				throw new ClassGenException("Control falls off the end of the code");
+			}
+			if (framePoint[index]) {
+				merge(index, frame, null);
+				return;
+			}
+		}
+	}
+
+	private void mergeIntoHandlers(int index, Frame frame) {
+		for (int h = 0; h < handlerTarget.length; h++) {
+			if (index >= handlerStart[h] && index <= handlerEnd[h]) {
+				merge(handlerTarget[h], frame, handlerType[h]);
+			}
+		}
+	}
+
+	/**
+	 * Merge a frame into the one recorded for a frame point, queueing the point if that changed anything.
+	 *
+	 * @param exception if not null the stack is just this exception rather than the stack of the frame
+	 */
+	private void merge(int index, Frame from, VType exception) {
+		Frame to = frames[index];
+		if (to == null) {
+			to = new Frame(maxLocals, maxStack);
+			System.arraycopy(from.locals, 0, to.locals, 0, maxLocals);
+			if (exception == null) {
+				System.arraycopy(from.stack, 0, to.stack, 0, from.top);
+				to.top = from.top;
+			} else {
+				to.stack[0] = exception;
+				to.top = 1;
+			}
+			frames[index] = to;
+			enqueue(index);
+			return;
+		}
+		boolean changed = false;
+		for (int i = 0; i < maxLocals; i++) {
+			VType merged = merge(to.locals[i], from.locals[i]);
+			if (merged != to.locals[i]) {
+				to.locals[i] = merged;
+				changed = true;
+			}
+		}
+		if (exception == null) {
+			if (to.top != from.top) {
+				throw new ClassGenException("Inconsistent stack height at " + handles[index].getPosition());
+			}
+			for (int i = 0; i < to.top; i++) {
+				changed |= mergeStackEntry(to, i, from.stack[i], index);
+			}
+		} else {
+			changed |= mergeStackEntry(to, 0, exception, index);
+		}
+		if (changed) {
+			enqueue(index);
+		}
+	}
+
+	private boolean mergeStackEntry(Frame to, int i, VType incoming, int index) {
+		VType merged = merge(to.stack[i], incoming);
+		if (merged == to.stack[i]) {
+			return false;
+		}
+		if (merged == TOP) {
+			throw new ClassGenException("Inconsistent stack types at " + handles[index].getPosition());
+		}
+		to.stack[i] = merged;
+		return true;
+	}
+
+	/**
+	 * @return the existing type if it already covers the incoming one, otherwise the type both are assignable to
+	 */
+	private VType merge(VType existing, VType incoming) {
+		if (existing == incoming || existing.tag == ITEM_Bogus || existing.equals(incoming)) {
+			return existing;
+		}
+		if (existing.tag == ITEM_Null && incoming.tag == ITEM_Object) {
+			return incoming;
+		}
+		if (existing.tag == ITEM_Object && incoming.tag == ITEM_Null) {
+			return existing;
+		}
+		if (existing.tag == ITEM_Object && incoming.tag == ITEM_Object) {
+			String common = commonSuperType(existing.name, incoming.name);
+			return common.equals(existing.name) ? existing : object(common);
+		}
+		return TOP;
+	}
+
+	private String commonSuperType(String type1, String type2) {
+		boolean array1 = type1.charAt(0) == '[';
+		boolean array2 = type2.charAt(0) == '[';
+		if (array1 && array2) {
+			char element1 = type1.charAt(1);
+			char element2 = type2.charAt(1);
+			if ((element1 == 'L' || element1 == '[') && (element2 == 'L' || element2 == '[')) {
+				String common = commonSuperType(internalName(type1.substring(1)), internalName(type2.substring(1)));
+				return "[" + (common.charAt(0) == '[' ? common : "L" + common + ";");
+			}
+			return OBJECT.name;
+		}
+		if (array1 || array2) {
+			return OBJECT.name;
+		}
+		if (lattice == null) {
+			throw new ClassGenException("No type lattice to merge " + type1 + " and " + type2);
+		}
+		return lattice.getCommonSuperClass(type1, type2);
+	}
+
+	/**
+	 * Apply the effect of an instruction to the frame.
+	 *
+	 * @return true if the locals changed
+	 */
+	private boolean execute(InstructionHandle ih, Frame frame) {
+		Instruction ins = ih.getInstruction();
+		short opcode = ins.opcode;
+		switch (opcode) {
+		case NOP:
+		case GOTO:
+		case GOTO_W:
+		case RETURN:
+		case IINC:
+			return false;
+		case ACONST_NULL:
+			frame.push(NULL);
+			return false;
+		case ICONST_M1:
+		case ICONST_0:
+		case ICONST_1:
+		case ICONST_2:
+		case ICONST_3:
+		case ICONST_4:
+		case ICONST_5:
+		case BIPUSH:
+		case SIPUSH:
+			frame.push(INTEGER);
+			return false;
+		case LCONST_0:
+		case LCONST_1:
+			frame.push(LONG);
+			return false;
+		case FCONST_0:
+		case FCONST_1:
+		case FCONST_2:
+			frame.push(FLOAT);
+			return false;
+		case DCONST_0:
+		case DCONST_1:
+			frame.push(DOUBLE);
+			return false;
+		case LDC:
+		case LDC_W:
+		case LDC2_W:
+			frame.push(constantType(ins.getIndex()));
+			return false;
+		case ILOAD:
+		case ILOAD_0:
+		case ILOAD_1:
+		case ILOAD_2:
+		case ILOAD_3:
+			frame.push(INTEGER);
+			return false;
+		case LLOAD:
+		case LLOAD_0:
+		case LLOAD_1:
+		case LLOAD_2:
+		case LLOAD_3:
+			frame.push(LONG);
+			return false;
+		case FLOAD:
+		case FLOAD_0:
+		case FLOAD_1:
+		case FLOAD_2:
+		case FLOAD_3:
+			frame.push(FLOAT);
+			return false;
+		case DLOAD:
+		case DLOAD_0:
+		case DLOAD_1:
+		case DLOAD_2:
+		case DLOAD_3:
+			frame.push(DOUBLE);
+			return false;
+		case ALOAD:
+		case ALOAD_0:
+		case ALOAD_1:
+		case ALOAD_2:
+		case ALOAD_3:
+			frame.push(frame.locals[ins.getIndex()]);
+			return false;
+		case IALOAD:
+		case BALOAD:
+		case CALOAD:
+		case SALOAD:
+			frame.pop(2);
+			frame.push(INTEGER);
+			return false;
+		case LALOAD:
+			frame.pop(2);
+			frame.push(LONG);
+			return false;
+		case FALOAD:
+			frame.pop(2);
+			frame.push(FLOAT);
+			return false;
+		case DALOAD:
+			frame.pop(2);
+			frame.push(DOUBLE);
+			return false;
+		case AALOAD: {
+			frame.pop();
+			VType array = frame.pop();
+			if (array.tag == ITEM_Null) {
+				frame.push(NULL);
+			} else if (array.tag == ITEM_Object && array.name.charAt(0) == '[') {
+				frame.push(typeOf(array.name, 1));
+			} else {
+				frame.push(OBJECT);
+			}
+			return false;
+		}
+		case ISTORE:
+		case ISTORE_0:
+		case ISTORE_1:
+		case ISTORE_2:
+		case ISTORE_3:
+		case LSTORE:
+		case LSTORE_0:
+		case LSTORE_1:
+		case LSTORE_2:
+		case LSTORE_3:
+		case FSTORE:
+		case FSTORE_0:
+		case FSTORE_1:
+		case FSTORE_2:
+		case FSTORE_3:
+		case DSTORE:
+		case DSTORE_0:
+		case DSTORE_1:
+		case DSTORE_2:
+		case DSTORE_3:
+		case ASTORE:
+		case ASTORE_0:
+		case ASTORE_1:
+		case ASTORE_2:
+		case ASTORE_3:
+			frame.store(ins.getIndex(), frame.pop());
+			return true;
+		case IASTORE:
+		case LASTORE:
+		case FASTORE:
+		case DASTORE:
+		case AASTORE:
+		case BASTORE:
+		case CASTORE:
+		case SASTORE:
+			frame.pop(3);
+			return false;
+		case POP:
+			frame.pop();
+			return false;
+		case POP2:
+			frame.pop(frame.stack[frame.top - 1].isCategory2() ? 1 : 2);
+			return false;
+		case DUP:
+			frame.dup(1, 0);
+			return false;
+		case DUP_X1:
+			frame.dup(1, 1);
+			return false;
+		case DUP_X2:
+			frame.dup(1, 2);
+			return false;
+		case DUP2:
+			frame.dup(2, 0);
+			return false;
+		case DUP2_X1:
+			frame.dup(2, 1);
+			return false;
+		case DUP2_X2:
+			frame.dup(2, 2);
+			return false;
+		case SWAP: {
+			VType t1 = frame.pop();
+			VType t2 = frame.pop();
+			frame.push(t1);
+			frame.push(t2);
+			return false;
+		}
+		case IADD:
+		case ISUB:
+		case IMUL:
+		case IDIV:
+		case IREM:
+		case ISHL:
+		case ISHR:
+		case IUSHR:
+		case IAND:
+		case IOR:
+		case IXOR:
+		case LCMP:
+		case FCMPL:
+		case FCMPG:
+		case DCMPL:
+		case DCMPG:
+			frame.pop(2);
+			frame.push(INTEGER);
+			return false;
+		case LADD:
+		case LSUB:
+		case LMUL:
+		case LDIV:
+		case LREM:
+		case LSHL:
+		case LSHR:
+		case LUSHR:
+		case LAND:
+		case LOR:
+		case LXOR:
+			frame.pop(2);
+			frame.push(LONG);
+			return false;
+		case FADD:
+		case FSUB:
+		case FMUL:
+		case FDIV:
+		case FREM:
+			frame.pop(2);
+			frame.push(FLOAT);
+			return false;
+		case DADD:
+		case DSUB:
+		case DMUL:
+		case DDIV:
+		case DREM:
+			frame.pop(2);
+			frame.push(DOUBLE);
+			return false;
+		case INEG:
+		case L2I:
+		case F2I:
+		case D2I:
+		case I2B:
+		case I2C:
+		case I2S:
+		case ARRAYLENGTH:
+		case INSTANCEOF:
+			frame.pop();
+			frame.push(INTEGER);
+			return false;
+		case LNEG:
+		case I2L:
+		case F2L:
+		case D2L:
+			frame.pop();
+			frame.push(LONG);
+			return false;
+		case FNEG:
+		case I2F:
+		case L2F:
+		case D2F:
+			frame.pop();
+			frame.push(FLOAT);
+			return false;
+		case DNEG:
+		case I2D:
+		case L2D:
+		case F2D:
+			frame.pop();
+			frame.push(DOUBLE);
+			return false;
+		case IFEQ:
+		case IFNE:
+		case IFLT:
+		case IFGE:
+		case IFGT:
+		case IFLE:
+		case IFNULL:
+		case IFNONNULL:
+		case TABLESWITCH:
+		case LOOKUPSWITCH:
+		case IRETURN:
+		case LRETURN:
+		case FRETURN:
+		case DRETURN:
+		case ARETURN:
+		case ATHROW:
+		case MONITORENTER:
+		case MONITOREXIT:
+		case PUTSTATIC:
+			frame.pop();
+			return false;
+		case IF_ICMPEQ:
+		case IF_ICMPNE:
+		case IF_ICMPLT:
+		case IF_ICMPGE:
+		case IF_ICMPGT:
+		case IF_ICMPLE:
+		case IF_ACMPEQ:
+		case IF_ACMPNE:
+		case PUTFIELD:
+			frame.pop(2);
+			return false;
+		case GETSTATIC:
+			frame.push(typeOf(((FieldInstruction) ins).getSignature(cp), 0));
+			return false;
+		case GETFIELD:
+			frame.pop();
+			frame.push(typeOf(((FieldInstruction) ins).getSignature(cp), 0));
+			return false;
+		case INVOKEVIRTUAL:
+		case INVOKESPECIAL:
+		case INVOKESTATIC:
+		case INVOKEINTERFACE:
+		case INVOKEDYNAMIC:
+			return invoke((InvokeInstruction) ins, frame);
+		case NEW:
+			frame.push(new VType(ITEM_NewObject, classAt(ins.getIndex()), ih.getPosition()));
+			return false;
+		case NEWARRAY:
+			frame.pop();
+			frame.push(object("[" + primitiveArrayElement(((InstructionByte) ins).getTypecode())));
+			return false;
+		case ANEWARRAY: {
+			frame.pop();
+			String element = classAt(ins.getIndex());
+			frame.push(object(element.charAt(0) == '[' ? "[" + element : "[L" + element + ";"));
+			return false;
+		}
+		case CHECKCAST:
+			frame.pop();
+			frame.push(object(classAt(ins.getIndex())));
+			return false;
+		case MULTIANEWARRAY:
+			frame.pop(((MULTIANEWARRAY) ins).getDimensions());
+			frame.push(object(classAt(ins.getIndex())));
+			return false;
+		default:
+			throw new ClassGenException("Cannot compute frames for instruction " + ins);
+		}
+	}
+
+	private boolean invoke(InvokeInstruction ins, Frame frame) {
+		String signature = ins.getSignature(cp);
+		frame.pop(argumentCount(signature));
+		boolean localsChanged = false;
+		short opcode = ins.opcode;
+		if (opcode != INVOKESTATIC && opcode != INVOKEDYNAMIC) {
+			VType receiver = frame.pop();
+			if (opcode == INVOKESPECIAL && ins.getMethodName(cp).equals("<init>")) {
+				if (receiver.tag == ITEM_InitObject) {
+					frame.initialize(receiver, object(className));
+					localsChanged = true;
+				} else if (receiver.tag == ITEM_NewObject) {
+					frame.initialize(receiver, object(receiver.name));
+					localsChanged = true;
+				}
+			}
+		}
+		VType returnType = typeOf(signature, signature.indexOf(')') + 1);
+		if (returnType != null) {
+			frame.push(returnType);
+		}
+		return localsChanged;
+	}
+
+	private VType constantType(int index) {
+		Constant c = cp.getConstant(index);
+		switch (c.getTag()) {
+		case CONSTANT_Integer:
+			return INTEGER;
+		case CONSTANT_Float:
+			return FLOAT;
+		case CONSTANT_Long:
+			return LONG;
+		case CONSTANT_Double:
+			return DOUBLE;
+		case CONSTANT_String:
+			return STRING;
+		case CONSTANT_Class:
+			return object("java/lang/Class");
+		case CONSTANT_MethodType:
+			return object("java/lang/invoke/MethodType");
+		case CONSTANT_MethodHandle:
+			return object("java/lang/invoke/MethodHandle");
+		default:
+			throw new ClassGenException("Unexpected constant for ldc: " + c);
+		}
+	}
+
+	private String classAt(int index) {
+		return cp.getConstantString_CONSTANTClass(index);
+	}
+
+	private void enqueue(int index) {
+		if (!queued[index]) {
+			queued[index] = true;
+			worklist[worklistSize++] = index;
+		}
+	}
+
+	private int indexOf(InstructionHandle ih) {
+		return indexAtPosition[ih.getPosition()];
+	}
+
+	private static boolean endsBlock(short opcode) {
+		switch (opcode) {
+		case GOTO:
+		case GOTO_W:
+		case ATHROW:
+		case TABLESWITCH:
+		case LOOKUPSWITCH:
+		case IRETURN:
+		case LRETURN:
+		case FRETURN:
+		case DRETURN:
+		case ARETURN:
+		case RETURN:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static VType object(String name) {
+		return new VType(ITEM_Object, name, -1);
+	}
+
+	/**
+	 * @return the verification type for the field descriptor starting at the given index, null for 'V'
+	 */
+	private static VType typeOf(String descriptor, int index) {
+		switch (descriptor.charAt(index)) {
+		case 'Z':
+		case 'B':
+		case 'C':
+		case 'S':
+		case 'I':
+			return INTEGER;
+		case 'F':
+			return FLOAT;
+		case 'J':
+			return LONG;
+		case 'D':
+			return DOUBLE;
+		case 'V':
+			return null;
+		case 'L':
+			return object(descriptor.substring(index + 1, descriptor.indexOf(';', index)));
+		case '[': {
+			int end = index;
+			while (descriptor.charAt(end) == '[') {
+				end++;
+			}
+			if (descriptor.charAt(end) == 'L') {
+				end = descriptor.indexOf(';', end);
+			}
+			return object(descriptor.substring(index, end + 1));
+		}
+		default:
+			throw new ClassGenException("Bad descriptor " + descriptor);
+		}
+	}
+
+	private static int argumentCount(String signature) {
+		int count = 0;
+		int i = 1;
+		while (signature.charAt(i) != ')') {
+			while (signature.charAt(i) == '[') {
+				i++;
+			}
+			if (signature.charAt(i) == 'L') {
+				i = signature.indexOf(';', i);
+			}
+			i++;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the internal name for a field descriptor of a class or array type
+	 */
+	private static String internalName(String descriptor) {
+		return descriptor.charAt(0) == 'L' ? descriptor.substring(1, descriptor.length() - 1) : descriptor;
+	}
+
+	private static char primitiveArrayElement(byte typecode) {
+		switch (typecode) {
+		case T_BOOLEAN:
+			return 'Z';
+		case T_CHAR:
+			return 'C';
+		case T_FLOAT:
+			return 'F';
+		case T_DOUBLE:
+			return 'D';
+		case T_BYTE:
+			return 'B';
+		case T_SHORT:
+			return 'S';
+		case T_INT:
+			return 'I';
+		case T_LONG:
+			return 'J';
+		default:
+			throw new ClassGenException("Bad array type code " + typecode);
+		}
+	}
+
+	// ---- writing the attribute
+
+	private Attribute encode(Frame initial) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeShort(0); // number_of_entries, filled in at the end
+			VType[] previous = compress(initial.locals);
+			int previousOffset = -1;
+			int count = 0;
+			for (int i = 0; i < handles.length; i++) {
+				if (!framePoint[i]) {
+					continue;
+				}
+				Frame frame = frames[i];
+				if (frame == null) {
+					throw new ClassGenException("Unreachable code at " + handles[i].getPosition());
+				}
+				int offset = handles[i].getPosition();
+				VType[] locals = compress(frame.locals);
+				writeFrame(out, offset - previousOffset - 1, previous, locals, frame);
+				previous = locals;
+				previousOffset = offset;
+				count++;
+			}
+			out.close();
+			byte[] data = bytes.toByteArray();
+			data[0] = (byte) (count >>> 8);
+			data[1] = (byte) count;
+			return new Unknown(cp.addUtf8("StackMapTable"), data.length, data, cp);
+		} catch (IOException ioe) {
+			throw new ClassGenException("Unable to write StackMapTable: " + ioe.getMessage());
+		}
+	}
+
+	private void writeFrame(DataOutputStream out, int delta, VType[] previous, VType[] locals, Frame frame) throws IOException {
+		int stackSize = frame.top;
+		boolean sameLocals = same(previous, locals, locals.length) && previous.length == locals.length;
+		if (stackSize == 0 && sameLocals) {
+			if (delta < 64) {
+				out.writeByte(delta);
+			} else {
+				out.writeByte(SAME_FRAME_EXTENDED);
+				out.writeShort(delta);
+			}
+			return;
+		}
+		if (stackSize == 1 && sameLocals) {
+			if (delta < 64) {
+				out.writeByte(SAME_LOCALS_1_STACK_ITEM + delta);
+			} else {
+				out.writeByte(SAME_LOCALS_1_STACK_ITEM_EXTENDED);
+				out.writeShort(delta);
+			}
+			writeType(out, frame.stack[0]);
+			return;
+		}
+		if (stackSize == 0) {
+			int change = locals.length - previous.length;
+			if (change < 0 && change >= -3 && same(previous, locals, locals.length)) {
+				// chop_frame
+				out.writeByte(SAME_FRAME_EXTENDED + change);
+				out.writeShort(delta);
+				return;
+			}
+			if (change > 0 && change <= 3 && same(previous, locals, previous.length)) {
+				// append_frame
+				out.writeByte(SAME_FRAME_EXTENDED + change);
+				out.writeShort(delta);
+				for (int i = previous.length; i < locals.length; i++) {
+					writeType(out, locals[i]);
+				}
+				return;
+			}
+		}
+		out.writeByte(FULL_FRAME);
+		out.writeShort(delta);
+		out.writeShort(locals.length);
+		for (int i = 0; i < locals.length; i++) {
+			writeType(out, locals[i]);
+		}
+		out.writeShort(stackSize);
+		for (int i = 0; i < stackSize; i++) {
+			writeType(out, frame.stack[i]);
+		}
+	}
+
+	private void writeType(DataOutputStream out, VType type) throws IOException {
+		out.writeByte(type.tag);
+		if (type.tag == ITEM_Object) {
+			out.writeShort(cp.addClass(type.name));
+		} else if (type.tag == ITEM_NewObject) {
+			out.writeShort(type.offset);
+		}
+	}
+
+	/**
+	 * @return true if the first n entries of the two arrays are the same
+	 */
+	private static boolean same(VType[] a, VType[] b, int n) {
+		if (a.length < n || b.length < n) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			if (!a[i].equals(b[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the locals as the frame records them: a long or double is one entry rather than two and trailing Tops are dropped
+	 */
+	private static VType[] compress(VType[] slots) {
+		VType[] locals = new VType[slots.length];
+		int count = 0;
+		int lastUsed = 0;
+		for (int i = 0; i < slots.length; i++) {
+			VType t = slots[i];
+			locals[count++] = t;
+			if (t.tag != ITEM_Bogus) {
+				lastUsed = count;
+			}
+			if (t.isCategory2()) {
+				i++;
+			}
+		}
+		VType[] result = new VType[lastUsed];
+		System.arraycopy(locals, 0, result, 0, lastUsed);
+		return result;
+	}
+}
@@ -0,0 +1,26 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.apache.bcel.generic;
+
+/**
+ * The one question about the type hierarchy that computing stack map frames needs answered (see StackMapGen). Where two paths
+ * through a method meet with different classes in the same local or stack slot, the frame at that point records the closest class
+ * both are assignable to. BCEL has no type hierarchy of its own, so whoever is generating the code supplies one.
+ */
+public interface TypeLattice {
+
+	/**
+	 * @param type1 internal name of a class or interface, eg. java/lang/String
+	 * @param type2 internal name of a class or interface
+	 * @return internal name of the most specific class that both types are assignable to, java/lang/Object if either is an
+	 *         interface that the other does not implement
+	 */
+	String getCommonSuperClass(String type1, String type2);
+
+}
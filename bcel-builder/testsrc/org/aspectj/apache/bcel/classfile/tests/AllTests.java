@@ -42,6 +42,10 @@ public class AllTests {
 		suite.addTestSuite(GenericSignatureParsingTest.class);
 		suite.addTestSuite(GenericsErasureTesting.class);
 		suite.addTestSuite(AnonymousClassTest.class);
+		suite.addTestSuite(LazyCodeTest.class);
+		suite.addTestSuite(ClassParserTest.class);
+		suite.addTestSuite(ConstantPoolTest.class);
+		suite.addTestSuite(StackMapGenTest.class);
 		// $JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,54 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the Eclipse Public License v1.0 
+ * which accompanies this distribution and is available at 
+ * http://www.eclipse.org/legal/epl-v10.html 
+ * ******************************************************************/
+
+package org.aspectj.apache.bcel.classfile.tests;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.aspectj.apache.bcel.Constants;
+import org.aspectj.apache.bcel.classfile.ClassParser;
+import org.aspectj.apache.bcel.classfile.ConstantPool;
+import org.aspectj.apache.bcel.classfile.JavaClass;
+import org.aspectj.apache.bcel.generic.ClassGen;
+
+/**
+ * Parsing a class from a ByteBuffer gives the same class as parsing it from a stream.
+ */
+public class ClassParserTest extends BcelTestCase {
+
+	public void testParseFromByteBuffer() throws Exception {
+		byte[] bytes = getClassFromJar("AnnotatedParameters").getBytes();
+
+		JavaClass fromStream = new ClassParser(new ByteArrayInputStream(bytes), "AnnotatedParameters.class").parse();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		JavaClass fromBuffer = new ClassParser(buffer, "AnnotatedParameters.class").parse();
+
+		assertEquals(fromStream.getClassName(), fromBuffer.getClassName());
+		assertEquals(fromStream.getMethods().length, fromBuffer.getMethods().length);
+		assertTrue(Arrays.equals(bytes, fromBuffer.getBytes()));
+	}
+
+	public void testUtf8ConstantsDecodedOnDemand() throws Exception {
+		String s = "plain, \u00e9\u20ac and \u0000";
+		ClassGen cg = new ClassGen("Utf8", "java.lang.Object", "Utf8.java", Constants.ACC_PUBLIC, null);
+		cg.getConstantPool().addUtf8(s);
+		byte[] bytes = cg.getJavaClass().getBytes();
+
+		JavaClass clazz = new ClassParser(ByteBuffer.wrap(bytes), "Utf8.class").parse();
+		assertTrue(Arrays.equals(bytes, clazz.getBytes()));
+		ConstantPool cp = clazz.getConstantPool();
+		int index = cp.lookupUtf8(s);
+		assertTrue(index > 0);
+		assertEquals(s, cp.getConstantUtf8(index).getValue());
+	}
+
+}
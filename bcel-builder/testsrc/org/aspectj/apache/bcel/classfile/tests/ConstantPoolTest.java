@@ -0,0 +1,74 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the Eclipse Public License v1.0 
+ * which accompanies this distribution and is available at 
+ * http://www.eclipse.org/legal/epl-v10.html 
+ * ******************************************************************/
+
+package org.aspectj.apache.bcel.classfile.tests;
+
+import org.aspectj.apache.bcel.classfile.ConstantPool;
+import org.aspectj.apache.bcel.classfile.JavaClass;
+
+/**
+ * Constant pool lookups find what the add methods put in, and what was in the pool when it was read.
+ */
+public class ConstantPoolTest extends BcelTestCase {
+
+	public void testAddAndLookup() {
+		ConstantPool cp = new ConstantPool();
+		int utf8 = cp.addUtf8("hello");
+		int clazz = cp.addClass("a.b.C");
+		int string = cp.addString("hello");
+		int i = cp.addInteger(42);
+		int l = cp.addLong(42L);
+		int f = cp.addFloat(1.5f);
+		int d = cp.addDouble(2.5d);
+		int nat = cp.addNameAndType("m", "()V");
+		int field = cp.addFieldref("a.b.C", "f", "I");
+		int method = cp.addMethodref("a.b.C", "m", "()V");
+		int imethod = cp.addInterfaceMethodref("a.b.I", "m", "()V");
+
+		assertEquals(utf8, cp.lookupUtf8("hello"));
+		assertEquals(clazz, cp.lookupClass("a/b/C"));
+		assertEquals(string, cp.lookupString("hello"));
+		assertEquals(i, cp.lookupInteger(42));
+		assertEquals(l, cp.lookupLong(42L));
+		assertEquals(f, cp.lookupFloat(1.5f));
+		assertEquals(d, cp.lookupDouble(2.5d));
+		assertEquals(nat, cp.lookupNameAndType("m", "()V"));
+		assertEquals(field, cp.lookupFieldref("a.b.C", "f", "I"));
+		assertEquals(field, cp.lookupFieldref("a/b/C", "f", "I"));
+		assertEquals(method, cp.lookupMethodref("a.b.C", "m", "()V"));
+		assertEquals(imethod, cp.lookupInterfaceMethodref("a/b/I", "m", "()V"));
+		assertEquals(-1, cp.lookupMethodref("a.b.C", "f", "I"));
+		assertEquals(-1, cp.lookupInteger(43));
+
+		// adding again hands back the same entry
+		int size = cp.getSize();
+		assertEquals(method, cp.addMethodref("a.b.C", "m", "()V"));
+		assertEquals(d, cp.addDouble(2.5d));
+		assertEquals(clazz, cp.addClass("a/b/C"));
+		assertEquals(size, cp.getSize());
+
+		// the long and double each take two slots
+		assertEquals(l + 2, f);
+		assertEquals(f + 1, d);
+	}
+
+	public void testLookupInParsedPool() throws Exception {
+		JavaClass clazz = getClassFromJar("AnonymousClassTest");
+		ConstantPool cp = clazz.getConstantPool();
+		int method = cp.lookupMethodref("AnonymousClassTest$1", "run", "()V");
+		assertTrue(method > 0);
+		assertEquals(method, cp.addMethodref("AnonymousClassTest$1", "run", "()V"));
+		assertTrue(cp.lookupClass("java/lang/Object") > 0);
+		int size = cp.getSize();
+		int added = cp.addMethodref("AnonymousClassTest$1", "stop", "()V");
+		assertTrue(added >= size);
+		assertEquals(added, cp.lookupMethodref("AnonymousClassTest$1", "stop", "()V"));
+	}
+
+}
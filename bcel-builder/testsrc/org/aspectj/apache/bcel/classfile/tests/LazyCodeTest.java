@@ -0,0 +1,69 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved. 
+ * This program and the accompanying materials are made available 
+ * under the terms of the Eclipse Public License v1.0 
+ * which accompanies this distribution and is available at 
+ * http://www.eclipse.org/legal/epl-v10.html 
+ * ******************************************************************/
+
+package org.aspectj.apache.bcel.classfile.tests;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import org.aspectj.apache.bcel.classfile.Attribute;
+import org.aspectj.apache.bcel.classfile.ClassParser;
+import org.aspectj.apache.bcel.classfile.Code;
+import org.aspectj.apache.bcel.classfile.JavaClass;
+import org.aspectj.apache.bcel.classfile.Method;
+
+/**
+ * Code attributes read from a class file are only decoded when something looks inside them.
+ */
+public class LazyCodeTest extends BcelTestCase {
+
+	public void testCodeDecodedOnFirstAccess() throws Exception {
+		JavaClass clazz = getClassFromJar("AnonymousClassTest");
+		Method m = getMethod(clazz, "foo");
+		Code code = m.getCode();
+		assertTrue("Code should not be decoded until asked for", code.isPacked());
+		assertEquals(1, code.getMaxLocals());
+		assertTrue(code.isPacked());
+
+		byte[] bytecode = code.getCode();
+		assertFalse(code.isPacked());
+		assertTrue(bytecode.length > 0);
+		assertNotNull(code.getLineNumberTable());
+	}
+
+	public void testPackedCodeDumpsUnchanged() throws Exception {
+		JavaClass clazz = getClassFromJar("AnonymousClassTest");
+		byte[] packedBytes = clazz.getBytes();
+
+		JavaClass reparsed = new ClassParser(new ByteArrayInputStream(packedBytes), "AnonymousClassTest.class").parse();
+		Method[] methods = reparsed.getMethods();
+		for (int i = 0; i < methods.length; i++) {
+			if (methods[i].getCode() != null) {
+				methods[i].getCode().getCode();
+				assertFalse(methods[i].getCode().isPacked());
+			}
+		}
+		assertTrue("Dumping decoded code should give the same bytes as dumping packed code", Arrays.equals(packedBytes, reparsed
+				.getBytes()));
+	}
+
+	public void testDecodedCodeDumpedVerbatimUntilChanged() throws Exception {
+		JavaClass clazz = getClassFromJar("AnonymousClassTest");
+		Code code = getMethod(clazz, "foo").getCode();
+		code.getLineNumberTable();
+		assertFalse(code.isPacked());
+		assertTrue("Looking inside code should not stop it being written as it was read", code.isVerbatim());
+
+		code.setAttributes(new Attribute[0]);
+		assertFalse(code.isVerbatim());
+		JavaClass reparsed = new ClassParser(new ByteArrayInputStream(clazz.getBytes()), "AnonymousClassTest.class").parse();
+		assertNull(getMethod(reparsed, "foo").getCode().getLineNumberTable());
+	}
+
+}
@@ -0,0 +1,196 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+
+package org.aspectj.apache.bcel.classfile.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.aspectj.apache.bcel.Constants;
+import org.aspectj.apache.bcel.classfile.Attribute;
+import org.aspectj.apache.bcel.classfile.Code;
+import org.aspectj.apache.bcel.classfile.Method;
+import org.aspectj.apache.bcel.generic.ClassGen;
+import org.aspectj.apache.bcel.generic.InstructionBranch;
+import org.aspectj.apache.bcel.generic.InstructionConstants;
+import org.aspectj.apache.bcel.generic.InstructionFactory;
+import org.aspectj.apache.bcel.generic.InstructionHandle;
+import org.aspectj.apache.bcel.generic.InstructionList;
+import org.aspectj.apache.bcel.generic.MethodGen;
+import org.aspectj.apache.bcel.generic.ObjectType;
+import org.aspectj.apache.bcel.generic.Type;
+import org.aspectj.apache.bcel.generic.TypeLattice;
+
+/**
+ * Frames computed by MethodGen.getMethod() for generated code. The classes are Java 7 class files, which the VM will only accept
+ * if the frames are right.
+ */
+public class StackMapGenTest extends BcelTestCase {
+
+	private final List<String> questions = new ArrayList<String>();
+
+	private final TypeLattice lattice = new TypeLattice() {
+		public String getCommonSuperClass(String type1, String type2) {
+			questions.add(type1 + "," + type2);
+			return "java/lang/Object";
+		}
+	};
+
+	public void testBranchesMergeThroughLattice() throws Exception {
+		ClassGen cg = createClassGen("Branches");
+		MethodGen mg = pick(cg);
+		mg.setTypeLattice(lattice);
+		cg.addMethod(mg.getMethod());
+		assertTrue(mg.isStackMapComputed());
+		assertEquals(1, questions.size());
+		assertTrue(questions.get(0).indexOf("java/lang/StringBuffer") != -1);
+		assertTrue(questions.get(0).indexOf("java/lang/StringBuilder") != -1);
+
+		Class<?> c = define(cg);
+		java.lang.reflect.Method m = c.getMethod("pick", boolean.class);
+		assertEquals("", m.invoke(null, Boolean.TRUE));
+		assertEquals("", m.invoke(null, Boolean.FALSE));
+	}
+
+	public void testExceptionHandler() throws Exception {
+		ClassGen cg = createClassGen("Handler");
+		InstructionFactory fact = new InstructionFactory(cg);
+		InstructionList il = new InstructionList();
+		MethodGen mg = new MethodGen(Constants.ACC_PUBLIC | Constants.ACC_STATIC, Type.INT, new Type[] { Type.OBJECT }, null,
+				"guarded", cg.getClassName(), il, cg.getConstantPool());
+		InstructionHandle start = il.append(InstructionFactory.createLoad(Type.OBJECT, 0));
+		il.append(fact.createInvoke("java.lang.Object", "hashCode", Type.INT, Type.NO_ARGS, Constants.INVOKEVIRTUAL));
+		InstructionHandle end = il.append(InstructionConstants.IRETURN);
+		InstructionHandle handler = il.append(InstructionConstants.POP);
+		il.append(InstructionConstants.ICONST_M1);
+		il.append(InstructionConstants.IRETURN);
+		mg.addExceptionHandler(start, end, handler, new ObjectType("java.lang.RuntimeException"));
+		mg.setMaxLocals();
+		mg.setMaxStack();
+		mg.setTypeLattice(lattice);
+		Method method = mg.getMethod();
+		cg.addMethod(method);
+		assertTrue(mg.isStackMapComputed());
+		assertNotNull(stackMapTable(method.getCode()));
+
+		Class<?> c = define(cg);
+		java.lang.reflect.Method m = c.getMethod("guarded", Object.class);
+		assertEquals(new Integer("x".hashCode()), m.invoke(null, "x"));
+		assertEquals(new Integer(-1), m.invoke(null, new Object[] { null }));
+	}
+
+	public void testStraightLineCodeNeedsNoFrames() throws Exception {
+		ClassGen cg = createClassGen("Straight");
+		InstructionList il = new InstructionList();
+		MethodGen mg = new MethodGen(Constants.ACC_PUBLIC | Constants.ACC_STATIC, Type.OBJECT, Type.NO_ARGS, null, "nothing", cg
+				.getClassName(), il, cg.getConstantPool());
+		il.append(InstructionConstants.ACONST_NULL);
+		il.append(InstructionConstants.ARETURN);
+		mg.setMaxLocals();
+		mg.setMaxStack();
+		mg.setTypeLattice(lattice);
+		Method method = mg.getMethod();
+		assertTrue(mg.isStackMapComputed());
+		assertNull(stackMapTable(method.getCode()));
+	}
+
+	public void testNoFramesWithoutLattice() throws Exception {
+		ClassGen cg = createClassGen("NoLattice");
+		MethodGen mg = pick(cg);
+		Method method = mg.getMethod();
+		assertFalse(mg.isStackMapComputed());
+		assertNull(mg.getStackMapFailure());
+		assertNull(stackMapTable(method.getCode()));
+	}
+
+	public void testFailureIsKept() throws Exception {
+		ClassGen cg = createClassGen("Failing");
+		MethodGen mg = pick(cg);
+		final IllegalStateException problem = new IllegalStateException("no hierarchy");
+		mg.setTypeLattice(new TypeLattice() {
+			public String getCommonSuperClass(String type1, String type2) {
+				throw problem;
+			}
+		});
+		Method method = mg.getMethod();
+		assertFalse(mg.isStackMapComputed());
+		assertSame(problem, mg.getStackMapFailure());
+		assertNull(stackMapTable(method.getCode()));
+
+		mg.setTypeLattice(lattice);
+		mg.getMethod();
+		assertTrue(mg.isStackMapComputed());
+		assertNull(mg.getStackMapFailure());
+	}
+
+	/**
+	 * <pre>
+	 * public static String pick(boolean b) {
+	 * 	return (b ? new StringBuffer() : new StringBuilder()).toString();
+	 * }
+	 * </pre>
+	 */
+	private MethodGen pick(ClassGen cg) {
+		InstructionFactory fact = new InstructionFactory(cg);
+		InstructionList il = new InstructionList();
+		MethodGen mg = new MethodGen(Constants.ACC_PUBLIC | Constants.ACC_STATIC, Type.STRING, new Type[] { Type.BOOLEAN }, null,
+				"pick", cg.getClassName(), il, cg.getConstantPool());
+		il.append(InstructionFactory.createLoad(Type.BOOLEAN, 0));
+		InstructionBranch ifeq = InstructionFactory.createBranchInstruction(Constants.IFEQ, null);
+		il.append(ifeq);
+		il.append(fact.createNew("java.lang.StringBuffer"));
+		il.append(InstructionConstants.DUP);
+		il.append(fact.createInvoke("java.lang.StringBuffer", "<init>", Type.VOID, Type.NO_ARGS, Constants.INVOKESPECIAL));
+		InstructionBranch gotoJoin = InstructionFactory.createBranchInstruction(Constants.GOTO, null);
+		il.append(gotoJoin);
+		InstructionHandle otherwise = il.append(fact.createNew("java.lang.StringBuilder"));
+		il.append(InstructionConstants.DUP);
+		il.append(fact.createInvoke("java.lang.StringBuilder", "<init>", Type.VOID, Type.NO_ARGS, Constants.INVOKESPECIAL));
+		InstructionHandle join = il.append(fact.createInvoke("java.lang.Object", "toString", Type.STRING, Type.NO_ARGS,
+				Constants.INVOKEVIRTUAL));
+		il.append(InstructionConstants.ARETURN);
+		ifeq.setTarget(otherwise);
+		gotoJoin.setTarget(join);
+		mg.setMaxLocals();
+		mg.setMaxStack();
+		return mg;
+	}
+
+	private ClassGen createClassGen(String name) {
+		ClassGen cg = new ClassGen(name, "java.lang.Object", name + ".java", Constants.ACC_PUBLIC | Constants.ACC_SUPER, null);
+		cg.setMajor(Constants.MAJOR_1_7);
+		cg.setMinor(0);
+		return cg;
+	}
+
+	private Class<?> define(ClassGen cg) throws Exception {
+		final byte[] bytes = cg.getJavaClass().getBytes();
+		final String name = cg.getClassName();
+		ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+			@Override
+			protected Class<?> findClass(String className) throws ClassNotFoundException {
+				if (className.equals(name)) {
+					return defineClass(name, bytes, 0, bytes.length);
+				}
+				throw new ClassNotFoundException(className);
+			}
+		};
+		return Class.forName(name, true, loader);
+	}
+
+	private Attribute stackMapTable(Code code) {
+		for (Attribute a : code.getAttributes()) {
+			if (a.getName().equals("StackMapTable")) {
+				return a;
+			}
+		}
+		return null;
+	}
+
+}
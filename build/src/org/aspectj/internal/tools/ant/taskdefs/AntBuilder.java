@@ -224,9 +224,13 @@ public class AntBuilder extends Builder {
 		Path path = new Path(project);
 		boolean hasSourceDirectories = false;
 		boolean isJava5Compile = false;
+		boolean isJava7Compile = false;
 		for (Iterator iter = result.getSrcDirs().iterator(); iter.hasNext();) {
 			File file = (File) iter.next();
 			path.createPathElement().setLocation(file);
+			if (Util.Constants.JAVA7_SRC.equals(file.getName())) {
+				isJava7Compile = true;
+			}
 			if (!isJava5Compile
 					&& (Util.Constants.JAVA5_SRC.equals(file.getName()) || Util.Constants.JAVA5_TESTSRC.equals(file.getName()) || new File(
 							file.getParent(), ".isJava5").exists())) {
@@ -264,7 +268,10 @@ public class AntBuilder extends Builder {
 
 		// misc
 		javac.setDebug(true);
-		if (!isJava5Compile) {
+		if (isJava7Compile) {
+			javac.setSource("1.7");
+			javac.setTarget("1.7");
+		} else if (!isJava5Compile) {
 			javac.setTarget("1.1"); // 1.1 class files - Javac in 1.4 uses 1.4
 			javac.setSource("1.3");
 		} else {
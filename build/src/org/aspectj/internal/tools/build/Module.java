@@ -509,7 +509,8 @@ public class Module {
 
     /**
      * Post-process initialization. This implementation trims java5 source dirs
-     * if not running in a Java 5 VM.
+     * if not running in a Java 5 VM, and java7 source dirs if not running in a
+     * Java 7 VM.
      * @return true if initialization post-processing worked
      */
     protected boolean reviewInit() {
@@ -522,6 +523,9 @@ public class Module {
                                 .equals(lcname))) {
                     // assume optional for pre-1.5 builds
                     iter.remove();
+                } else if (!Util.JAVA7_VM && Util.Constants.JAVA7_SRC.equals(lcname)) {
+                    // likewise for pre-1.7 builds
+                    iter.remove();
                 }
             }
         } catch (UnsupportedOperationException e) {
@@ -32,6 +32,7 @@ public class Util {
         public static final String TESTSRC = "testsrc";
         public static final String JAVA5_SRC = "java5-src";
         public static final String JAVA5_TESTSRC = "java5-testsrc";
+        public static final String JAVA7_SRC = "java7-src";
     }
     // XXX quick hack for Java 5 support
     public static final boolean JAVA5_VM;
@@ -44,6 +45,16 @@ public class Util {
         }
         JAVA5_VM = java5VM;
     }
+    public static final boolean JAVA7_VM;
+    static {
+        boolean java7VM = false;
+        try {
+            java7VM = (null != Class.forName("java.lang.ClassValue"));
+        } catch (Throwable t) {
+            // ignore
+        }
+        JAVA7_VM = java7VM;
+    }
 
     /** 
      * Map version in long form to short, 
@@ -63,7 +63,7 @@ public class BuildModuleTests extends TestCase {
     }
 
     final static List SOURCE_NAMES = Collections.unmodifiableList(
-            Arrays.asList(new String[]{"src", "testsrc", "java5-src", "java5-testsrc", "aspectj-src"}));
+            Arrays.asList(new String[]{"src", "testsrc", "java5-src", "java5-testsrc", "java7-src", "aspectj-src"}));
 
     /**
      * @param moduleDir
@@ -97,6 +97,9 @@ public class BuildModuleTests extends TestCase {
     public void testLicense_aspectj5rt() {
         checkLicense("aspectj5rt");    
     }
+    public void testLicense_aspectj7rt() {
+        checkLicense("aspectj7rt");    
+    }
     public void testLicense_asm() {
         checkLicense("asm");    
     }
@@ -45,7 +45,7 @@ public class ModulesTest extends TestCase {
     private static final File BASE_DIR = new File("..");
     static {
         String[] names = {
-        "ajbrowser", "ajde", "ajdoc", "asm", "aspectj5rt",
+        "ajbrowser", "ajde", "ajdoc", "asm", "aspectj5rt", "aspectj7rt",
         "bridge", "loadtime", "loadtime5", "org.aspectj.ajdt.core",
         "runtime", "taskdefs", "testing-client", "testing-util",
         "tests", "util", "weaver"};
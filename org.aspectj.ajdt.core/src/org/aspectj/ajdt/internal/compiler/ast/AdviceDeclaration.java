@@ -208,29 +208,45 @@ public class AdviceDeclaration extends AjMethodDeclaration {
 
 		codeStream.aload(closureIndex);
 
-		// build the Object[]
+		ReferenceBinding closureType = (ReferenceBinding) binding.parameters[nargs - 1];
+		MethodBinding runMethod = null;
+		if (EclipseFactory.fromScopeLookupEnvironment(classScope).getWorld().shouldGenerateTypedAroundClosures()) {
+			// pass the arguments directly to runN(), if the aspectjrt being compiled against has it
+			MethodBinding[] runNMethods = closureType.getMethods(("run" + (nargs - 1)).toCharArray());
+			if (runNMethods.length > 0) {
+				runMethod = runNMethods[0];
+			}
+		}
+		boolean argumentArray = runMethod == null;
+
+		if (argumentArray) {
+			// build the Object[]
 
-		codeStream.generateInlinedValue(nargs - 1);
-		codeStream.newArray(new ArrayBinding(classScope.getType(TypeConstants.JAVA_LANG_OBJECT,
-				TypeConstants.JAVA_LANG_OBJECT.length), 1, classScope.environment()));
+			codeStream.generateInlinedValue(nargs - 1);
+			codeStream.newArray(new ArrayBinding(classScope.getType(TypeConstants.JAVA_LANG_OBJECT,
+					TypeConstants.JAVA_LANG_OBJECT.length), 1, classScope.environment()));
+			runMethod = closureType.getMethods("run".toCharArray())[0];
+		}
 
 		int index = 0;
 		for (int i = 0; i < nargs - 1; i++) {
 			TypeBinding type = binding.parameters[i];
-			codeStream.dup();
-			codeStream.generateInlinedValue(i);
+			if (argumentArray) {
+				codeStream.dup();
+				codeStream.generateInlinedValue(i);
+			}
 			codeStream.load(type, index);
 			index += AstUtil.slotsNeeded(type);
 			if (type.isBaseType()) {
 				codeStream.invoke(Opcodes.OPC_invokestatic, AjTypeConstants.getConversionMethodToObject(classScope, type), null);
 			}
 
-			codeStream.aastore();
+			if (argumentArray) {
+				codeStream.aastore();
+			}
 		}
 
 		// call run
-		ReferenceBinding closureType = (ReferenceBinding) binding.parameters[nargs - 1];
-		MethodBinding runMethod = closureType.getMethods("run".toCharArray())[0];
 		codeStream.invoke(Opcodes.OPC_invokevirtual, runMethod, null);
 
 		TypeBinding returnType = binding.returnType;
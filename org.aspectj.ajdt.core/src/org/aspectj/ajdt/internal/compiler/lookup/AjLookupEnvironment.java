@@ -59,6 +59,7 @@ import org.aspectj.org.eclipse.jdt.internal.compiler.lookup.TypeBinding;
 import org.aspectj.org.eclipse.jdt.internal.compiler.problem.ProblemReporter;
 import org.aspectj.weaver.AnnotationAJ;
 import org.aspectj.weaver.ConcreteTypeMunger;
+import org.aspectj.weaver.DemotedTypeDelegate;
 import org.aspectj.weaver.ReferenceType;
 import org.aspectj.weaver.ReferenceTypeDelegate;
 import org.aspectj.weaver.ResolvedMember;
@@ -1364,12 +1365,17 @@ public class AjLookupEnvironment extends LookupEnvironment implements AnonymousC
 
 		}
 
+		// the delegate of a source type reads its parents straight from the binding, so nothing else tells the world that
+		// the hierarchy has changed - without this a second declare parents for the same parent would be answered from the
+		// cache and add it again
+		factory.getWorld().flushAssignabilityCache();
+
 		// also add it to the bcel delegate if there is one
 		if (sourceType instanceof BinaryTypeBinding) {
 			ResolvedType onType = factory.fromEclipse(sourceType);
 			ReferenceType rt = (ReferenceType) onType;
 			ReferenceTypeDelegate rtd = rt.getDelegate();
-			if (rtd instanceof BcelObjectType) {
+			if (rtd instanceof BcelObjectType || rtd instanceof DemotedTypeDelegate) {
 				if (rt.isRawType()) {
 					rt = (ReferenceType)rt.getGenericType();
 				}
@@ -33,9 +33,11 @@ import org.aspectj.org.eclipse.jdt.internal.compiler.lookup.SourceTypeBinding;
 import org.aspectj.org.eclipse.jdt.internal.compiler.lookup.TypeBinding;
 import org.aspectj.weaver.AnnotationAJ;
 import org.aspectj.weaver.BCException;
+import org.aspectj.weaver.DemotedTypeDelegate;
 import org.aspectj.weaver.Member;
 import org.aspectj.weaver.MemberKind;
 import org.aspectj.weaver.ReferenceType;
+import org.aspectj.weaver.ReferenceTypeDelegate;
 import org.aspectj.weaver.ResolvedMember;
 import org.aspectj.weaver.ResolvedMemberImpl;
 import org.aspectj.weaver.ResolvedType;
@@ -106,7 +108,7 @@ public class EclipseResolvedMember extends ResolvedMemberImpl {
 			UnresolvedType declaringType = this.getDeclaringType();
 			if (declaringType instanceof ReferenceType) {
 				ReferenceType referenceDeclaringType = (ReferenceType) declaringType;
-				if (referenceDeclaringType.getDelegate() instanceof BcelObjectType) {
+				if (isBinaryType(referenceDeclaringType)) {
 					// worth a look!
 					ResolvedMember field = ((ResolvedType) declaringType).lookupField(this);
 					if (field != null) {
@@ -138,7 +140,7 @@ public class EclipseResolvedMember extends ResolvedMemberImpl {
 			UnresolvedType declaringType = this.getDeclaringType();
 			if (declaringType instanceof ReferenceType) {
 				ReferenceType referenceDeclaringType = (ReferenceType) declaringType;
-				if (referenceDeclaringType.getDelegate() instanceof BcelObjectType) {
+				if (isBinaryType(referenceDeclaringType)) {
 					// worth a look!
 					ResolvedMember field = ((ResolvedType) declaringType).lookupField(this);
 					if (field != null) {
@@ -226,7 +228,7 @@ public class EclipseResolvedMember extends ResolvedMemberImpl {
 				UnresolvedType declaringType = this.getDeclaringType();
 				if (declaringType instanceof ReferenceType) {
 					ReferenceType referenceDeclaringType = (ReferenceType) declaringType;
-					if (referenceDeclaringType.getDelegate() instanceof BcelObjectType) {
+					if (isBinaryType(referenceDeclaringType)) {
 						// worth a look!
 						if (this.getKind() == Member.METHOD) {
 							ResolvedMember method = ((ResolvedType) declaringType).lookupMethod(this);
@@ -399,6 +401,15 @@ public class EclipseResolvedMember extends ResolvedMemberImpl {
 		return getTypeDeclaration() != null;
 	}
 
+	/**
+	 * @return true if the type is backed by its class file, either directly or through a summary kept when it was demoted (which
+	 *         inflates to the full delegate when asked for members)
+	 */
+	private static boolean isBinaryType(ReferenceType type) {
+		ReferenceTypeDelegate delegate = type.getDelegate();
+		return delegate instanceof BcelObjectType || delegate instanceof DemotedTypeDelegate;
+	}
+
 	/**
 	 * @return the type declaration that contained this member, or NULL if it is not available (eg. this isn't currently related to
 	 *         a SOURCE-FORM artifact, it is instead related to a BINARY-FORM artifact)
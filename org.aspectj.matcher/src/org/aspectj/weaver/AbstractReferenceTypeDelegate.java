@@ -80,6 +80,22 @@ public abstract class AbstractReferenceTypeDelegate implements ReferenceTypeDele
 		}
 	}
 
+	/**
+	 * Take on the source file name and context already worked out by another delegate for the same type, as is.
+	 */
+	protected final void copySourceDetails(String sourcefilename, ISourceContext sourceContext) {
+		this.sourcefilename = sourcefilename;
+		this.sourceContext = sourceContext;
+	}
+
+	/**
+	 * @return the weaver version recorded with the type when it was compiled or woven, or null if this delegate was not built
+	 *         from a class file
+	 */
+	public AjAttribute.WeaverVersionInfo getWeaverVersionAttribute() {
+		return null;
+	}
+
 	public ISourceLocation getSourceLocation() {
 		return getSourceContext().makeSourceLocation(0, 0);
 	}
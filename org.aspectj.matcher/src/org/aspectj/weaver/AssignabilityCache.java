@@ -0,0 +1,121 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver;
+
+/**
+ * Remembers the answers to ReferenceType.isAssignableFrom() for a world, keyed by the type ids of the two types (see
+ * World.getTypeId()) so that a lookup neither allocates nor compares signatures. The table is open addressed over a long[] and
+ * is simply cleared whenever the type hierarchy of the world changes (declare parents, a new delegate) or it grows too large.
+ *
+ * An answer worked out while a missing type was in the hierarchy is not remembered, the type may turn up later and change it.
+ */
+final class AssignabilityCache {
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int MAX_ENTRIES = 1 << 16;
+
+	private long[] keys = new long[INITIAL_CAPACITY]; // 0 marks a free slot, see key()
+	private boolean[] results = new boolean[INITIAL_CAPACITY];
+	private int size;
+	private int missingTypesSeen;
+
+	/**
+	 * Make the key for 'to = from'. The id of a reference type is never 0 (0 is byte, see World.FIXED_TYPE_ID_SIGNATURES) so
+	 * neither is the key. Raw types share their signature, and so their id, with the simple form of the type so that is in the
+	 * key too.
+	 */
+	static long key(ResolvedType to, ResolvedType from, boolean allowMissing) {
+		long toPart = ((long) to.getTypeId() << 2) | (to.isRawType() ? 2 : 0) | (allowMissing ? 1 : 0);
+		long fromPart = ((long) from.getTypeId() << 2) | (from.isRawType() ? 2 : 0);
+		return (toPart << 32) | fromPart;
+	}
+
+	/**
+	 * @return 1 if the answer is known to be true, 0 if known to be false and -1 if it is not known
+	 */
+	synchronized int get(long key) {
+		int mask = keys.length - 1;
+		for (int slot = hash(key, mask);; slot = (slot + 1) & mask) {
+			long k = keys[slot];
+			if (k == key) {
+				return results[slot] ? 1 : 0;
+			} else if (k == 0) {
+				return -1;
+			}
+		}
+	}
+
+	synchronized void put(long key, boolean result) {
+		if (size >= MAX_ENTRIES) {
+			clear();
+		} else if ((size + 1) * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		int mask = keys.length - 1;
+		int slot = hash(key, mask);
+		while (keys[slot] != 0 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		if (keys[slot] == 0) {
+			size++;
+		}
+		keys[slot] = key;
+		results[slot] = result;
+	}
+
+	/**
+	 * Forget everything, called when the type hierarchy changes.
+	 */
+	synchronized void clear() {
+		if (size > 0) {
+			keys = new long[INITIAL_CAPACITY];
+			results = new boolean[INITIAL_CAPACITY];
+			size = 0;
+		}
+	}
+
+	/**
+	 * Called when a missing type is met during an assignability check. Callers compare the count before and after working out an
+	 * answer and only put() it if the count did not change.
+	 */
+	synchronized void missingTypeSeen() {
+		missingTypesSeen++;
+	}
+
+	synchronized int getMissingTypesSeen() {
+		return missingTypesSeen;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		boolean[] oldResults = results;
+		keys = new long[capacity];
+		results = new boolean[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = hash(oldKeys[i], mask);
+				while (keys[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				results[slot] = oldResults[i];
+			}
+		}
+	}
+
+	private static int hash(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 40) & mask;
+	}
+}
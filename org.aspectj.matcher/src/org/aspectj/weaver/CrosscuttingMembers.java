@@ -515,7 +515,7 @@ public class CrosscuttingMembers {
 	private ShadowMunger rewritePointcutInMunger(ShadowMunger munger) {
 		PointcutRewriter pr = new PointcutRewriter();
 		Pointcut p = munger.getPointcut();
-		Pointcut newP = pr.rewrite(p);
+		Pointcut newP = pr.rewrite(p, world.getPointcutDecisionDiagramThreshold());
 		if (p.m_ignoreUnboundBindingForNames.length != 0) {
 			// *sigh* dirty fix for dirty hacky implementation pr149305
 			newP.m_ignoreUnboundBindingForNames = p.m_ignoreUnboundBindingForNames;
@@ -0,0 +1,229 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver;
+
+import java.util.Collection;
+
+import org.aspectj.weaver.patterns.Declare;
+import org.aspectj.weaver.patterns.PerClause;
+
+/**
+ * Delegate for a type that was demoted, collected and then resolved again. Questions about the kind of type, its modifiers, its
+ * supertypes and its annotation types are answered from the DemotedTypeSummary. Anything else - members, full annotations,
+ * type variables, weaver state - needs the class file, so the first such question asks the world for the real delegate (see
+ * inflate()), installs it on the type and passes the question on.
+ */
+public class DemotedTypeDelegate extends AbstractReferenceTypeDelegate {
+
+	private final DemotedTypeSummary summary;
+	private ReferenceTypeDelegate fullDelegate;
+
+	public DemotedTypeDelegate(ReferenceType resolvedTypeX, DemotedTypeSummary summary) {
+		super(resolvedTypeX, false);
+		this.summary = summary;
+		copySourceDetails(summary.sourcefilename, summary.sourceContext);
+	}
+
+	public DemotedTypeSummary getSummary() {
+		return summary;
+	}
+
+	/**
+	 * @return the full delegate for the type, resolving it through the world (and making it the delegate of the type) the first
+	 *         time it is asked for
+	 */
+	public synchronized ReferenceTypeDelegate inflate() {
+		if (fullDelegate == null) {
+			ReferenceTypeDelegate delegate = resolvedTypeX.inflateDelegate(this);
+			if (delegate == null) {
+				throw new BCException("Unable to rebuild the delegate for demoted type " + resolvedTypeX.getName());
+			}
+			fullDelegate = delegate;
+		}
+		return fullDelegate;
+	}
+
+	private ResolvedType resolve(String signature) {
+		return resolvedTypeX.getWorld().resolve(UnresolvedType.forSignature(signature));
+	}
+
+	private ResolvedType[] resolve(String[] signatures) {
+		if (signatures.length == 0) {
+			return ResolvedType.NONE;
+		}
+		ResolvedType[] types = new ResolvedType[signatures.length];
+		for (int i = 0; i < signatures.length; i++) {
+			types[i] = resolve(signatures[i]);
+		}
+		return types;
+	}
+
+	// answered from the summary
+
+	public boolean isAspect() {
+		return summary.isAspect;
+	}
+
+	public boolean isAnnotationStyleAspect() {
+		return summary.isAnnotationStyleAspect;
+	}
+
+	public boolean isInterface() {
+		return summary.isInterface;
+	}
+
+	public boolean isEnum() {
+		return summary.isEnum;
+	}
+
+	public boolean isAnnotation() {
+		return summary.isAnnotation;
+	}
+
+	public boolean isGeneric() {
+		return summary.isGeneric;
+	}
+
+	public boolean isAnonymous() {
+		return summary.isAnonymous;
+	}
+
+	public boolean isNested() {
+		return summary.isNested;
+	}
+
+	public int getModifiers() {
+		return summary.modifiers;
+	}
+
+	public String getDeclaredGenericSignature() {
+		return summary.declaredGenericSignature;
+	}
+
+	public ResolvedType getSuperclass() {
+		if (!summary.hasPlainSupertypes) {
+			return inflate().getSuperclass();
+		}
+		return summary.superclassSignature == null ? null : resolve(summary.superclassSignature);
+	}
+
+	public ResolvedType[] getDeclaredInterfaces() {
+		if (!summary.hasPlainSupertypes) {
+			return inflate().getDeclaredInterfaces();
+		}
+		return resolve(summary.interfaceSignatures);
+	}
+
+	public ResolvedType[] getAnnotationTypes() {
+		return resolve(summary.annotationTypeSignatures);
+	}
+
+	public boolean hasAnnotation(UnresolvedType ofType) {
+		String signature = ofType.getSignature();
+		for (String annotationTypeSignature : summary.annotationTypeSignatures) {
+			if (annotationTypeSignature.equals(signature)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+
+	@Override
+	public boolean copySourceContext() {
+		return false;
+	}
+
+	@Override
+	public int getCompilerVersion() {
+		return summary.compilerVersion;
+	}
+
+	@Override
+	public AjAttribute.WeaverVersionInfo getWeaverVersionAttribute() {
+		return summary.weaverVersion;
+	}
+
+	@Override
+	public boolean isWeavable() {
+		return summary.isWeavable;
+	}
+
+	@Override
+	public boolean hasBeenWoven() {
+		return summary.hasBeenWoven;
+	}
+
+	// need the full delegate
+
+	public String getRetentionPolicy() {
+		return inflate().getRetentionPolicy();
+	}
+
+	public boolean canAnnotationTargetType() {
+		return inflate().canAnnotationTargetType();
+	}
+
+	public AnnotationTargetKind[] getAnnotationTargetKinds() {
+		return inflate().getAnnotationTargetKinds();
+	}
+
+	public boolean isAnnotationWithRuntimeRetention() {
+		return inflate().isAnnotationWithRuntimeRetention();
+	}
+
+	public AnnotationAJ[] getAnnotations() {
+		return inflate().getAnnotations();
+	}
+
+	public ResolvedMember[] getDeclaredFields() {
+		return inflate().getDeclaredFields();
+	}
+
+	public ResolvedMember[] getDeclaredMethods() {
+		return inflate().getDeclaredMethods();
+	}
+
+	public ResolvedMember[] getDeclaredPointcuts() {
+		return inflate().getDeclaredPointcuts();
+	}
+
+	public TypeVariable[] getTypeVariables() {
+		return inflate().getTypeVariables();
+	}
+
+	public PerClause getPerClause() {
+		return inflate().getPerClause();
+	}
+
+	public Collection<Declare> getDeclares() {
+		return inflate().getDeclares();
+	}
+
+	public Collection<ConcreteTypeMunger> getTypeMungers() {
+		return inflate().getTypeMungers();
+	}
+
+	public Collection<ResolvedMember> getPrivilegedAccesses() {
+		return inflate().getPrivilegedAccesses();
+	}
+
+	public WeaverStateInfo getWeaverState() {
+		return inflate().getWeaverState();
+	}
+
+	public ResolvedType getOuterClass() {
+		return inflate().getOuterClass();
+	}
+
+}
@@ -0,0 +1,102 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver;
+
+/**
+ * What is remembered about a type once it has been demoted to the expendable part of the type map (see World.TypeMap.demote()).
+ * It holds just enough to answer the common type resolution questions - kind, modifiers, supertypes and annotation types - as
+ * signatures, with no reference to the delegate it was taken from, so the bytecode and constant pool behind that delegate can be
+ * collected. If the type is collected and later resolved again a DemotedTypeDelegate is built over the summary rather than
+ * reading and parsing the class file again.
+ */
+public final class DemotedTypeSummary {
+
+	private static final String[] NO_SIGNATURES = new String[0];
+
+	final int modifiers;
+	final boolean isAspect;
+	final boolean isAnnotationStyleAspect;
+	final boolean isInterface;
+	final boolean isEnum;
+	final boolean isAnnotation;
+	final boolean isGeneric;
+	final boolean isAnonymous;
+	final boolean isNested;
+	final boolean isWeavable;
+	final boolean hasBeenWoven;
+	final int compilerVersion;
+	// null unless the delegate was built from a class file
+	final AjAttribute.WeaverVersionInfo weaverVersion;
+
+	// null for java.lang.Object
+	final String superclassSignature;
+	final String[] interfaceSignatures;
+	final String[] annotationTypeSignatures;
+	final String declaredGenericSignature;
+
+	// true if no supertype signature involves type parameters, so each can be resolved without any type variable context
+	final boolean hasPlainSupertypes;
+
+	final String sourcefilename;
+	final ISourceContext sourceContext;
+
+	private DemotedTypeSummary(ReferenceTypeDelegate delegate) {
+		modifiers = delegate.getModifiers();
+		isAspect = delegate.isAspect();
+		isAnnotationStyleAspect = delegate.isAnnotationStyleAspect();
+		isInterface = delegate.isInterface();
+		isEnum = delegate.isEnum();
+		isAnnotation = delegate.isAnnotation();
+		isGeneric = delegate.isGeneric();
+		isAnonymous = delegate.isAnonymous();
+		isNested = delegate.isNested();
+		isWeavable = delegate.isWeavable();
+		hasBeenWoven = delegate.hasBeenWoven();
+		compilerVersion = delegate.getCompilerVersion();
+		weaverVersion = (delegate instanceof AbstractReferenceTypeDelegate) ? ((AbstractReferenceTypeDelegate) delegate)
+				.getWeaverVersionAttribute() : null;
+
+		ResolvedType superclass = delegate.getSuperclass();
+		superclassSignature = superclass == null ? null : superclass.getSignature();
+		interfaceSignatures = signaturesOf(delegate.getDeclaredInterfaces());
+		annotationTypeSignatures = signaturesOf(delegate.getAnnotationTypes());
+		declaredGenericSignature = delegate.getDeclaredGenericSignature();
+
+		boolean plain = superclassSignature == null || superclassSignature.indexOf('<') == -1;
+		for (int i = 0; plain && i < interfaceSignatures.length; i++) {
+			plain = interfaceSignatures[i].indexOf('<') == -1;
+		}
+		hasPlainSupertypes = plain;
+
+		sourcefilename = delegate.getSourcefilename();
+		sourceContext = delegate.getSourceContext();
+	}
+
+	/**
+	 * Build the summary for a delegate. If the delegate is already one built over a summary then that summary is returned.
+	 */
+	public static DemotedTypeSummary of(ReferenceTypeDelegate delegate) {
+		if (delegate instanceof DemotedTypeDelegate) {
+			return ((DemotedTypeDelegate) delegate).getSummary();
+		}
+		return new DemotedTypeSummary(delegate);
+	}
+
+	private static String[] signaturesOf(ResolvedType[] types) {
+		if (types == null || types.length == 0) {
+			return NO_SIGNATURES;
+		}
+		String[] signatures = new String[types.length];
+		for (int i = 0; i < types.length; i++) {
+			signatures[i] = types[i].getSignature();
+		}
+		return signatures;
+	}
+
+}
@@ -133,6 +133,9 @@ public class Lint {
 			"cannotAdviseJoinpointInInterfaceWithAroundAdvice",
 			"The joinpoint ''{0}'' cannot be advised and is being skipped as the compiler implementation will lead to creation of methods with bodies in an interface (compiler limitation)");
 
+	public final Kind methodNoLongerInlineable = new Kind("methodNoLongerInlineable",
+			"weaving has grown method ''{0}'' from {1} to {2} bytes, past the inline size threshold of {3}");
+
 	/**
 	 * Indicates an aspect could not be found when attempting reweaving.
 	 */
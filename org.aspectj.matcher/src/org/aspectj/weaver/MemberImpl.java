@@ -49,11 +49,13 @@ public class MemberImpl implements Member {
 		this.modifiers = modifiers;
 		this.name = name;
 		this.erasedSignature = erasedSignature;
+		World world = (declaringType instanceof ResolvedType) ? ((ResolvedType) declaringType).getWorld() : null;
 		if (kind == FIELD) {
-			this.returnType = UnresolvedType.forSignature(erasedSignature);
+			this.returnType = world == null ? UnresolvedType.forSignature(erasedSignature) : world
+					.typeFromSignature(erasedSignature);
 			this.parameterTypes = UnresolvedType.NONE;
 		} else {
-			Object[] returnAndParams = signatureToTypes(erasedSignature);
+			Object[] returnAndParams = signatureToTypes(erasedSignature, world);
 			this.returnType = (UnresolvedType) returnAndParams[0];
 			this.parameterTypes = (UnresolvedType[]) returnAndParams[1];
 		}
@@ -150,9 +152,10 @@ public class MemberImpl implements Member {
 	 * </blockquote>
 	 * 
 	 * @param erasedSignature the JVM bytecode method signature string we want to break apart
+	 * @param world if not null the types are taken from the signature cache of this world
 	 * @return a pair of UnresolvedType, UnresolvedType[] representing the return types and parameter types.
 	 */
-	private static Object[] signatureToTypes(String sig) {
+	private static Object[] signatureToTypes(String sig, World world) {
 		boolean hasParameters = sig.charAt(1) != ')';
 		if (hasParameters) {
 			List<UnresolvedType> l = new ArrayList<UnresolvedType>();
@@ -172,7 +175,7 @@ public class MemberImpl implements Member {
 					int firstAngly = (hasAnyAnglies ? sig.indexOf('<', start) : -1);
 					if (!hasAnyAnglies || firstAngly == -1 || firstAngly > nextSemicolon) {
 						i = nextSemicolon + 1;
-						l.add(UnresolvedType.forSignature(sig.substring(start, i)));
+						l.add(typeFromSignature(sig, start, i, world));
 					} else {
 						// generics generics generics
 						// Have to skip to the *correct* ';'
@@ -198,37 +201,58 @@ public class MemberImpl implements Member {
 						}
 						// posn now points to the correct nextSemicolon :)
 						i = posn;
-						l.add(UnresolvedType.forSignature(sig.substring(start, i)));
+						l.add(typeFromSignature(sig, start, i, world));
 					}
 				} else if (c == 'T') { // assumed 'reference' to a type
 					// variable, so just "Tname;"
 					int nextSemicolon = sig.indexOf(';', start);
-					String nextbit = sig.substring(start, nextSemicolon + 1);
-					l.add(UnresolvedType.forSignature(nextbit));
+					l.add(typeFromSignature(sig, start, nextSemicolon + 1, world));
 					i = nextSemicolon + 1;
 				} else {
 					i++;
-					l.add(UnresolvedType.forSignature(sig.substring(start, i)));
+					l.add(typeFromSignature(sig, start, i, world));
 				}
 			}
 			UnresolvedType[] paramTypes = l.toArray(new UnresolvedType[l.size()]);
-			UnresolvedType returnType = UnresolvedType.forSignature(sig.substring(i + 1, sig.length()));
+			UnresolvedType returnType = typeFromSignature(sig, i + 1, sig.length(), world);
 			return new Object[] { returnType, paramTypes };
 		} else {
-			UnresolvedType returnType = UnresolvedType.forSignature(sig.substring(2));
+			UnresolvedType returnType = typeFromSignature(sig, 2, sig.length(), world);
 			return new Object[] { returnType, UnresolvedType.NONE };
 		}
 	}
 
+	private static UnresolvedType typeFromSignature(String sig, int start, int end, World world) {
+		if (world == null) {
+			return UnresolvedType.forSignature(sig.substring(start, end));
+		}
+		return world.typeFromSignature(sig, start, end);
+	}
+
 	// ---- factory methods
 	public static MemberImpl field(String declaring, int mods, String name, String signature) {
 		return field(declaring, mods, UnresolvedType.forSignature(signature), name);
 	}
 
+	/**
+	 * As field(String, int, String, String) but with the type taken from the signature cache of the given world.
+	 */
+	public static MemberImpl field(String declaring, int mods, String name, String signature, World world) {
+		return field(declaring, mods, world.typeFromSignature(signature), name);
+	}
+
 	// OPTIMIZE do we need to call this? unless necessary the signatureToTypes()
 	// call smacks of laziness on the behalf of the caller of this method
 	public static MemberImpl method(UnresolvedType declaring, int mods, String name, String signature) {
-		Object[] pair = signatureToTypes(signature);
+		Object[] pair = signatureToTypes(signature, null);
+		return method(declaring, mods, (UnresolvedType) pair[0], name, (UnresolvedType[]) pair[1]);
+	}
+
+	/**
+	 * As method(UnresolvedType, int, String, String) but with the types taken from the signature cache of the given world.
+	 */
+	public static MemberImpl method(UnresolvedType declaring, int mods, String name, String signature, World world) {
+		Object[] pair = signatureToTypes(signature, world);
 		return method(declaring, mods, (UnresolvedType) pair[0], name, (UnresolvedType[]) pair[1]);
 	}
 
@@ -243,7 +267,7 @@ public class MemberImpl implements Member {
 	}
 
 	public static Member pointcut(UnresolvedType declaring, String name, String signature) {
-		Object[] pair = signatureToTypes(signature);
+		Object[] pair = signatureToTypes(signature, null);
 		return pointcut(declaring, 0, (UnresolvedType) pair[0], name, (UnresolvedType[]) pair[1]);
 	}
 
@@ -0,0 +1,94 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable index from member name to the members of that name, in their original order. An index is built over a particular
+ * source (the array returned from getDeclaredMethods() or the list of intertype mungers) and remembers the identity and size of
+ * that source, so that ResolvedType can tell when it is stale - a new delegate hands back a new array, and adding or clearing
+ * intertype mungers changes the size or identity of the list.
+ *
+ * Small sources are not hashed, for those a scan is as quick as a lookup and the map would cost more memory than it saves time.
+ */
+final class MemberNameIndex {
+
+	private static final int MIN_HASHED_MEMBERS = 8;
+
+	private final Object source;
+	private final int sourceSize;
+	private final ResolvedMember[] members;
+	private final Map<String, ResolvedMember[]> membersByName;
+
+	MemberNameIndex(Object source, int sourceSize, ResolvedMember[] members) {
+		this.source = source;
+		this.sourceSize = sourceSize;
+		this.members = members;
+		if (members.length < MIN_HASHED_MEMBERS) {
+			membersByName = null;
+		} else {
+			Map<String, List<ResolvedMember>> collected = new HashMap<String, List<ResolvedMember>>();
+			for (int i = 0; i < members.length; i++) {
+				String name = members[i].getName();
+				List<ResolvedMember> named = collected.get(name);
+				if (named == null) {
+					named = new ArrayList<ResolvedMember>(1);
+					collected.put(name, named);
+				}
+				named.add(members[i]);
+			}
+			membersByName = new HashMap<String, ResolvedMember[]>(collected.size() * 2);
+			for (Map.Entry<String, List<ResolvedMember>> entry : collected.entrySet()) {
+				List<ResolvedMember> named = entry.getValue();
+				membersByName.put(entry.getKey(), named.toArray(new ResolvedMember[named.size()]));
+			}
+		}
+	}
+
+	/**
+	 * @return true if this index was built over the given source and is still current
+	 */
+	boolean indexes(Object source, int sourceSize) {
+		return this.source == source && this.sourceSize == sourceSize;
+	}
+
+	/**
+	 * @return the members with the given name in source order, never null
+	 */
+	ResolvedMember[] get(String name) {
+		if (membersByName != null) {
+			ResolvedMember[] named = membersByName.get(name);
+			return named == null ? ResolvedMember.NONE : named;
+		}
+		int count = 0;
+		for (int i = 0; i < members.length; i++) {
+			if (name.equals(members[i].getName())) {
+				count++;
+			}
+		}
+		if (count == 0) {
+			return ResolvedMember.NONE;
+		}
+		if (count == members.length) {
+			return members;
+		}
+		ResolvedMember[] named = new ResolvedMember[count];
+		count = 0;
+		for (int i = 0; i < members.length; i++) {
+			if (name.equals(members[i].getName())) {
+				named[count++] = members[i];
+			}
+		}
+		return named;
+	}
+}
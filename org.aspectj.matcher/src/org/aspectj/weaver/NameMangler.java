@@ -338,6 +338,12 @@ public class NameMangler {
 		return ret.toString();
 	}
 
+	public static String adviceDispatchMethodName(Member shadowSig, String suffixTag) {
+		StringBuffer ret = new StringBuffer();
+		ret.append(getExtractableName(shadowSig)).append("_adviceDispatch").append(suffixTag);
+		return ret.toString();
+	}
+
 	public static String getExtractableName(Member shadowSignature) {
 		String name = shadowSignature.getName();
 		MemberKind kind = shadowSignature.getKind();
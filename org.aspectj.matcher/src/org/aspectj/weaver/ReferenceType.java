@@ -70,6 +70,9 @@ public class ReferenceType extends ResolvedType {
 	private ResolvedType newSuperclass;
 	private ResolvedType[] newInterfaces;
 
+	// set while inflateDelegate() has the world build the full delegate for a demoted type
+	private boolean inflating;
+
 	public ReferenceType(String signature, World world) {
 		super(signature, world);
 	}
@@ -439,14 +442,41 @@ public class ReferenceType extends ResolvedType {
 			return true;
 		}
 
-		if (this.getSignature().equals("Ljava/lang/Object;")) {
+		if (this.getTypeId() == World.OBJECT_TYPE_ID) {
 			return true;
 		}
 
-		if (!isTypeVariableReference() && other.getSignature().equals("Ljava/lang/Object;")) {
+		if (!isTypeVariableReference() && other.getTypeId() == World.OBJECT_TYPE_ID) {
 			return false;
 		}
 
+		if (world != null && other.getWorld() == world && isAssignabilityCacheable(other)) {
+			AssignabilityCache cache = world.getAssignabilityCache();
+			long key = AssignabilityCache.key(this, other, allowMissing);
+			int known = cache.get(key);
+			if (known != -1) {
+				return known == 1;
+			}
+			int missingTypesSeen = cache.getMissingTypesSeen();
+			boolean result = isAssignableFromSupertypes(other, allowMissing);
+			if (cache.getMissingTypesSeen() == missingTypesSeen) {
+				cache.put(key, result);
+			}
+			return result;
+		}
+		return isAssignableFromSupertypes(other, allowMissing);
+	}
+
+	/**
+	 * Only plain class and interface types are cached, the answer for anything involving type variables, wildcards or a
+	 * parameterization on this side depends on more than the two types' ids.
+	 */
+	private boolean isAssignabilityCacheable(ResolvedType other) {
+		return (isSimpleType() || isRawType()) && !isTypeVariableReference() && !other.isTypeVariableReference()
+				&& (other.isSimpleType() || other.isRawType() || other.isParameterizedType()) && !other.isMissing();
+	}
+
+	private boolean isAssignableFromSupertypes(ResolvedType other, boolean allowMissing) {
 		boolean thisRaw = this.isRawType();
 		if (thisRaw && other.isParameterizedOrGenericType()) {
 			return isAssignableFrom(other.getRawType());
@@ -563,8 +593,13 @@ public class ReferenceType extends ResolvedType {
 			}
 		}
 
-		if (allowMissing && other.isMissing()) {
-			return false;
+		if (other.isMissing()) {
+			if (world != null) {
+				world.getAssignabilityCache().missingTypeSeen();
+			}
+			if (allowMissing) {
+				return false;
+			}
 		}
 
 		ResolvedType[] interfaces = other.getDeclaredInterfaces();
@@ -912,6 +947,31 @@ public class ReferenceType extends ResolvedType {
 	}
 
 	public void setDelegate(ReferenceTypeDelegate delegate) {
+		setDelegate(delegate, !inflating);
+	}
+
+	/**
+	 * Have the world build the full delegate for this type and install it in place of the given DemotedTypeDelegate. The full
+	 * delegate comes from the same class file the summary was taken from, so the supertypes have not changed: unlike a plain
+	 * setDelegate() (including the one a BcelObjectType does on itself as it is built) this keeps whatever declare parents and
+	 * declare @type added and does not tell the world that its type hierarchy changed.
+	 * 
+	 * @return the full delegate, or null if the world could not find the type again
+	 */
+	ReferenceTypeDelegate inflateDelegate(DemotedTypeDelegate demoted) {
+		inflating = true;
+		try {
+			ReferenceTypeDelegate delegate = world.resolveDelegate(this);
+			if (delegate != null && this.delegate != delegate && this.delegate == demoted) {
+				setDelegate(delegate, false);
+			}
+			return delegate;
+		} finally {
+			inflating = false;
+		}
+	}
+
+	private void setDelegate(ReferenceTypeDelegate delegate, boolean hierarchyChanged) {
 		// Don't copy from BcelObjectType to EclipseSourceType - the context may
 		// be tidied (result null'd) after previous weaving
 		if (this.delegate != null && this.delegate.copySourceContext()
@@ -924,7 +984,7 @@ public class ReferenceType extends ResolvedType {
 			for (WeakReference<ReferenceType> derivativeRef : derivativeTypes) {
 				ReferenceType derivative = derivativeRef.get();
 				if (derivative!=null) {
-					derivative.setDelegate(delegate);
+					derivative.setDelegate(delegate, hierarchyChanged);
 				} else {
 					forRemoval.add(derivativeRef);
 				}
@@ -937,11 +997,13 @@ public class ReferenceType extends ResolvedType {
 		if (isRawType() && getGenericType() != null) {
 			ReferenceType genType = (ReferenceType) getGenericType();
 			if (genType.getDelegate() != delegate) { // avoids circular updates
-				genType.setDelegate(delegate);
+				genType.setDelegate(delegate, hierarchyChanged);
 			}
 		}
 		clearParameterizationCaches();
-		ensureConsistent();
+		if (hierarchyChanged) {
+			ensureConsistent();
+		}
 	}
 
 	private void clearParameterizationCaches() {
@@ -1057,6 +1119,9 @@ public class ReferenceType extends ResolvedType {
 
 	@Override
 	public void ensureConsistent() {
+		if (world != null) {
+			world.typeHierarchyChanged();
+		}
 		annotations = null;
 		annotationTypes = null;
 		newSuperclass = null;
@@ -1076,6 +1141,9 @@ public class ReferenceType extends ResolvedType {
 					"The raw type should never be accumulating new interfaces, they should be on the generic type.  Type is "
 							+ this.getName());
 		}
+		if (world != null) {
+			world.typeHierarchyChanged();
+		}
 		if (newParent.isClass()) {
 			newSuperclass = newParent;
 			superclassReference = new WeakReference<ResolvedType>(null);
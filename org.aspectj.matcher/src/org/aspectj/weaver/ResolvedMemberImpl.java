@@ -40,7 +40,8 @@ public class ResolvedMemberImpl extends MemberImpl implements IHasPosition, Reso
 	protected ResolvedMember backingGenericMember = null;
 
 	protected AnnotationAJ[] annotations = null;
-	protected ResolvedType[] annotationTypes = null;
+	// volatile as reflection based members fill this in lazily and may be matched from several threads
+	protected volatile ResolvedType[] annotationTypes = null;
 	protected AnnotationAJ[][] parameterAnnotations = null;
 	protected ResolvedType[][] parameterAnnotationTypes = null;
 
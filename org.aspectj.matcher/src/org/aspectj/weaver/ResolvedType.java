@@ -169,6 +169,24 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 		return world;
 	}
 
+	private int typeId = -1;
+
+	/**
+	 * Return the id of this type in its world, see World.getTypeId(UnresolvedType). Two types of the same world have the same id
+	 * exactly when they have the same signature. The primitives and MISSING, which have no world, have ids that are the same in
+	 * every world.
+	 * 
+	 * @return the type id, or -1 for a type that belongs to no world
+	 */
+	public int getTypeId() {
+		int id = typeId;
+		if (id == -1) {
+			id = (world == null ? World.getFixedTypeId(getSignature()) : world.getTypeId(this));
+			typeId = id;
+		}
+		return id;
+	}
+
 	// ---- things from object
 
 	@Override
@@ -503,21 +521,92 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 		return resolvedTypeParams;
 	}
 
+	// Name indexes over the declared methods, declared fields and intertype munger signatures, see getDeclaredMethodsNamed() etc.
+	// Each is rebuilt when the array or list it was built over is replaced or grows.
+	private volatile MemberNameIndex declaredMethodIndex;
+	private volatile MemberNameIndex declaredFieldIndex;
+	private volatile MemberNameIndex interTypeMemberIndex;
+
+	/**
+	 * @return the methods declared by this type with the given name, in the order of getDeclaredMethods()
+	 */
+	public ResolvedMember[] getDeclaredMethodsNamed(String name) {
+		ResolvedMember[] methods = getDeclaredMethods();
+		if (methods == null) {
+			return ResolvedMember.NONE;
+		}
+		MemberNameIndex index = declaredMethodIndex;
+		if (index == null || !index.indexes(methods, methods.length)) {
+			index = new MemberNameIndex(methods, methods.length, methods);
+			declaredMethodIndex = index;
+		}
+		return index.get(name);
+	}
+
+	/**
+	 * @return the fields declared by this type with the given name, in the order of getDeclaredFields()
+	 */
+	public ResolvedMember[] getDeclaredFieldsNamed(String name) {
+		ResolvedMember[] fields = getDeclaredFields();
+		if (fields == null) {
+			return ResolvedMember.NONE;
+		}
+		MemberNameIndex index = declaredFieldIndex;
+		if (index == null || !index.indexes(fields, fields.length)) {
+			index = new MemberNameIndex(fields, fields.length, fields);
+			declaredFieldIndex = index;
+		}
+		return index.get(name);
+	}
+
+	/**
+	 * @return the signatures of the intertype mungers on this type with the given name, in the order of getInterTypeMungers()
+	 */
+	public ResolvedMember[] getInterTypeMemberSignaturesNamed(String name) {
+		List<ConcreteTypeMunger> mungers = interTypeMungers;
+		if (mungers == null || mungers.isEmpty()) {
+			return ResolvedMember.NONE;
+		}
+		MemberNameIndex index = interTypeMemberIndex;
+		if (index == null || !index.indexes(mungers, mungers.size())) {
+			List<ResolvedMember> signatures = new ArrayList<ResolvedMember>(mungers.size());
+			for (ConcreteTypeMunger munger : mungers) {
+				ResolvedMember signature = munger.getSignature();
+				if (signature != null) { // new parent type munger can have null signature
+					signatures.add(signature);
+				}
+			}
+			index = new MemberNameIndex(mungers, mungers.size(), signatures.toArray(new ResolvedMember[signatures.size()]));
+			interTypeMemberIndex = index;
+		}
+		return index.get(name);
+	}
+
 	/**
 	 * described in JVM spec 2ed 5.4.3.2
 	 */
 	public ResolvedMember lookupField(Member field) {
-		Iterator<ResolvedMember> i = getFields();
-		while (i.hasNext()) {
-			ResolvedMember resolvedMember = i.next();
-			if (matches(resolvedMember, field)) {
-				return resolvedMember;
-			}
-			if (resolvedMember.hasBackingGenericMember() && field.getName().equals(resolvedMember.getName())) {
-				// might be worth checking the member behind the parameterized member (see pr137496)
-				if (matches(resolvedMember.getBackingGenericMember(), field)) {
+		final Iterators.Filter<ResolvedType> dupFilter = Iterators.dupFilter();
+		Iterators.Getter<ResolvedType, ResolvedType> typeGetter = new Iterators.Getter<ResolvedType, ResolvedType>() {
+			public Iterator<ResolvedType> get(ResolvedType o) {
+				return dupFilter.filter(o.getDirectSupertypes());
+			}
+		};
+		String name = field.getName();
+		Iterator<ResolvedType> types = Iterators.recur(this, typeGetter);
+		while (types.hasNext()) {
+			ResolvedMember[] fields = types.next().getDeclaredFieldsNamed(name);
+			for (int i = 0; i < fields.length; i++) {
+				ResolvedMember resolvedMember = fields[i];
+				if (matches(resolvedMember, field)) {
 					return resolvedMember;
 				}
+				if (resolvedMember.hasBackingGenericMember()) {
+					// might be worth checking the member behind the parameterized member (see pr137496)
+					if (matches(resolvedMember.getBackingGenericMember(), field)) {
+						return resolvedMember;
+					}
+				}
 			}
 		}
 		return null;
@@ -533,23 +622,22 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 	public ResolvedMember lookupMethod(Member m) {
 		List<ResolvedType> typesTolookat = new ArrayList<ResolvedType>();
 		typesTolookat.add(this);
+		String name = m.getName();
 		int pos = 0;
 		while (pos < typesTolookat.size()) {
 			ResolvedType type = typesTolookat.get(pos++);
 			if (!type.isMissing()) {
-				ResolvedMember[] methods = type.getDeclaredMethods();
-				if (methods != null) {
-					for (int i = 0; i < methods.length; i++) {
-						ResolvedMember method = methods[i];
-						if (matches(method, m)) {
+				ResolvedMember[] methods = type.getDeclaredMethodsNamed(name);
+				for (int i = 0; i < methods.length; i++) {
+					ResolvedMember method = methods[i];
+					if (matches(method, m)) {
+						return method;
+					}
+					// might be worth checking the method behind the parameterized method (137496)
+					if (method.hasBackingGenericMember()) {
+						if (matches(method.getBackingGenericMember(), m)) {
 							return method;
 						}
-						// might be worth checking the method behind the parameterized method (137496)
-						if (method.hasBackingGenericMember() && m.getName().equals(method.getName())) {
-							if (matches(method.getBackingGenericMember(), m)) {
-								return method;
-							}
-						}
 					}
 				}
 			}
@@ -577,12 +665,7 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 	 * @return the real signature defined by any matching intertype declaration, otherwise null
 	 */
 	public ResolvedMember lookupMethodInITDs(Member member) {
-		for (ConcreteTypeMunger typeTransformer : interTypeMungers) {
-			if (matches(typeTransformer.getSignature(), member)) {
-				return typeTransformer.getSignature();
-			}
-		}
-		return null;
+		return lookupMember(member, getInterTypeMemberSignaturesNamed(member.getName()));
 	}
 
 	/**
@@ -605,32 +688,58 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 	 * anything about type variables.
 	 */
 	public ResolvedMember lookupResolvedMember(ResolvedMember aMember, boolean allowMissing, boolean eraseGenerics) {
-		Iterator<ResolvedMember> toSearch = null;
-		ResolvedMember found = null;
+		// Visits the types in the same order as getMethodsIncludingIntertypeDeclarations() and getFields() but only looks at the
+		// members with the right name on each
+		Iterator<ResolvedType> types = null;
+		boolean isField = false;
 		if ((aMember.getKind() == Member.METHOD) || (aMember.getKind() == Member.CONSTRUCTOR)) {
 			// toSearch = getMethodsWithoutIterator(true, allowMissing, !eraseGenerics).iterator();
-			toSearch = getMethodsIncludingIntertypeDeclarations(!eraseGenerics, true);
+			types = getHierarchy(!eraseGenerics, true);
 		} else if (aMember.getKind()==Member.ADVICE) {
 			return null;
 		} else { 
 			assert aMember.getKind() == Member.FIELD;
-			toSearch = getFields();
+			final Iterators.Filter<ResolvedType> dupFilter = Iterators.dupFilter();
+			Iterators.Getter<ResolvedType, ResolvedType> typeGetter = new Iterators.Getter<ResolvedType, ResolvedType>() {
+				public Iterator<ResolvedType> get(ResolvedType o) {
+					return dupFilter.filter(o.getDirectSupertypes());
+				}
+			};
+			types = Iterators.recur(this, typeGetter);
+			isField = true;
+		}
+		String name = aMember.getName();
+		while (types.hasNext()) {
+			ResolvedType type = types.next();
+			ResolvedMember found;
+			if (isField) {
+				found = lookupResolvedMember(aMember, type.getDeclaredFieldsNamed(name), eraseGenerics);
+			} else {
+				found = lookupResolvedMember(aMember, type.getDeclaredMethodsNamed(name), eraseGenerics);
+				if (found == null) {
+					found = lookupResolvedMember(aMember, type.getInterTypeMemberSignaturesNamed(name), eraseGenerics);
+				}
+			}
+			if (found != null) {
+				return found;
+			}
 		}
-		while (toSearch.hasNext()) {
-			ResolvedMember candidate = toSearch.next();
+		return null;
+	}
+
+	private static ResolvedMember lookupResolvedMember(ResolvedMember aMember, ResolvedMember[] candidates, boolean eraseGenerics) {
+		for (int i = 0; i < candidates.length; i++) {
+			ResolvedMember candidate = candidates[i];
 			if (eraseGenerics) {
 				if (candidate.hasBackingGenericMember()) {
 					candidate = candidate.getBackingGenericMember();
 				}
 			}
-			// OPTIMIZE speed up matches? optimize order of checks
 			if (candidate.matches(aMember, eraseGenerics)) {
-				found = candidate;
-				break;
+				return candidate;
 			}
 		}
-
-		return found;
+		return null;
 	}
 
 	public static boolean matches(Member m1, Member m2) {
@@ -1271,12 +1380,8 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 	 */
 	public ResolvedMember lookupMemberNoSupers(Member member) {
 		ResolvedMember ret = lookupDirectlyDeclaredMemberNoSupers(member);
-		if (ret == null && interTypeMungers != null) {
-			for (ConcreteTypeMunger tm : interTypeMungers) {
-				if (matches(tm.getSignature(), member)) {
-					return tm.getSignature();
-				}
-			}
+		if (ret == null) {
+			ret = lookupMember(member, getInterTypeMemberSignaturesNamed(member.getName()));
 		}
 		return ret;
 	}
@@ -1307,11 +1412,11 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 	public ResolvedMember lookupDirectlyDeclaredMemberNoSupers(Member member) {
 		ResolvedMember ret;
 		if (member.getKind() == Member.FIELD) {
-			ret = lookupMember(member, getDeclaredFields());
+			ret = lookupMember(member, getDeclaredFieldsNamed(member.getName()));
 		} else {
 			// assert member.getKind() == Member.METHOD || member.getKind() ==
 			// Member.CONSTRUCTOR
-			ret = lookupMember(member, getDeclaredMethods());
+			ret = lookupMember(member, getDeclaredMethodsNamed(member.getName()));
 		}
 		return ret;
 	}
@@ -1675,6 +1780,7 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 	public void addInterTypeMunger(ConcreteTypeMunger munger, boolean isDuringCompilation) {
 		ResolvedMember sig = munger.getSignature();
 		bits = (bits & ~MungersAnalyzed); // clear the bit - as the mungers have changed
+		interTypeMemberIndex = null;
 		if (sig == null || munger.getMunger() == null || munger.getMunger().getKind() == ResolvedTypeMunger.PrivilegedAccess) {
 			interTypeMungers.add(munger);
 			return;
@@ -2313,6 +2419,7 @@ public abstract class ResolvedType extends UnresolvedType implements AnnotatedEl
 		// interTypeMungers.clear();
 		// BUG? Why can't this be clear() instead: 293620 c6
 		interTypeMungers = new ArrayList<ConcreteTypeMunger>();
+		interTypeMemberIndex = null;
 	}
 
 	public boolean isTopmostImplementor(ResolvedType interfaceType) {
@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.aspectj.bridge.IMessage;
 import org.aspectj.bridge.ISourceLocation;
@@ -37,8 +38,9 @@ import org.aspectj.weaver.ast.Var;
 
 public abstract class Shadow {
 
-	// every Shadow has a unique id, doesn't matter if it wraps...
-	private static int nextShadowID = 100; // easier to spot than zero. // OPTIMIZE is this a bug? static?
+	// every Shadow has a unique id, doesn't matter if it wraps... Shadows may be built on several threads at once (reflective
+	// matching) and pointcuts cache their last match by id, so ids must never be handed out twice
+	private static final AtomicInteger nextShadowID = new AtomicInteger(100); // easier to spot than zero.
 
 	private final Kind kind;
 	private final Member signature;
@@ -47,7 +49,7 @@ public abstract class Shadow {
 	protected final Shadow enclosingShadow;
 	protected List<ShadowMunger> mungers = Collections.emptyList();
 
-	public int shadowId = nextShadowID++; // every time we build a shadow, it gets a new id
+	public int shadowId = nextShadowID.getAndIncrement(); // every time we build a shadow, it gets a new id
 
 	// ----
 	protected Shadow(Kind kind, Member signature, Shadow enclosingShadow) {
@@ -0,0 +1,116 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver;
+
+/**
+ * A bounded cache from type signature to UnresolvedType for a world (see World.typeFromSignature()). The same descriptors turn up
+ * in member after member and class after class, so rather than building a new UnresolvedType each time the last one built for a
+ * signature is handed out again. Lookups can be made against a region of a larger string, such as one parameter of a method
+ * descriptor, without taking a substring unless the signature has not been seen before.
+ *
+ * The table is direct mapped: each signature has exactly one slot and a new signature simply replaces whatever was in it, so
+ * the cache never holds more than SIZE entries. Entries are immutable so the table can be read and written by several threads
+ * without locking, at worst a signature is parsed twice.
+ *
+ * Only signatures of primitive, simple and array types are cached. Parameterized types and type variable references are built
+ * fresh every time as the type variables within them are filled in by whoever resolves them.
+ */
+final class SignatureCache {
+
+	private static final int SIZE = 4096; // must be a power of two
+
+	private final Entry[] entries = new Entry[SIZE];
+
+	private static final class Entry {
+		final String signature;
+		final UnresolvedType type;
+
+		Entry(String signature, UnresolvedType type) {
+			this.signature = signature;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * @return the type for the signature held in source between start (inclusive) and end (exclusive)
+	 */
+	UnresolvedType get(String source, int start, int end) {
+		int length = end - start;
+		if (length == 1) {
+			return primitive(source.charAt(start));
+		}
+		if (!isCacheable(source, start, end)) {
+			return UnresolvedType.forSignature(substring(source, start, end));
+		}
+		int slot = hash(source, start, end) & (SIZE - 1);
+		Entry entry = entries[slot];
+		if (entry != null && entry.signature.length() == length && entry.signature.regionMatches(0, source, start, length)) {
+			return entry.type;
+		}
+		String signature = substring(source, start, end);
+		UnresolvedType type = UnresolvedType.forSignature(signature);
+		entries[slot] = new Entry(signature, type);
+		return type;
+	}
+
+	private static boolean isCacheable(String source, int start, int end) {
+		int i = start;
+		while (i < end && source.charAt(i) == '[') {
+			i++;
+		}
+		if (i == end || source.charAt(i) != 'L') {
+			// a primitive array is fine, anything else (type variables, wildcards) is not
+			return i == end - 1 && i > start;
+		}
+		for (; i < end; i++) {
+			if (source.charAt(i) == '<') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// the primitive types are constants already
+	private static UnresolvedType primitive(char signature) {
+		switch (signature) {
+		case 'B':
+			return UnresolvedType.BYTE;
+		case 'C':
+			return UnresolvedType.CHAR;
+		case 'D':
+			return UnresolvedType.DOUBLE;
+		case 'F':
+			return UnresolvedType.FLOAT;
+		case 'I':
+			return UnresolvedType.INT;
+		case 'J':
+			return UnresolvedType.LONG;
+		case 'S':
+			return UnresolvedType.SHORT;
+		case 'V':
+			return UnresolvedType.VOID;
+		case 'Z':
+			return UnresolvedType.BOOLEAN;
+		default:
+			return UnresolvedType.forSignature(String.valueOf(signature));
+		}
+	}
+
+	private static String substring(String source, int start, int end) {
+		return (start == 0 && end == source.length()) ? source : source.substring(start, end);
+	}
+
+	private static int hash(String source, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + source.charAt(i);
+		}
+		return h ^ (h >>> 16);
+	}
+}
@@ -180,6 +180,13 @@ public class UnresolvedType implements Traceable, TypeVariableDeclaringElement {
 		return signature.hashCode();
 	}
 
+	/**
+	 * @return the id the given world uses for types with this signature, see World.getTypeId(UnresolvedType)
+	 */
+	public int getTypeId(World world) {
+		return world.getTypeId(this);
+	}
+
 	protected UnresolvedType(String signature) {
 		this.signature = signature;
 		this.signatureErasure = signature;
@@ -23,11 +23,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aspectj.bridge.IMessage;
 import org.aspectj.bridge.IMessage.Kind;
@@ -127,6 +129,11 @@ public abstract class World implements Dump.INode {
 	private boolean runMinimalMemorySet = false;
 	private boolean shouldPipelineCompilation = true;
 	private boolean shouldGenerateStackMaps = false;
+	private boolean nativeStackMaps = true;
+	private boolean typedAroundClosures = false;
+	private boolean invokedynamicStaticParts = false;
+	private boolean elideDynamicJoinPoints = false;
+	private boolean shareAroundClosures = false;
 	protected boolean bcelRepositoryCaching = xsetBCEL_REPOSITORY_CACHING_DEFAULT.equalsIgnoreCase("true");
 	private boolean fastMethodPacking = false;
 	private int itdVersion = 2; // defaults to 2nd generation itds
@@ -144,6 +151,8 @@ public abstract class World implements Dump.INode {
 	public boolean optimizedMatching = true;
 	protected long timersPerJoinpoint = 25000;
 	protected long timersPerType = 250;
+	private int pointcutDecisionDiagramThreshold = 256;
+	private int inlineSizeThreshold = 0;
 
 	public int infoMessagesEnabled = 0; // 0=uninitialized, 1=no, 2=yes
 
@@ -180,6 +189,26 @@ public abstract class World implements Dump.INode {
 	public final Primitive BOOLEAN = new Primitive("Z", 1, 7);
 	public final Primitive VOID = new Primitive("V", 0, 8);
 
+	/**
+	 * Signatures whose type ids are the same in every world, the first nine are the primitives in the order of Primitive.index.
+	 * Types without a world (the primitives and MISSING) take their id from here.
+	 */
+	private static final String[] FIXED_TYPE_ID_SIGNATURES = { "B", "C", "D", "F", "I", "J", "S", "Z", "V", "Ljava/lang/Object;",
+			UnresolvedType.MISSING_NAME };
+
+	public static final int OBJECT_TYPE_ID = 9;
+	public static final int MISSING_TYPE_ID = 10;
+
+	// signature > type id, see getTypeId(). Never shrinks: an id stays valid if its type is demoted and later rebuilt
+	private final Map<String, Integer> typeIds = new HashMap<String, Integer>();
+
+	private final AssignabilityCache assignabilityCache = new AssignabilityCache();
+
+	// bumped whenever the type hierarchy changes, see getTypeHierarchyVersion()
+	private volatile int typeHierarchyVersion;
+
+	private final SignatureCache signatureCache = new SignatureCache();
+
 	/**
 	 * Insert the primitives
 	 */
@@ -195,9 +224,99 @@ public abstract class World implements Dump.INode {
 		typeMap.put("C", CHAR);
 		typeMap.put("Z", BOOLEAN);
 		typeMap.put("V", VOID);
+		for (int i = 0; i < FIXED_TYPE_ID_SIGNATURES.length; i++) {
+			typeIds.put(FIXED_TYPE_ID_SIGNATURES[i], i);
+		}
 		precedenceCalculator = new AspectPrecedenceCalculator(this);
 	}
 
+	/**
+	 * Return the id of the given type in this world. Ids are small non-negative ints handed out densely as signatures are first
+	 * seen, all types with the same signature share an id, so within one world two types have the same id exactly when they have
+	 * the same signature. This lets hot checks compare and hash types by int and key compact tables by type, see
+	 * ResolvedType.getTypeId() which caches the id on the type.
+	 */
+	public int getTypeId(UnresolvedType type) {
+		String signature = type.getSignature();
+		synchronized (typeIds) {
+			Integer id = typeIds.get(signature);
+			if (id == null) {
+				id = typeIds.size();
+				typeIds.put(signature, id);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * @return one more than the highest type id handed out so far
+	 */
+	public int getTypeIdCount() {
+		synchronized (typeIds) {
+			return typeIds.size();
+		}
+	}
+
+	/**
+	 * @return the cache of ReferenceType.isAssignableFrom() answers for this world
+	 */
+	AssignabilityCache getAssignabilityCache() {
+		return assignabilityCache;
+	}
+
+	/**
+	 * Forget any cached answers about which types are assignable from which. The cache is only cleared automatically when
+	 * ReferenceType.addParent() is called or a ReferenceType gets a new delegate. Anything that changes the hierarchy behind the
+	 * delegate's back, for example declare parents applied directly to the compiler's binding for a source type, must call this.
+	 */
+	public void flushAssignabilityCache() {
+		typeHierarchyChanged();
+	}
+
+	/**
+	 * Called when ReferenceType.addParent() or a new delegate changes a ReferenceType, or through flushAssignabilityCache():
+	 * forgets the cached assignability answers and moves on the type hierarchy version.
+	 */
+	void typeHierarchyChanged() {
+		assignabilityCache.clear();
+		typeHierarchyVersion++;
+	}
+
+	/**
+	 * @return a number that changes whenever the type hierarchy of this world may have changed, so that answers about it cached
+	 *         outside the world (eg. the common superclasses used for stack map frames) can tell when they are stale
+	 */
+	public int getTypeHierarchyVersion() {
+		return typeHierarchyVersion;
+	}
+
+	/**
+	 * Equivalent to UnresolvedType.forSignature() but may hand back the same UnresolvedType for repeated requests for a
+	 * signature, so callers must not modify the result.
+	 */
+	public UnresolvedType typeFromSignature(String signature) {
+		return signatureCache.get(signature, 0, signature.length());
+	}
+
+	/**
+	 * As typeFromSignature(String) for the signature held in source between start (inclusive) and end (exclusive).
+	 */
+	UnresolvedType typeFromSignature(String source, int start, int end) {
+		return signatureCache.get(source, start, end);
+	}
+
+	/**
+	 * @return the id shared by all worlds for the given signature, or -1 if ids for that signature are per world
+	 */
+	static int getFixedTypeId(String signature) {
+		for (int i = 0; i < FIXED_TYPE_ID_SIGNATURES.length; i++) {
+			if (FIXED_TYPE_ID_SIGNATURES[i].equals(signature)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Dump processing when a fatal error occurs
 	 */
@@ -304,13 +423,22 @@ public abstract class World implements Dump.INode {
 			// fault in generic wildcard, can't be done earlier because of init
 			// issues
 			// TODO ought to be shared single instance representing this
-			ResolvedType something = getWildcard();
-			typeMap.put("?", something);
-			return something;
+			synchronized (buildingTypeLock) {
+				ResolvedType something = getWildcard();
+				typeMap.put("?", something);
+				return something;
+			}
 		}
 
-		// no existing resolved type, create one
+		// no existing resolved type, create one. The lock is held until the type is in the map so that a world resolving on several
+		// threads (e.g. a ReflectionWorld shared by concurrent matchers) never hands out two different types for one signature.
 		synchronized (buildingTypeLock) {
+			ResolvedType result = typeMap.get(signature);
+			if (result != null) {
+				// another thread got there first
+				result.world = this;
+				return result;
+			}
 			if (ty.isArray()) {
 				ResolvedType componentType = resolve(ty.getComponentType(), allowMissing);
 				ret = new ArrayReferenceType(signature, "[" + componentType.getErasureSignature(), this, componentType);
@@ -323,23 +451,32 @@ public abstract class World implements Dump.INode {
 					completeBinaryType(ret);
 				}
 			}
-		}
 
-		// Pulling in the type may have already put the right entry in the map
-		ResolvedType result = typeMap.get(signature);
-		if (result == null && !ret.isMissing()) {
-			ret = ensureRawTypeIfNecessary(ret);
-			typeMap.put(signature, ret);
-			return ret;
-		}
-		if (result == null) {
-			return ret;
-		} else {
-			return result;
+			// Pulling in the type may have already put the right entry in the map
+			result = typeMap.get(signature);
+			if (result == null && !ret.isMissing()) {
+				ret = ensureRawTypeIfNecessary(ret);
+				typeMap.put(signature, ret);
+				return ret;
+			}
+			if (result == null) {
+				return ret;
+			} else {
+				return result;
+			}
 		}
 	}
 
-	private Object buildingTypeLock = new Object();
+	private final Object buildingTypeLock = new Object();
+
+	/**
+	 * The lock held while types are built and added to the type map. Delegates that fill in the structure of a type lazily should
+	 * hold it while they do so, so that a world used from several threads builds each piece once and cannot deadlock against
+	 * type resolution.
+	 */
+	public Object getTypeBuildingLock() {
+		return buildingTypeLock;
+	}
 
 	// Only need one representation of '?' in a world - can be shared
 	private BoundedReferenceType wildcard;
@@ -393,9 +530,14 @@ public abstract class World implements Dump.INode {
 		}
 		ResolvedType resolved = typeMap.get(ty.getSignature());
 		if (resolved == null) {
-			resolved = ensureRawTypeIfNecessary(ty);
-			typeMap.put(ty.getSignature(), resolved);
-			resolved = ty;
+			synchronized (buildingTypeLock) {
+				resolved = typeMap.get(ty.getSignature());
+				if (resolved == null) {
+					resolved = ensureRawTypeIfNecessary(ty);
+					typeMap.put(ty.getSignature(), resolved);
+					resolved = ty;
+				}
+			}
 		}
 		resolved.world = this;
 		return resolved;
@@ -474,7 +616,16 @@ public abstract class World implements Dump.INode {
 			if (ty.needsModifiableDelegate()) {
 				simpleOrRawType.setNeedsModifiableDelegate(true);
 			}
-			ReferenceTypeDelegate delegate = resolveDelegate(simpleOrRawType);
+			ReferenceTypeDelegate delegate = null;
+			if (!ty.needsModifiableDelegate()) {
+				DemotedTypeSummary summary = typeMap.getSummary(erasedSignature);
+				if (summary != null) {
+					delegate = new DemotedTypeDelegate(simpleOrRawType, summary);
+				}
+			}
+			if (delegate == null) {
+				delegate = resolveDelegate(simpleOrRawType);
+			}
 
 			if (delegate == null) {
 				return new MissingResolvedTypeWithKnownSignature(ty.getSignature(), erasedSignature, this);
@@ -589,6 +740,14 @@ public abstract class World implements Dump.INode {
 	 */
 	protected abstract ReferenceTypeDelegate resolveDelegate(ReferenceType ty);
 
+	/**
+	 * Should a summary of the type behind this delegate be kept when the type is demoted? Only worth it if resolveDelegate() can
+	 * rebuild the delegate later, for when the summary cannot answer a question.
+	 */
+	protected boolean keepsSummaryWhenDemoted(ReferenceTypeDelegate delegate) {
+		return false;
+	}
+
 	/**
 	 * Special resolution for "core" types like OBJECT. These are resolved just like any other type, but if they are not found it is
 	 * more serious and we issue an error message immediately.
@@ -833,6 +992,24 @@ public abstract class World implements Dump.INode {
 		return minimalModel;
 	}
 
+	/**
+	 * @return the number of DNF disjuncts above which non-binding pointcuts are rewritten as decision diagrams, or -1 if decision
+	 *         diagrams are switched off
+	 */
+	public int getPointcutDecisionDiagramThreshold() {
+		ensureAdvancedConfigurationProcessed();
+		return pointcutDecisionDiagramThreshold;
+	}
+
+	/**
+	 * @return the size in bytes of code above which the JIT will not inline a method (eg. 325 for HotSpot's FreqInlineSize, 35 for
+	 *         MaxInlineSize), that weaving should try to keep methods under, or 0 if weaving should not take it into account
+	 */
+	public int getInlineSizeThreshold() {
+		ensureAdvancedConfigurationProcessed();
+		return inlineSizeThreshold;
+	}
+
 	public boolean isTargettingRuntime1_6_10() {
 		ensureAdvancedConfigurationProcessed();
 		return targettingRuntime1_6_10;
@@ -941,6 +1118,11 @@ public abstract class World implements Dump.INode {
 	public final static String xsetBCEL_REPOSITORY_CACHING = "bcelRepositoryCaching";
 	public final static String xsetPIPELINE_COMPILATION = "pipelineCompilation";
 	public final static String xsetGENERATE_STACKMAPS = "generateStackMaps";
+	public final static String xsetNATIVE_STACKMAPS = "nativeStackMaps"; // default true
+	public final static String xsetTYPED_AROUND_CLOSURES = "typedAroundClosures"; // default false
+	public final static String xsetINVOKEDYNAMIC_STATIC_PARTS = "invokedynamicStaticParts"; // default false
+	public final static String xsetELIDE_DYNAMIC_JOIN_POINTS = "elideDynamicJoinPoints"; // default false
+	public final static String xsetSHARE_AROUND_CLOSURES = "shareAroundClosures"; // default false
 	public final static String xsetPIPELINE_COMPILATION_DEFAULT = "true";
 	public final static String xsetCOMPLETE_BINARY_TYPES = "completeBinaryTypes";
 	public final static String xsetCOMPLETE_BINARY_TYPES_DEFAULT = "false";
@@ -959,6 +1141,8 @@ public abstract class World implements Dump.INode {
 	public final static String xsetITD_VERSION_DEFAULT = xsetITD_VERSION_2NDGEN;
 	public final static String xsetMINIMAL_MODEL = "minimalModel";
 	public final static String xsetTARGETING_RUNTIME_1610 = "targetRuntime1_6_10";
+	public final static String xsetPOINTCUT_DECISION_DIAGRAM_THRESHOLD = "pointcutDecisionDiagramThreshold"; // default 256
+	public final static String xsetINLINE_SIZE_THRESHOLD = "inlineSizeThreshold"; // default 0 (off)
 
 	public boolean isInJava5Mode() {
 		return behaveInJava5Way;
@@ -1026,18 +1210,32 @@ public abstract class World implements Dump.INode {
 
 		private static boolean debug = false;
 		public static boolean useExpendableMap = true; // configurable for reliable testing
+		public static boolean useDemotedTypeSummaries = true; // configurable for reliable testing
+		public static int maxDemotedTypeSummaries = 10000; // configurable for testing
 		private boolean demotionSystemActive;
 		private boolean debugDemotion = false;
 
 		public int policy = USE_WEAK_REFS;
 
-		// Map of types that never get thrown away
-		final Map<String, ResolvedType> tMap = new HashMap<String, ResolvedType>();
+		// Map of types that never get thrown away. Concurrent as a ReflectionWorld may be shared by threads
+		final Map<String, ResolvedType> tMap = new ConcurrentHashMap<String, ResolvedType>();
 
 		// Map of types that may be ejected from the cache if we need space
 		final Map<String, Reference<ResolvedType>> expendableMap = Collections
 				.synchronizedMap(new WeakHashMap<String, Reference<ResolvedType>>());
 
+		// Summaries of demoted types, used to rebuild a type cheaply if it is collected from the expendable map. Bounded, the
+		// least recently used summary is dropped and that type is then rebuilt from its class file as before
+		final Map<String, DemotedTypeSummary> summaries = Collections.synchronizedMap(new LinkedHashMap<String, DemotedTypeSummary>(
+				16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, DemotedTypeSummary> eldest) {
+				return size() > maxDemotedTypeSummaries;
+			}
+		});
+
 		private final World w;
 
 		// profiling tools...
@@ -1068,6 +1266,13 @@ public abstract class World implements Dump.INode {
 			return tMap;
 		}
 
+		/**
+		 * @return the summary kept for a demoted type that is no longer in either map, or null if there is none
+		 */
+		public DemotedTypeSummary getSummary(String key) {
+			return summaries.get(key);
+		}
+
 		public int demote() {
 			return demote(false);
 		}
@@ -1080,7 +1285,7 @@ public abstract class World implements Dump.INode {
 		 * 
 		 * @return number of types demoted
 		 */
-		public int demote(boolean atEndOfCompile) {
+		public synchronized int demote(boolean atEndOfCompile) {
 			if (!demotionSystemActive) {
 				return 0;
 			}
@@ -1168,6 +1373,7 @@ public abstract class World implements Dump.INode {
 		}
 
 		private void insertInExpendableMap(String key, ResolvedType type) {
+			keepSummary(key, type);
 			if (useExpendableMap) {
 				if (!expendableMap.containsKey(key)) {
 					if (policy == USE_SOFT_REFS) {
@@ -1179,6 +1385,16 @@ public abstract class World implements Dump.INode {
 			}
 		}
 
+		private void keepSummary(String key, ResolvedType type) {
+			if (!useDemotedTypeSummaries || !(type instanceof ReferenceType)) {
+				return;
+			}
+			ReferenceTypeDelegate delegate = ((ReferenceType) type).getDelegate();
+			if (delegate != null && (delegate instanceof DemotedTypeDelegate || w.keepsSummaryWhenDemoted(delegate))) {
+				summaries.put(key, DemotedTypeSummary.of(delegate));
+			}
+		}
+
 		/**
 		 * Add a new type into the map, the key is the type signature. Some types do *not* go in the map, these are ones involving
 		 * *member* type variables. The reason is that when all you have is the signature which gives you a type variable name, you
@@ -1238,6 +1454,11 @@ public abstract class World implements Dump.INode {
 			 * " (should be raw)"); }
 			 */
 
+			if (!(type instanceof ReferenceType) || !(((ReferenceType) type).getDelegate() instanceof DemotedTypeDelegate)) {
+				// anything other than the type rebuilt from the summary may differ from it
+				summaries.remove(key);
+			}
+
 			if (w.isExpendable(type)) {
 				if (useExpendableMap) {
 					// Dont use reference queue for tracking if not profiling...
@@ -1264,7 +1485,9 @@ public abstract class World implements Dump.INode {
 			} else {
 				if (demotionSystemActive) {
 					// System.out.println("Added since last demote " + key);
-					addedSinceLastDemote.add(key);
+					synchronized (this) {
+						addedSinceLastDemote.add(key);
+					}
 				}
 
 				return tMap.put(key, type);
@@ -1325,6 +1548,7 @@ public abstract class World implements Dump.INode {
 
 		/** Remove a type from the map */
 		public ResolvedType remove(String key) {
+			summaries.remove(key);
 			ResolvedType ret = tMap.remove(key);
 			if (ret == null) {
 				if (policy == USE_WEAK_REFS) {
@@ -1349,12 +1573,13 @@ public abstract class World implements Dump.INode {
 			if (demotionSystemActive) {
 				writtenClasses.add(classname);
 			}
+			summaries.remove(UnresolvedType.forName(classname).getSignature());
 			if (debugDemotion) {
 				System.out.println("Class write event for " + classname);
 			}
 		}
 
-		public void demote(ResolvedType type) {
+		public synchronized void demote(ResolvedType type) {
 			String key = type.getSignature();
 			if (debugDemotion) {
 				addedSinceLastDemote.remove(key);
@@ -1479,7 +1704,7 @@ public abstract class World implements Dump.INode {
 
 			@Override
 			public int hashCode() {
-				return aspect1.hashCode() + aspect2.hashCode();
+				return aspect1.getTypeId() * 31 + aspect2.getTypeId();
 			}
 		}
 	}
@@ -1524,6 +1749,7 @@ public abstract class World implements Dump.INode {
 	/** be careful calling this - pr152257 */
 	public void flush() {
 		typeMap.expendableMap.clear();
+		typeMap.summaries.clear();
 	}
 
 	public void ensureAdvancedConfigurationProcessed() {
@@ -1573,6 +1799,21 @@ public abstract class World implements Dump.INode {
 				s = p.getProperty(xsetGENERATE_STACKMAPS, "false");
 				shouldGenerateStackMaps = s.equalsIgnoreCase("true");
 
+				s = p.getProperty(xsetNATIVE_STACKMAPS, "true");
+				nativeStackMaps = s.equalsIgnoreCase("true");
+
+				s = p.getProperty(xsetTYPED_AROUND_CLOSURES, "false");
+				typedAroundClosures = s.equalsIgnoreCase("true");
+
+				s = p.getProperty(xsetINVOKEDYNAMIC_STATIC_PARTS, "false");
+				invokedynamicStaticParts = s.equalsIgnoreCase("true");
+
+				s = p.getProperty(xsetELIDE_DYNAMIC_JOIN_POINTS, "false");
+				elideDynamicJoinPoints = s.equalsIgnoreCase("true");
+
+				s = p.getProperty(xsetSHARE_AROUND_CLOSURES, "false");
+				shareAroundClosures = s.equalsIgnoreCase("true");
+
 				s = p.getProperty(xsetCOMPLETE_BINARY_TYPES, xsetCOMPLETE_BINARY_TYPES_DEFAULT);
 				completeBinaryTypes = s.equalsIgnoreCase("true");
 				if (completeBinaryTypes) {
@@ -1645,6 +1886,23 @@ public abstract class World implements Dump.INode {
 					timersPerType = 250;
 				}
 
+				s = p.getProperty(xsetPOINTCUT_DECISION_DIAGRAM_THRESHOLD, "256");
+				try {
+					pointcutDecisionDiagramThreshold = Integer.parseInt(s);
+				} catch (Exception e) {
+					getMessageHandler().handleMessage(
+							MessageUtil.error("unable to process pointcutDecisionDiagramThreshold value of " + s));
+					pointcutDecisionDiagramThreshold = 256;
+				}
+
+				s = p.getProperty(xsetINLINE_SIZE_THRESHOLD, "0");
+				try {
+					inlineSizeThreshold = Integer.parseInt(s);
+				} catch (Exception e) {
+					getMessageHandler().handleMessage(MessageUtil.error("unable to process inlineSizeThreshold value of " + s));
+					inlineSizeThreshold = 0;
+				}
+
 			}
 			try {
 				if (systemPropertyOverWeaving) {
@@ -1699,6 +1957,55 @@ public abstract class World implements Dump.INode {
 		return shouldGenerateStackMaps;
 	}
 
+	/**
+	 * @return true if stack map frames should be computed as methods are packed, rather than by reading the whole class back in
+	 *         with asm once it has been written
+	 */
+	public boolean shouldGenerateStackMapsNatively() {
+		ensureAdvancedConfigurationProcessed();
+		return nativeStackMaps;
+	}
+
+	/**
+	 * @return true if around closures should keep the state of their join point in typed fields and proceed methods should call
+	 *         the AroundClosure.runN() methods, which needs an aspectjrt that has them
+	 */
+	public boolean shouldGenerateTypedAroundClosures() {
+		ensureAdvancedConfigurationProcessed();
+		return typedAroundClosures;
+	}
+
+	/**
+	 * @return true if classes for Java 7 and later should get the static parts of their join points through invokedynamic call
+	 *         sites, which create them on first use, rather than from fields set up by the static initializer. Needs an
+	 *         aspectjrt that has StaticPartCallSites.
+	 */
+	public boolean shouldUseInvokedynamicStaticParts() {
+		ensureAdvancedConfigurationProcessed();
+		return invokedynamicStaticParts;
+	}
+
+	/**
+	 * @return true if advice that only asks thisJoinPoint for static information should be passed a join point shared for the
+	 *         static part, rather than one built with the this, target and arguments at every join point. Needs an aspectjrt
+	 *         that has Factory.makeStaticJP().
+	 */
+	public boolean shouldElideDynamicJoinPoints() {
+		ensureAdvancedConfigurationProcessed();
+		return elideDynamicJoinPoints;
+	}
+
+	/**
+	 * @return true if around advice at shadows in a type that extract to identical code should share one callback method and
+	 *         closure class, rather than each shadow getting its own. The shared callback keeps the line numbers of the first of
+	 *         those shadows, so stack traces and debuggers stepping through the proceed of any of the others report the source
+	 *         lines of that first shadow.
+	 */
+	public boolean shouldShareAroundClosures() {
+		ensureAdvancedConfigurationProcessed();
+		return shareAroundClosures;
+	}
+
 	public void setIncrementalCompileCouldFollow(boolean b) {
 		incrementalCompileCouldFollow = b;
 	}
@@ -0,0 +1,101 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver.internal.tools;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.BitSet;
+
+import org.aspectj.weaver.tools.MemberMatches;
+import org.aspectj.weaver.tools.ShadowMatch;
+
+/**
+ * Implementation of MemberMatches, filled in by PointcutExpressionImpl.matchesDeclaredMembers.
+ */
+class MemberMatchesImpl implements MemberMatches {
+
+	private final Class matchedType;
+	private final Method[] methods;
+	private final Constructor[] constructors;
+	private final Field[] fields;
+	final ShadowMatch[] methodExecutions;
+	final ShadowMatch[] constructorExecutions;
+	final ShadowMatch[] fieldGets;
+	final ShadowMatch[] fieldSets;
+
+	MemberMatchesImpl(Class matchedType, Method[] methods, Constructor[] constructors, Field[] fields) {
+		this.matchedType = matchedType;
+		this.methods = methods;
+		this.constructors = constructors;
+		this.fields = fields;
+		this.methodExecutions = new ShadowMatch[methods.length];
+		this.constructorExecutions = new ShadowMatch[constructors.length];
+		this.fieldGets = new ShadowMatch[fields.length];
+		this.fieldSets = new ShadowMatch[fields.length];
+	}
+
+	public Class getMatchedType() {
+		return matchedType;
+	}
+
+	public Method[] getMethods() {
+		return methods;
+	}
+
+	public Constructor[] getConstructors() {
+		return constructors;
+	}
+
+	public Field[] getFields() {
+		return fields;
+	}
+
+	public BitSet getMatchingMethodExecutions() {
+		return maybeMatching(methodExecutions);
+	}
+
+	public BitSet getMatchingConstructorExecutions() {
+		return maybeMatching(constructorExecutions);
+	}
+
+	public BitSet getMatchingFieldGets() {
+		return maybeMatching(fieldGets);
+	}
+
+	public BitSet getMatchingFieldSets() {
+		return maybeMatching(fieldSets);
+	}
+
+	public ShadowMatch getMethodExecutionMatch(int index) {
+		return methodExecutions[index];
+	}
+
+	public ShadowMatch getConstructorExecutionMatch(int index) {
+		return constructorExecutions[index];
+	}
+
+	public ShadowMatch getFieldGetMatch(int index) {
+		return fieldGets[index];
+	}
+
+	public ShadowMatch getFieldSetMatch(int index) {
+		return fieldSets[index];
+	}
+
+	private static BitSet maybeMatching(ShadowMatch[] matches) {
+		BitSet bits = new BitSet(matches.length);
+		for (int i = 0; i < matches.length; i++) {
+			if (matches[i].maybeMatches()) {
+				bits.set(i);
+			}
+		}
+		return bits;
+	}
+}
@@ -14,6 +14,8 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 
+import org.aspectj.util.FuzzyBoolean;
+import org.aspectj.weaver.ResolvedMember;
 import org.aspectj.weaver.ResolvedType;
 import org.aspectj.weaver.Shadow;
 import org.aspectj.weaver.World;
@@ -33,27 +35,44 @@ import org.aspectj.weaver.patterns.ThisOrTargetAnnotationPointcut;
 import org.aspectj.weaver.patterns.ThisOrTargetPointcut;
 import org.aspectj.weaver.patterns.WithinAnnotationPointcut;
 import org.aspectj.weaver.patterns.WithinCodeAnnotationPointcut;
+import org.aspectj.weaver.reflect.ReflectionBasedReferenceTypeDelegateFactory;
 import org.aspectj.weaver.reflect.ReflectionFastMatchInfo;
 import org.aspectj.weaver.reflect.ReflectionShadow;
 import org.aspectj.weaver.reflect.ShadowMatchImpl;
 import org.aspectj.weaver.tools.DefaultMatchingContext;
 import org.aspectj.weaver.tools.MatchingContext;
-import org.aspectj.weaver.tools.PointcutExpression;
+import org.aspectj.weaver.tools.MemberMatches;
+import org.aspectj.weaver.tools.MemberMatchingPointcutExpression;
 import org.aspectj.weaver.tools.PointcutParameter;
 import org.aspectj.weaver.tools.ShadowMatch;
 
 /**
  * Map from weaver.tools interface to internal Pointcut implementation...
  */
-public class PointcutExpressionImpl implements PointcutExpression {
+public class PointcutExpressionImpl implements MemberMatchingPointcutExpression {
 
 	private final static boolean MATCH_INFO = false;
 
+	// kinds of join point that are cached separately, as they can share a subject (e.g. method execution and advice execution)
+	private final static int EXECUTION = 0;
+	private final static int STATIC_INITIALIZATION = 1;
+	private final static int ADVICE_EXECUTION = 2;
+	private final static int INITIALIZATION = 3;
+	private final static int PRE_INITIALIZATION = 4;
+	private final static int CALL = 5;
+	private final static int HANDLER = 6;
+	private final static int FIELD_GET = 7;
+	private final static int FIELD_SET = 8;
+	private final static int JOINPOINT_KINDS = 9;
+
 	private World world;
 	private Pointcut pointcut;
 	private String expression;
 	private PointcutParameter[] parameters;
 	private MatchingContext matchContext = new DefaultMatchingContext();
+	// null unless shadow match caching has been switched on
+	private volatile ReflectiveMatchCache<ShadowMatchImpl>[] shadowMatchCaches;
+	private volatile ReflectiveMatchCache<Boolean> couldMatchCache;
 
 	public PointcutExpressionImpl(Pointcut pointcut, String expression, PointcutParameter[] params, World inWorld) {
 		this.pointcut = pointcut;
@@ -76,9 +95,54 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	 */
 	public void setMatchingContext(MatchingContext aMatchContext) {
 		this.matchContext = aMatchContext;
+		// the cached matches were made (and their residues will be evaluated) in the old context
+		ReflectiveMatchCache<ShadowMatchImpl>[] caches = shadowMatchCaches;
+		if (caches != null) {
+			for (int i = 0; i < caches.length; i++) {
+				caches[i].clear();
+			}
+		}
+		ReflectiveMatchCache<Boolean> cache = couldMatchCache;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Remember the results of the matchesXXX and couldMatchJoinPointsInType methods for up to maxEntries members (or types) of
+	 * each kind of join point, so that asking the same question again returns the same ShadowMatch without re-matching. The least
+	 * recently used results are dropped first. A cached ShadowMatch refers to its member, so the member's class stays loaded until
+	 * the result is dropped or collected when memory runs low. A size of zero or less switches caching off, which is the default.
+	 * <p>
+	 * Cached ShadowMatch instances are shared between callers, so a matching context should not be set on them; set it on the
+	 * expression instead, which discards the cached results.
+	 * </p>
+	 * 
+	 * @param maxEntries the maximum number of results to keep per kind of join point
+	 */
+	@SuppressWarnings("unchecked")
+	public void setShadowMatchCacheSize(int maxEntries) {
+		if (maxEntries <= 0) {
+			shadowMatchCaches = null;
+			couldMatchCache = null;
+			return;
+		}
+		ReflectiveMatchCache<ShadowMatchImpl>[] caches = new ReflectiveMatchCache[JOINPOINT_KINDS];
+		for (int i = 0; i < caches.length; i++) {
+			caches[i] = new ReflectiveMatchCache<ShadowMatchImpl>(maxEntries);
+		}
+		couldMatchCache = new ReflectiveMatchCache<Boolean>(maxEntries);
+		shadowMatchCaches = caches;
 	}
 
 	public boolean couldMatchJoinPointsInType(Class aClass) {
+		ReflectiveMatchCache<Boolean> cache = couldMatchCache;
+		if (cache != null) {
+			Boolean cached = cache.get(aClass, null);
+			if (cached != null) {
+				return cached.booleanValue();
+			}
+		}
 		ResolvedType matchType = world.resolve(aClass.getName());
 		ReflectionFastMatchInfo info = new ReflectionFastMatchInfo(matchType, null, this.matchContext, world);
 		boolean couldMatch = pointcut.fastMatch(info).maybeTrue();
@@ -86,6 +150,9 @@ public class PointcutExpressionImpl implements PointcutExpression {
 			System.out.println("MATCHINFO: fast match for '" + this.expression + "' against '" + aClass.getName() + "': "
 					+ couldMatch);
 		}
+		if (cache != null) {
+			cache.put(aClass, null, Boolean.valueOf(couldMatch));
+		}
 		return couldMatch;
 	}
 
@@ -118,20 +185,38 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	private ShadowMatch matchesExecution(Member aMember) {
-		Shadow s = ReflectionShadow.makeExecutionShadow(world, aMember, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		return matchesExecution(aMember, null);
+	}
+
+	/**
+	 * @param declaringType the resolved declaring type of the member, or null to resolve it here
+	 */
+	private ShadowMatch matchesExecution(Member aMember, ResolvedType declaringType) {
+		ShadowMatchImpl sm = getCachedShadowMatch(EXECUTION, aMember, null);
+		if (sm != null) {
+			return sm;
+		}
+		Shadow s = (declaringType == null ? ReflectionShadow.makeExecutionShadow(world, aMember, this.matchContext)
+				: ReflectionShadow.makeExecutionShadow(world, aMember, declaringType, this.matchContext));
+		sm = getShadowMatch(s);
 		sm.setSubject(aMember);
 		sm.setWithinCode(null);
 		sm.setWithinType(aMember.getDeclaringClass());
+		cacheShadowMatch(EXECUTION, aMember, null, sm);
 		return sm;
 	}
 
 	public ShadowMatch matchesStaticInitialization(Class aClass) {
+		ShadowMatchImpl sm = getCachedShadowMatch(STATIC_INITIALIZATION, aClass, null);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeStaticInitializationShadow(world, aClass, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(null);
 		sm.setWithinCode(null);
 		sm.setWithinType(aClass);
+		cacheShadowMatch(STATIC_INITIALIZATION, aClass, null, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: static initialization match on '" + aClass.getName() + "' for '" + this.expression
 					+ "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -140,11 +225,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesAdviceExecution(Method aMethod) {
+		ShadowMatchImpl sm = getCachedShadowMatch(ADVICE_EXECUTION, aMethod, null);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeAdviceExecutionShadow(world, aMethod, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aMethod);
 		sm.setWithinCode(null);
 		sm.setWithinType(aMethod.getDeclaringClass());
+		cacheShadowMatch(ADVICE_EXECUTION, aMethod, null, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: advice execution match on '" + aMethod + "' for '" + this.expression + "': "
 					+ (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -153,11 +243,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesInitialization(Constructor aConstructor) {
+		ShadowMatchImpl sm = getCachedShadowMatch(INITIALIZATION, aConstructor, null);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeInitializationShadow(world, aConstructor, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aConstructor);
 		sm.setWithinCode(null);
 		sm.setWithinType(aConstructor.getDeclaringClass());
+		cacheShadowMatch(INITIALIZATION, aConstructor, null, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: initialization match on '" + aConstructor + "' for '" + this.expression + "': "
 					+ (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -166,11 +261,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesPreInitialization(Constructor aConstructor) {
+		ShadowMatchImpl sm = getCachedShadowMatch(PRE_INITIALIZATION, aConstructor, null);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makePreInitializationShadow(world, aConstructor, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aConstructor);
 		sm.setWithinCode(null);
 		sm.setWithinType(aConstructor.getDeclaringClass());
+		cacheShadowMatch(PRE_INITIALIZATION, aConstructor, null, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: preinitialization match on '" + aConstructor + "' for '" + this.expression + "': "
 					+ (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -179,11 +279,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesMethodCall(Method aMethod, Member withinCode) {
+		ShadowMatchImpl sm = getCachedShadowMatch(CALL, aMethod, withinCode);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeCallShadow(world, aMethod, withinCode, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aMethod);
 		sm.setWithinCode(withinCode);
 		sm.setWithinType(withinCode.getDeclaringClass());
+		cacheShadowMatch(CALL, aMethod, withinCode, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: method call match on '" + aMethod + "' withinCode='" + withinCode + "' for '"
 					+ this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -192,11 +297,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesMethodCall(Method aMethod, Class callerType) {
+		ShadowMatchImpl sm = getCachedShadowMatch(CALL, aMethod, callerType);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeCallShadow(world, aMethod, callerType, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aMethod);
 		sm.setWithinCode(null);
 		sm.setWithinType(callerType);
+		cacheShadowMatch(CALL, aMethod, callerType, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: method call match on '" + aMethod + "' callerType='" + callerType.getName() + "' for '"
 					+ this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -205,11 +315,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesConstructorCall(Constructor aConstructor, Class callerType) {
+		ShadowMatchImpl sm = getCachedShadowMatch(CALL, aConstructor, callerType);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeCallShadow(world, aConstructor, callerType, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aConstructor);
 		sm.setWithinCode(null);
 		sm.setWithinType(callerType);
+		cacheShadowMatch(CALL, aConstructor, callerType, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: constructor call match on '" + aConstructor + "' callerType='" + callerType.getName()
 					+ "' for '" + this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -218,11 +333,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesConstructorCall(Constructor aConstructor, Member withinCode) {
+		ShadowMatchImpl sm = getCachedShadowMatch(CALL, aConstructor, withinCode);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeCallShadow(world, aConstructor, withinCode, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aConstructor);
 		sm.setWithinCode(withinCode);
 		sm.setWithinType(withinCode.getDeclaringClass());
+		cacheShadowMatch(CALL, aConstructor, withinCode, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: constructor call match on '" + aConstructor + "' withinCode='" + withinCode + "' for '"
 					+ this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -231,11 +351,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesHandler(Class exceptionType, Class handlingType) {
+		ShadowMatchImpl sm = getCachedShadowMatch(HANDLER, exceptionType, handlingType);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeHandlerShadow(world, exceptionType, handlingType, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(null);
 		sm.setWithinCode(null);
 		sm.setWithinType(handlingType);
+		cacheShadowMatch(HANDLER, exceptionType, handlingType, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: handler match on '" + exceptionType.getName() + "' handlingType='" + handlingType
 					+ "' for '" + this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -244,11 +369,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesHandler(Class exceptionType, Member withinCode) {
+		ShadowMatchImpl sm = getCachedShadowMatch(HANDLER, exceptionType, withinCode);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeHandlerShadow(world, exceptionType, withinCode, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(null);
 		sm.setWithinCode(withinCode);
 		sm.setWithinType(withinCode.getDeclaringClass());
+		cacheShadowMatch(HANDLER, exceptionType, withinCode, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: handler match on '" + exceptionType.getName() + "' withinCode='" + withinCode
 					+ "' for '" + this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -257,11 +387,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesFieldGet(Field aField, Class withinType) {
+		ShadowMatchImpl sm = getCachedShadowMatch(FIELD_GET, aField, withinType);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeFieldGetShadow(world, aField, withinType, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aField);
 		sm.setWithinCode(null);
 		sm.setWithinType(withinType);
+		cacheShadowMatch(FIELD_GET, aField, withinType, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: field get match on '" + aField + "' withinType='" + withinType.getName() + "' for '"
 					+ this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -270,11 +405,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesFieldGet(Field aField, Member withinCode) {
+		ShadowMatchImpl sm = getCachedShadowMatch(FIELD_GET, aField, withinCode);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeFieldGetShadow(world, aField, withinCode, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aField);
 		sm.setWithinCode(withinCode);
 		sm.setWithinType(withinCode.getDeclaringClass());
+		cacheShadowMatch(FIELD_GET, aField, withinCode, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: field get match on '" + aField + "' withinCode='" + withinCode + "' for '"
 					+ this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -283,11 +423,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesFieldSet(Field aField, Class withinType) {
+		ShadowMatchImpl sm = getCachedShadowMatch(FIELD_SET, aField, withinType);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeFieldSetShadow(world, aField, withinType, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aField);
 		sm.setWithinCode(null);
 		sm.setWithinType(withinType);
+		cacheShadowMatch(FIELD_SET, aField, withinType, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: field set match on '" + aField + "' withinType='" + withinType.getName() + "' for '"
 					+ this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -296,11 +441,16 @@ public class PointcutExpressionImpl implements PointcutExpression {
 	}
 
 	public ShadowMatch matchesFieldSet(Field aField, Member withinCode) {
+		ShadowMatchImpl sm = getCachedShadowMatch(FIELD_SET, aField, withinCode);
+		if (sm != null) {
+			return sm;
+		}
 		Shadow s = ReflectionShadow.makeFieldSetShadow(world, aField, withinCode, this.matchContext);
-		ShadowMatchImpl sm = getShadowMatch(s);
+		sm = getShadowMatch(s);
 		sm.setSubject(aField);
 		sm.setWithinCode(withinCode);
 		sm.setWithinType(withinCode.getDeclaringClass());
+		cacheShadowMatch(FIELD_SET, aField, withinCode, sm);
 		if (MATCH_INFO && sm.maybeMatches()) {
 			System.out.println("MATCHINFO: field set match on '" + aField + "' withinCode='" + withinCode + "' for '"
 					+ this.expression + "': " + (sm.alwaysMatches() ? "YES" : "MAYBE"));
@@ -308,8 +458,83 @@ public class PointcutExpressionImpl implements PointcutExpression {
 		return sm;
 	}
 
+	public MemberMatches matchesDeclaredMembers(Class aClass) {
+		MemberMatchesImpl matches = new MemberMatchesImpl(aClass, aClass.getDeclaredMethods(), aClass.getDeclaredConstructors(),
+				aClass.getDeclaredFields());
+		// every join point considered here is within aClass, so one fast match can rule them all out
+		ResolvedType matchType = world.resolve(aClass.getName());
+		ReflectionFastMatchInfo info = new ReflectionFastMatchInfo(matchType, null, this.matchContext, world);
+		if (!pointcut.fastMatch(info).maybeTrue()) {
+			for (int i = 0; i < matches.methodExecutions.length; i++) {
+				matches.methodExecutions[i] = getNeverMatch(matches.getMethods()[i], aClass);
+			}
+			for (int i = 0; i < matches.constructorExecutions.length; i++) {
+				matches.constructorExecutions[i] = getNeverMatch(matches.getConstructors()[i], aClass);
+			}
+			for (int i = 0; i < matches.fieldGets.length; i++) {
+				matches.fieldGets[i] = getNeverMatch(matches.getFields()[i], aClass);
+				matches.fieldSets[i] = getNeverMatch(matches.getFields()[i], aClass);
+			}
+			return matches;
+		}
+		for (int i = 0; i < matches.methodExecutions.length; i++) {
+			matches.methodExecutions[i] = matchesExecution(matches.getMethods()[i], matchType);
+		}
+		for (int i = 0; i < matches.constructorExecutions.length; i++) {
+			matches.constructorExecutions[i] = matchesExecution(matches.getConstructors()[i], matchType);
+		}
+		if (matches.fieldGets.length > 0) {
+			// the field accesses share their enclosing static initialization shadow
+			Shadow enclosingShadow = ReflectionShadow.makeStaticInitializationShadow(world, aClass, this.matchContext);
+			ResolvedMember enclosingMember = ReflectionBasedReferenceTypeDelegateFactory.createStaticInitMember(aClass, world);
+			for (int i = 0; i < matches.fieldGets.length; i++) {
+				Field field = matches.getFields()[i];
+				ResolvedMember signature = ReflectionBasedReferenceTypeDelegateFactory.createResolvedField(field, world);
+				matches.fieldGets[i] = getFieldAccessMatch(FIELD_GET, new ReflectionShadow(world, Shadow.FieldGet, signature,
+						enclosingShadow, matchType, enclosingMember, this.matchContext), field, aClass);
+				matches.fieldSets[i] = getFieldAccessMatch(FIELD_SET, new ReflectionShadow(world, Shadow.FieldSet, signature,
+						enclosingShadow, matchType, enclosingMember, this.matchContext), field, aClass);
+			}
+		}
+		return matches;
+	}
+
+	private ShadowMatchImpl getFieldAccessMatch(int kind, Shadow s, Field aField, Class withinType) {
+		ShadowMatchImpl sm = getCachedShadowMatch(kind, aField, withinType);
+		if (sm != null) {
+			return sm;
+		}
+		sm = getShadowMatch(s);
+		sm.setSubject(aField);
+		sm.setWithinCode(null);
+		sm.setWithinType(withinType);
+		cacheShadowMatch(kind, aField, withinType, sm);
+		return sm;
+	}
+
+	private ShadowMatchImpl getNeverMatch(Member subject, Class withinType) {
+		ShadowMatchImpl sm = new ShadowMatchImpl(FuzzyBoolean.NO, Literal.FALSE, getExposedState(), parameters);
+		sm.setMatchingContext(this.matchContext);
+		sm.setSubject(subject);
+		sm.setWithinCode(null);
+		sm.setWithinType(withinType);
+		return sm;
+	}
+
+	private ShadowMatchImpl getCachedShadowMatch(int kind, Object subject, Object context) {
+		ReflectiveMatchCache<ShadowMatchImpl>[] caches = shadowMatchCaches;
+		return (caches == null ? null : caches[kind].get(subject, context));
+	}
+
+	private void cacheShadowMatch(int kind, Object subject, Object context, ShadowMatchImpl sm) {
+		ReflectiveMatchCache<ShadowMatchImpl>[] caches = shadowMatchCaches;
+		if (caches != null) {
+			caches[kind].put(subject, context, sm);
+		}
+	}
+
 	private ShadowMatchImpl getShadowMatch(Shadow forShadow) {
-		org.aspectj.util.FuzzyBoolean match = pointcut.match(forShadow);
+		FuzzyBoolean match = pointcut.match(forShadow);
 		Test residueTest = Literal.TRUE;
 		ExposedState state = getExposedState();
 		if (match.maybeTrue()) {
@@ -0,0 +1,106 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver.internal.tools;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Member;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the outcome of matching a pointcut expression against a reflective member (or class), optionally in the context of
+ * the code or type that contains the join point. Entries are keyed by the class that declares the member, held weakly, and the
+ * string form of the member and context: java.lang.reflect hands out a fresh copy of a member on every lookup, so the member
+ * objects themselves make poor keys.
+ *
+ * Results are held softly. A ShadowMatch refers back to the member it was computed for, and so to its class and class loader,
+ * which are therefore kept alive until the entry is evicted, cleared, or its result is collected when memory runs low. Results
+ * that do not refer to the class, such as a Boolean, do not keep it alive.
+ *
+ * The number of entries is bounded, the least recently used entry is dropped when the bound is exceeded.
+ *
+ * All methods are thread safe.
+ */
+class ReflectiveMatchCache<V> {
+
+	private final Map<Key, SoftReference<V>> cache;
+
+	ReflectiveMatchCache(final int maxEntries) {
+		this.cache = new LinkedHashMap<Key, SoftReference<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, SoftReference<V>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param subject the member or type that was matched
+	 * @param context the enclosing member or type, or null if the join point was matched without one
+	 * @return the cached result, or null if there is none
+	 */
+	V get(Object subject, Object context) {
+		Key key = new Key(subject, context);
+		synchronized (this) {
+			SoftReference<V> ref = cache.get(key);
+			return (ref == null ? null : ref.get());
+		}
+	}
+
+	void put(Object subject, Object context, V value) {
+		Key key = new Key(subject, context);
+		synchronized (this) {
+			cache.put(key, new SoftReference<V>(value));
+		}
+	}
+
+	synchronized void clear() {
+		cache.clear();
+	}
+
+	synchronized int size() {
+		return cache.size();
+	}
+
+	private static class Key {
+		private final WeakReference<Class<?>> owner;
+		private final String name;
+		private final int hashCode;
+
+		Key(Object subject, Object context) {
+			Class<?> ownerClass = (subject instanceof Member ? ((Member) subject).getDeclaringClass() : (Class<?>) subject);
+			this.owner = new WeakReference<Class<?>>(ownerClass);
+			// Class.toString() and Member.toString() are qualified, so subjects and contexts of different kinds cannot collide
+			this.name = (context == null ? subject.toString() : subject.toString() + " within " + context.toString());
+			this.hashCode = 37 * System.identityHashCode(ownerClass) + name.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key o = (Key) other;
+			// once the class has gone its entries match nothing, and age out
+			Class<?> ownerClass = owner.get();
+			return ownerClass != null && ownerClass == o.owner.get() && name.equals(o.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,674 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver.patterns;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.aspectj.util.FuzzyBoolean;
+import org.aspectj.weaver.CompressingDataOutputStream;
+import org.aspectj.weaver.IntMap;
+import org.aspectj.weaver.ResolvedType;
+import org.aspectj.weaver.Shadow;
+import org.aspectj.weaver.UnresolvedType;
+import org.aspectj.weaver.World;
+import org.aspectj.weaver.ast.Literal;
+import org.aspectj.weaver.ast.Test;
+
+/**
+ * A concrete pointcut held as a reduced ordered binary decision diagram over its primitive pointcuts. This is an alternative to
+ * the disjunctive normal form produced by the PointcutRewriter: composing many named pointcuts with && and || can make the DNF
+ * exponentially large, whereas the diagram stays close to the size of the original expression for typical pointcuts.
+ *
+ * The primitives are ordered by their PointcutEvaluationExpenseComparator score so the cheapest tests are made first. Matching
+ * walks a single path through the diagram (both branches are only followed when a primitive answers MAYBE) and each primitive is
+ * asked at most once per shadow.
+ *
+ * The diagram is only used for static matching. A residue made from it would have to test a dynamic primitive on both sides of
+ * every node where it is left undecided, running an if() twice and growing exponentially where shared parts of the diagram are
+ * expanded. Instead the residue follows the and/or/not shape of the pointcut as written, which is kept as a small postfix program
+ * over the primitives.
+ *
+ * Diagrams are only built for concrete pointcuts that do not bind any context, since binding validation and the residue for
+ * bound state rely on the DNF shape. They exist only at weave time and are never serialized.
+ *
+ * @see PointcutRewriter#rewrite(Pointcut, int)
+ */
+public class DecisionDiagramPointcut extends Pointcut {
+
+	// node indices of the two terminals, internal nodes start at 2
+	private static final int FALSE = 0;
+	private static final int TRUE = 1;
+
+	// residue program operations, any other value pushes the residue of the primitive with that index
+	private static final int AND = -1;
+	private static final int OR = -2;
+	private static final int NOT = -3;
+	private static final int PUSH_TRUE = -4;
+	private static final int PUSH_FALSE = -5;
+
+	private final Pointcut[] primitives;
+	private final int[] test;
+	private final int[] whenTrue;
+	private final int[] whenFalse;
+	private final int root;
+	private final int[] residueProgram;
+	private final int couldMatchKinds;
+
+	private Pointcut visitableForm;
+
+	private DecisionDiagramPointcut(Pointcut[] primitives, int[] test, int[] whenTrue, int[] whenFalse, int root,
+			int[] residueProgram) {
+		super();
+		this.primitives = primitives;
+		this.test = test;
+		this.whenTrue = whenTrue;
+		this.whenFalse = whenFalse;
+		this.root = root;
+		this.residueProgram = residueProgram;
+		this.couldMatchKinds = computeCouldMatchKinds();
+		Pointcut first = primitives[test[root]];
+		setLocation(first.getSourceContext(), first.getStart(), first.getEnd());
+	}
+
+	/**
+	 * Build a decision diagram for the supplied concrete pointcut.
+	 *
+	 * @param pc the pointcut to convert, composed of AndPointcut, OrPointcut and NotPointcut nodes over primitive pointcuts
+	 * @param maxNodes the largest diagram worth building
+	 * @return the diagram, a matches nothing pointcut if the diagram collapses to false, or null if the pointcut binds context,
+	 *         is a tautology or would need more than maxNodes nodes
+	 */
+	public static Pointcut build(Pointcut pc, int maxNodes) {
+		Builder builder = new Builder(maxNodes);
+		if (!builder.collectPrimitives(pc)) {
+			return null;
+		}
+		int rootNode;
+		try {
+			rootNode = builder.translate(pc);
+		} catch (DiagramTooLargeException dtle) {
+			return null;
+		}
+		if (rootNode == FALSE) {
+			return Pointcut.makeMatchesNothing(pc.state);
+		}
+		if (rootNode == TRUE) {
+			return null;
+		}
+		DecisionDiagramPointcut ret = builder.compact(rootNode, builder.compileResidue(pc));
+		if (ret.couldMatchKinds == Shadow.NO_SHADOW_KINDS_BITS) {
+			return Pointcut.makeMatchesNothing(pc.state);
+		}
+		ret.state = pc.state;
+		ret.m_ignoreUnboundBindingForNames = pc.m_ignoreUnboundBindingForNames;
+		return ret;
+	}
+
+	/**
+	 * @return the primitive pointcuts tested by this diagram, in evaluation order
+	 */
+	public Pointcut[] getPrimitives() {
+		Pointcut[] ret = new Pointcut[primitives.length];
+		System.arraycopy(primitives, 0, ret, 0, primitives.length);
+		return ret;
+	}
+
+	/**
+	 * @return a diagram with the same shape as this one that tests the supplied primitives, which must correspond one to one with
+	 *         those returned from getPrimitives()
+	 */
+	public DecisionDiagramPointcut withPrimitives(Pointcut[] newPrimitives) {
+		if (newPrimitives.length != primitives.length) {
+			throw new IllegalArgumentException("Expected " + primitives.length + " primitives but got " + newPrimitives.length);
+		}
+		DecisionDiagramPointcut ret = new DecisionDiagramPointcut(newPrimitives, test, whenTrue, whenFalse, root, residueProgram);
+		ret.state = state;
+		ret.copyLocationFrom(this);
+		ret.m_ignoreUnboundBindingForNames = m_ignoreUnboundBindingForNames;
+		return ret;
+	}
+
+	/**
+	 * @return the number of decision nodes in the diagram
+	 */
+	public int getNodeCount() {
+		return test.length - 2;
+	}
+
+	@Override
+	public int couldMatchKinds() {
+		return couldMatchKinds;
+	}
+
+	private int computeCouldMatchKinds() {
+		int[] kinds = new int[test.length];
+		kinds[FALSE] = Shadow.NO_SHADOW_KINDS_BITS;
+		kinds[TRUE] = Shadow.ALL_SHADOW_KINDS_BITS;
+		// children always have lower indices than their parents
+		for (int node = 2; node < test.length; node++) {
+			kinds[node] = (primitives[test[node]].couldMatchKinds() & kinds[whenTrue[node]]) | kinds[whenFalse[node]];
+		}
+		return kinds[root];
+	}
+
+	@Override
+	public FuzzyBoolean fastMatch(FastMatchInfo info) {
+		return evaluate(root, null, info, new FuzzyBoolean[test.length], new FuzzyBoolean[primitives.length]);
+	}
+
+	@Override
+	protected FuzzyBoolean matchInternal(Shadow shadow) {
+		return evaluate(root, shadow, null, new FuzzyBoolean[test.length], new FuzzyBoolean[primitives.length]);
+	}
+
+	/**
+	 * Evaluate the sub-diagram rooted at node for either a shadow or (if shadow is null) a fast match. Results are remembered per
+	 * node and per primitive so that shared sub-diagrams and primitives are only evaluated once.
+	 */
+	private FuzzyBoolean evaluate(int node, Shadow shadow, FastMatchInfo info, FuzzyBoolean[] nodeResults,
+			FuzzyBoolean[] primitiveResults) {
+		if (node == FALSE) {
+			return FuzzyBoolean.NO;
+		}
+		if (node == TRUE) {
+			return FuzzyBoolean.YES;
+		}
+		FuzzyBoolean result = nodeResults[node];
+		if (result != null) {
+			return result;
+		}
+		int index = test[node];
+		FuzzyBoolean primitiveResult = primitiveResults[index];
+		if (primitiveResult == null) {
+			primitiveResult = (shadow == null ? primitives[index].fastMatch(info) : primitives[index].match(shadow));
+			primitiveResults[index] = primitiveResult;
+		}
+		if (primitiveResult.alwaysTrue()) {
+			result = evaluate(whenTrue[node], shadow, info, nodeResults, primitiveResults);
+		} else if (primitiveResult.alwaysFalse()) {
+			result = evaluate(whenFalse[node], shadow, info, nodeResults, primitiveResults);
+		} else {
+			FuzzyBoolean trueBranch = evaluate(whenTrue[node], shadow, info, nodeResults, primitiveResults);
+			FuzzyBoolean falseBranch = evaluate(whenFalse[node], shadow, info, nodeResults, primitiveResults);
+			result = primitiveResult.and(trueBranch).or(primitiveResult.not().and(falseBranch));
+		}
+		nodeResults[node] = result;
+		return result;
+	}
+
+	/**
+	 * Runs the residue program, so each primitive's residue appears where it does in the pointcut as written. Primitives that the
+	 * shadow decides statically give literals, which Test.makeAnd() and friends fold away.
+	 */
+	@Override
+	protected Test findResidueInternal(Shadow shadow, ExposedState state) {
+		Test[] primitiveResidues = new Test[primitives.length];
+		List<Test> stack = new ArrayList<Test>();
+		for (int op : residueProgram) {
+			Test result;
+			if (op == AND) {
+				Test right = stack.remove(stack.size() - 1);
+				result = Test.makeAnd(stack.remove(stack.size() - 1), right);
+			} else if (op == OR) {
+				Test right = stack.remove(stack.size() - 1);
+				result = Test.makeOr(stack.remove(stack.size() - 1), right);
+			} else if (op == NOT) {
+				result = Test.makeNot(stack.remove(stack.size() - 1));
+			} else if (op == PUSH_TRUE) {
+				result = Literal.TRUE;
+			} else if (op == PUSH_FALSE) {
+				result = Literal.FALSE;
+			} else {
+				result = primitiveResidues[op];
+				if (result == null) {
+					result = primitives[op].findResidue(shadow, state);
+					primitiveResidues[op] = result;
+				}
+			}
+			stack.add(result);
+		}
+		return stack.get(0);
+	}
+
+	@Override
+	protected Pointcut concretize1(ResolvedType inAspect, ResolvedType declaringType, IntMap bindings) {
+		Pointcut[] concretePrimitives = new Pointcut[primitives.length];
+		for (int i = 0; i < primitives.length; i++) {
+			concretePrimitives[i] = primitives[i].concretize(inAspect, declaringType, bindings);
+		}
+		return withPrimitives(concretePrimitives);
+	}
+
+	@Override
+	public Pointcut parameterizeWith(Map<String, UnresolvedType> typeVariableMap, World w) {
+		Pointcut[] parameterizedPrimitives = new Pointcut[primitives.length];
+		for (int i = 0; i < primitives.length; i++) {
+			parameterizedPrimitives[i] = primitives[i].parameterizeWith(typeVariableMap, w);
+		}
+		return withPrimitives(parameterizedPrimitives);
+	}
+
+	@Override
+	protected void resolveBindings(IScope scope, Bindings bindings) {
+		throw new RuntimeException("unimplemented");
+	}
+
+	@Override
+	public void write(CompressingDataOutputStream s) throws IOException {
+		throw new RuntimeException("unimplemented");
+	}
+
+	/**
+	 * Visitors only understand the and/or/not structure of pointcuts so they are shown the primitives of the diagram joined with
+	 * ||. That is enough for the visitors that run at weave time, which look for the presence of particular primitives.
+	 */
+	@Override
+	public Object accept(PatternNodeVisitor visitor, Object data) {
+		if (visitableForm == null) {
+			Pointcut p = primitives[0];
+			for (int i = 1; i < primitives.length; i++) {
+				p = new OrPointcut(p, primitives[i]);
+			}
+			visitableForm = p;
+		}
+		return visitableForm.accept(visitor, data);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof DecisionDiagramPointcut)) {
+			return false;
+		}
+		DecisionDiagramPointcut o = (DecisionDiagramPointcut) other;
+		return o.root == root && Arrays.equals(o.test, test) && Arrays.equals(o.whenTrue, whenTrue)
+				&& Arrays.equals(o.whenFalse, whenFalse) && Arrays.equals(o.residueProgram, residueProgram)
+				&& Arrays.equals(o.primitives, primitives);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 17;
+		result = 37 * result + Arrays.hashCode(primitives);
+		result = 37 * result + Arrays.hashCode(test);
+		result = 37 * result + Arrays.hashCode(whenTrue);
+		result = 37 * result + Arrays.hashCode(whenFalse);
+		result = 37 * result + Arrays.hashCode(residueProgram);
+		return result;
+	}
+
+	/**
+	 * Prints each node as 'index:primitive?whenTrue:whenFalse', root first.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("decision(");
+		for (int node = root; node >= 2; node--) {
+			if (node != root) {
+				sb.append(", ");
+			}
+			sb.append(node).append(':').append(primitives[test[node]]).append('?');
+			sb.append(nodeName(whenTrue[node])).append(':').append(nodeName(whenFalse[node]));
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+
+	private static String nodeName(int node) {
+		if (node == TRUE) {
+			return "true";
+		} else if (node == FALSE) {
+			return "false";
+		} else {
+			return Integer.toString(node);
+		}
+	}
+
+	private static class DiagramTooLargeException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Builds the diagram using the usual unique table and memoized apply operations. Nodes are numbered in creation order, so a
+	 * node's children always have smaller numbers than the node itself.
+	 */
+	private static class Builder {
+		private final int maxNodes;
+		// distinct primitives (by equality) in evaluation order, and their position in that order
+		private final List<Pointcut> primitives = new ArrayList<Pointcut>();
+		private final Map<Pointcut, Integer> variables = new HashMap<Pointcut, Integer>();
+
+		private final List<int[]> nodes = new ArrayList<int[]>();
+		private final Map<Long, Integer> uniqueTable = new HashMap<Long, Integer>();
+		private final Map<Long, Integer> andCache = new HashMap<Long, Integer>();
+		private final Map<Long, Integer> orCache = new HashMap<Long, Integer>();
+		private final Map<Integer, Integer> notCache = new HashMap<Integer, Integer>();
+		private final Map<Pointcut, Integer> translated = new IdentityHashMap<Pointcut, Integer>();
+
+		Builder(int maxNodes) {
+			// node numbers are packed into 21 bits of the unique table key
+			this.maxNodes = Math.min(maxNodes, (1 << 21) - 3);
+			nodes.add(null); // FALSE
+			nodes.add(null); // TRUE
+		}
+
+		/**
+		 * Find the distinct primitives and order them cheapest first. Returns false if the pointcut binds any context.
+		 */
+		boolean collectPrimitives(Pointcut pc) {
+			List<Pointcut> found = new ArrayList<Pointcut>();
+			if (!collectPrimitives(pc, found, new IdentityHashMap<Pointcut, Pointcut>())) {
+				return false;
+			}
+			// cheapest first, otherwise keep the order they appear in the pointcut as that tends to keep related primitives
+			// together, which keeps the diagram small (the sort is stable)
+			final PointcutEvaluationExpenseComparator expense = new PointcutEvaluationExpenseComparator();
+			Collections.sort(found, new Comparator<Pointcut>() {
+				public int compare(Pointcut p1, Pointcut p2) {
+					return expense.getScore(p1) - expense.getScore(p2);
+				}
+			});
+			for (Pointcut primitive : found) {
+				variables.put(primitive, primitives.size());
+				primitives.add(primitive);
+			}
+			return true;
+		}
+
+		private boolean collectPrimitives(Pointcut pc, List<Pointcut> found, Map<Pointcut, Pointcut> seen) {
+			if (seen.put(pc, pc) != null) {
+				return true;
+			}
+			if (pc instanceof AndPointcut) {
+				AndPointcut apc = (AndPointcut) pc;
+				return collectPrimitives(apc.getLeft(), found, seen) && collectPrimitives(apc.getRight(), found, seen);
+			} else if (pc instanceof OrPointcut) {
+				OrPointcut opc = (OrPointcut) pc;
+				return collectPrimitives(opc.getLeft(), found, seen) && collectPrimitives(opc.getRight(), found, seen);
+			} else if (pc instanceof NotPointcut) {
+				return collectPrimitives(((NotPointcut) pc).getNegatedPointcut(), found, seen);
+			} else if (pc instanceof DecisionDiagramPointcut) {
+				for (Pointcut primitive : ((DecisionDiagramPointcut) pc).primitives) {
+					if (!collectPrimitives(primitive, found, seen)) {
+						return false;
+					}
+				}
+				return true;
+			}
+			if (bindsContext(pc)) {
+				return false;
+			}
+			if (!isConstant(pc) && !found.contains(pc)) {
+				found.add(pc);
+			}
+			return true;
+		}
+
+		private boolean bindsContext(Pointcut pc) {
+			if (pc instanceof NameBindingPointcut) {
+				NameBindingPointcut nbpc = (NameBindingPointcut) pc;
+				return !nbpc.getBindingTypePatterns().isEmpty() || !nbpc.getBindingAnnotationTypePatterns().isEmpty();
+			}
+			if (pc instanceof ConcreteCflowPointcut) {
+				List<?> slots = ((ConcreteCflowPointcut) pc).slots;
+				return slots != null && !slots.isEmpty();
+			}
+			return false;
+		}
+
+		private boolean isConstant(Pointcut pc) {
+			if (pc instanceof IfPointcut) {
+				IfPointcut ipc = (IfPointcut) pc;
+				if (ipc.alwaysTrue() || ipc.alwaysFalse()) {
+					return true;
+				}
+			}
+			return pc.couldMatchKinds() == Shadow.NO_SHADOW_KINDS_BITS;
+		}
+
+		int translate(Pointcut pc) {
+			Integer done = translated.get(pc);
+			if (done != null) {
+				return done;
+			}
+			int ret;
+			if (pc instanceof AndPointcut) {
+				AndPointcut apc = (AndPointcut) pc;
+				ret = and(translate(apc.getLeft()), translate(apc.getRight()));
+			} else if (pc instanceof OrPointcut) {
+				OrPointcut opc = (OrPointcut) pc;
+				ret = or(translate(opc.getLeft()), translate(opc.getRight()));
+			} else if (pc instanceof NotPointcut) {
+				ret = not(translate(((NotPointcut) pc).getNegatedPointcut()));
+			} else if (pc instanceof DecisionDiagramPointcut) {
+				ret = translateDiagram((DecisionDiagramPointcut) pc);
+			} else if (isConstant(pc)) {
+				ret = (pc instanceof IfPointcut && ((IfPointcut) pc).alwaysTrue()) ? TRUE : FALSE;
+			} else {
+				ret = node(variables.get(pc), TRUE, FALSE);
+			}
+			translated.put(pc, ret);
+			return ret;
+		}
+
+		/**
+		 * Compile the and/or/not shape of the pointcut into a postfix program over the primitive variables, see
+		 * findResidueInternal().
+		 */
+		int[] compileResidue(Pointcut pc) {
+			List<Integer> program = new ArrayList<Integer>();
+			compileResidue(pc, program);
+			int[] ret = new int[program.size()];
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = program.get(i);
+			}
+			return ret;
+		}
+
+		private void compileResidue(Pointcut pc, List<Integer> program) {
+			if (pc instanceof AndPointcut) {
+				AndPointcut apc = (AndPointcut) pc;
+				compileResidue(apc.getLeft(), program);
+				compileResidue(apc.getRight(), program);
+				program.add(AND);
+			} else if (pc instanceof OrPointcut) {
+				OrPointcut opc = (OrPointcut) pc;
+				compileResidue(opc.getLeft(), program);
+				compileResidue(opc.getRight(), program);
+				program.add(OR);
+			} else if (pc instanceof NotPointcut) {
+				compileResidue(((NotPointcut) pc).getNegatedPointcut(), program);
+				program.add(NOT);
+			} else if (pc instanceof DecisionDiagramPointcut) {
+				DecisionDiagramPointcut diagram = (DecisionDiagramPointcut) pc;
+				for (int op : diagram.residueProgram) {
+					if (op >= 0) {
+						compileResidue(diagram.primitives[op], program);
+					} else {
+						program.add(op);
+					}
+				}
+			} else if (isConstant(pc)) {
+				program.add((pc instanceof IfPointcut && ((IfPointcut) pc).alwaysTrue()) ? PUSH_TRUE : PUSH_FALSE);
+			} else {
+				program.add(variables.get(pc));
+			}
+		}
+
+		private int translateDiagram(DecisionDiagramPointcut diagram) {
+			int[] mapped = new int[diagram.test.length];
+			mapped[FALSE] = FALSE;
+			mapped[TRUE] = TRUE;
+			for (int n = 2; n < diagram.test.length; n++) {
+				int primitive = translate(diagram.primitives[diagram.test[n]]);
+				mapped[n] = or(and(primitive, mapped[diagram.whenTrue[n]]), and(not(primitive), mapped[diagram.whenFalse[n]]));
+			}
+			return mapped[diagram.root];
+		}
+
+		private int variable(int node) {
+			return node < 2 ? Integer.MAX_VALUE : nodes.get(node)[0];
+		}
+
+		private int node(int variable, int whenTrue, int whenFalse) {
+			if (whenTrue == whenFalse) {
+				return whenTrue;
+			}
+			Long key = (((long) variable) << 42) | (((long) whenTrue) << 21) | whenFalse;
+			Integer existing = uniqueTable.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			if (nodes.size() >= maxNodes + 2) {
+				throw new DiagramTooLargeException();
+			}
+			int ret = nodes.size();
+			nodes.add(new int[] { variable, whenTrue, whenFalse });
+			uniqueTable.put(key, ret);
+			return ret;
+		}
+
+		private int not(int a) {
+			if (a == TRUE) {
+				return FALSE;
+			} else if (a == FALSE) {
+				return TRUE;
+			}
+			Integer cached = notCache.get(a);
+			if (cached != null) {
+				return cached;
+			}
+			int[] n = nodes.get(a);
+			int ret = node(n[0], not(n[1]), not(n[2]));
+			notCache.put(a, ret);
+			return ret;
+		}
+
+		private int and(int a, int b) {
+			if (a == FALSE || b == FALSE) {
+				return FALSE;
+			} else if (a == TRUE || a == b) {
+				return b;
+			} else if (b == TRUE) {
+				return a;
+			}
+			return apply(true, a, b, andCache);
+		}
+
+		private int or(int a, int b) {
+			if (a == TRUE || b == TRUE) {
+				return TRUE;
+			} else if (a == FALSE || a == b) {
+				return b;
+			} else if (b == FALSE) {
+				return a;
+			}
+			return apply(false, a, b, orCache);
+		}
+
+		private int apply(boolean isAnd, int a, int b, Map<Long, Integer> cache) {
+			if (a > b) {
+				// both operations are commutative
+				int t = a;
+				a = b;
+				b = t;
+			}
+			Long key = (((long) a) << 32) | b;
+			Integer cached = cache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+			int va = variable(a);
+			int vb = variable(b);
+			int v = Math.min(va, vb);
+			int aTrue = (va == v ? nodes.get(a)[1] : a);
+			int aFalse = (va == v ? nodes.get(a)[2] : a);
+			int bTrue = (vb == v ? nodes.get(b)[1] : b);
+			int bFalse = (vb == v ? nodes.get(b)[2] : b);
+			int ret;
+			if (isAnd) {
+				ret = node(v, and(aTrue, bTrue), and(aFalse, bFalse));
+			} else {
+				ret = node(v, or(aTrue, bTrue), or(aFalse, bFalse));
+			}
+			cache.put(key, ret);
+			return ret;
+		}
+
+		/**
+		 * Copy the nodes reachable from the root into fresh arrays, dropping the intermediate nodes created whilst building and any
+		 * primitives that feature in neither the diagram nor the residue program.
+		 */
+		DecisionDiagramPointcut compact(int rootNode, int[] residueProgram) {
+			Map<Integer, Integer> renumbered = new HashMap<Integer, Integer>();
+			List<int[]> reachable = new ArrayList<int[]>();
+			reachable.add(null);
+			reachable.add(null);
+			renumbered.put(FALSE, FALSE);
+			renumbered.put(TRUE, TRUE);
+			renumber(rootNode, renumbered, reachable);
+
+			int[] usedVariables = new int[primitives.size()];
+			Arrays.fill(usedVariables, -1);
+			for (int n = 2; n < reachable.size(); n++) {
+				usedVariables[reachable.get(n)[0]] = 0;
+			}
+			for (int op : residueProgram) {
+				if (op >= 0) {
+					usedVariables[op] = 0;
+				}
+			}
+			List<Pointcut> usedPrimitives = new ArrayList<Pointcut>();
+			for (int v = 0; v < usedVariables.length; v++) {
+				if (usedVariables[v] == 0) {
+					usedVariables[v] = usedPrimitives.size();
+					usedPrimitives.add(primitives.get(v));
+				}
+			}
+
+			int size = reachable.size();
+			int[] test = new int[size];
+			int[] whenTrue = new int[size];
+			int[] whenFalse = new int[size];
+			for (int n = 2; n < size; n++) {
+				int[] node = reachable.get(n);
+				test[n] = usedVariables[node[0]];
+				whenTrue[n] = node[1];
+				whenFalse[n] = node[2];
+			}
+			int[] program = new int[residueProgram.length];
+			for (int i = 0; i < program.length; i++) {
+				program[i] = residueProgram[i] >= 0 ? usedVariables[residueProgram[i]] : residueProgram[i];
+			}
+			return new DecisionDiagramPointcut(usedPrimitives.toArray(new Pointcut[usedPrimitives.size()]), test, whenTrue,
+					whenFalse, renumbered.get(rootNode), program);
+		}
+
+		private int renumber(int node, Map<Integer, Integer> renumbered, List<int[]> reachable) {
+			Integer done = renumbered.get(node);
+			if (done != null) {
+				return done;
+			}
+			int[] n = nodes.get(node);
+			int newTrue = renumber(n[1], renumbered, reachable);
+			int newFalse = renumber(n[2], renumbered, reachable);
+			int ret = reachable.size();
+			reachable.add(new int[] { n[0], newTrue, newFalse });
+			renumbered.put(node, ret);
+			return ret;
+		}
+	}
+}
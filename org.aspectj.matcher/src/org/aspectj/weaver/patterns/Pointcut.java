@@ -91,8 +91,9 @@ public abstract class Pointcut extends PatternNode {
 
 	public State state;
 
-	protected int lastMatchedShadowId;
-	private FuzzyBoolean lastMatchedShadowResult;
+	// the id of the last shadow matched and the result, packed into one value (id << 3 | result code) so that it is read and
+	// written atomically when expressions are matched from several threads at once
+	private volatile long lastMatch;
 	private String[] typeVariablesInScope = EMPTY_STRING_ARRAY;
 
 	protected boolean hasBeenParameterized = false;
@@ -128,8 +129,9 @@ public abstract class Pointcut extends PatternNode {
 	 * Do I really match this shadow? XXX implementors need to handle state
 	 */
 	public final FuzzyBoolean match(Shadow shadow) {
-		if (shadow.shadowId == lastMatchedShadowId) {
-			return lastMatchedShadowResult;
+		long last = lastMatch;
+		if ((int) (last >> 3) == shadow.shadowId && (last & 7) != 0) {
+			return MATCH_RESULTS[(int) (last & 7)];
 		}
 		FuzzyBoolean ret;
 		// this next test will prevent a lot of un-needed matching going on....
@@ -138,11 +140,22 @@ public abstract class Pointcut extends PatternNode {
 		} else {
 			ret = FuzzyBoolean.NO;
 		}
-		lastMatchedShadowId = shadow.shadowId;
-		lastMatchedShadowResult = ret;
+		lastMatch = ((long) shadow.shadowId << 3) | getMatchResultCode(ret);
 		return ret;
 	}
 
+	private static final FuzzyBoolean[] MATCH_RESULTS = { null, FuzzyBoolean.YES, FuzzyBoolean.NO, FuzzyBoolean.MAYBE,
+			FuzzyBoolean.NEVER };
+
+	private static int getMatchResultCode(FuzzyBoolean result) {
+		for (int i = 1; i < MATCH_RESULTS.length; i++) {
+			if (MATCH_RESULTS[i] == result) {
+				return i;
+			}
+		}
+		return 0; // not cached
+	}
+
 	protected abstract FuzzyBoolean matchInternal(Shadow shadow);
 
 	public static final byte KINDED = 1;
@@ -256,11 +269,7 @@ public abstract class Pointcut extends PatternNode {
 	 * This can be called from NotPointcut even for Pointcuts that don't match the shadow
 	 */
 	public final Test findResidue(Shadow shadow, ExposedState state) {
-		// if (shadow.shadowId == lastMatchedShadowId) return lastMatchedShadowResidue;
-		Test ret = findResidueInternal(shadow, state);
-		// lastMatchedShadowResidue = ret;
-		lastMatchedShadowId = shadow.shadowId;
-		return ret;
+		return findResidueInternal(shadow, state);
 	}
 
 	protected abstract Test findResidueInternal(Shadow shadow, ExposedState state);
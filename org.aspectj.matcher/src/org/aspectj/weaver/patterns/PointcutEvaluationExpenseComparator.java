@@ -70,7 +70,7 @@ public class PointcutEvaluationExpenseComparator implements Comparator<Pointcut>
 	}
 
 	// a higher score means a more expensive evaluation
-	private int getScore(Pointcut p) {
+	int getScore(Pointcut p) {
 		if (p.couldMatchKinds() == Shadow.NO_SHADOW_KINDS_BITS) {
 			return MATCHES_NOTHING;
 		}
@@ -135,6 +135,10 @@ public class PointcutEvaluationExpenseComparator implements Comparator<Pointcut>
 		if (p instanceof WithinCodeAnnotationPointcut) {
 			return ATWITHINCODE;
 		}
+		if (p instanceof DecisionDiagramPointcut) {
+			// the first primitive tested is the cheapest
+			return getScore(((DecisionDiagramPointcut) p).getPrimitives()[0]);
+		}
 		if (p instanceof NotPointcut) {
 			return getScore(((NotPointcut) p).getNegatedPointcut());
 		}
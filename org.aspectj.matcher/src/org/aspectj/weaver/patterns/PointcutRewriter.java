@@ -9,7 +9,9 @@
  * ******************************************************************/
 package org.aspectj.weaver.patterns;
 
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -27,6 +29,11 @@ public class PointcutRewriter {
 
 	private static final boolean WATCH_PROGRESS = false;
 
+	/**
+	 * The largest decision diagram rewrite(Pointcut, int) will build before giving up and producing DNF
+	 */
+	private static final int MAX_DECISION_DIAGRAM_NODES = 1 << 16;
+
 	/**
 	 * Set forcerewrite if you want to override the checking for something already in DNF (useful for some testing) Repeated
 	 * processing of something already in DNF is expensive (it ends up being done for every pointcut on every incremental compile) -
@@ -108,6 +115,64 @@ public class PointcutRewriter {
 		return rewrite(pc, false);
 	}
 
+	/**
+	 * Rewrite the pointcut, producing a DecisionDiagramPointcut rather than DNF if the DNF would contain more than
+	 * decisionDiagramThreshold disjuncts. Only pointcuts that bind no context can be represented as a decision diagram, others are
+	 * always rewritten to DNF. A negative threshold switches decision diagrams off.
+	 */
+	public Pointcut rewrite(Pointcut pc, int decisionDiagramThreshold) {
+		if (decisionDiagramThreshold >= 0 && estimateDNFSize(pc) > decisionDiagramThreshold) {
+			Pointcut diagram = DecisionDiagramPointcut.build(pc, MAX_DECISION_DIAGRAM_NODES);
+			if (WATCH_PROGRESS) {
+				System.out.println("Decision diagram is        ==> " + (diagram == null ? "not possible" : format(diagram)));
+			}
+			if (diagram != null) {
+				return diagram;
+			}
+		}
+		return rewrite(pc, false);
+	}
+
+	/**
+	 * Compute how many disjuncts the DNF of a pointcut would have, without building it. The count saturates at
+	 * Integer.MAX_VALUE.
+	 */
+	public static int estimateDNFSize(Pointcut pc) {
+		return (int) estimateDNFSize(pc, false, new IdentityHashMap<Pointcut, long[]>());
+	}
+
+	private static long estimateDNFSize(Pointcut pc, boolean negated, Map<Pointcut, long[]> sizes) {
+		long[] size = sizes.get(pc);
+		if (size == null) {
+			// size[0] is the number of disjuncts for pc, size[1] the number for !pc
+			if (pc instanceof AndPointcut) {
+				AndPointcut apc = (AndPointcut) pc;
+				size = new long[] {
+						multiply(estimateDNFSize(apc.getLeft(), false, sizes), estimateDNFSize(apc.getRight(), false, sizes)),
+						add(estimateDNFSize(apc.getLeft(), true, sizes), estimateDNFSize(apc.getRight(), true, sizes)) };
+			} else if (pc instanceof OrPointcut) {
+				OrPointcut opc = (OrPointcut) pc;
+				size = new long[] { add(estimateDNFSize(opc.getLeft(), false, sizes), estimateDNFSize(opc.getRight(), false, sizes)),
+						multiply(estimateDNFSize(opc.getLeft(), true, sizes), estimateDNFSize(opc.getRight(), true, sizes)) };
+			} else if (pc instanceof NotPointcut) {
+				Pointcut body = ((NotPointcut) pc).getNegatedPointcut();
+				size = new long[] { estimateDNFSize(body, true, sizes), estimateDNFSize(body, false, sizes) };
+			} else {
+				size = new long[] { 1, 1 };
+			}
+			sizes.put(pc, size);
+		}
+		return negated ? size[1] : size[0];
+	}
+
+	private static long add(long a, long b) {
+		return Math.min(a + b, Integer.MAX_VALUE);
+	}
+
+	private static long multiply(long a, long b) {
+		return Math.min(a * b, Integer.MAX_VALUE);
+	}
+
 	/**
 	 * Check if a pointcut is in DNF - if it is then it should be lots of 'ORs' up the top with 'ANDs' beneath them.
 	 */
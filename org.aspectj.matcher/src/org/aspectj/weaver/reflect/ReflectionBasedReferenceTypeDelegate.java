@@ -50,9 +50,10 @@ public class ReflectionBasedReferenceTypeDelegate implements ReferenceTypeDelega
 	protected WeakClassLoaderReference classLoaderReference = null;
 	protected World world;
 	private ReferenceType resolvedType;
-	private ResolvedMember[] fields = null;
-	private ResolvedMember[] methods = null;
-	private ResolvedType[] interfaces = null;
+	// filled in lazily, under the world's type building lock as the world may be shared between threads
+	private volatile ResolvedMember[] fields = null;
+	private volatile ResolvedMember[] methods = null;
+	private volatile ResolvedType[] interfaces = null;
 
 	public ReflectionBasedReferenceTypeDelegate(Class forClass, ClassLoader aClassLoader, World inWorld, ReferenceType resolvedType) {
 		initialize(resolvedType, forClass, aClassLoader, inWorld);
@@ -212,12 +213,16 @@ public class ReflectionBasedReferenceTypeDelegate implements ReferenceTypeDelega
 	 */
 	public ResolvedMember[] getDeclaredFields() {
 		if (fields == null) {
-			Field[] reflectFields = this.myClass.getDeclaredFields();
-			ResolvedMember[] rFields = new ResolvedMember[reflectFields.length];
-			for (int i = 0; i < reflectFields.length; i++) {
-				rFields[i] = ReflectionBasedReferenceTypeDelegateFactory.createResolvedMember(reflectFields[i], world);
+			synchronized (getWorld().getTypeBuildingLock()) {
+				if (fields == null) {
+					Field[] reflectFields = this.myClass.getDeclaredFields();
+					ResolvedMember[] rFields = new ResolvedMember[reflectFields.length];
+					for (int i = 0; i < reflectFields.length; i++) {
+						rFields[i] = ReflectionBasedReferenceTypeDelegateFactory.createResolvedMember(reflectFields[i], world);
+					}
+					this.fields = rFields;
+				}
 			}
-			this.fields = rFields;
 		}
 		return fields;
 	}
@@ -229,12 +234,16 @@ public class ReflectionBasedReferenceTypeDelegate implements ReferenceTypeDelega
 	 */
 	public ResolvedType[] getDeclaredInterfaces() {
 		if (interfaces == null) {
-			Class[] reflectInterfaces = this.myClass.getInterfaces();
-			ResolvedType[] rInterfaces = new ResolvedType[reflectInterfaces.length];
-			for (int i = 0; i < reflectInterfaces.length; i++) {
-				rInterfaces[i] = ReflectionBasedReferenceTypeDelegateFactory.resolveTypeInWorld(reflectInterfaces[i], world);
+			synchronized (getWorld().getTypeBuildingLock()) {
+				if (interfaces == null) {
+					Class[] reflectInterfaces = this.myClass.getInterfaces();
+					ResolvedType[] rInterfaces = new ResolvedType[reflectInterfaces.length];
+					for (int i = 0; i < reflectInterfaces.length; i++) {
+						rInterfaces[i] = ReflectionBasedReferenceTypeDelegateFactory.resolveTypeInWorld(reflectInterfaces[i], world);
+					}
+					this.interfaces = rInterfaces;
+				}
 			}
-			this.interfaces = rInterfaces;
 		}
 		return interfaces;
 	}
@@ -250,17 +259,21 @@ public class ReflectionBasedReferenceTypeDelegate implements ReferenceTypeDelega
 	 */
 	public ResolvedMember[] getDeclaredMethods() {
 		if (methods == null) {
-			Method[] reflectMethods = this.myClass.getDeclaredMethods();
-			Constructor[] reflectCons = this.myClass.getDeclaredConstructors();
-			ResolvedMember[] rMethods = new ResolvedMember[reflectMethods.length + reflectCons.length];
-			for (int i = 0; i < reflectMethods.length; i++) {
-				rMethods[i] = ReflectionBasedReferenceTypeDelegateFactory.createResolvedMember(reflectMethods[i], world);
+			synchronized (getWorld().getTypeBuildingLock()) {
+				if (methods == null) {
+					Method[] reflectMethods = this.myClass.getDeclaredMethods();
+					Constructor[] reflectCons = this.myClass.getDeclaredConstructors();
+					ResolvedMember[] rMethods = new ResolvedMember[reflectMethods.length + reflectCons.length];
+					for (int i = 0; i < reflectMethods.length; i++) {
+						rMethods[i] = ReflectionBasedReferenceTypeDelegateFactory.createResolvedMember(reflectMethods[i], world);
+					}
+					for (int i = 0; i < reflectCons.length; i++) {
+						rMethods[i + reflectMethods.length] = ReflectionBasedReferenceTypeDelegateFactory.createResolvedMember(
+								reflectCons[i], world);
+					}
+					this.methods = rMethods;
+				}
 			}
-			for (int i = 0; i < reflectCons.length; i++) {
-				rMethods[i + reflectMethods.length] = ReflectionBasedReferenceTypeDelegateFactory.createResolvedMember(
-						reflectCons[i], world);
-			}
-			this.methods = rMethods;
 		}
 		return methods;
 	}
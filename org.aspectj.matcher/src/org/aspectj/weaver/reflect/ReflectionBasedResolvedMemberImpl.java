@@ -212,11 +212,13 @@ public class ReflectionBasedResolvedMemberImpl extends ResolvedMemberImpl {
 			if (s.size() == 0) {
 				annotationTypes = ResolvedType.EMPTY_ARRAY;
 			} else {
-				annotationTypes = new ResolvedType[s.size()];
+				// fill in a local array first, another thread may be looking at annotationTypes
+				ResolvedType[] types = new ResolvedType[s.size()];
 				int i = 0;
 				for (Object o : s) {
-					annotationTypes[i++] = (ResolvedType) o;
+					types[i++] = (ResolvedType) o;
 				}
+				annotationTypes = types;
 			}
 		}
 	}
@@ -49,9 +49,18 @@ public class ReflectionShadow extends Shadow {
 	private AnnotationFinder annotationFinder;
 
 	public static Shadow makeExecutionShadow(World inWorld, java.lang.reflect.Member forMethod, MatchingContext withContext) {
+		return makeExecutionShadow(inWorld, forMethod, null, withContext);
+	}
+
+	/**
+	 * @param declaringType the resolved declaring type of the member, for callers making shadows for many of the members of one
+	 *        type, or null to resolve it from the member
+	 */
+	public static Shadow makeExecutionShadow(World inWorld, java.lang.reflect.Member forMethod, ResolvedType declaringType,
+			MatchingContext withContext) {
 		Kind kind = (forMethod instanceof Method) ? Shadow.MethodExecution : Shadow.ConstructorExecution;
 		Member signature = ReflectionBasedReferenceTypeDelegateFactory.createResolvedMember(forMethod, inWorld);
-		ResolvedType enclosingType = signature.getDeclaringType().resolve(inWorld);
+		ResolvedType enclosingType = (declaringType == null ? signature.getDeclaringType().resolve(inWorld) : declaringType);
 		return new ReflectionShadow(inWorld, kind, signature, null, enclosingType, null, withContext);
 	}
 
@@ -28,6 +28,12 @@ import org.aspectj.weaver.World;
  * A ReflectionWorld is used solely for purposes of type resolution based on the runtime classpath (java.lang.reflect). It does not
  * support weaving operations (creation of mungers etc..).
  * 
+ * A ReflectionWorld may be used from several threads at once. Types are built and entered in the type map while holding the
+ * world's type building lock, and the reflection based delegates fill in their members lazily under that same lock, so every
+ * thread sees the same ResolvedType for a name. Array types are the exception: they are not kept in the type map, so each
+ * resolution builds a new (equal) ArrayReferenceType. Looking up a type that is already known takes no lock. Shadows created
+ * for matching are not shared and so need no locking.
+ * 
  */
 public class ReflectionWorld extends World implements IReflectionWorld {
 
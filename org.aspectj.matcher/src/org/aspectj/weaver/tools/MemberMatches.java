@@ -0,0 +1,79 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver.tools;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.BitSet;
+
+/**
+ * The result of matching a pointcut expression against all the members declared by a class in one go, see
+ * {@link MemberMatchingPointcutExpression#matchesDeclaredMembers(Class)}. Members are identified by their index in the arrays returned from
+ * getMethods(), getConstructors() and getFields(), which hold the class's declared members. The BitSets have a bit set for every
+ * member whose join points the pointcut <i>may</i> match, the ShadowMatch for a member gives the full answer including any
+ * runtime test that is needed.
+ */
+public interface MemberMatches {
+
+	/**
+	 * @return the class whose declared members were matched
+	 */
+	Class getMatchedType();
+
+	Method[] getMethods();
+
+	Constructor[] getConstructors();
+
+	Field[] getFields();
+
+	/**
+	 * @return the indexes of the methods whose execution may be matched
+	 */
+	BitSet getMatchingMethodExecutions();
+
+	/**
+	 * @return the indexes of the constructors whose execution may be matched
+	 */
+	BitSet getMatchingConstructorExecutions();
+
+	/**
+	 * @return the indexes of the fields for which a get from within the matched type may be matched
+	 */
+	BitSet getMatchingFieldGets();
+
+	/**
+	 * @return the indexes of the fields for which a set from within the matched type may be matched
+	 */
+	BitSet getMatchingFieldSets();
+
+	/**
+	 * @param index the index of a method in getMethods()
+	 * @return as PointcutExpression.matchesMethodExecution(getMethods()[index])
+	 */
+	ShadowMatch getMethodExecutionMatch(int index);
+
+	/**
+	 * @param index the index of a constructor in getConstructors()
+	 * @return as PointcutExpression.matchesConstructorExecution(getConstructors()[index])
+	 */
+	ShadowMatch getConstructorExecutionMatch(int index);
+
+	/**
+	 * @param index the index of a field in getFields()
+	 * @return as PointcutExpression.matchesFieldGet(getFields()[index], getMatchedType())
+	 */
+	ShadowMatch getFieldGetMatch(int index);
+
+	/**
+	 * @param index the index of a field in getFields()
+	 * @return as PointcutExpression.matchesFieldSet(getFields()[index], getMatchedType())
+	 */
+	ShadowMatch getFieldSetMatch(int index);
+}
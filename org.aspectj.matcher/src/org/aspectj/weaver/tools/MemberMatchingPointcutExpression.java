@@ -0,0 +1,26 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver.tools;
+
+/**
+ * A pointcut expression that can match all the members declared by a class in one go. The expressions returned from a
+ * PointcutParser implement this, test for it with instanceof as other implementations of PointcutExpression need not.
+ */
+public interface MemberMatchingPointcutExpression extends PointcutExpression {
+
+	/**
+	 * Determine which of the members declared by the given class this pointcut matches: the execution of its methods and
+	 * constructors, and the get and set of its fields from within the class. This gives the same answers as calling
+	 * matchesMethodExecution etc. for each member but resolves the class, and checks whether the pointcut could match
+	 * anything in it at all, only once.
+	 * @param aClass the class whose declared members are to be matched
+	 * @return the matching members and a ShadowMatch for each of them
+	 */
+	MemberMatches matchesDeclaredMembers(Class aClass);
+}
@@ -196,7 +196,7 @@ public interface PointcutExpression {
 	 * never matches field get join points for the given field and call site.
 	 */
 	ShadowMatch matchesFieldGet(Field aField, Class withinType);
-	
+
 	/**
 	 * Return a string representation of this pointcut expression.
 	 */
@@ -0,0 +1,97 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver.tools;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of the expressions built by a pointcut parser. Frameworks tend to parse the same handful
+ * of expressions over and over (once per bean or proxy) and each parse re-tokenizes, resolves and concretizes the pointcut.
+ *
+ * The key is made from the expression text, the name of the declaring scope and the names and types of the formal parameters. Type
+ * names rather than Class objects are used because the parser resolves everything by name through its own World, and this avoids
+ * the cache pinning class loaders. The supported primitives and designator handlers are fixed per parser, the parser clears the
+ * cache if they change.
+ *
+ * All methods are thread safe.
+ */
+class PointcutExpressionCache<T> {
+
+	private final Map<Key, T> cache;
+
+	PointcutExpressionCache(final int maxEntries) {
+		this.cache = new LinkedHashMap<Key, T>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, T> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	static Key makeKey(String expression, Class<?> inScope, PointcutParameter[] formalParameters) {
+		return new Key(expression, inScope, formalParameters);
+	}
+
+	synchronized T get(Key key) {
+		return cache.get(key);
+	}
+
+	synchronized void put(Key key, T expression) {
+		cache.put(key, expression);
+	}
+
+	synchronized void clear() {
+		cache.clear();
+	}
+
+	synchronized int size() {
+		return cache.size();
+	}
+
+	static class Key {
+		private final String expression;
+		private final String scope;
+		private final String[] parameters;
+		private final int hashCode;
+
+		private Key(String expression, Class<?> inScope, PointcutParameter[] formalParameters) {
+			this.expression = expression;
+			this.scope = (inScope == null ? null : inScope.getName());
+			int count = (formalParameters == null ? 0 : formalParameters.length);
+			this.parameters = new String[count * 2];
+			for (int i = 0; i < count; i++) {
+				parameters[i * 2] = formalParameters[i].getName();
+				parameters[i * 2 + 1] = formalParameters[i].getType().getName();
+			}
+			int h = expression.hashCode();
+			h = 37 * h + (scope == null ? 0 : scope.hashCode());
+			h = 37 * h + Arrays.hashCode(parameters);
+			this.hashCode = h;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key o = (Key) other;
+			return hashCode == o.hashCode && expression.equals(o.expression)
+					&& (scope == null ? o.scope == null : scope.equals(o.scope)) && Arrays.equals(parameters, o.parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
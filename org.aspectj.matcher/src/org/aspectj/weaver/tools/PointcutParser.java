@@ -51,6 +51,14 @@ import org.aspectj.weaver.reflect.ReflectionWorld;
 
 /**
  * A PointcutParser can be used to build PointcutExpressions for a user-defined subset of AspectJ's pointcut language
+ * <p>
+ * Concurrency: once it has been configured (supported primitives, designator handlers, lint, caches, class loader) a parser
+ * may be shared between threads. Expressions may be parsed, and the expressions it returns matched, from several threads at
+ * once. The underlying ReflectionWorld resolves each type once under a lock (array types excepted, they are rebuilt on each
+ * lookup) and fills in the members of a type lazily under the same lock, so lookups of types that are already known do not
+ * contend. The configuration methods themselves are not thread
+ * safe, and setting the matching context of an expression (or of a ShadowMatch) affects every thread using it.
+ * </p>
  */
 public class PointcutParser {
 
@@ -58,6 +66,8 @@ public class PointcutParser {
 	private WeakClassLoaderReference classLoaderReference;
 	private final Set<PointcutPrimitive> supportedPrimitives;
 	private final Set<PointcutDesignatorHandler> pointcutDesignators = new HashSet<PointcutDesignatorHandler>();
+	private PointcutExpressionCache<PointcutExpressionImpl> expressionCache;
+	private int shadowMatchCacheSize;
 
 	/**
 	 * @return a Set containing every PointcutPrimitive except if, cflow, and cflowbelow (useful for passing to PointcutParser
@@ -207,6 +217,7 @@ public class PointcutParser {
 
 	protected void setWorld(ReflectionWorld aWorld) {
 		this.world = aWorld;
+		clearPointcutExpressionCache();
 	}
 
 	/**
@@ -217,6 +228,7 @@ public class PointcutParser {
 	protected void setClassLoader(ClassLoader aLoader) {
 		this.classLoaderReference = new WeakClassLoaderReference(aLoader);
 		world = new ReflectionWorld(this.classLoaderReference.getClassLoader());
+		clearPointcutExpressionCache();
 	}
 
 	/**
@@ -239,6 +251,42 @@ public class PointcutParser {
 	 */
 	public void setLintProperties(Properties properties) {
 		getWorld().getLint().setFromProperties(properties);
+		clearPointcutExpressionCache();
+	}
+
+	/**
+	 * Remember up to maxEntries parsed pointcut expressions. Parsing an expression that is in the cache, with the same scope and
+	 * formal parameters, returns the same PointcutExpression instance instead of parsing, resolving and concretizing it again.
+	 * The least recently used expression is discarded when the cache is full. Caching is off by default, a size of zero switches
+	 * it off again.
+	 * <p>
+	 * Cached expressions are shared between everyone who parses the same text, so a matching context should not be set on them.
+	 * </p>
+	 * 
+	 * @param maxEntries the maximum number of expressions to keep
+	 */
+	public void setPointcutExpressionCacheSize(int maxEntries) {
+		expressionCache = (maxEntries > 0 ? new PointcutExpressionCache<PointcutExpressionImpl>(maxEntries) : null);
+	}
+
+	/**
+	 * Have the expressions parsed from now on remember up to maxEntries match results per kind of join point, see
+	 * {@link PointcutExpressionImpl#setShadowMatchCacheSize(int)}. Proxy based frameworks ask the same question of the same
+	 * member every time a proxy is created, and this lets an expression answer it without matching again. Caching is off by
+	 * default, a size of zero switches it off again.
+	 * 
+	 * @param maxEntries the maximum number of results each expression keeps per kind of join point
+	 */
+	public void setShadowMatchCacheSize(int maxEntries) {
+		this.shadowMatchCacheSize = maxEntries;
+		// expressions already in the cache were created with the old setting
+		clearPointcutExpressionCache();
+	}
+
+	private void clearPointcutExpressionCache() {
+		if (expressionCache != null) {
+			expressionCache.clear();
+		}
 	}
 
 	/**
@@ -252,6 +300,7 @@ public class PointcutParser {
 		if (world != null) {
 			world.registerPointcutHandler(designatorHandler);
 		}
+		clearPointcutExpressionCache();
 	}
 
 	/**
@@ -289,12 +338,26 @@ public class PointcutParser {
 	 */
 	public PointcutExpression parsePointcutExpression(String expression, Class inScope, PointcutParameter[] formalParameters)
 			throws UnsupportedPointcutPrimitiveException, IllegalArgumentException {
+		PointcutExpressionCache.Key key = null;
+		if (expressionCache != null) {
+			key = PointcutExpressionCache.makeKey(expression, inScope, formalParameters);
+			PointcutExpressionImpl cached = expressionCache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
 		PointcutExpressionImpl pcExpr = null;
 		try {
 			Pointcut pc = resolvePointcutExpression(expression, inScope, formalParameters);
 			pc = concretizePointcutExpression(pc, inScope, formalParameters);
 			validateAgainstSupportedPrimitives(pc, expression); // again, because we have now followed any ref'd pcuts
 			pcExpr = new PointcutExpressionImpl(pc, expression, formalParameters, getWorld());
+			if (shadowMatchCacheSize > 0) {
+				pcExpr.setShadowMatchCacheSize(shadowMatchCacheSize);
+			}
+			if (key != null) {
+				expressionCache.put(key, pcExpr);
+			}
 		} catch (ParserException pEx) {
 			throw new IllegalArgumentException(buildUserMessageFromParserException(expression, pEx));
 		} catch (ReflectionWorld.ReflectionWorldException rwEx) {
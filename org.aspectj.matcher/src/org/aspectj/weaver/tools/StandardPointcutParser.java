@@ -54,6 +54,7 @@ public class StandardPointcutParser {
 	private World world;
 	private final Set<PointcutPrimitive> supportedPrimitives;
 	private final Set<PointcutDesignatorHandler> pointcutDesignators = new HashSet<PointcutDesignatorHandler>();
+	private PointcutExpressionCache<StandardPointcutExpressionImpl> expressionCache;
 
 	/**
 	 * @return a Set containing every PointcutPrimitive except if, cflow, and cflowbelow (useful for passing to PointcutParser
@@ -179,6 +180,28 @@ public class StandardPointcutParser {
 	 */
 	public void setLintProperties(Properties properties) {
 		getWorld().getLint().setFromProperties(properties);
+		clearPointcutExpressionCache();
+	}
+
+	/**
+	 * Remember up to maxEntries parsed pointcut expressions. Parsing an expression that is in the cache, with the same scope and
+	 * formal parameters, returns the same StandardPointcutExpression instance instead of parsing, resolving and concretizing it
+	 * again. The least recently used expression is discarded when the cache is full. Caching is off by default, a size of zero
+	 * switches it off again.
+	 * <p>
+	 * Cached expressions are shared between everyone who parses the same text, so a matching context should not be set on them.
+	 * </p>
+	 * 
+	 * @param maxEntries the maximum number of expressions to keep
+	 */
+	public void setPointcutExpressionCacheSize(int maxEntries) {
+		expressionCache = (maxEntries > 0 ? new PointcutExpressionCache<StandardPointcutExpressionImpl>(maxEntries) : null);
+	}
+
+	private void clearPointcutExpressionCache() {
+		if (expressionCache != null) {
+			expressionCache.clear();
+		}
 	}
 
 	/**
@@ -192,6 +215,7 @@ public class StandardPointcutParser {
 		if (world != null) {
 			world.registerPointcutHandler(designatorHandler);
 		}
+		clearPointcutExpressionCache();
 	}
 
 	/**
@@ -229,12 +253,23 @@ public class StandardPointcutParser {
 	 */
 	public StandardPointcutExpression parsePointcutExpression(String expression, Class inScope, PointcutParameter[] formalParameters)
 			throws UnsupportedPointcutPrimitiveException, IllegalArgumentException {
+		PointcutExpressionCache.Key key = null;
+		if (expressionCache != null) {
+			key = PointcutExpressionCache.makeKey(expression, inScope, formalParameters);
+			StandardPointcutExpressionImpl cached = expressionCache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
 		StandardPointcutExpressionImpl pcExpr = null;
 		try {
 			Pointcut pc = resolvePointcutExpression(expression, inScope, formalParameters);
 			pc = concretizePointcutExpression(pc, inScope, formalParameters);
 			validateAgainstSupportedPrimitives(pc, expression); // again, because we have now followed any ref'd pcuts
 			pcExpr = new StandardPointcutExpressionImpl(pc, expression, formalParameters, getWorld());
+			if (key != null) {
+				expressionCache.put(key, pcExpr);
+			}
 		} catch (ParserException pEx) {
 			throw new IllegalArgumentException(buildUserMessageFromParserException(expression, pEx));
 		} catch (ReflectionWorld.ReflectionWorldException rwEx) {
@@ -108,6 +108,61 @@ public abstract class CommonWorldTests extends TestCase {
 		}
 	}
 
+	public void testTypeIds() {
+		ResolvedType[] primitives = world.resolve(primitiveTypes);
+		for (int i = 0; i < primitives.length; i++) {
+			assertEquals(primitives[i].getSignature(), primitives[i].getTypeId(), primitiveTypes[i].getTypeId(world));
+			for (int j = 0; j < i; j++) {
+				assertTrue(primitives[i].getTypeId() != primitives[j].getTypeId());
+			}
+		}
+		ResolvedType object = world.resolve(UnresolvedType.OBJECT);
+		assertEquals(World.OBJECT_TYPE_ID, object.getTypeId());
+		assertEquals(World.MISSING_TYPE_ID, ResolvedType.MISSING.getTypeId());
+
+		ResolvedType string = world.resolve(UnresolvedType.JL_STRING);
+		ResolvedType stringArray = world.resolve("java.lang.String[]");
+		assertTrue(string.getTypeId() != stringArray.getTypeId());
+		assertEquals(string.getTypeId(), UnresolvedType.JL_STRING.getTypeId(world));
+		assertTrue(stringArray.getTypeId() < world.getTypeIdCount());
+	}
+
+	public void testAssignabilityCache() {
+		ResolvedType serializable = world.resolve(UnresolvedType.SERIALIZABLE);
+		ResolvedType string = world.resolve(UnresolvedType.JL_STRING);
+		ResolvedType number = world.resolve("java.lang.Number");
+		world.flushAssignabilityCache();
+		for (int i = 0; i < 2; i++) {
+			assertTrue(serializable.isAssignableFrom(string));
+			assertTrue(serializable.isAssignableFrom(number));
+			assertFalse(string.isAssignableFrom(serializable));
+			assertFalse(number.isAssignableFrom(string));
+		}
+		assertTrue(world.getAssignabilityCache().size() > 0);
+		world.flushAssignabilityCache();
+		assertEquals(0, world.getAssignabilityCache().size());
+	}
+
+	public void testTypeFromSignature() {
+		String[] signatures = new String[] { "I", "[[J", "Ljava/lang/String;", "[Ljava/util/List;",
+				"Pjava/util/List<Ljava/lang/String;>;", "TT;", "[TT;" };
+		for (String signature : signatures) {
+			UnresolvedType type = world.typeFromSignature(signature);
+			assertEquals(UnresolvedType.forSignature(signature), type);
+			assertEquals(signature, type.getSignature());
+		}
+		// simple and array types are shared, the rest are built each time
+		assertSame(world.typeFromSignature("Ljava/lang/String;"), world.typeFromSignature(new String("Ljava/lang/String;")));
+		assertSame(world.typeFromSignature("[[J"), world.typeFromSignature("[[J"));
+		assertNotSame(world.typeFromSignature("TT;"), world.typeFromSignature("TT;"));
+
+		Member m = MemberImpl.method(UnresolvedType.OBJECT, 0, "m", "(ILjava/lang/String;[TT;)Ljava/lang/String;", world);
+		assertEquals(UnresolvedType.INT, m.getParameterTypes()[0]);
+		assertSame(world.typeFromSignature("Ljava/lang/String;"), m.getParameterTypes()[1]);
+		assertEquals("[TT;", m.getParameterTypes()[2].getSignature());
+		assertSame(m.getParameterTypes()[1], m.getReturnType());
+	}
+
 	public void testPrimitiveArrays() {
 		ResolvedType[] primitives = world.resolve(primitiveTypes);
 		for (int i = 0, len = primitives.length; i < len; i++) {
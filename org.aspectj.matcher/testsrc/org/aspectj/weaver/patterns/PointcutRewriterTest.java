@@ -9,13 +9,25 @@
  * ******************************************************************/
 package org.aspectj.weaver.patterns;
 
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.StringTokenizer;
 
 import junit.framework.TestCase;
 
+import org.aspectj.util.FuzzyBoolean;
+import org.aspectj.weaver.CompressingDataOutputStream;
+import org.aspectj.weaver.IntMap;
+import org.aspectj.weaver.ResolvedType;
 import org.aspectj.weaver.Shadow;
+import org.aspectj.weaver.UnresolvedType;
+import org.aspectj.weaver.World;
+import org.aspectj.weaver.ast.ITestVisitor;
+import org.aspectj.weaver.ast.Literal;
+import org.aspectj.weaver.ast.Test;
 
 /**
  * Testing the pointcut rewriter.
@@ -463,6 +475,172 @@ public class PointcutRewriterTest extends TestCase {
 		assertEquals("reordered", "((within(abc) && execution(new(..))) || get(* *))", prw.rewrite(opc).toString());
 	}
 
+	public void testDecisionDiagramAvoidsDNFExplosion() {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < 12; i++) {
+			if (i > 0) {
+				sb.append(" && ");
+			}
+			sb.append("(within(A" + i + ") || within(B" + i + "))");
+		}
+		Pointcut p = getPointcut(sb.toString());
+		assertEquals(4096, PointcutRewriter.estimateDNFSize(p));
+		Pointcut rewritten = prw.rewrite(p, 256);
+		assertTrue("Expected a decision diagram: " + rewritten, rewritten instanceof DecisionDiagramPointcut);
+		assertEquals(24, ((DecisionDiagramPointcut) rewritten).getNodeCount());
+		// stable when rewritten again
+		assertEquals(rewritten, prw.rewrite(rewritten, 256));
+		assertEquals(rewritten.toString(), prw.rewrite(rewritten).toString());
+		// below the threshold, or switched off, DNF is produced as before
+		assertTrue(prw.rewrite(p, 5000) instanceof OrPointcut);
+		assertTrue(prw.rewrite(getPointcut("(within(A) || within(B)) && (within(C) || within(D))"), -1) instanceof OrPointcut);
+	}
+
+	public void testDecisionDiagramOfContradiction() {
+		Pointcut p = getPointcut("((within(A) || within(B)) && (within(C) || within(D))) && !(within(A) || within(B))");
+		assertEquals("", prw.rewrite(p, 0).toString());
+		assertEquals(Shadow.NO_SHADOW_KINDS_BITS, prw.rewrite(p, 0).couldMatchKinds());
+	}
+
+	public void testDecisionDiagramMatchesLikeOriginal() {
+		Random random = new Random(42);
+		Pointcut[] variables = new Pointcut[8];
+		for (int i = 0; i < variables.length; i++) {
+			variables[i] = new VariablePointcut(i);
+		}
+		for (int expression = 0; expression < 50; expression++) {
+			Pointcut p = randomPointcut(random, variables, 6);
+			Pointcut diagram = DecisionDiagramPointcut.build(p, 10000);
+			if (diagram == null) {
+				continue; // a tautology
+			}
+			for (int assignment = 0; assignment < (1 << variables.length); assignment++) {
+				VariablePointcut.assignment = assignment;
+				assertEquals(p + " for " + Integer.toBinaryString(assignment), p.fastMatch(null), diagram.fastMatch(null));
+			}
+		}
+	}
+
+	public void testDecisionDiagramResidueTestsEachPrimitiveOnce() {
+		Pointcut[] variables = new Pointcut[24];
+		for (int i = 0; i < variables.length; i++) {
+			variables[i] = new VariablePointcut(i);
+		}
+		Pointcut p = null;
+		for (int i = 0; i < 12; i++) {
+			Pointcut clause = new OrPointcut(variables[2 * i], variables[2 * i + 1]);
+			p = (p == null ? clause : new AndPointcut(p, clause));
+		}
+		Pointcut diagram = DecisionDiagramPointcut.build(p, 10000);
+		assertTrue(diagram instanceof DecisionDiagramPointcut);
+		try {
+			// every primitive is left to the residue, which must not repeat any of them
+			VariablePointcut.dynamic = -1;
+			String residue = diagram.findResidue(null, null).toString();
+			for (int i = 0; i < variables.length; i++) {
+				assertEquals(residue, 1, residue.split("t" + i + "\\b", -1).length - 1);
+			}
+			// statically decided primitives are folded away
+			VariablePointcut.dynamic = 1 << 1;
+			VariablePointcut.assignment = ~(1 << 0);
+			assertEquals("t1", diagram.findResidue(null, null).toString());
+		} finally {
+			VariablePointcut.dynamic = 0;
+		}
+	}
+
+	private Pointcut randomPointcut(Random random, Pointcut[] variables, int depth) {
+		if (depth == 0 || random.nextInt(4) == 0) {
+			return variables[random.nextInt(variables.length)];
+		}
+		switch (random.nextInt(3)) {
+		case 0:
+			return new AndPointcut(randomPointcut(random, variables, depth - 1), randomPointcut(random, variables, depth - 1));
+		case 1:
+			return new OrPointcut(randomPointcut(random, variables, depth - 1), randomPointcut(random, variables, depth - 1));
+		default:
+			return new NotPointcut(randomPointcut(random, variables, depth - 1));
+		}
+	}
+
+	/**
+	 * A primitive pointcut whose fast match result is taken from one bit of the current assignment. Its residue is that bit too,
+	 * unless the bit is set in the dynamic mask, when it is a VariableTest.
+	 */
+	static class VariablePointcut extends Pointcut {
+		static int assignment;
+		static int dynamic;
+		private final int bit;
+
+		VariablePointcut(int bit) {
+			this.bit = bit;
+		}
+
+		public FuzzyBoolean fastMatch(FastMatchInfo info) {
+			return FuzzyBoolean.fromBoolean((assignment & (1 << bit)) != 0);
+		}
+
+		public int couldMatchKinds() {
+			return Shadow.ALL_SHADOW_KINDS_BITS;
+		}
+
+		protected FuzzyBoolean matchInternal(Shadow shadow) {
+			return fastMatch(null);
+		}
+
+		protected void resolveBindings(IScope scope, Bindings bindings) {
+		}
+
+		protected Pointcut concretize1(ResolvedType inAspect, ResolvedType declaringType, IntMap bindings) {
+			return this;
+		}
+
+		protected Test findResidueInternal(Shadow shadow, ExposedState state) {
+			if ((dynamic & (1 << bit)) != 0) {
+				return new VariableTest(bit);
+			}
+			return fastMatch(null).alwaysTrue() ? Literal.TRUE : Literal.FALSE;
+		}
+
+		public void write(CompressingDataOutputStream s) throws IOException {
+		}
+
+		public Object accept(PatternNodeVisitor visitor, Object data) {
+			return visitor.visit(this, data);
+		}
+
+		public Pointcut parameterizeWith(Map<String, UnresolvedType> typeVariableMap, World w) {
+			return this;
+		}
+
+		public boolean equals(Object other) {
+			return other instanceof VariablePointcut && ((VariablePointcut) other).bit == bit;
+		}
+
+		public int hashCode() {
+			return bit;
+		}
+
+		public String toString() {
+			return "v" + bit;
+		}
+	}
+
+	static class VariableTest extends Test {
+		private final int bit;
+
+		VariableTest(int bit) {
+			this.bit = bit;
+		}
+
+		public void accept(ITestVisitor v) {
+		}
+
+		public String toString() {
+			return "t" + bit;
+		}
+	}
+
 	private Pointcut getPointcut(String s) {
 		return new PatternParser(s).parsePointcut();
 	}
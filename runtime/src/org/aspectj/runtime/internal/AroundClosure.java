@@ -51,6 +51,40 @@ public abstract class AroundClosure {
 	 */
     public abstract Object run(Object[] args) throws Throwable;
 
+    /**
+     * The most proceed arguments there is a runN() method for.
+     */
+    public static final int MAX_TYPED_RUN_ARITY = 4;
+
+    /**
+     * The runN() methods are run() for a proceed call with exactly N arguments,
+     * passed directly rather than in an array.  Proceed methods compiled with
+     * -Xset:typedAroundClosures=true call these, and closures woven with that
+     * option (which keep the state of their join point in typed fields of their
+     * own rather than in the state array) override them, so that proceeding
+     * allocates nothing beyond the boxing of primitive arguments.  For any other
+     * closure they fall back to run(Object[]).
+     */
+    public Object run0() throws Throwable {
+        return run(new Object[0]);
+    }
+
+    public Object run1(Object arg0) throws Throwable {
+        return run(new Object[] { arg0 });
+    }
+
+    public Object run2(Object arg0, Object arg1) throws Throwable {
+        return run(new Object[] { arg0, arg1 });
+    }
+
+    public Object run3(Object arg0, Object arg1, Object arg2) throws Throwable {
+        return run(new Object[] { arg0, arg1, arg2 });
+    }
+
+    public Object run4(Object arg0, Object arg1, Object arg2, Object arg3) throws Throwable {
+        return run(new Object[] { arg0, arg1, arg2, arg3 });
+    }
+
     /**
      * This method is called to implicitly associate the closure with the joinpoint
      * as required for @AJ aspect proceed()
@@ -158,7 +158,7 @@ public final class Factory {
 		return new JoinPointImpl.EnclosingStaticPartImpl(-1, kind, sig, null);
 	}
 
-	private static Object[] NO_ARGS = new Object[0];
+	static final Object[] NO_ARGS = new Object[0];
 
 	public static JoinPoint makeJP(JoinPoint.StaticPart staticPart, Object _this, Object target) {
 		return new JoinPointImpl(staticPart, _this, target, NO_ARGS);
@@ -176,6 +176,18 @@ public final class Factory {
 		return new JoinPointImpl(staticPart, _this, target, args);
 	}
 
+	/**
+	 * The join point for advice that the weaver found only asks thisJoinPoint for static information (its kind, signature,
+	 * source location, static part or string forms). It has no this, target or arguments, and the same one is answered every
+	 * time for a static part, so nothing is allocated per join point.
+	 */
+	public static JoinPoint makeStaticJP(JoinPoint.StaticPart staticPart) {
+		if (staticPart instanceof JoinPointImpl.StaticPartImpl) {
+			return ((JoinPointImpl.StaticPartImpl) staticPart).getStaticJoinPoint();
+		}
+		return new JoinPointImpl(staticPart, null, null, NO_ARGS);
+	}
+
 	public MethodSignature makeMethodSig(String stringRep) {
 		MethodSignatureImpl ret = new MethodSignatureImpl(stringRep);
 		ret.setLookupClassLoader(lookupClassLoader);
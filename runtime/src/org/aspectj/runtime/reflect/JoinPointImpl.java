@@ -25,6 +25,8 @@ class JoinPointImpl implements ProceedingJoinPoint {
 		Signature signature;
 		SourceLocation sourceLocation;
 		private int id;
+		// see Factory.makeStaticJP(), volatile so that a thread seeing the reference sees the join point fully built
+		private volatile JoinPoint staticJoinPoint;
 
 		public StaticPartImpl(int id, String kind, Signature signature, SourceLocation sourceLocation) {
 			this.kind = kind;
@@ -37,6 +39,16 @@ class JoinPointImpl implements ProceedingJoinPoint {
 			return id;
 		}
 
+		JoinPoint getStaticJoinPoint() {
+			// racing threads may each make one, which does no harm
+			JoinPoint jp = staticJoinPoint;
+			if (jp == null) {
+				jp = new JoinPointImpl(this, null, null, Factory.NO_ARGS);
+				staticJoinPoint = jp;
+			}
+			return jp;
+		}
+
 		public String getKind() {
 			return kind;
 		}
@@ -0,0 +1,18 @@
+public class Code {
+	public static void main(String[] argv) {
+		Object o = new Code();
+		System.out.println("Marker? " + (o instanceof Marker));
+		System.out.println("Interfaces: " + Code.class.getInterfaces().length);
+	}
+}
+
+interface Marker {
+}
+
+aspect First {
+	declare parents: Code implements Marker;
+}
+
+aspect Second {
+	declare parents: Cod* implements Marker;
+}
@@ -24,6 +24,10 @@ public class Ajc175Tests extends org.aspectj.testing.XMLBasedAjcTestCase {
 	public void testVertxVerifyError_423257() throws Exception {
 		runTest("vertx verify error");
 	}
+
+	public void testDecpSameInterfaceTwice() throws Exception {
+		runTest("decp same interface twice");
+	}
 	
 	// ---
 
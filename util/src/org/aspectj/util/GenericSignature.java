@@ -194,12 +194,13 @@ public class GenericSignature {
 	}
 
 	public static class SimpleClassTypeSignature {
+		public static final SimpleClassTypeSignature[] NONE = new SimpleClassTypeSignature[0];
 		public String identifier;
 		public TypeArgument[] typeArguments;
 
 		public SimpleClassTypeSignature(String identifier) {
 			this.identifier = identifier;
-			this.typeArguments = new TypeArgument[0];
+			this.typeArguments = TypeArgument.NONE;
 		}
 
 		public SimpleClassTypeSignature(String identifier, TypeArgument[] args) {
@@ -222,6 +223,7 @@ public class GenericSignature {
 	}
 
 	public static class TypeArgument {
+		public static final TypeArgument[] NONE = new TypeArgument[0];
 		public boolean isWildcard = false;
 		public boolean isPlus = false;
 		public boolean isMinus = false;
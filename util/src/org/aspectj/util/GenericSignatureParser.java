@@ -24,16 +24,18 @@ import org.aspectj.util.GenericSignature.TypeSignature;
 import org.aspectj.util.GenericSignature.TypeVariableSignature;
 
 /**
- * Parses the generic signature attribute as defined in the JVM spec.
+ * Parses the generic signature attribute as defined in the JVM spec. The parser works directly off offsets into the signature
+ * string, the only strings created are the identifiers and signatures held in the result.
  * 
  * @author Adrian Colyer
  * @author Andy Clement
  */
 public class GenericSignatureParser {
 
+	private static final FieldTypeSignature[] NO_FIELD_TYPE_SIGNATURES = new FieldTypeSignature[0];
+
 	private String inputString;
-	private String[] tokenStream; // for parse in flight
-	private int tokenIndex = 0;
+	private int index; // for parse in flight, offset of the next char to consume
 
 	/**
 	 * AMC. Parse the signature string interpreting it as a ClassSignature according to the grammar defined in Section 4.4.4 of the
@@ -41,25 +43,21 @@ public class GenericSignatureParser {
 	 */
 	public GenericSignature.ClassSignature parseAsClassSignature(String sig) {
 		this.inputString = sig;
-		tokenStream = tokenize(sig);
-		tokenIndex = 0;
+		index = 0;
 		GenericSignature.ClassSignature classSig = new GenericSignature.ClassSignature();
 		// FormalTypeParameters-opt
-		if (maybeEat("<")) {
-			List<FormalTypeParameter> formalTypeParametersList = new ArrayList<FormalTypeParameter>();
-			do {
-				formalTypeParametersList.add(parseFormalTypeParameter());
-			} while (!maybeEat(">"));
-			classSig.formalTypeParameters = new FormalTypeParameter[formalTypeParametersList.size()];
-			formalTypeParametersList.toArray(classSig.formalTypeParameters);
+		if (maybeEat('<')) {
+			classSig.formalTypeParameters = parseFormalTypeParameters();
 		}
 		classSig.superclassSignature = parseClassTypeSignature();
-		List<ClassTypeSignature> superIntSigs = new ArrayList<ClassTypeSignature>();
-		while (tokenIndex < tokenStream.length) {
-			superIntSigs.add(parseClassTypeSignature());
+		if (index < inputString.length()) {
+			List<ClassTypeSignature> superIntSigs = new ArrayList<ClassTypeSignature>();
+			while (index < inputString.length()) {
+				superIntSigs.add(parseClassTypeSignature());
+			}
+			classSig.superInterfaceSignatures = new ClassTypeSignature[superIntSigs.size()];
+			superIntSigs.toArray(classSig.superInterfaceSignatures);
 		}
-		classSig.superInterfaceSignatures = new ClassTypeSignature[superIntSigs.size()];
-		superIntSigs.toArray(classSig.superInterfaceSignatures);
 		return classSig;
 	}
 
@@ -69,28 +67,22 @@ public class GenericSignatureParser {
 	 */
 	public MethodTypeSignature parseAsMethodSignature(String sig) {
 		this.inputString = sig;
-		tokenStream = tokenize(sig);
-		tokenIndex = 0;
-		FormalTypeParameter[] formals = new FormalTypeParameter[0];
+		index = 0;
+		FormalTypeParameter[] formals = FormalTypeParameter.NONE;
 		TypeSignature returnType = null;
 		// FormalTypeParameters-opt
-		if (maybeEat("<")) {
-			List<FormalTypeParameter> formalTypeParametersList = new ArrayList<FormalTypeParameter>();
-			do {
-				formalTypeParametersList.add(parseFormalTypeParameter());
-			} while (!maybeEat(">"));
-			formals = new FormalTypeParameter[formalTypeParametersList.size()];
-			formalTypeParametersList.toArray(formals);
+		if (maybeEat('<')) {
+			formals = parseFormalTypeParameters();
 		}
 		// Parameters
-		eat("(");
+		eat('(');
 		List<TypeSignature> paramList = new ArrayList<TypeSignature>();
-		while (!maybeEat(")")) {
+		while (!maybeEat(')')) {
 			FieldTypeSignature fsig = parseFieldTypeSignature(true);
 			if (fsig != null) {
 				paramList.add(fsig);
 			} else {
-				paramList.add(new GenericSignature.BaseTypeSignature(eatIdentifier()));
+				paramList.add(parseBaseTypeSignature());
 			}
 		}
 		TypeSignature[] params = new TypeSignature[paramList.size()];
@@ -98,15 +90,18 @@ public class GenericSignatureParser {
 		// return type
 		returnType = parseFieldTypeSignature(true);
 		if (returnType == null)
-			returnType = new GenericSignature.BaseTypeSignature(eatIdentifier());
+			returnType = parseBaseTypeSignature();
 		// throws
-		List<FieldTypeSignature> throwsList = new ArrayList<FieldTypeSignature>();
-		while (maybeEat("^")) {
-			FieldTypeSignature fsig = parseFieldTypeSignature(false);
-			throwsList.add(fsig);
+		FieldTypeSignature[] throwsSigs = NO_FIELD_TYPE_SIGNATURES;
+		if (index < inputString.length()) {
+			List<FieldTypeSignature> throwsList = new ArrayList<FieldTypeSignature>();
+			while (maybeEat('^')) {
+				FieldTypeSignature fsig = parseFieldTypeSignature(false);
+				throwsList.add(fsig);
+			}
+			throwsSigs = new FieldTypeSignature[throwsList.size()];
+			throwsList.toArray(throwsSigs);
 		}
-		FieldTypeSignature[] throwsSigs = new FieldTypeSignature[throwsList.size()];
-		throwsList.toArray(throwsSigs);
 		return new GenericSignature.MethodTypeSignature(formals, params, returnType, throwsSigs);
 	}
 
@@ -116,48 +111,62 @@ public class GenericSignatureParser {
 	 */
 	public FieldTypeSignature parseAsFieldSignature(String sig) {
 		this.inputString = sig;
-		tokenStream = tokenize(sig);
-		tokenIndex = 0;
+		index = 0;
 		return parseFieldTypeSignature(false);
 	}
 
+	// opening < already eaten
+	private FormalTypeParameter[] parseFormalTypeParameters() {
+		List<FormalTypeParameter> formalTypeParametersList = new ArrayList<FormalTypeParameter>();
+		do {
+			formalTypeParametersList.add(parseFormalTypeParameter());
+		} while (!maybeEat('>'));
+		FormalTypeParameter[] formals = new FormalTypeParameter[formalTypeParametersList.size()];
+		formalTypeParametersList.toArray(formals);
+		return formals;
+	}
+
 	private FormalTypeParameter parseFormalTypeParameter() {
 		FormalTypeParameter ftp = new FormalTypeParameter();
 		// Identifier
 		ftp.identifier = eatIdentifier();
 		// ClassBound
-		eat(":");
+		eat(':');
 		ftp.classBound = parseFieldTypeSignature(true);
 		if (ftp.classBound == null) {
 			ftp.classBound = new ClassTypeSignature("Ljava/lang/Object;", "Ljava/lang/Object");
 		}
 		// Optional InterfaceBounds
-		List<FieldTypeSignature> optionalBounds = new ArrayList<FieldTypeSignature>();
-		while (maybeEat(":")) {
-			optionalBounds.add(parseFieldTypeSignature(false));
+		if (peek() == ':') {
+			List<FieldTypeSignature> optionalBounds = new ArrayList<FieldTypeSignature>();
+			while (maybeEat(':')) {
+				optionalBounds.add(parseFieldTypeSignature(false));
+			}
+			ftp.interfaceBounds = new FieldTypeSignature[optionalBounds.size()];
+			optionalBounds.toArray(ftp.interfaceBounds);
+		} else {
+			ftp.interfaceBounds = NO_FIELD_TYPE_SIGNATURES;
 		}
-		ftp.interfaceBounds = new FieldTypeSignature[optionalBounds.size()];
-		optionalBounds.toArray(ftp.interfaceBounds);
 		return ftp;
 	}
 
 	private FieldTypeSignature parseFieldTypeSignature(boolean isOptional) {
+		char ch = peek();
 		if (isOptional) {
 			// anything other than 'L', 'T' or '[' and we're out of here
-			if (!tokenStream[tokenIndex].startsWith("L") && !tokenStream[tokenIndex].startsWith("T")
-					&& !tokenStream[tokenIndex].startsWith("[")) {
+			if (ch != 'L' && ch != 'T' && ch != '[') {
 				return null;
 			}
 		}
-		if (maybeEat("[")) {
+		if (ch == '[') {
+			index++;
 			return parseArrayTypeSignature();
-		} else if (tokenStream[tokenIndex].startsWith("L")) {
+		} else if (ch == 'L') {
 			return parseClassTypeSignature();
-		} else if (tokenStream[tokenIndex].startsWith("T")) {
+		} else if (ch == 'T') {
 			return parseTypeVariableSignature();
 		} else {
-			throw new IllegalStateException("Expecting [,L, or T, but found " + tokenStream[tokenIndex] + " while unpacking "
-					+ inputString);
+			throw new IllegalStateException("Expecting [,L, or T, but found " + remaining() + " while unpacking " + inputString);
 		}
 	}
 
@@ -168,64 +177,68 @@ public class GenericSignatureParser {
 			return new ArrayTypeSignature(fieldType);
 		} else {
 			// must be BaseType array
-			return new ArrayTypeSignature(new BaseTypeSignature(eatIdentifier()));
+			return new ArrayTypeSignature(parseBaseTypeSignature());
 		}
 	}
 
+	private BaseTypeSignature parseBaseTypeSignature() {
+		if (index >= inputString.length()) {
+			throw new IllegalStateException("Expecting a base type but found the end of " + inputString);
+		}
+		return new BaseTypeSignature(inputString.substring(index, ++index));
+	}
+
 	// L PackageSpecifier* SimpleClassTypeSignature ClassTypeSignature* ;
 	private ClassTypeSignature parseClassTypeSignature() {
+		int start = index;
 		SimpleClassTypeSignature outerType = null;
-		SimpleClassTypeSignature[] nestedTypes = new SimpleClassTypeSignature[0];
-		StringBuffer ret = new StringBuffer();
-		String identifier = eatIdentifier();
-		ret.append(identifier);
-		while (maybeEat("/")) {
-			ret.append("/"); // dont forget this...
-			ret.append(eatIdentifier());
+		SimpleClassTypeSignature[] nestedTypes = SimpleClassTypeSignature.NONE;
+		// the package specifiers and the outer type name, all up to the first "." "<" or ";"
+		int end = start;
+		int max = inputString.length();
+		while (end < max) {
+			char ch = inputString.charAt(end);
+			if (ch == '.' || ch == '<' || ch == ';') {
+				break;
+			}
+			end++;
 		}
-		identifier = ret.toString();
+		String identifier = inputString.substring(start, end);
+		index = end;
 		// now we have either a "." indicating the start of a nested type,
 		// or a "<" indication type arguments, or ";" and we are done.
-		while (!maybeEat(";")) {
-			if (maybeEat(".")) {
+		while (!maybeEat(';')) {
+			if (maybeEat('.')) {
 				// outer type completed
 				outerType = new SimpleClassTypeSignature(identifier);
 				List<SimpleClassTypeSignature> nestedTypeList = new ArrayList<SimpleClassTypeSignature>();
 				do {
-					ret.append(".");
-					SimpleClassTypeSignature sig = parseSimpleClassTypeSignature();
-					ret.append(sig.toString());
-					nestedTypeList.add(sig);
-				} while (maybeEat("."));
+					nestedTypeList.add(parseSimpleClassTypeSignature());
+				} while (maybeEat('.'));
 				nestedTypes = new SimpleClassTypeSignature[nestedTypeList.size()];
 				nestedTypeList.toArray(nestedTypes);
-			} else if (tokenStream[tokenIndex].equals("<")) {
-				ret.append("<");
+			} else if (peek() == '<') {
 				TypeArgument[] tArgs = maybeParseTypeArguments();
-				for (int i = 0; i < tArgs.length; i++) {
-					ret.append(tArgs[i].toString());
-				}
-				ret.append(">");
 				outerType = new SimpleClassTypeSignature(identifier, tArgs);
 				// now parse possible nesteds...
-				List<SimpleClassTypeSignature> nestedTypeList = new ArrayList<SimpleClassTypeSignature>();
-				while (maybeEat(".")) {
-					ret.append(".");
-					SimpleClassTypeSignature sig = parseSimpleClassTypeSignature();
-					ret.append(sig.toString());
-					nestedTypeList.add(sig);
+				if (peek() == '.') {
+					List<SimpleClassTypeSignature> nestedTypeList = new ArrayList<SimpleClassTypeSignature>();
+					while (maybeEat('.')) {
+						nestedTypeList.add(parseSimpleClassTypeSignature());
+					}
+					nestedTypes = new SimpleClassTypeSignature[nestedTypeList.size()];
+					nestedTypeList.toArray(nestedTypes);
 				}
-				nestedTypes = new SimpleClassTypeSignature[nestedTypeList.size()];
-				nestedTypeList.toArray(nestedTypes);
 			} else {
-				throw new IllegalStateException("Expecting .,<, or ;, but found " + tokenStream[tokenIndex] + " while unpacking "
+				throw new IllegalStateException("Expecting .,<, or ;, but found " + remaining() + " while unpacking "
 						+ inputString);
 			}
 		}
-		ret.append(";");
+		// the signature is exactly the text consumed, no need to rebuild it from the parts
+		String sig = inputString.substring(start, index);
 		if (outerType == null)
-			outerType = new SimpleClassTypeSignature(ret.toString());
-		return new ClassTypeSignature(ret.toString(), outerType, nestedTypes);
+			outerType = new SimpleClassTypeSignature(sig);
+		return new ClassTypeSignature(sig, outerType, nestedTypes);
 	}
 
 	private SimpleClassTypeSignature parseSimpleClassTypeSignature() {
@@ -241,11 +254,11 @@ public class GenericSignatureParser {
 	private TypeArgument parseTypeArgument() {
 		boolean isPlus = false;
 		boolean isMinus = false;
-		if (maybeEat("*")) {
+		if (maybeEat('*')) {
 			return new TypeArgument();
-		} else if (maybeEat("+")) {
+		} else if (maybeEat('+')) {
 			isPlus = true;
-		} else if (maybeEat("-")) {
+		} else if (maybeEat('-')) {
 			isMinus = true;
 		}
 		FieldTypeSignature sig = parseFieldTypeSignature(false);
@@ -253,12 +266,12 @@ public class GenericSignatureParser {
 	}
 
 	private TypeArgument[] maybeParseTypeArguments() {
-		if (maybeEat("<")) {
+		if (maybeEat('<')) {
 			List<TypeArgument> typeArgs = new ArrayList<TypeArgument>();
 			do {
 				TypeArgument arg = parseTypeArgument();
 				typeArgs.add(arg);
-			} while (!maybeEat(">"));
+			} while (!maybeEat('>'));
 			TypeArgument[] tArgs = new TypeArgument[typeArgs.size()];
 			typeArgs.toArray(tArgs);
 			return tArgs;
@@ -269,34 +282,62 @@ public class GenericSignatureParser {
 
 	private TypeVariableSignature parseTypeVariableSignature() {
 		TypeVariableSignature tv = new TypeVariableSignature(eatIdentifier());
-		eat(";");
+		eat(';');
 		return tv;
 	}
 
-	private boolean maybeEat(String token) {
-		if (tokenStream.length <= tokenIndex)
-			return false;
-		if (tokenStream[tokenIndex].equals(token)) {
-			tokenIndex++;
+	/**
+	 * @return the next char to be consumed, or 0 if the whole input has been consumed
+	 */
+	private char peek() {
+		return index < inputString.length() ? inputString.charAt(index) : 0;
+	}
+
+	private boolean maybeEat(char token) {
+		if (index < inputString.length() && inputString.charAt(index) == token) {
+			index++;
 			return true;
 		}
 		return false;
 	}
 
-	private void eat(String token) {
-		if (!tokenStream[tokenIndex].equals(token)) {
-			throw new IllegalStateException("Expecting " + token + " but found " + tokenStream[tokenIndex] + " while unpacking "
-					+ inputString);
+	private void eat(char token) {
+		if (!maybeEat(token)) {
+			throw new IllegalStateException("Expecting " + token + " but found " + remaining() + " while unpacking " + inputString);
 		}
-		tokenIndex++;
 	}
 
+	/**
+	 * An identifier runs up to the next of the chars that the signature grammar uses as separators.
+	 */
 	private String eatIdentifier() {
-		return tokenStream[tokenIndex++];
+		int start = index;
+		int max = inputString.length();
+		while (index < max) {
+			switch (inputString.charAt(index)) {
+			case '<':
+			case '>':
+			case ':':
+			case '/':
+			case ';':
+			case '.':
+			case '^':
+				return inputString.substring(start, index);
+			default:
+				index++;
+			}
+		}
+		return inputString.substring(start, index);
+	}
+
+	// for error messages only
+	private String remaining() {
+		return index < inputString.length() ? inputString.substring(index) : "<end>";
 	}
 
 	/**
-	 * non-private for test visibility Splits a string containing a generic signature into tokens for consumption by the parser.
+	 * Splits a string containing a generic signature into the tokens the grammar is defined over. The parser no longer works from
+	 * these tokens, this remains for test visibility.
 	 */
 	public String[] tokenize(String signatureString) {
 		char[] chars = signatureString.toCharArray();
@@ -48,6 +48,7 @@ import org.aspectj.bridge.IMessageHandler;
 import org.aspectj.bridge.ISourceLocation;
 import org.aspectj.bridge.Message;
 import org.aspectj.bridge.MessageUtil;
+import org.aspectj.weaver.AbstractReferenceTypeDelegate;
 import org.aspectj.weaver.Advice;
 import org.aspectj.weaver.AdviceKind;
 import org.aspectj.weaver.AjAttribute;
@@ -266,9 +267,11 @@ public class AtAjAttributes {
 			// the new set of attributes (looks like a bug where the version attribute was not included in the
 			// data compressed into the attribute). So rather than 'defaulting' to current, we should use one
 			// if it set on the delegate for the type.
+			// the delegate may be one rebuilt from a demoted type summary, which keeps the version but must not be inflated
+			// here as its full delegate is what is being built
 			ReferenceTypeDelegate delegate = type.getDelegate();
-			if (delegate instanceof BcelObjectType) {
-				wvinfo = ((BcelObjectType) delegate).getWeaverVersionAttribute();
+			if (delegate instanceof AbstractReferenceTypeDelegate) {
+				wvinfo = ((AbstractReferenceTypeDelegate) delegate).getWeaverVersionAttribute();
 				if (wvinfo != null) {
 					if (wvinfo.getMajorVersion() != WeaverVersionInfo.WEAVER_VERSION_MAJOR_UNKNOWN) {
 						// use this one
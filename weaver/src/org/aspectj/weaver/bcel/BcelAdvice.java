@@ -17,21 +17,31 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+import org.aspectj.apache.bcel.Constants;
+import org.aspectj.apache.bcel.classfile.ConstantPool;
+import org.aspectj.apache.bcel.classfile.JavaClass;
 import org.aspectj.apache.bcel.classfile.LocalVariable;
 import org.aspectj.apache.bcel.classfile.LocalVariableTable;
+import org.aspectj.apache.bcel.classfile.Method;
+import org.aspectj.apache.bcel.generic.Instruction;
 import org.aspectj.apache.bcel.generic.InstructionConstants;
 import org.aspectj.apache.bcel.generic.InstructionFactory;
 import org.aspectj.apache.bcel.generic.InstructionHandle;
 import org.aspectj.apache.bcel.generic.InstructionList;
+import org.aspectj.apache.bcel.generic.InvokeInstruction;
 import org.aspectj.apache.bcel.generic.LineNumberTag;
 import org.aspectj.apache.bcel.generic.LocalVariableTag;
+import org.aspectj.apache.bcel.generic.Type;
 import org.aspectj.bridge.ISourceLocation;
 import org.aspectj.bridge.Message;
 import org.aspectj.weaver.Advice;
 import org.aspectj.weaver.AdviceKind;
 import org.aspectj.weaver.AjAttribute;
+import org.aspectj.weaver.AjcMemberMaker;
 import org.aspectj.weaver.BCException;
 import org.aspectj.weaver.IEclipseSourceContext;
 import org.aspectj.weaver.ISourceContext;
@@ -69,6 +79,20 @@ class BcelAdvice extends Advice {
 	 */
 	private Test runtimeTest;
 	private ExposedState exposedState;
+	// whether the advice body only asks thisJoinPoint for static information, null until worked out
+	private Boolean staticThisJoinPoint;
+
+	// the JoinPoint methods that only answer static information, as name and signature
+	private static final Set<String> staticJoinPointMethods = new HashSet<String>();
+	static {
+		staticJoinPointMethods.add("getKind()Ljava/lang/String;");
+		staticJoinPointMethods.add("getSignature()Lorg/aspectj/lang/Signature;");
+		staticJoinPointMethods.add("getSourceLocation()Lorg/aspectj/lang/reflect/SourceLocation;");
+		staticJoinPointMethods.add("getStaticPart()Lorg/aspectj/lang/JoinPoint$StaticPart;");
+		staticJoinPointMethods.add("toString()Ljava/lang/String;");
+		staticJoinPointMethods.add("toShortString()Ljava/lang/String;");
+		staticJoinPointMethods.add("toLongString()Ljava/lang/String;");
+	}
 
 	public BcelAdvice(AjAttribute.AdviceAttribute attribute, Pointcut pointcut, Member adviceSignature, ResolvedType concreteAspect) {
 		super(attribute, pointcut, simplify(attribute.getKind(), adviceSignature));
@@ -198,7 +222,11 @@ class BcelAdvice extends Advice {
 			((BcelShadow) shadow).getEnclosingClass().warnOnAddedStaticInitializer(shadow, getSourceLocation());
 		}
 
-		if ((getExtraParameterFlags() & ThisJoinPoint) != 0) {
+		if ((getExtraParameterFlags() & ThisJoinPoint) != 0 && usesThisJoinPointStatically()) {
+			// passed the join point shared for the static part, see loadThisJoinPoint()
+			((BcelShadow) shadow).getThisJoinPointStaticPartVar();
+			((BcelShadow) shadow).getEnclosingClass().warnOnAddedStaticInitializer(shadow, getSourceLocation());
+		} else if ((getExtraParameterFlags() & ThisJoinPoint) != 0) {
 			boolean hasGuardTest = runtimeTest != Literal.TRUE && getKind() != AdviceKind.Around;
 			boolean isAround = getKind() == AdviceKind.Around;
 			((BcelShadow) shadow).requireThisJoinPoint(hasGuardTest, isAround);
@@ -578,7 +606,7 @@ class BcelAdvice extends Advice {
 					} else if ("Lorg/aspectj/lang/JoinPoint;".equals(getSignature().getParameterTypes()[i].getSignature())) {
 						previousIsClosure = false;
 						if ((getExtraParameterFlags() & ThisJoinPoint) != 0) {
-							il.append(shadow.loadThisJoinPoint());
+							il.append(loadThisJoinPoint(shadow));
 						}
 					} else if ("Lorg/aspectj/lang/JoinPoint$EnclosingStaticPart;".equals(getSignature().getParameterTypes()[i]
 							.getSignature())) {
@@ -624,7 +652,7 @@ class BcelAdvice extends Advice {
 			}
 
 			if ((getExtraParameterFlags() & ThisJoinPoint) != 0) {
-				il.append(shadow.loadThisJoinPoint());
+				il.append(loadThisJoinPoint(shadow));
 			}
 
 			if ((getExtraParameterFlags() & ThisEnclosingJoinPointStaticPart) != 0) {
@@ -635,6 +663,117 @@ class BcelAdvice extends Advice {
 		return il;
 	}
 
+	private InstructionList loadThisJoinPoint(BcelShadow shadow) {
+		if (!usesThisJoinPointStatically()) {
+			return shadow.loadThisJoinPoint();
+		}
+		InstructionFactory fact = shadow.getFactory();
+		InstructionList il = new InstructionList();
+		shadow.getThisJoinPointStaticPartBcelVar().appendLoad(il, fact);
+		il.append(fact.createInvoke("org.aspectj.runtime.reflect.Factory", "makeStaticJP", LazyClassGen.tjpType,
+				new Type[] { LazyClassGen.staticTjpType }, Constants.INVOKESTATIC));
+		return il;
+	}
+
+	/**
+	 * Advice that only asks thisJoinPoint for static information can be passed the join point that the runtime shares for the
+	 * static part (see Factory.makeStaticJP()), so no join point or arguments array is built at each join point. The compiler
+	 * does the same for code style advice by rewriting such calls to use thisJoinPointStaticPart, but not for getStaticPart(),
+	 * string concatenation or annotation style advice, so here the code of the advice method is looked at.
+	 * 
+	 * @return true if the advice is passed thisJoinPoint but only ever asks it for static information
+	 */
+	private boolean usesThisJoinPointStatically() {
+		if (staticThisJoinPoint == null) {
+			staticThisJoinPoint = computeUsesThisJoinPointStatically();
+		}
+		return staticThisJoinPoint;
+	}
+
+	private boolean computeUsesThisJoinPointStatically() {
+		if ((getExtraParameterFlags() & ThisJoinPoint) == 0 || getKind() == AdviceKind.Around || concreteAspect == null) {
+			return false;
+		}
+		World world = concreteAspect.getWorld();
+		if (!world.shouldElideDynamicJoinPoints() || world.isTargettingAspectJRuntime12()) {
+			return false;
+		}
+		ResolvedType declaringAspect = getSignature().getDeclaringType().resolve(world);
+		BcelObjectType aspectType = BcelWorld.getBcelObjectType(declaringAspect);
+		if (aspectType == null) {
+			return false;
+		}
+		JavaClass javaClass = aspectType.getJavaClass();
+		Method adviceMethod = null;
+		for (Method method : javaClass.getMethods()) {
+			if (method.getName().equals(getSignature().getName()) && method.getSignature().equals(getSignature().getSignature())) {
+				adviceMethod = method;
+				break;
+			}
+		}
+		if (adviceMethod == null || adviceMethod.getCode() == null) {
+			return false;
+		}
+
+		// code style advice takes thisJoinPoint after any thisJoinPointStaticPart, and before any thisEnclosingJoinPointStaticPart.
+		// Annotation style advice can take it anywhere, and a JoinPoint cannot be bound by the pointcut.
+		UnresolvedType[] parameterTypes = getSignature().getParameterTypes();
+		int thisJoinPointIndex = parameterTypes.length - 1 - ((getExtraParameterFlags() & ThisEnclosingJoinPointStaticPart) != 0 ? 1 : 0);
+		boolean isAnnotationStyle = declaringAspect.isAnnotationStyleAspect();
+		Set<Integer> slots = new HashSet<Integer>();
+		int slot = adviceMethod.isStatic() ? 0 : 1;
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (isAnnotationStyle ? parameterTypes[i].equals(AjcMemberMaker.TYPEX_JOINPOINT) : i == thisJoinPointIndex) {
+				slots.add(slot);
+			}
+			slot += parameterTypes[i].getSize();
+		}
+		return asksOnlyForStaticInformation(adviceMethod, javaClass.getConstantPool(), slots);
+	}
+
+	/**
+	 * @param slots the locals holding the join point
+	 * @return true if the join point is never stored, and every load of it is straight away the receiver of one of the JoinPoint
+	 *         methods that answer static information or appended to a string
+	 */
+	static boolean asksOnlyForStaticInformation(Method method, ConstantPool cp, Set<Integer> slots) {
+		InstructionList il = new InstructionList(method.getCode().getCode());
+		for (InstructionHandle ih = il.getStart(); ih != null; ih = ih.getNext()) {
+			Instruction i = ih.getInstruction();
+			if (!i.isLocalVariableInstruction() || !slots.contains(i.getIndex())) {
+				continue;
+			}
+			if (!i.isALOAD()) {
+				return false;
+			}
+			InstructionHandle next = ih.getNext();
+			if (next == null || next.hasTargeters() || !isStaticInformationRequest(next.getInstruction(), cp)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isStaticInformationRequest(Instruction i, ConstantPool cp) {
+		if (!(i instanceof InvokeInstruction)) {
+			return false;
+		}
+		InvokeInstruction invoke = (InvokeInstruction) i;
+		String className = invoke.getClassName(cp);
+		String name = invoke.getName(cp);
+		String signature = invoke.getSignature(cp);
+		if (i.opcode == Constants.INVOKEINTERFACE) {
+			return className.equals("org.aspectj.lang.JoinPoint") && staticJoinPointMethods.contains(name + signature);
+		} else if (i.opcode == Constants.INVOKEVIRTUAL) {
+			// "..." + thisJoinPoint
+			return (className.equals("java.lang.StringBuilder") || className.equals("java.lang.StringBuffer"))
+					&& name.equals("append") && signature.startsWith("(Ljava/lang/Object;)");
+		} else if (i.opcode == Constants.INVOKESTATIC) {
+			return className.equals("java.lang.String") && name.equals("valueOf") && signature.startsWith("(Ljava/lang/Object;)");
+		}
+		return false;
+	}
+
 	public InstructionList getNonTestAdviceInstructions(BcelShadow shadow) {
 		return new InstructionList(Utility.createInvoke(shadow.getFactory(), shadow.getWorld(), getOriginalSignature()));
 	}
@@ -0,0 +1,49 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+
+package org.aspectj.weaver.bcel;
+
+import org.aspectj.apache.bcel.generic.Instruction;
+import org.aspectj.apache.bcel.generic.InstructionFactory;
+import org.aspectj.apache.bcel.generic.InstructionList;
+import org.aspectj.apache.bcel.generic.InvokeDynamic;
+import org.aspectj.weaver.ResolvedType;
+
+/**
+ * A value that is loaded by an invokedynamic call site taking no arguments, in the same way as a BcelFieldRef is loaded from a
+ * static field. It cannot be stored to.
+ */
+public class BcelCallSiteRef extends BcelVar {
+
+	private final int callSiteIndex;
+
+	/**
+	 * @param callSiteIndex constant pool index of the CONSTANT_InvokeDynamic for the call site
+	 */
+	public BcelCallSiteRef(ResolvedType type, int callSiteIndex) {
+		super(type, 0);
+		this.callSiteIndex = callSiteIndex;
+	}
+
+	public String toString() {
+		return "BcelCallSiteRef(" + getType() + " #" + callSiteIndex + ")";
+	}
+
+	public Instruction createLoad(InstructionFactory fact) {
+		return new InvokeDynamic(callSiteIndex, 0);
+	}
+
+	public Instruction createStore(InstructionFactory fact) {
+		throw new RuntimeException("unimplemented");
+	}
+
+	public InstructionList createCopyFrom(InstructionFactory fact, int oldSlot) {
+		throw new RuntimeException("unimplemented");
+	}
+}
@@ -27,7 +27,12 @@ import java.util.Properties;
 import java.util.Set;
 
 import org.aspectj.apache.bcel.Constants;
+import org.aspectj.apache.bcel.classfile.Code;
+import org.aspectj.apache.bcel.classfile.CodeException;
+import org.aspectj.apache.bcel.classfile.ConstantCP;
+import org.aspectj.apache.bcel.classfile.ConstantNameAndType;
 import org.aspectj.apache.bcel.classfile.ConstantPool;
+import org.aspectj.apache.bcel.classfile.ConstantUtf8;
 import org.aspectj.apache.bcel.classfile.Method;
 import org.aspectj.apache.bcel.classfile.annotation.AnnotationGen;
 import org.aspectj.apache.bcel.generic.FieldGen;
@@ -464,7 +469,10 @@ class BcelClassWeaver implements IClassWeaver {
 		// this will create a static initializer if there isn't one
 		// this is in just as bad taste as NOPs
 		LazyMethodGen staticInit = clazz.getStaticInitializer();
-		staticInit.getBody().insert(genInitInstructions(addedClassInitializers, true));
+		if (!addedClassInitializers.isEmpty()) {
+			// only unpack it if there is something to add
+			staticInit.getBody().insert(genInitInstructions(addedClassInitializers, true));
+		}
 
 		// now go through each method, and match against each method. This
 		// sets up each method's {@link LazyMethodGen#matchedShadows} field,
@@ -508,6 +516,10 @@ class BcelClassWeaver implements IClassWeaver {
 			positionAndImplement(initializationShadows);
 		}
 
+		if (world.shouldShareAroundClosures()) {
+			clazz.shareIdenticalAroundClosures();
+		}
+
 		// now proceed with late type mungers
 		if (lateTypeMungers != null) {
 			for (Iterator<ConcreteTypeMunger> i = lateTypeMungers.iterator(); i.hasNext();) {
@@ -2602,6 +2614,8 @@ class BcelClassWeaver implements IClassWeaver {
 		} else if (!shouldWeaveBody(mg)) {
 			return false;
 		} else {
+			// only unpack the body if a raw scan of it finds something that could be a shadow
+			boolean walkBody = canMatchBodyShadows && mayContainBodyShadows(mg);
 			if (startsAngly && mg.getName().equals("<clinit>")) {
 				// clinitShadow =
 				enclosingShadow = BcelShadow.makeStaticInitialization(world, mg);
@@ -2615,7 +2629,7 @@ class BcelClassWeaver implements IClassWeaver {
 					if (isOverweaving && mg.getName().startsWith(NameMangler.PREFIX)) {
 						return false;
 					}
-					enclosingShadow = BcelShadow.makeMethodExecution(world, mg, !canMatchBodyShadows);
+					enclosingShadow = BcelShadow.makeMethodExecution(world, mg, !walkBody);
 				} else if (effective.isWeaveBody()) {
 					ResolvedMember rm = effective.getEffectiveSignature();
 
@@ -2634,7 +2648,7 @@ class BcelClassWeaver implements IClassWeaver {
 				}
 			}
 
-			if (canMatchBodyShadows) {
+			if (walkBody) {
 				for (InstructionHandle h = mg.getBody().getStart(); h != null; h = h.getNext()) {
 					match(mg, h, enclosingShadow, shadowAccumulator);
 				}
@@ -2652,6 +2666,134 @@ class BcelClassWeaver implements IClassWeaver {
 		}
 	}
 
+	/**
+	 * Scan the byte code of a method that has not been unpacked yet for anything match(LazyMethodGen, InstructionHandle, ...)
+	 * could make a shadow of that one of the indexed shadow mungers could apply to: a handler with a catch type, a field access or
+	 * an invoke of a kind that is indexed (and, through the constant pool, not of an ajc$ field or a super call), an array
+	 * creation or a monitor instruction when those join points are on. Unpacking a method into an InstructionList is the expensive
+	 * part of matching, most methods have nothing to match and need never be unpacked. The scan errs on the side of saying yes, a
+	 * method that has already been unpacked (or changed) is always walked.
+	 */
+	private boolean mayContainBodyShadows(LazyMethodGen mg) {
+		if (!mg.isUnchanged()) {
+			return true;
+		}
+		Code code = mg.getMethod().getCode();
+		if (code == null) {
+			return false;
+		}
+		if (canMatch(Shadow.ExceptionHandler)) {
+			CodeException[] handlers = code.getExceptionTable();
+			for (int i = 0; i < handlers.length; i++) {
+				if (handlers[i].getCatchType() != 0) {
+					return true;
+				}
+			}
+		}
+		boolean arrayConstruction = world.isJoinpointArrayConstructionEnabled() && canMatch(Shadow.ConstructorCall);
+		boolean synchronization = world.isJoinpointSynchronizationEnabled();
+		byte[] bytes = code.getCode();
+		int pc = 0;
+		while (pc < bytes.length) {
+			int opcode = bytes[pc] & 0xff;
+			switch (opcode) {
+			case Constants.GETFIELD:
+			case Constants.GETSTATIC:
+				if (canMatch(Shadow.FieldGet) && !isSyntheticName(constantIndexAt(bytes, pc))) {
+					return true;
+				}
+				break;
+			case Constants.PUTFIELD:
+			case Constants.PUTSTATIC:
+				if (canMatch(Shadow.FieldSet) && !isSyntheticName(constantIndexAt(bytes, pc))) {
+					return true;
+				}
+				break;
+			case Constants.INVOKEVIRTUAL:
+			case Constants.INVOKESPECIAL:
+			case Constants.INVOKESTATIC:
+			case Constants.INVOKEINTERFACE:
+				if (mayBeInvokeShadow(mg, opcode, constantIndexAt(bytes, pc))) {
+					return true;
+				}
+				break;
+			case Constants.NEWARRAY:
+			case Constants.ANEWARRAY:
+			case Constants.MULTIANEWARRAY:
+				if (arrayConstruction) {
+					return true;
+				}
+				break;
+			case Constants.MONITORENTER:
+			case Constants.MONITOREXIT:
+				if (synchronization) {
+					return true;
+				}
+				break;
+			}
+			pc += instructionLength(bytes, pc);
+		}
+		return false;
+	}
+
+	private boolean mayBeInvokeShadow(LazyMethodGen mg, int opcode, int index) {
+		String name = memberName(index);
+		if (name.startsWith(NameMangler.PREFIX)) {
+			// may stand for a field access or an inter-type member, see matchInvokeInstruction()
+			return true;
+		} else if (name.equals("<init>")) {
+			return canMatch(Shadow.ConstructorCall);
+		} else if (!canMatch(Shadow.MethodCall)) {
+			return false;
+		} else if (opcode == Constants.INVOKESPECIAL) {
+			// only calls to our own private methods, super calls are not join points
+			String onTypeName = cpg.getConstantString(((ConstantCP) cpg.getConstant(index)).getClassIndex(),
+					Constants.CONSTANT_Class);
+			return onTypeName.replace('/', '.').equals(mg.getEnclosingClass().getName());
+		}
+		return true;
+	}
+
+	private boolean isSyntheticName(int index) {
+		return memberName(index).startsWith(NameMangler.PREFIX);
+	}
+
+	private String memberName(int index) {
+		ConstantCP member = (ConstantCP) cpg.getConstant(index);
+		ConstantNameAndType nameAndType = (ConstantNameAndType) cpg.getConstant(member.getNameAndTypeIndex());
+		return ((ConstantUtf8) cpg.getConstant(nameAndType.getNameIndex())).getValue();
+	}
+
+	private static int constantIndexAt(byte[] bytes, int pc) {
+		return ((bytes[pc + 1] & 0xff) << 8) | (bytes[pc + 2] & 0xff);
+	}
+
+	private static int readInt(byte[] bytes, int pos) {
+		return ((bytes[pos] & 0xff) << 24) | ((bytes[pos + 1] & 0xff) << 16) | ((bytes[pos + 2] & 0xff) << 8)
+				| (bytes[pos + 3] & 0xff);
+	}
+
+	private static int instructionLength(byte[] bytes, int pc) {
+		int opcode = bytes[pc] & 0xff;
+		switch (opcode) {
+		case Constants.TABLESWITCH: {
+			int pos = (pc + 4) & ~3; // the default offset is 4 byte aligned
+			int low = readInt(bytes, pos + 4);
+			int high = readInt(bytes, pos + 8);
+			return pos + 12 + (high - low + 1) * 4 - pc;
+		}
+		case Constants.LOOKUPSWITCH: {
+			int pos = (pc + 4) & ~3;
+			int npairs = readInt(bytes, pos + 4);
+			return pos + 8 + npairs * 8 - pc;
+		}
+		case Constants.WIDE:
+			return (bytes[pc + 1] & 0xff) == Constants.IINC ? 6 : 4;
+		default:
+			return Constants.iLen[opcode];
+		}
+	}
+
 	private boolean matchInit(LazyMethodGen mg, List<BcelShadow> shadowAccumulator) {
 		BcelShadow enclosingShadow;
 		// XXX the enclosing join point is wrong for things before ignoreMe.
@@ -2982,14 +3124,8 @@ class BcelClassWeaver implements IClassWeaver {
 	 * believe there is only one member with that name in the type as it returns the first one it finds.
 	 */
 	private ResolvedMember findResolvedMemberNamed(ResolvedType type, String methodName) {
-		ResolvedMember[] allMethods = type.getDeclaredMethods();
-		for (int i = 0; i < allMethods.length; i++) {
-			ResolvedMember member = allMethods[i];
-			if (member.getName().equals(methodName)) {
-				return member;
-			}
-		}
-		return null;
+		ResolvedMember[] namedMethods = type.getDeclaredMethodsNamed(methodName);
+		return namedMethods.length == 0 ? null : namedMethods[0];
 	}
 
 	/**
@@ -3000,14 +3136,12 @@ class BcelClassWeaver implements IClassWeaver {
 	 * @param params the method parameters that the discovered method should have
 	 */
 	private ResolvedMember findResolvedMemberNamed(ResolvedType type, String methodName, UnresolvedType[] params) {
-		ResolvedMember[] allMethods = type.getDeclaredMethods();
+		ResolvedMember[] namedMethods = type.getDeclaredMethodsNamed(methodName);
 		List<ResolvedMember> candidates = new ArrayList<ResolvedMember>();
-		for (int i = 0; i < allMethods.length; i++) {
-			ResolvedMember candidate = allMethods[i];
-			if (candidate.getName().equals(methodName)) {
-				if (candidate.getArity() == params.length) {
-					candidates.add(candidate);
-				}
+		for (int i = 0; i < namedMethods.length; i++) {
+			ResolvedMember candidate = namedMethods[i];
+			if (candidate.getArity() == params.length) {
+				candidates.add(candidate);
 			}
 		}
 
@@ -3283,12 +3417,29 @@ class BcelClassWeaver implements IClassWeaver {
 
 		// A preceeds B iff B.getStart() is LATER THAN A.getStart().
 
+		int inlineSizeThreshold = world.getInlineSizeThreshold();
+		if (inlineSizeThreshold > 0) {
+			// the shadows use this to decide whether to outline their advice dispatch
+			mg.codeSizeBeforeWeaving = mg.getCodeSize();
+		}
 		for (BcelShadow shadow : shadows) {
 			ContextToken tok = CompilationAndWeavingContext.enteringPhase(CompilationAndWeavingContext.IMPLEMENTING_ON_SHADOW,
 					shadow);
 			shadow.implement();
 			CompilationAndWeavingContext.leavingPhase(tok);
 		}
+		if (inlineSizeThreshold > 0) {
+			int codeSize = mg.getCodeSize();
+			if (mg.codeSizeBeforeWeaving <= inlineSizeThreshold && codeSize > inlineSizeThreshold) {
+				BcelMethod memberView = mg.getMemberView();
+				world.getLint().methodNoLongerInlineable.signal(
+						new String[] { memberView == null ? mg.getName() : memberView.toString(),
+								Integer.toString(mg.codeSizeBeforeWeaving), Integer.toString(codeSize),
+								Integer.toString(inlineSizeThreshold) }, memberView == null ? null : memberView.getSourceLocation(),
+						null);
+			}
+			mg.codeSizeBeforeWeaving = -1;
+		}
 		// int ii =
 		mg.getMaxLocals();
 		mg.matchedShadows = null;
@@ -572,6 +572,7 @@ public class BcelObjectType extends AbstractReferenceTypeDelegate {
 		return getResolvedTypeX().isSynthetic();
 	}
 
+	@Override
 	public AjAttribute.WeaverVersionInfo getWeaverVersionAttribute() {
 		return wvInfo;
 	}
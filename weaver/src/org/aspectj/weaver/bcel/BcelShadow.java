@@ -17,14 +17,19 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import org.aspectj.apache.bcel.Constants;
 import org.aspectj.apache.bcel.classfile.ConstantPool;
 import org.aspectj.apache.bcel.classfile.Field;
 import org.aspectj.apache.bcel.generic.ArrayType;
+import org.aspectj.apache.bcel.generic.FieldGen;
 import org.aspectj.apache.bcel.generic.FieldInstruction;
 import org.aspectj.apache.bcel.generic.INVOKEINTERFACE;
 import org.aspectj.apache.bcel.generic.Instruction;
@@ -34,15 +39,19 @@ import org.aspectj.apache.bcel.generic.InstructionFactory;
 import org.aspectj.apache.bcel.generic.InstructionHandle;
 import org.aspectj.apache.bcel.generic.InstructionLV;
 import org.aspectj.apache.bcel.generic.InstructionList;
+import org.aspectj.apache.bcel.generic.InstructionSelect;
 import org.aspectj.apache.bcel.generic.InstructionTargeter;
 import org.aspectj.apache.bcel.generic.InvokeInstruction;
 import org.aspectj.apache.bcel.generic.LineNumberTag;
 import org.aspectj.apache.bcel.generic.LocalVariableTag;
 import org.aspectj.apache.bcel.generic.MULTIANEWARRAY;
 import org.aspectj.apache.bcel.generic.ObjectType;
+import org.aspectj.apache.bcel.generic.RET;
+import org.aspectj.apache.bcel.generic.Tag;
 import org.aspectj.apache.bcel.generic.TargetLostException;
 import org.aspectj.apache.bcel.generic.Type;
 import org.aspectj.bridge.ISourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
 import org.aspectj.weaver.Advice;
 import org.aspectj.weaver.AdviceKind;
 import org.aspectj.weaver.AjcMemberMaker;
@@ -968,6 +977,7 @@ public class BcelShadow extends Shadow {
 	private BcelVar thisJoinPointVar = null;
 	private boolean isThisJoinPointLazy;
 	private int lazyTjpConsumers = 0;
+	private boolean hasUnguardedTjpConsumer = false;
 	private BcelVar thisJoinPointStaticPartVar = null;
 
 	// private BcelVar thisEnclosingJoinPointStaticPartVar = null;
@@ -984,10 +994,14 @@ public class BcelShadow extends Shadow {
 
 	public void requireThisJoinPoint(boolean hasGuardTest, boolean isAround) {
 		if (!isAround) {
-			if (!hasGuardTest) {
+			if (!hasGuardTest && !mayOutlineAdviceDispatch()) {
 				isThisJoinPointLazy = false;
 			} else {
+				// building it lazily lets it be built in the outlined dispatch, rather than in the method
 				lazyTjpConsumers++;
+				if (!hasGuardTest) {
+					hasUnguardedTjpConsumer = true;
+				}
 			}
 		}
 		// if (!hasGuardTest) {
@@ -1014,6 +1028,10 @@ public class BcelShadow extends Shadow {
 		if (isThisJoinPointLazy) {
 			isThisJoinPointLazy = checkLazyTjp();
 		}
+		// a lazy tjp for more than one consumer is shared through a local, which stops the dispatches being outlined
+		if (isThisJoinPointLazy && hasUnguardedTjpConsumer && lazyTjpConsumers > 1) {
+			isThisJoinPointLazy = false;
+		}
 
 		if (isThisJoinPointLazy) {
 			appliedLazyTjpOptimization = true;
@@ -1141,7 +1159,6 @@ public class BcelShadow extends Shadow {
 	 */
 	public BcelVar getThisJoinPointStaticPartBcelVar(final boolean isEnclosingJp) {
 		if (thisJoinPointStaticPartVar == null) {
-			Field field = getEnclosingClass().getTjpField(this, isEnclosingJp);
 			ResolvedType sjpType = null;
 			if (world.isTargettingAspectJRuntime12()) { // TAG:SUPPORTING12: We didn't have different jpsp types in 1.2
 				sjpType = world.getCoreType(UnresolvedType.JOINPOINT_STATICPART);
@@ -1149,7 +1166,13 @@ public class BcelShadow extends Shadow {
 				sjpType = isEnclosingJp ? world.getCoreType(UnresolvedType.JOINPOINT_ENCLOSINGSTATICPART) : world
 						.getCoreType(UnresolvedType.JOINPOINT_STATICPART);
 			}
-			thisJoinPointStaticPartVar = new BcelFieldRef(sjpType, getEnclosingClass().getClassName(), field.getName());
+			if (getEnclosingClass().canUseStaticPartCallSite(this)) {
+				int callSite = getEnclosingClass().getStaticPartCallSite(this, isEnclosingJp);
+				thisJoinPointStaticPartVar = new BcelCallSiteRef(sjpType, callSite);
+			} else {
+				Field field = getEnclosingClass().getTjpField(this, isEnclosingJp);
+				thisJoinPointStaticPartVar = new BcelFieldRef(sjpType, getEnclosingClass().getClassName(), field.getName());
+			}
 			// getEnclosingClass().warnOnAddedStaticInitializer(this,munger.getSourceLocation());
 		}
 		return thisJoinPointStaticPartVar;
@@ -1683,7 +1706,163 @@ public class BcelShadow extends Shadow {
 	// ---- weave methods
 
 	void weaveBefore(BcelAdvice munger) {
-		range.insert(munger.getAdviceInstructions(this, null, range.getRealStart()), Range.InsideBefore);
+		range.insert(getAdviceDispatchInstructions(munger, null, range.getRealStart()), Range.InsideBefore);
+	}
+
+	/**
+	 * Get the instructions that test for and dispatch to the advice, see BcelAdvice.getAdviceInstructions(). If weaving them in
+	 * would take a method that the JIT could inline past the inline size threshold (see World.getInlineSizeThreshold()), they are
+	 * moved into a new static method of the class, and only a call to that is returned.
+	 */
+	private InstructionList getAdviceDispatchInstructions(BcelAdvice munger, BcelVar extraArgVar, InstructionHandle ifNoAdvice) {
+		InstructionList dispatch = munger.getAdviceInstructions(this, extraArgVar, ifNoAdvice);
+		if (shouldOutlineAdviceDispatch(dispatch)) {
+			InstructionList call = outlineAdviceDispatch(munger, dispatch, extraArgVar, ifNoAdvice);
+			if (call != null) {
+				return call;
+			}
+		}
+		return dispatch;
+	}
+
+	private boolean shouldOutlineAdviceDispatch(InstructionList dispatch) {
+		return mayOutlineAdviceDispatch()
+				&& enclosingMethod.getCodeSize() + LazyMethodGen.getCodeSize(dispatch) > world.getInlineSizeThreshold();
+	}
+
+	/**
+	 * @return true if the enclosing method was small enough for the JIT to inline before weaving, and advice dispatch in this
+	 *         shadow can be moved out of it
+	 */
+	private boolean mayOutlineAdviceDispatch() {
+		int threshold = world.getInlineSizeThreshold();
+		int sizeBeforeWeaving = enclosingMethod.codeSizeBeforeWeaving;
+		if (threshold <= 0 || sizeBeforeWeaving < 0 || sizeBeforeWeaving > threshold) {
+			return false;
+		}
+		if (getEnclosingClass().isInterface() || getKind() == PreInitialization) {
+			return false;
+		}
+		// before the super call 'this' cannot be passed to another method
+		return !enclosingMethod.getName().equals("<init>") || getKind() == ConstructorExecution || getKind() == Initialization;
+	}
+
+	/**
+	 * Move the dispatch instructions into a new private static method of the class, which takes the locals they read, and return
+	 * the instructions that call it instead. The dispatch must only read locals that hold the context of this shadow, and only
+	 * branch within itself or to ifNoAdvice (which becomes a return), otherwise null is returned and nothing is changed.
+	 */
+	private InstructionList outlineAdviceDispatch(BcelAdvice munger, InstructionList dispatch, BcelVar extraArgVar,
+			InstructionHandle ifNoAdvice) {
+		Map<Integer, BcelVar> contextVars = new HashMap<Integer, BcelVar>();
+		if (thisVar != null) {
+			contextVars.put(thisVar.getSlot(), thisVar);
+		}
+		if (targetVar != null) {
+			contextVars.put(targetVar.getSlot(), targetVar);
+		}
+		if (argVars != null) {
+			for (BcelVar argVar : argVars) {
+				contextVars.put(argVar.getSlot(), argVar);
+			}
+		}
+		if (thisJoinPointVar != null) {
+			contextVars.put(thisJoinPointVar.getSlot(), thisJoinPointVar);
+		}
+		if (extraArgVar != null) {
+			contextVars.put(extraArgVar.getSlot(), extraArgVar);
+		}
+
+		Set<InstructionHandle> handles = new HashSet<InstructionHandle>();
+		for (InstructionHandle ih = dispatch.getStart(); ih != null; ih = ih.getNext()) {
+			handles.add(ih);
+		}
+		SortedMap<Integer, BcelVar> readVars = new TreeMap<Integer, BcelVar>();
+		for (InstructionHandle ih = dispatch.getStart(); ih != null; ih = ih.getNext()) {
+			Instruction inst = ih.getInstruction();
+			if (inst.isLocalVariableInstruction() || inst instanceof RET) {
+				BcelVar var = contextVars.get(inst.getIndex());
+				if (var == null || !inst.isLoadInstruction()) {
+					return null;
+				}
+				readVars.put(inst.getIndex(), var);
+			} else if (inst instanceof InstructionSelect) {
+				return null;
+			} else if (inst instanceof InstructionBranch) {
+				InstructionHandle target = ((InstructionBranch) inst).getTarget();
+				if (target != ifNoAdvice && !handles.contains(target)) {
+					return null;
+				}
+			}
+		}
+
+		List<Type> parameterTypes = new ArrayList<Type>();
+		Map<Integer, Integer> slots = new HashMap<Integer, Integer>();
+		int slot = 0;
+		for (BcelVar var : readVars.values()) {
+			slots.put(var.getSlot(), slot);
+			parameterTypes.add(BcelWorld.makeBcelType(var.getType()));
+			slot += var.getType().getSize();
+		}
+		Type[] parameterTypesArray = parameterTypes.toArray(new Type[parameterTypes.size()]);
+		LazyClassGen clazz = getEnclosingClass();
+		String name = NameMangler.adviceDispatchMethodName(getSignature(), clazz.getNewGeneratedNameTag());
+		int modifiers = (world.useFinal() ? Modifier.FINAL : 0) | Modifier.PRIVATE | Modifier.STATIC;
+		LazyMethodGen dispatchMethod = new LazyMethodGen(modifiers, Type.VOID, name, parameterTypesArray, NoDeclaredExceptions,
+				clazz);
+		dispatchMethod.makeSynthetic();
+
+		// copy the instructions across, then fix up their branches and locals
+		InstructionList body = dispatchMethod.getBody();
+		Map<InstructionHandle, InstructionHandle> copies = new HashMap<InstructionHandle, InstructionHandle>();
+		for (InstructionHandle ih = dispatch.getStart(); ih != null; ih = ih.getNext()) {
+			Instruction copy = Utility.copyInstruction(ih.getInstruction());
+			if (copy.isLocalVariableInstruction()) {
+				copy = ((InstructionLV) copy).setIndexAndCopyIfNecessary(slots.get(copy.getIndex()));
+			}
+			InstructionHandle copyHandle;
+			if (copy instanceof InstructionBranch) {
+				copyHandle = body.append((InstructionBranch) copy);
+			} else {
+				copyHandle = body.append(copy);
+			}
+			copies.put(ih, copyHandle);
+		}
+		InstructionHandle end = body.append(InstructionConstants.RETURN);
+		for (InstructionHandle copyHandle : copies.values()) {
+			Instruction copy = copyHandle.getInstruction();
+			if (copy instanceof InstructionBranch) {
+				InstructionBranch branch = (InstructionBranch) copy;
+				InstructionHandle target = branch.getTarget();
+				branch.setTarget(target == ifNoAdvice ? end : copies.get(target));
+			}
+		}
+		// the dispatch is dropped, so it must no longer target anything in the method
+		for (InstructionHandle ih = dispatch.getStart(); ih != null; ih = ih.getNext()) {
+			if (ih.getInstruction() instanceof InstructionBranch) {
+				((InstructionBranch) ih.getInstruction()).setTarget(null);
+			}
+		}
+		int sourceLine = getSourceLine();
+		if (sourceLine > 0) {
+			body.getStart().addTargeter(new LineNumberTag(sourceLine));
+		}
+		clazz.addMethodGen(dispatchMethod, munger.getSourceLocation());
+
+		InstructionFactory fact = getFactory();
+		InstructionList call = new InstructionList();
+		for (BcelVar var : readVars.values()) {
+			var.appendLoad(call, fact);
+		}
+		call.append(fact.createInvoke(clazz.getName(), name, Type.VOID, parameterTypesArray, Constants.INVOKESTATIC));
+		// line numbers and local variable starts stay with the first instruction, see BcelAdvice.getAdviceInstructions()
+		InstructionHandle start = dispatch.getStart();
+		for (InstructionTargeter targeter : start.getTargetersCopy()) {
+			if (targeter instanceof Tag) {
+				targeter.updateTarget(start, call.getStart());
+			}
+		}
+		return call;
 	}
 
 	public void weaveAfter(BcelAdvice munger) {
@@ -1807,7 +1986,7 @@ public class BcelShadow extends Shadow {
 		if (munger.hasExtraParameter()) {
 			tempVar = insertAdviceInstructionsForBindingReturningParameter(advice);
 		}
-		advice.append(munger.getAdviceInstructions(this, tempVar, firstInstructionInReturnSequence));
+		advice.append(getAdviceDispatchInstructions(munger, tempVar, firstInstructionInReturnSequence));
 		return advice;
 	}
 
@@ -1900,7 +2079,7 @@ public class BcelShadow extends Shadow {
 		}
 
 		InstructionList endHandler = new InstructionList(exceptionVar.createLoad(fact));
-		handler.append(munger.getAdviceInstructions(this, exceptionVar, endHandler.getStart()));
+		handler.append(getAdviceDispatchInstructions(munger, exceptionVar, endHandler.getStart()));
 		handler.append(endHandler);
 		handler.append(InstructionConstants.ATHROW);
 		InstructionHandle handlerStart = handler.getStart();
@@ -2835,8 +3014,25 @@ public class BcelShadow extends Shadow {
 		String closureClassName = NameMangler.makeClosureClassName(getEnclosingClass().getType(), getEnclosingClass()
 				.getNewGeneratedNameTag());
 
-		Member constructorSig = new MemberImpl(Member.CONSTRUCTOR, UnresolvedType.forName(closureClassName), 0, "<init>",
-				"([Ljava/lang/Object;)V");
+		// ATAJ for @AJ aspect we need to link the closure with the joinpoint instance, which proceeds with the state array
+		boolean linksJoinPoint = munger.getConcreteAspect() != null && munger.getConcreteAspect().isAnnotationStyleAspect()
+				&& munger.getDeclaringAspect() != null && munger.getDeclaringAspect().resolve(world).isAnnotationStyleAspect();
+
+		// a typed closure keeps the state in fields of its own, so creating it needs no state array
+		boolean typedClosure = getKind() != PreInitialization && !linksJoinPoint && world.shouldGenerateTypedAroundClosures();
+
+		Member constructorSig;
+		if (typedClosure) {
+			StringBuilder sig = new StringBuilder("(");
+			for (Type stateType : callbackMethod.getArgumentTypes()) {
+				sig.append(stateType.getSignature());
+			}
+			constructorSig = new MemberImpl(Member.CONSTRUCTOR, UnresolvedType.forName(closureClassName), 0, "<init>", sig
+					.append(")V").toString());
+		} else {
+			constructorSig = new MemberImpl(Member.CONSTRUCTOR, UnresolvedType.forName(closureClassName), 0, "<init>",
+					"([Ljava/lang/Object;)V");
+		}
 
 		BcelVar closureHolder = null;
 
@@ -2846,10 +3042,23 @@ public class BcelShadow extends Shadow {
 			closureHolder = genTempVar(AjcMemberMaker.AROUND_CLOSURE_TYPE);
 		}
 
-		InstructionList closureInstantiation = makeClosureInstantiation(constructorSig, closureHolder);
-
-		/* LazyMethodGen constructor = */
-		makeClosureClassAndReturnConstructor(closureClassName, callbackMethod, makeProceedArgumentMap(adviceVars));
+		InstructionList closureInstantiation;
+		LazyMethodGen closureConstructor;
+		IntMap proceedMap;
+		if (typedClosure) {
+			closureInstantiation = makeTypedClosureInstantiation(constructorSig, callbackMethod.getArgumentTypes());
+			proceedMap = makeProceedArgumentMap(adviceVars);
+			closureConstructor = makeTypedClosureClass(closureClassName, callbackMethod, proceedMap, munger
+					.getBaseParameterCount());
+		} else {
+			closureInstantiation = makeClosureInstantiation(constructorSig, closureHolder);
+			proceedMap = makeProceedArgumentMap(adviceVars);
+			closureConstructor = makeClosureClassAndReturnConstructor(closureClassName, callbackMethod, proceedMap);
+		}
+		if (getKind() != PreInitialization && world.shouldShareAroundClosures()) {
+			String shape = (typedClosure ? "typed" + munger.getBaseParameterCount() : "array") + proceedMap;
+			getEnclosingClass().addAroundClosure(callbackMethod, closureConstructor.getEnclosingClass(), shape);
+		}
 
 		InstructionList returnConversionCode;
 		if (getKind() == PreInitialization) {
@@ -2914,9 +3123,7 @@ public class BcelShadow extends Shadow {
 			bitflags |= 0x000001;
 		}
 
-		// ATAJ for @AJ aspect we need to link the closure with the joinpoint instance
-		if (munger.getConcreteAspect() != null && munger.getConcreteAspect().isAnnotationStyleAspect()
-				&& munger.getDeclaringAspect() != null && munger.getDeclaringAspect().resolve(world).isAnnotationStyleAspect()) {
+		if (linksJoinPoint) {
 			// stick the bitflags on the stack and call the variant of linkClosureAndJoinPoint that takes an int
 			closureInstantiation.append(fact.createConstant(Integer.valueOf(bitflags)));
 			closureInstantiation.append(Utility.createInvoke(getFactory(), getWorld(),
@@ -3017,6 +3224,38 @@ public class BcelShadow extends Shadow {
 		return il;
 	}
 
+	/**
+	 * Like makeClosureInstantiation() but passes the state straight to the constructor of a typed closure.
+	 * 
+	 * @param stateTypes the types of the state, which are those of the parameters of the callback method
+	 */
+	private InstructionList makeTypedClosureInstantiation(Member constructor, Type[] stateTypes) {
+		InstructionFactory fact = getFactory();
+		final InstructionList il = new InstructionList();
+		il.append(fact.createNew(new ObjectType(constructor.getDeclaringType().getName())));
+		il.append(InstructionConstants.DUP);
+		int stateIndex = 0;
+		if (thisVar != null) {
+			appendTypedClosureState(il, fact, thisVar, stateTypes[stateIndex], stateIndex++);
+		}
+		if (targetVar != null && targetVar != thisVar) {
+			appendTypedClosureState(il, fact, targetVar, stateTypes[stateIndex], stateIndex++);
+		}
+		for (int i = 0, len = getArgCount(); i < len; i++) {
+			appendTypedClosureState(il, fact, argVars[i], stateTypes[stateIndex], stateIndex++);
+		}
+		if (thisJoinPointVar != null) {
+			appendTypedClosureState(il, fact, thisJoinPointVar, stateTypes[stateIndex], stateIndex++);
+		}
+		il.append(Utility.createInvoke(fact, world, constructor));
+		return il;
+	}
+
+	private void appendTypedClosureState(InstructionList il, InstructionFactory fact, BcelVar var, Type stateType, int stateIndex) {
+		var.appendLoadAndConvert(il, fact, BcelWorld.fromBcel(stateType).resolve(world));
+		var.setPositionInAroundState(stateIndex);
+	}
+
 	private IntMap makeProceedArgumentMap(BcelVar[] adviceArgs) {
 		// System.err.println("coming in with " + Arrays.asList(adviceArgs));
 
@@ -3108,6 +3347,99 @@ public class BcelShadow extends Shadow {
 		return constructor;
 	}
 
+	/**
+	 * Like makeClosureClassAndReturnConstructor() but the closure keeps each piece of state in a field of its own type, which its
+	 * constructor sets, so nothing is boxed or put in an array when the closure is created. Where the advice has few enough
+	 * arguments the closure also overrides the matching AroundClosure.runN(), so that a proceed call that uses it needs no array
+	 * either.
+	 * 
+	 * @param callbackMethod the method we will call back to when our run method gets called.
+	 * @param proceedMap A map from state position to proceed argument position. May be non covering on state position.
+	 * @param proceedArgCount the number of arguments a proceed call passes to the closure
+	 */
+	private LazyMethodGen makeTypedClosureClass(String closureClassName, LazyMethodGen callbackMethod, IntMap proceedMap,
+			int proceedArgCount) {
+		String superClassName = "org.aspectj.runtime.internal.AroundClosure";
+		Type objectArrayType = new ArrayType(Type.OBJECT, 1);
+		Type[] stateTypes = callbackMethod.getArgumentTypes();
+
+		LazyClassGen closureClass = new LazyClassGen(closureClassName, superClassName, getEnclosingClass().getFileName(),
+				Modifier.PUBLIC, new String[] {}, getWorld());
+		InstructionFactory fact = new InstructionFactory(closureClass.getConstantPool());
+
+		String[] stateFieldNames = new String[stateTypes.length];
+		for (int i = 0; i < stateTypes.length; i++) {
+			stateFieldNames[i] = NameMangler.PREFIX + "state" + i;
+			closureClass.addField(new FieldGen(Modifier.PRIVATE | Modifier.FINAL, stateTypes[i], stateFieldNames[i], closureClass
+					.getConstantPool()), null);
+		}
+
+		// constructor
+		LazyMethodGen constructor = new LazyMethodGen(Modifier.PUBLIC, Type.VOID, "<init>", stateTypes, new String[] {},
+				closureClass);
+		InstructionList cbody = constructor.getBody();
+		cbody.append(InstructionFactory.createLoad(Type.OBJECT, 0));
+		cbody.append(fact.createInvoke(superClassName, "<init>", Type.VOID, Type.NO_ARGS, Constants.INVOKESPECIAL));
+		int slot = 1;
+		for (int i = 0; i < stateTypes.length; i++) {
+			cbody.append(InstructionFactory.createLoad(Type.OBJECT, 0));
+			cbody.append(InstructionFactory.createLoad(stateTypes[i], slot));
+			cbody.append(fact.createFieldAccess(closureClassName, stateFieldNames[i], stateTypes[i], Constants.PUTFIELD));
+			slot += stateTypes[i].getSize();
+		}
+		cbody.append(InstructionFactory.createReturn(Type.VOID));
+		closureClass.addMethodGen(constructor);
+
+		// run(Object[])
+		LazyMethodGen runMethod = new LazyMethodGen(Modifier.PUBLIC, Type.OBJECT, "run", new Type[] { objectArrayType },
+				new String[] {}, closureClass);
+		InstructionList mbody = runMethod.getBody();
+		BcelVar proceedVar = new BcelVar(UnresolvedType.OBJECTARRAY.resolve(world), 1);
+		for (int i = 0; i < stateTypes.length; i++) {
+			if (proceedMap.hasKey(i)) {
+				mbody.append(proceedVar.createConvertableArrayLoad(fact, proceedMap.get(i), BcelWorld.fromBcel(stateTypes[i])
+						.resolve(world)));
+			} else {
+				mbody.append(InstructionFactory.createThis());
+				mbody.append(fact.createFieldAccess(closureClassName, stateFieldNames[i], stateTypes[i], Constants.GETFIELD));
+			}
+		}
+		mbody.append(Utility.createInvoke(fact, callbackMethod));
+		mbody.append(Utility.createConversion(fact, callbackMethod.getReturnType(), Type.OBJECT));
+		mbody.append(InstructionFactory.createReturn(Type.OBJECT));
+		closureClass.addMethodGen(runMethod);
+
+		// runN(Object, ...), the proceed arguments are in slots 1..N
+		if (proceedArgCount <= AroundClosure.MAX_TYPED_RUN_ARITY) {
+			Type[] proceedArgTypes = new Type[proceedArgCount];
+			for (int i = 0; i < proceedArgCount; i++) {
+				proceedArgTypes[i] = Type.OBJECT;
+			}
+			LazyMethodGen runNMethod = new LazyMethodGen(Modifier.PUBLIC, Type.OBJECT, "run" + proceedArgCount, proceedArgTypes,
+					new String[] {}, closureClass);
+			InstructionList nbody = runNMethod.getBody();
+			for (int i = 0; i < stateTypes.length; i++) {
+				if (proceedMap.hasKey(i)) {
+					nbody.append(InstructionFactory.createLoad(Type.OBJECT, 1 + proceedMap.get(i)));
+					Utility.appendConversion(nbody, fact, world.getCoreType(UnresolvedType.OBJECT), BcelWorld.fromBcel(
+							stateTypes[i]).resolve(world));
+				} else {
+					nbody.append(InstructionFactory.createThis());
+					nbody.append(fact.createFieldAccess(closureClassName, stateFieldNames[i], stateTypes[i], Constants.GETFIELD));
+				}
+			}
+			nbody.append(Utility.createInvoke(fact, callbackMethod));
+			nbody.append(Utility.createConversion(fact, callbackMethod.getReturnType(), Type.OBJECT));
+			nbody.append(InstructionFactory.createReturn(Type.OBJECT));
+			closureClass.addMethodGen(runNMethod);
+		}
+
+		// class
+		getEnclosingClass().addGeneratedInner(closureClass);
+
+		return constructor;
+	}
+
 	// ---- extraction methods
 
 	/**
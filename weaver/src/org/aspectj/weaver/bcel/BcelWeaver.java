@@ -80,6 +80,7 @@ import org.aspectj.weaver.patterns.AndPointcut;
 import org.aspectj.weaver.patterns.BindingPattern;
 import org.aspectj.weaver.patterns.BindingTypePattern;
 import org.aspectj.weaver.patterns.ConcreteCflowPointcut;
+import org.aspectj.weaver.patterns.DecisionDiagramPointcut;
 import org.aspectj.weaver.patterns.DeclareAnnotation;
 import org.aspectj.weaver.patterns.DeclareParents;
 import org.aspectj.weaver.patterns.DeclareTypeErrorOrWarning;
@@ -602,7 +603,7 @@ public class BcelWeaver {
 		PointcutRewriter rewriter = new PointcutRewriter();
 		for (ShadowMunger munger : shadowMungers) {
 			Pointcut p = munger.getPointcut();
-			Pointcut newP = rewriter.rewrite(p);
+			Pointcut newP = rewriter.rewrite(p, world.getPointcutDecisionDiagramThreshold());
 			// validateBindings now whilst we still have around the pointcut
 			// that resembles what the user actually wrote in their program
 			// text.
@@ -675,6 +676,13 @@ public class BcelWeaver {
 			NotPointcut npc = (NotPointcut) p;
 			Pointcut not = shareEntriesFromMap(npc.getNegatedPointcut(), pcMap);
 			return new NotPointcut(not);
+		} else if (p instanceof DecisionDiagramPointcut) {
+			DecisionDiagramPointcut dpc = (DecisionDiagramPointcut) p;
+			Pointcut[] primitives = dpc.getPrimitives();
+			for (int i = 0; i < primitives.length; i++) {
+				primitives[i] = shareEntriesFromMap(primitives[i], pcMap);
+			}
+			return dpc.withPrimitives(primitives);
 		} else {
 			// primitive pcd
 			if (pcMap.containsKey(p)) { // based on equality
@@ -1013,6 +1021,11 @@ public class BcelWeaver {
 	private Set<IProgramElement> candidatesForRemoval = null;
 
 	// variation of "weave" that sources class files from an external source.
+	// Classes are woven one after another on the calling thread. Shadow ids and the last match remembered by a pointcut can be
+	// used from several threads, as can World.resolve(), but the per class step (fastMatch then BcelClassWeaver.weave) still
+	// shares state that cannot: inlining around advice unpacks the aspect's LazyClassGen and adds accessors to it, advice
+	// lazily caches what it works out about its aspect, and messages, lint and model relationships go to the World's message
+	// handler and AsmManager, which are not thread safe. So there is no parallel mode.
 	public Collection<String> weave(IClassFileProvider input) throws IOException {
 		if (trace.isTraceEnabled()) {
 			trace.enter("weave", this, input);
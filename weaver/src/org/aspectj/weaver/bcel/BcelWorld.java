@@ -57,6 +57,7 @@ import org.aspectj.weaver.AnnotationAJ;
 import org.aspectj.weaver.AnnotationOnTypeMunger;
 import org.aspectj.weaver.BCException;
 import org.aspectj.weaver.Checker;
+import org.aspectj.weaver.DemotedTypeDelegate;
 import org.aspectj.weaver.ICrossReferenceHandler;
 import org.aspectj.weaver.IWeavingSupport;
 import org.aspectj.weaver.Member;
@@ -93,6 +94,7 @@ public class BcelWorld extends World implements Repository {
 	private boolean isXmlConfiguredWorld = false;
 	private WeavingXmlConfig xmlConfiguration;
 	private List<TypeDelegateResolver> typeDelegateResolvers;
+	private WorldTypeLattice typeLattice;
 
 	private static Trace trace = TraceFactory.getTraceFactory().getTrace(BcelWorld.class);
 
@@ -104,6 +106,17 @@ public class BcelWorld extends World implements Repository {
 		this(makeDefaultClasspath(cp), IMessageHandler.THROW, null);
 	}
 
+	/**
+	 * @return the lattice used for the common superclass questions of stack map frame computation in this world, shared so that
+	 *         its answers are remembered across classes
+	 */
+	public synchronized WorldTypeLattice getTypeLattice() {
+		if (typeLattice == null) {
+			typeLattice = new WorldTypeLattice(this);
+		}
+		return typeLattice;
+	}
+
 	public IRelationship.Kind determineRelKind(ShadowMunger munger) {
 		AdviceKind ak = ((Advice) munger).getKind();
 		if (ak.getKey() == AdviceKind.Before.getKey()) {
@@ -406,6 +419,12 @@ public class BcelWorld extends World implements Repository {
 		}
 	}
 
+	@Override
+	protected boolean keepsSummaryWhenDemoted(ReferenceTypeDelegate delegate) {
+		// artificial types cannot be found again on the classpath
+		return delegate instanceof BcelObjectType && !((BcelObjectType) delegate).isArtificial();
+	}
+
 	public BcelObjectType buildBcelDelegate(ReferenceType type, JavaClass jc, boolean artificial, boolean exposedToWeaver) {
 		BcelObjectType ret = new BcelObjectType(type, jc, artificial, exposedToWeaver);
 		return ret;
@@ -435,7 +454,7 @@ public class BcelWorld extends World implements Repository {
 				return null;
 			}
 
-			ClassParser parser = new ClassParser(file.getInputStream(), file.getPath());
+			ClassParser parser = new ClassParser(file.getByteBuffer(), file.getPath());
 
 			JavaClass jc = parser.parse();
 			return jc;
@@ -529,6 +548,10 @@ public class BcelWorld extends World implements Repository {
 			}
 		} else {
 			Object o = nameTypeX.getDelegate();
+			if (o instanceof DemotedTypeDelegate) {
+				// rebuilt from a summary, build the real delegate from the bytes we have rather than going to the classpath
+				return buildBcelDelegate(nameTypeX, Utility.makeJavaClass(classname, bytes), artificial, true);
+			}
 			if (!(o instanceof BcelObjectType)) {
 				throw new IllegalStateException("For " + classname + " should be BcelObjectType, but is " + o.getClass());
 			}
@@ -557,7 +580,7 @@ public class BcelWorld extends World implements Repository {
 		ConstantPool cpg = cg.getConstantPool();
 		return MemberImpl.field(fi.getClassName(cpg),
 				(fi.opcode == Constants.GETSTATIC || fi.opcode == Constants.PUTSTATIC) ? Modifier.STATIC : 0, fi.getName(cpg),
-				fi.getSignature(cpg));
+				fi.getSignature(cpg), cg.getWorld());
 	}
 
 	public Member makeJoinPointSignatureFromMethod(LazyMethodGen mg, MemberKind kind) {
@@ -661,7 +684,7 @@ public class BcelWorld extends World implements Repository {
 				declaringType = UnresolvedType.forName(declaring);
 			}
 		}
-		return MemberImpl.method(declaringType, modifier, name, signature);
+		return MemberImpl.method(declaringType, modifier, name, signature, this);
 	}
 
 	@Override
@@ -685,6 +708,9 @@ public class BcelWorld extends World implements Repository {
 			return null;
 		}
 		ReferenceTypeDelegate rtDelegate = ((ReferenceType) concreteAspect).getDelegate();
+		if (rtDelegate instanceof DemotedTypeDelegate) {
+			rtDelegate = ((DemotedTypeDelegate) rtDelegate).inflate();
+		}
 		if (rtDelegate instanceof BcelObjectType) {
 			return (BcelObjectType) rtDelegate;
 		} else {
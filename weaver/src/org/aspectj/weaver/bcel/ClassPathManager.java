@@ -17,15 +17,25 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.aspectj.bridge.IMessageHandler;
 import org.aspectj.bridge.MessageUtil;
+import org.aspectj.util.FileUtil;
 import org.aspectj.weaver.BCException;
 import org.aspectj.weaver.UnresolvedType;
 import org.aspectj.weaver.WeaverMessages;
@@ -36,6 +46,9 @@ public class ClassPathManager {
 
 	private List<Entry> entries;
 
+	// For each package looked up so far, the entries that might contain it (in classpath order). Cleared when entries change.
+	private Map<String, Entry[]> packageEntries = new ConcurrentHashMap<String, Entry[]>();
+
 	// In order to control how many open files we have, we maintain a list.
 	// The max number is configured through the property:
 	// org.aspectj.weaver.openarchives
@@ -44,6 +57,19 @@ public class ClassPathManager {
 	private static int maxOpenArchives = -1;
 	private static final int MAXOPEN_DEFAULT = 1000;
 
+	// Jar indexes are immutable so one built by any ClassPathManager is shared with every other for the same jar, see JarIndex.
+	// Keyed by path, size and modification time. Bounded, the least recently used index goes first
+	private static final int MAX_SHARED_JAR_INDEXES = 1000;
+	private static final Map<String, JarIndex> sharedJarIndexes = Collections.synchronizedMap(new LinkedHashMap<String, JarIndex>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, JarIndex> eldest) {
+			return size() > MAX_SHARED_JAR_INDEXES;
+		}
+	});
+
 	private static Trace trace = TraceFactory.getTraceFactory().getTrace(ClassPathManager.class);
 
 	static {
@@ -84,32 +110,72 @@ public class ClassPathManager {
 			}
 			try {
 				entries.add(new ZipFileEntry(f));
+				packageEntries.clear();
 			} catch (IOException ioe) {
 				MessageUtil.warn(handler, WeaverMessages.format(WeaverMessages.ZIPFILE_ENTRY_INVALID, name, ioe.getMessage()));
 				return;
 			}
 		} else {
 			entries.add(new DirEntry(f));
+			packageEntries.clear();
 		}
 	}
 
 	public ClassFile find(UnresolvedType type) {
 		String name = type.getName();
-		for (Iterator<Entry> i = entries.iterator(); i.hasNext();) {
-			Entry entry = i.next();
+		Entry[] candidates = getEntriesFor(packageOf(name));
+		for (int i = 0; i < candidates.length; i++) {
+			Entry entry = candidates[i];
 			try {
 				ClassFile ret = entry.find(name);
 				if (ret != null)
 					return ret;
 			} catch (IOException ioe) {
 				// this is NOT an error: it's valid to have missing classpath entries
-				i.remove();
+				removeEntry(entry);
 			}
-
 		}
 		return null;
 	}
 
+	/**
+	 * @return the package of a type name in its class file form, for example java/lang for java.lang.String
+	 */
+	private static String packageOf(String typeName) {
+		int dot = typeName.lastIndexOf('.');
+		return dot == -1 ? "" : typeName.substring(0, dot).replace('.', '/');
+	}
+
+	/**
+	 * @return the entries that may contain types in the package, a jar is only included if its index lists the package
+	 */
+	private Entry[] getEntriesFor(String packagePath) {
+		Entry[] candidates = packageEntries.get(packagePath);
+		if (candidates == null) {
+			List<Entry> matching = new ArrayList<Entry>();
+			for (Iterator<Entry> i = entries.iterator(); i.hasNext();) {
+				Entry entry = i.next();
+				try {
+					if (entry.mayContainPackage(packagePath)) {
+						matching.add(entry);
+					}
+				} catch (IOException ioe) {
+					// as in find(), a missing entry is just dropped
+					i.remove();
+					packageEntries.clear();
+				}
+			}
+			candidates = matching.toArray(new Entry[matching.size()]);
+			packageEntries.put(packagePath, candidates);
+		}
+		return candidates;
+	}
+
+	private void removeEntry(Entry entry) {
+		entries.remove(entry);
+		packageEntries.clear();
+	}
+
 	public String toString() {
 		StringBuffer buf = new StringBuffer();
 		boolean start = true;
@@ -144,6 +210,18 @@ public class ClassPathManager {
 	public abstract static class ClassFile {
 		public abstract InputStream getInputStream() throws IOException;
 
+		/**
+		 * @return the whole class file in a buffer, for parsing with ClassParser(ByteBuffer,String). The buffer does not depend
+		 *         on anything close() releases.
+		 */
+		public ByteBuffer getByteBuffer() throws IOException {
+			try {
+				return ByteBuffer.wrap(FileUtil.readAsByteArray(getInputStream()));
+			} finally {
+				close();
+			}
+		}
+
 		public abstract String getPath();
 
 		public abstract void close();
@@ -152,6 +230,14 @@ public class ClassPathManager {
 	public abstract static class Entry {
 		public abstract ClassFile find(String name) throws IOException;
 
+		/**
+		 * @param packagePath package name in class file form, e.g. java/lang
+		 * @return false only if this entry definitely holds no types in the package
+		 */
+		public boolean mayContainPackage(String packagePath) throws IOException {
+			return true;
+		}
+
 		// public abstract List getAllClassFiles() throws IOException;
 	}
 
@@ -168,6 +254,27 @@ public class ClassPathManager {
 			return fis;
 		}
 
+		@Override
+		public ByteBuffer getByteBuffer() throws IOException {
+			// read into the heap rather than mapped: a mapping keeps the file open (and undeletable on some platforms) until
+			// the buffer is collected, and class files are too small for mapping to pay
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				long size = channel.size();
+				ByteBuffer buffer = ByteBuffer.allocate((int) size);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) == -1) {
+						break;
+					}
+				}
+				buffer.flip();
+				return buffer;
+			} finally {
+				raf.close();
+			}
+		}
+
 		public void close() {
 			try {
 				if (fis != null)
@@ -227,6 +334,30 @@ public class ClassPathManager {
 			return is;
 		}
 
+		@Override
+		public ByteBuffer getByteBuffer() throws IOException {
+			long size = entry.getSize();
+			if (size < 0) {
+				return super.getByteBuffer();
+			}
+			// the size is known, so read it straight into an array of that size
+			byte[] bytes = new byte[(int) size];
+			InputStream in = zipFile.getZipFile().getInputStream(entry);
+			try {
+				int read = 0;
+				while (read < bytes.length) {
+					int n = in.read(bytes, read, bytes.length - read);
+					if (n == -1) {
+						throw new IOException("Unexpected end of " + entry.getName() + " after " + read + " of " + size + " bytes");
+					}
+					read += n;
+				}
+			} finally {
+				in.close();
+			}
+			return ByteBuffer.wrap(bytes);
+		}
+
 		public void close() {
 			try {
 				if (is != null)
@@ -247,6 +378,7 @@ public class ClassPathManager {
 	public class ZipFileEntry extends Entry {
 		private File file;
 		private ZipFile zipFile;
+		private JarIndex index;
 
 		public ZipFileEntry(File file) throws IOException {
 			this.file = file;
@@ -260,6 +392,21 @@ public class ClassPathManager {
 			return zipFile;
 		}
 
+		@Override
+		public boolean mayContainPackage(String packagePath) throws IOException {
+			if (file == null) {
+				return true;
+			}
+			if (index == null) {
+				index = JarIndex.lookup(file);
+				if (index == null) {
+					ensureOpen();
+					index = JarIndex.build(file, zipFile);
+				}
+			}
+			return index.containsPackage(packagePath);
+		}
+
 		public ClassFile find(String name) throws IOException {
 			ensureOpen();
 			String key = name.replace('.', '/') + ".class";
@@ -340,6 +487,50 @@ public class ClassPathManager {
 		}
 	}
 
+	/**
+	 * The packages that a jar holds class files for. An index is shared through sharedJarIndexes by every ClassPathManager that
+	 * has the jar on its classpath. It is keyed by the size and modification time the jar had when the index was built, so a
+	 * rewritten jar gets a new index and the old one ages out of the map.
+	 */
+	private static final class JarIndex {
+		private final Set<String> packages;
+
+		private JarIndex(Set<String> packages) {
+			this.packages = packages;
+		}
+
+		boolean containsPackage(String packagePath) {
+			return packages.contains(packagePath);
+		}
+
+		private static String keyFor(File file) {
+			return file.getAbsolutePath() + File.pathSeparatorChar + file.length() + File.pathSeparatorChar + file.lastModified();
+		}
+
+		/**
+		 * @return the shared index for the jar as it is now, or null if there is none
+		 */
+		static JarIndex lookup(File file) {
+			return sharedJarIndexes.get(keyFor(file));
+		}
+
+		static JarIndex build(File file, ZipFile zipFile) {
+			// taken before reading the entries so a jar rewritten meanwhile does not match next time
+			String key = keyFor(file);
+			Set<String> packages = new HashSet<String>();
+			for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements();) {
+				String name = e.nextElement().getName();
+				if (hasClassExtension(name)) {
+					int slash = name.lastIndexOf('/');
+					packages.add(slash == -1 ? "" : name.substring(0, slash));
+				}
+			}
+			JarIndex index = new JarIndex(packages);
+			sharedJarIndexes.put(key, index);
+			return index;
+		}
+	}
+
 	/* private */static boolean hasClassExtension(String name) {
 		return name.toLowerCase().endsWith((".class"));
 	}
@@ -20,9 +20,11 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +35,7 @@ import java.util.Vector;
 
 import org.aspectj.apache.bcel.Constants;
 import org.aspectj.apache.bcel.classfile.Attribute;
+import org.aspectj.apache.bcel.classfile.BootstrapMethods;
 import org.aspectj.apache.bcel.classfile.ConstantPool;
 import org.aspectj.apache.bcel.classfile.Field;
 import org.aspectj.apache.bcel.classfile.JavaClass;
@@ -43,12 +46,16 @@ import org.aspectj.apache.bcel.classfile.annotation.AnnotationGen;
 import org.aspectj.apache.bcel.generic.BasicType;
 import org.aspectj.apache.bcel.generic.ClassGen;
 import org.aspectj.apache.bcel.generic.FieldGen;
+import org.aspectj.apache.bcel.generic.Instruction;
 import org.aspectj.apache.bcel.generic.InstructionConstants;
 import org.aspectj.apache.bcel.generic.InstructionFactory;
 import org.aspectj.apache.bcel.generic.InstructionHandle;
 import org.aspectj.apache.bcel.generic.InstructionList;
+import org.aspectj.apache.bcel.generic.InstructionTargeter;
+import org.aspectj.apache.bcel.generic.InvokeInstruction;
 import org.aspectj.apache.bcel.generic.ObjectType;
 import org.aspectj.apache.bcel.generic.Type;
+import org.aspectj.apache.bcel.generic.TypeLattice;
 import org.aspectj.bridge.IMessage;
 import org.aspectj.bridge.ISourceLocation;
 import org.aspectj.bridge.SourceLocation;
@@ -97,6 +104,7 @@ public final class LazyClassGen {
 	private final List<BcelField> fields = new ArrayList<BcelField>();
 	private final List<LazyMethodGen> methodGens = new ArrayList<LazyMethodGen>();
 	private final List<LazyClassGen> classGens = new ArrayList<LazyClassGen>();
+	private List<GeneratedClosure> aroundClosures = null;
 	private final List<AnnotationGen> annotations = new ArrayList<AnnotationGen>();
 	private int childCounter = 0;
 
@@ -111,6 +119,11 @@ public final class LazyClassGen {
 	private ResolvedType[] extraSuperInterfaces = null;
 	private ResolvedType superclass = null;
 
+	private TypeLattice typeLattice = null;
+
+	// how many methods the last writeBack() had to pack from their instruction lists, see getRepackedMethodCount()
+	private int repackedMethodCount;
+
 	// ---
 
 	static class InlinedSourceFileInfo {
@@ -506,11 +519,16 @@ public final class LazyClassGen {
 		int len = methodGens.size();
 		myGen.setMethods(Method.NoMethods);
 
+		// methods nothing has changed are copied across as they were read, only the others are packed up again
+		repackedMethodCount = 0;
 		for (LazyMethodGen gen : methodGens) {
 			// we skip empty clinits
 			if (isEmptyClinit(gen)) {
 				continue;
 			}
+			if (!gen.isUnchanged()) {
+				repackedMethodCount++;
+			}
 			myGen.addMethod(gen.getMethod());
 		}
 
@@ -695,10 +713,12 @@ public final class LazyClassGen {
 	public byte[] getJavaClassBytesIncludingReweavable(BcelWorld world) {
 		writeBack(world);
 		byte[] wovenClassFileData = myGen.getJavaClass().getBytes();
-		// if is java 6 class file
-		if (((myGen.getMajor() == Constants.MAJOR_1_6 && world.shouldGenerateStackMaps()) || myGen.getMajor() > Constants.MAJOR_1_6)
-				&& AsmDetector.isAsmAround) {
-			wovenClassFileData = StackMapAdder.addStackMaps(world, wovenClassFileData);
+		// frames are normally computed as each method is packed, asm is only needed for any that could not be done that way
+		if (needsStackMaps() && AsmDetector.isAsmAround) {
+			Set<String> framedMethods = getFramedMethods();
+			if (framedMethods.size() < myGen.getMethods().length) {
+				wovenClassFileData = StackMapAdder.addStackMaps(world, wovenClassFileData, framedMethods);
+			}
 		}
 
 		WeaverStateInfo wsi = myType.getWeaverState();// getOrCreateWeaverStateInfo();
@@ -710,10 +730,212 @@ public final class LazyClassGen {
 		}
 	}
 
+	/**
+	 * @return how many methods were packed again from their instruction lists when the class was last written out, every other
+	 *         method was copied across exactly as it was read
+	 */
+	public int getRepackedMethodCount() {
+		return repackedMethodCount;
+	}
+
+	/**
+	 * @return true if the code of the methods must carry a StackMapTable: always for Java 7 or later, for Java 6 only if asked
+	 */
+	boolean needsStackMaps() {
+		int major = myGen.getMajor();
+		return (major == Constants.MAJOR_1_6 && world.shouldGenerateStackMaps()) || major > Constants.MAJOR_1_6;
+	}
+
+	/**
+	 * @return the type lattice methods of this class should compute their frames with as they are packed, or null if they should
+	 *         not
+	 */
+	TypeLattice getTypeLattice() {
+		if (!world.shouldGenerateStackMapsNatively() || !needsStackMaps()) {
+			return null;
+		}
+		if (typeLattice == null) {
+			typeLattice = WorldTypeLattice.forWorld(world);
+		}
+		return typeLattice;
+	}
+
+	/**
+	 * A method has the frames it needs if they were computed when it was packed, or if it is written out exactly as it was read
+	 * from a Java 7 or later class file (the class could not have been verified otherwise). For a Java 6 class the frames are
+	 * optional and may not be there, so unchanged methods do not count.
+	 * 
+	 * @return name+descriptor of the methods whose frames can be kept
+	 */
+	private Set<String> getFramedMethods() {
+		boolean keepUnchanged = myGen.getMajor() > Constants.MAJOR_1_6;
+		Set<String> framed = new HashSet<String>();
+		for (LazyMethodGen gen : methodGens) {
+			// as in writeBack(), empty clinits are not written out
+			if (isEmptyClinit(gen)) {
+				continue;
+			}
+			if (gen.hasComputedFrames() || (keepUnchanged && gen.isUnchanged())) {
+				Method m = gen.getMethod();
+				framed.add(m.getName() + m.getSignature());
+			}
+		}
+		return framed;
+	}
+
 	public void addGeneratedInner(LazyClassGen newClass) {
 		classGens.add(newClass);
 	}
 
+	/**
+	 * Records a closure class made for around advice at a shadow in this class, so that shareIdenticalAroundClosures() can
+	 * consider it.
+	 * 
+	 * @param callbackMethod the method the shadow was extracted into, which the closure calls back to
+	 * @param shape what the closure class was made from besides the callback method
+	 */
+	void addAroundClosure(LazyMethodGen callbackMethod, LazyClassGen closureClass, String shape) {
+		if (aroundClosures == null) {
+			aroundClosures = new ArrayList<GeneratedClosure>();
+		}
+		aroundClosures.add(new GeneratedClosure(callbackMethod, closureClass, shape));
+	}
+
+	/**
+	 * Around advice at shadows that do the same thing, such as calls to the same method from many places in this class, leaves
+	 * behind callback methods that differ only in their line numbers, each with a closure class of its own. Once all the shadows
+	 * have been woven this keeps the first of each such callback and closure, and points the code that makes or calls the
+	 * others at it, so that the others are not written out. Callbacks with an exception handler in them are left alone.
+	 */
+	void shareIdenticalAroundClosures() {
+		if (aroundClosures == null) {
+			return;
+		}
+		// sharing closures that are made inside other callbacks can make those callbacks identical too
+		boolean shared = true;
+		while (shared) {
+			Map<ClosureKey, GeneratedClosure> closuresByKey = new HashMap<ClosureKey, GeneratedClosure>();
+			Map<String, String> closureClassNames = new HashMap<String, String>();
+			Map<String, String> callbackMethodNames = new HashMap<String, String>();
+			for (Iterator<GeneratedClosure> iter = aroundClosures.iterator(); iter.hasNext();) {
+				GeneratedClosure closure = iter.next();
+				ClosureKey key = closure.getKey();
+				if (key == null) {
+					continue;
+				}
+				GeneratedClosure sharedClosure = closuresByKey.get(key);
+				if (sharedClosure == null) {
+					closuresByKey.put(key, closure);
+					continue;
+				}
+				closureClassNames.put(closure.closureClass.getName(), sharedClosure.closureClass.getName());
+				callbackMethodNames.put(closure.callbackMethod.getName(), sharedClosure.callbackMethod.getName());
+				methodGens.remove(closure.callbackMethod);
+				classGens.remove(closure.closureClass);
+				iter.remove();
+			}
+			shared = !closureClassNames.isEmpty();
+			if (shared) {
+				redirectAroundClosureReferences(closureClassNames, callbackMethodNames);
+			}
+		}
+	}
+
+	private void redirectAroundClosureReferences(Map<String, String> closureClassNames, Map<String, String> callbackMethodNames) {
+		ConstantPool cp = getConstantPool();
+		InstructionFactory fact = new InstructionFactory(cp);
+		for (LazyMethodGen mg : methodGens) {
+			// a method that was never unpacked has not been woven, so cannot refer to a closure
+			InstructionList body = mg.getBodyForPrint();
+			if (body == null) {
+				continue;
+			}
+			for (InstructionHandle ih = body.getStart(); ih != null; ih = ih.getNext()) {
+				Instruction inst = ih.getInstruction();
+				if (inst.opcode == Constants.NEW) {
+					String className = cp.getConstantString_CONSTANTClass(inst.getIndex()).replace('/', '.');
+					String sharedName = closureClassNames.get(className);
+					if (sharedName != null) {
+						ih.setInstruction(fact.createNew(sharedName));
+					}
+				} else if (inst.opcode == Constants.INVOKESPECIAL) {
+					InvokeInstruction invoke = (InvokeInstruction) inst;
+					String sharedName = closureClassNames.get(invoke.getClassName(cp));
+					if (sharedName != null) {
+						ih.setInstruction(fact.createInvoke(sharedName, invoke.getName(cp), invoke.getSignature(cp),
+								Constants.INVOKESPECIAL));
+					}
+				} else if (inst.opcode == Constants.INVOKESTATIC) {
+					// with a dynamic test the shadow calls its callback directly when the advice does not apply
+					InvokeInstruction invoke = (InvokeInstruction) inst;
+					String sharedName = callbackMethodNames.get(invoke.getName(cp));
+					if (sharedName != null && invoke.getClassName(cp).equals(getName())) {
+						ih.setInstruction(fact.createInvoke(getName(), sharedName, invoke.getSignature(cp),
+								Constants.INVOKESTATIC));
+					}
+				}
+			}
+		}
+	}
+
+	private static class GeneratedClosure {
+		final LazyMethodGen callbackMethod;
+		final LazyClassGen closureClass;
+		final String shape;
+
+		GeneratedClosure(LazyMethodGen callbackMethod, LazyClassGen closureClass, String shape) {
+			this.callbackMethod = callbackMethod;
+			this.closureClass = closureClass;
+			this.shape = shape;
+		}
+
+		/**
+		 * @return a key that is the same for closures that can be shared, or null if this one cannot be
+		 */
+		ClosureKey getKey() {
+			InstructionList body = callbackMethod.getBodyForPrint();
+			for (InstructionHandle ih = body.getStart(); ih != null; ih = ih.getNext()) {
+				for (InstructionTargeter targeter : ih.getTargeters()) {
+					if (targeter instanceof ExceptionRange) {
+						return null;
+					}
+				}
+			}
+			// the constant pool is that of the enclosing class for every callback, so the same bytes mean the same code
+			return new ClosureKey(callbackMethod.getSignature() + shape, body.getByteCode());
+		}
+	}
+
+	/**
+	 * The callback signature and closure shape along with the callback code. Hashes the code once, so the bytes themselves are only
+	 * compared when two keys have the same hash.
+	 */
+	private static class ClosureKey {
+		private final String signatureAndShape;
+		private final byte[] code;
+		private final int hashCode;
+
+		ClosureKey(String signatureAndShape, byte[] code) {
+			this.signatureAndShape = signatureAndShape;
+			this.code = code;
+			this.hashCode = 31 * signatureAndShape.hashCode() + Arrays.hashCode(code);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof ClosureKey)) {
+				return false;
+			}
+			ClosureKey key = (ClosureKey) other;
+			return hashCode == key.hashCode && signatureAndShape.equals(key.signatureAndShape) && Arrays.equals(code, key.code);
+		}
+	}
+
 	public void addInterface(ResolvedType newInterface, ISourceLocation sourceLocation) {
 		regenerateGenericSignatureAttribute = true;
 
@@ -868,8 +1090,13 @@ public final class LazyClassGen {
 		if (!gen.getName().equals("<clinit>")) {
 			return false;
 		}
+		if (gen.isUnchanged()) {
+			// look at the code as read rather than unpacking it (which would mean packing it again)
+			byte[] code = gen.getMethod().getCode().getCode();
+			return code.length == 1 && (code[0] & 0xff) == Constants.RETURN;
+		}
 		// System.err.println("checking clinig: " + gen);
-		InstructionHandle start = gen.getBody().getStart();
+		InstructionHandle start = gen.getBodyForPrint().getStart(); // getBody() would mark it changed
 		while (start != null) {
 			if (Range.isRangeHandle(start) || (start.getInstruction().opcode == Constants.RETURN)) {
 				start = start.getNext();
@@ -979,6 +1206,8 @@ public final class LazyClassGen {
 
 	// reflective thisJoinPoint support
 	private Map<BcelShadow, Field> tjpFields = new HashMap<BcelShadow, Field>();
+	private Map<BcelShadow, Integer> staticPartCallSites = new HashMap<BcelShadow, Integer>();
+	private int staticPartBootstrapMethod = -1;
 	Map<CacheKey, Field> annotationCachingFieldCache = new HashMap<CacheKey, Field>();
 	private int tjpFieldsCounter = -1; // -1 means not yet initialized
 	private int annoFieldsCounter = 0;
@@ -992,6 +1221,10 @@ public final class LazyClassGen {
 	// new ObjectType("org.aspectj.lang.reflect.SourceLocation");
 	private static final ObjectType factoryType = new ObjectType("org.aspectj.runtime.reflect.Factory");
 	private static final ObjectType classType = new ObjectType("java.lang.Class");
+	private static final String staticPartCallSitesClass = "org.aspectj.runtime.reflect.StaticPartCallSites";
+	private static final String staticPartBootstrapSignature = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;"
+			+ "Ljava/lang/invoke/MethodType;Ljava/lang/String;ILjava/lang/String;Ljava/lang/String;Ljava/lang/String;I)"
+			+ "Ljava/lang/invoke/CallSite;";
 
 	public Field getTjpField(BcelShadow shadow, final boolean isEnclosingJp) {
 		Field tjpField = tjpFields.get(shadow);
@@ -1027,6 +1260,77 @@ public final class LazyClassGen {
 		} else {
 			jpType = isEnclosingJp ? enclosingStaticTjpType : staticTjpType;
 		}
+		if (!isInterface() && world.isTransientTjpFields()) {
+			modifiers|=Modifier.TRANSIENT;
+		}
+		FieldGen fGen = new FieldGen(modifiers, jpType, "ajc$tjp_" + nextTjpNumber(), getConstantPool());
+		addField(fGen);
+		tjpField = fGen.getField();
+		tjpFields.put(shadow, tjpField);
+		return tjpField;
+	}
+
+	/**
+	 * The static part of a join point can come from an invokedynamic call site rather than a field when the world is configured
+	 * for it and the class is for Java 7 or later. Not for aspects, where around advice (whose code the call site would have to
+	 * follow) may be inlined into other classes, and not when overweaving, as the ids of the join points woven before cannot be
+	 * found.
+	 * 
+	 * @return true if getStaticPartCallSite() can be used for the shadow
+	 */
+	public boolean canUseStaticPartCallSite(BcelShadow shadow) {
+		if (!world.shouldUseInvokedynamicStaticParts() || myGen.getMajor() < Constants.MAJOR_1_7) {
+			return false;
+		}
+		if (getType().isAspect() || world.isOverWeaving() || world.isTargettingAspectJRuntime12()) {
+			return false;
+		}
+		LazyMethodGen encMethod = shadow.getEnclosingMethod();
+		return encMethod == null || !encMethod.getName().startsWith(NameMangler.PREFIX + "around");
+	}
+
+	/**
+	 * Create an invokedynamic call site for the static part of the join point at the shadow, which StaticPartCallSites creates the
+	 * first time it is executed. Unlike a tjp field this needs nothing in the static initializer.
+	 * 
+	 * @return the constant pool index of the call site, for a BcelCallSiteRef
+	 */
+	public int getStaticPartCallSite(BcelShadow shadow, boolean isEnclosingJp) {
+		Integer callSite = staticPartCallSites.get(shadow);
+		if (callSite != null) {
+			return callSite;
+		}
+		ConstantPool cp = getConstantPool();
+		if (staticPartBootstrapMethod == -1) {
+			staticPartBootstrapMethod = cp.addMethodHandle(Constants.REF_invokeStatic, cp.addMethodref(staticPartCallSitesClass,
+					"staticPart", staticPartBootstrapSignature));
+		}
+		Member sig = shadow.getSignature();
+		int[] arguments = new int[] { cp.addString(getFileName()), cp.addInteger(nextTjpNumber()),
+				cp.addString(shadow.getKind().getName()), cp.addString(SignatureUtils.getSignatureMakerName(sig)),
+				cp.addString(SignatureUtils.getSignatureString(sig, shadow.getWorld())), cp.addInteger(shadow.getSourceLine()) };
+		int bootstrapMethod = getBootstrapMethods().addBootstrapMethod(
+				new BootstrapMethods.BootstrapMethod(staticPartBootstrapMethod, arguments));
+		ObjectType jpType = isEnclosingJp ? enclosingStaticTjpType : staticTjpType;
+		callSite = cp.addInvokeDynamic(bootstrapMethod, "staticPart", "()" + jpType.getSignature());
+		staticPartCallSites.put(shadow, callSite);
+		return callSite;
+	}
+
+	private BootstrapMethods getBootstrapMethods() {
+		for (Attribute attribute : myGen.getAttributes()) {
+			if (attribute instanceof BootstrapMethods) {
+				return (BootstrapMethods) attribute;
+			}
+		}
+		BootstrapMethods bootstrapMethods = new BootstrapMethods(getConstantPool().addUtf8("BootstrapMethods"), 2,
+				new BootstrapMethods.BootstrapMethod[0], getConstantPool());
+		myGen.addAttribute(bootstrapMethods);
+		return bootstrapMethods;
+	}
+
+	// tjp fields and static part call sites are numbered together, the number is also the id of a call site's static part
+	private int nextTjpNumber() {
 		if (tjpFieldsCounter == -1) {
 			// not yet initialized, do it now
 			if (!world.isOverWeaving()) {
@@ -1052,14 +1356,7 @@ public final class LazyClassGen {
 				}
 			}
 		}
-		if (!isInterface() && world.isTransientTjpFields()) {
-			modifiers|=Modifier.TRANSIENT;
-		}
-		FieldGen fGen = new FieldGen(modifiers, jpType, "ajc$tjp_" + tjpFieldsCounter++, getConstantPool());
-		addField(fGen);
-		tjpField = fGen.getField();
-		tjpFields.put(shadow, tjpField);
-		return tjpField;
+		return tjpFieldsCounter++;
 	}
 
 	/**
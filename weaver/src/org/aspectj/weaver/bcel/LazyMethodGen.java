@@ -62,6 +62,8 @@ import org.aspectj.weaver.ResolvedType;
 import org.aspectj.weaver.Shadow;
 import org.aspectj.weaver.UnresolvedType;
 import org.aspectj.weaver.WeaverMessages;
+import org.aspectj.weaver.tools.Trace;
+import org.aspectj.weaver.tools.TraceFactory;
 import org.aspectj.weaver.tools.Traceable;
 
 /**
@@ -79,6 +81,8 @@ import org.aspectj.weaver.tools.Traceable;
 public final class LazyMethodGen implements Traceable {
 	private static final int ACC_SYNTHETIC = 0x1000;
 
+	private static Trace trace = TraceFactory.getTraceFactory().getTrace(LazyMethodGen.class);
+
 	private int modifiers;
 	private Type returnType;
 	private final String name;
@@ -96,6 +100,10 @@ public final class LazyMethodGen implements Traceable {
 	int highestLineNumber = 0;
 	boolean wasPackedOptimally = false;
 	private Method savedMethod = null;
+	// the method as read from the class file, if that is where this one came from
+	private Method originalMethod = null;
+	// the method as last packed, if its frames were computed then
+	private Method framedMethod = null;
 	private static final AnnotationAJ[] NO_ANNOTATIONAJ = new AnnotationAJ[] {};
 
 	/*
@@ -122,6 +130,8 @@ public final class LazyMethodGen implements Traceable {
 	private boolean canInline = true;
 	private boolean isSynthetic = false;
 	List<BcelShadow> matchedShadows;
+	// size of the code before the matched shadows were implemented, -1 until BcelClassWeaver notes it
+	int codeSizeBeforeWeaving = -1;
 	// Used for interface introduction - this is the type of the interface the method is technically on
 	public ResolvedType definingType = null;
 	
@@ -212,6 +222,7 @@ public final class LazyMethodGen implements Traceable {
 
 	public LazyMethodGen(BcelMethod m, LazyClassGen enclosingClass) {
 		savedMethod = m.getMethod();
+		originalMethod = savedMethod;
 		this.enclosingClass = enclosingClass;
 		if (!isAbstractOrNative(m.getModifiers()) && savedMethod.getCode() == null) {
 			throw new RuntimeException("bad non-abstract method with no code: " + m + " on " + enclosingClass);
@@ -490,6 +501,13 @@ public final class LazyMethodGen implements Traceable {
 		try {
 			MethodGen gen = pack();
 			savedMethod = gen.getMethod();
+			if (gen.isStackMapComputed()) {
+				framedMethod = savedMethod;
+			} else if (gen.getStackMapFailure() != null && trace.isTraceEnabled()) {
+				// the frames will be computed by the ASM pass over the whole class instead
+				trace.event("getMethod: frames left to ASM for " + getClassName() + "." + getName() + getSignature(), this,
+						new Object[] { gen.getStackMapFailure() });
+			}
 			return savedMethod;
 		} catch (ClassGenException e) {
 			enclosingClass
@@ -527,6 +545,20 @@ public final class LazyMethodGen implements Traceable {
 		}
 	}
 
+	/**
+	 * @return true if this method will be written out exactly as it was read from the class file
+	 */
+	public boolean isUnchanged() {
+		return savedMethod != null && savedMethod == originalMethod;
+	}
+
+	/**
+	 * @return true if this method has no code or the frames for its code were computed when it was packed
+	 */
+	public boolean hasComputedFrames() {
+		return savedMethod != null && (savedMethod == framedMethod || savedMethod.getCode() == null);
+	}
+
 	public void markAsChanged() {
 		if (wasPackedOptimally) {
 			throw new RuntimeException("Already packed method is being re-modified: " + getClassName() + " " + toShortString());
@@ -929,6 +961,27 @@ public final class LazyMethodGen implements Traceable {
 		return body;
 	}
 
+	/**
+	 * @return the number of bytes of code the method will have when packed, which is what a JIT compares with its inline size
+	 *         limits (near enough, switch padding is not worked out)
+	 */
+	public int getCodeSize() {
+		return getCodeSize(body);
+	}
+
+	static int getCodeSize(InstructionList il) {
+		int size = 0;
+		if (il != null) {
+			for (InstructionHandle ih = il.getStart(); ih != null; ih = ih.getNext()) {
+				Instruction i = ih.getInstruction();
+				if (i != Range.RANGEINSTRUCTION) {
+					size += i.getLength();
+				}
+			}
+		}
+		return size;
+	}
+
 	public boolean hasBody() {
 		if (savedMethod != null) {
 			return savedMethod.getCode() != null;
@@ -1017,6 +1070,7 @@ public final class LazyMethodGen implements Traceable {
 			}
 			gen.setMaxLocals();
 			gen.setMaxStack();
+			gen.setTypeLattice(enclosingClass.getTypeLattice());
 		} else {
 			gen.setInstructionList(null);
 		}
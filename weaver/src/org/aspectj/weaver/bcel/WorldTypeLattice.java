@@ -0,0 +1,124 @@
+/* *******************************************************************
+ * Copyright (c) 2014 Contributors
+ * All rights reserved.
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * ******************************************************************/
+package org.aspectj.weaver.bcel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.aspectj.apache.bcel.generic.TypeLattice;
+import org.aspectj.weaver.ResolvedType;
+import org.aspectj.weaver.UnresolvedType;
+import org.aspectj.weaver.World;
+
+/**
+ * Answers the common superclass questions that come up when computing stack map frames by resolving the types in the world,
+ * rather than loading them with a class loader (which may not be able to see them, and would initialize them).
+ * 
+ * The same few pairs of types meet at merge points again and again (every handler for an exception type, every method of a
+ * class), so answers are remembered, keyed by the pair of internal names. They are forgotten when the world reports a change to
+ * its type hierarchy (see World.getTypeHierarchyVersion()), and an answer that involved a missing type is never remembered.
+ * Share one instance per world, see forWorld().
+ */
+public class WorldTypeLattice implements TypeLattice {
+
+	private static final int MAX_ENTRIES = 1 << 14;
+
+	private final World world;
+
+	// smaller internal name > larger internal name > answer, the answer does not depend on the order of the question
+	private final Map<String, Map<String, String>> answers = new HashMap<String, Map<String, String>>();
+	private int size;
+	private int typeHierarchyVersion;
+
+	public WorldTypeLattice(World world) {
+		this.world = world;
+		this.typeHierarchyVersion = world.getTypeHierarchyVersion();
+	}
+
+	/**
+	 * @return the lattice shared by everything weaving in the given world, so that they share its remembered answers
+	 */
+	public static WorldTypeLattice forWorld(World world) {
+		if (world instanceof BcelWorld) {
+			return ((BcelWorld) world).getTypeLattice();
+		}
+		return new WorldTypeLattice(world);
+	}
+
+	public String getCommonSuperClass(String type1, String type2) {
+		if (type1.equals(type2)) {
+			return type1;
+		}
+		String lower = type1;
+		String higher = type2;
+		if (lower.compareTo(higher) > 0) {
+			lower = type2;
+			higher = type1;
+		}
+		int version = world.getTypeHierarchyVersion();
+		synchronized (answers) {
+			if (version != typeHierarchyVersion) {
+				answers.clear();
+				size = 0;
+				typeHierarchyVersion = version;
+			}
+			Map<String, String> forLower = answers.get(lower);
+			if (forLower != null) {
+				String answer = forLower.get(higher);
+				if (answer != null) {
+					return answer;
+				}
+			}
+		}
+
+		ResolvedType resolvedType1 = world.resolve(UnresolvedType.forName(type1.replace('/', '.')));
+		ResolvedType resolvedType2 = world.resolve(UnresolvedType.forName(type2.replace('/', '.')));
+		String answer = computeCommonSuperClass(type1, resolvedType1, type2, resolvedType2);
+		if (resolvedType1.isMissing() || resolvedType2.isMissing()) {
+			return answer;
+		}
+
+		synchronized (answers) {
+			if (version == typeHierarchyVersion) {
+				if (size >= MAX_ENTRIES) {
+					answers.clear();
+					size = 0;
+				}
+				Map<String, String> forLower = answers.get(lower);
+				if (forLower == null) {
+					forLower = new HashMap<String, String>();
+					answers.put(lower, forLower);
+				}
+				if (forLower.put(higher, answer) == null) {
+					size++;
+				}
+			}
+		}
+		return answer;
+	}
+
+	private String computeCommonSuperClass(String type1, ResolvedType resolvedType1, String type2, ResolvedType resolvedType2) {
+		if (resolvedType1.isAssignableFrom(resolvedType2)) {
+			return type1;
+		}
+
+		if (resolvedType2.isAssignableFrom(resolvedType1)) {
+			return type2;
+		}
+
+		if (resolvedType1.isInterface() || resolvedType2.isInterface()) {
+			return "java/lang/Object";
+		} else {
+			do {
+				resolvedType1 = resolvedType1.getSuperclass().getRawType();
+			} while (!resolvedType1.isAssignableFrom(resolvedType2));
+			return resolvedType1.getRawName().replace('.', '/');
+		}
+	}
+}
@@ -11,9 +11,11 @@
  * ******************************************************************/
 package org.aspectj.weaver.bcel.asm;
 
-import org.aspectj.weaver.ResolvedType;
-import org.aspectj.weaver.UnresolvedType;
+import java.util.Collections;
+import java.util.Set;
+
 import org.aspectj.weaver.World;
+import org.aspectj.weaver.bcel.WorldTypeLattice;
 
 import aj.org.objectweb.asm.*;
 
@@ -29,15 +31,25 @@ import aj.org.objectweb.asm.*;
  * a methodvisitor that has been created by a ClassWriter then it just copies the data across without changing it (and so it
  * fails to attach the stackmapattribute).  In order to avoid this further optimization we use our own minimal MethodVisitor.
  * 
+ * Except that for methods the weaver did not touch the optimization is exactly what we want: their code, and so the frames
+ * already in their StackMapTable, are unchanged, so the caller can name those methods and they are copied across as they are.
+ * 
  * @author Andy Clement
  */
 public class StackMapAdder {
 
 	public static byte[] addStackMaps(World world, byte[] data) {
+		return addStackMaps(world, data, Collections.<String> emptySet());
+	}
+
+	/**
+	 * @param unchangedMethods name+descriptor of each method whose code and frames are already correct and can be copied as is
+	 */
+	public static byte[] addStackMaps(World world, byte[] data, Set<String> unchangedMethods) {
 		try {
 			ClassReader cr = new ClassReader(data);
 			ClassWriter cw = new AspectJConnectClassWriter(cr, world);
-			ClassVisitor cv = new AspectJClassVisitor(cw);
+			ClassVisitor cv = new AspectJClassVisitor(cw, unchangedMethods);
 			cr.accept(cv, 0);
 			return cw.toByteArray();
 		} catch (Throwable t) {
@@ -49,13 +61,20 @@ public class StackMapAdder {
 	
 	private static class AspectJClassVisitor extends ClassVisitor {
 
-		public AspectJClassVisitor(ClassVisitor classwriter) {
+		private final Set<String> unchangedMethods;
+
+		public AspectJClassVisitor(ClassVisitor classwriter, Set<String> unchangedMethods) {
 			super(Opcodes.ASM4, classwriter);
+			this.unchangedMethods = unchangedMethods;
 		}
 
 		@Override
 		public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
 			MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+			if (unchangedMethods.contains(name + desc)) {
+				// the reader will see the writer's own visitor and copy the method across untouched
+				return mv;
+			}
 			return new AJMethodVisitor(mv);
 		}
 		
@@ -70,36 +89,17 @@ public class StackMapAdder {
 	}
 
 	private static class AspectJConnectClassWriter extends ClassWriter {
-		private final World world;
+		private final WorldTypeLattice typeLattice;
 
 		public AspectJConnectClassWriter(ClassReader cr, World w) {
 			super(cr, ClassWriter.COMPUTE_FRAMES); // passing in cr is necessary so cpool isnt modified (see 2.2.4 of asm doc)
-			this.world = w;
+			this.typeLattice = WorldTypeLattice.forWorld(w);
 		}
 		
 
 		// Implementation of getCommonSuperClass() that avoids Class.forName()
 		protected String getCommonSuperClass(final String type1, final String type2) {
-
-			ResolvedType resolvedType1 = world.resolve(UnresolvedType.forName(type1.replace('/', '.')));
-			ResolvedType resolvedType2 = world.resolve(UnresolvedType.forName(type2.replace('/', '.')));
-
-			if (resolvedType1.isAssignableFrom(resolvedType2)) {
-				return type1;
-			}
-
-			if (resolvedType2.isAssignableFrom(resolvedType1)) {
-				return type2;
-			}
-
-			if (resolvedType1.isInterface() || resolvedType2.isInterface()) {
-				return "java/lang/Object";
-			} else {
-				do {
-					resolvedType1 = resolvedType1.getSuperclass().getRawType();
-				} while (!resolvedType1.isAssignableFrom(resolvedType2));
-				return resolvedType1.getRawName().replace('.', '/');
-			}
+			return typeLattice.getCommonSuperClass(type1, type2);
 		}
 	}
 }
@@ -27,6 +27,7 @@ import org.aspectj.weaver.MemberImpl;
 import org.aspectj.weaver.ResolvedType;
 import org.aspectj.weaver.Shadow;
 import org.aspectj.weaver.UnresolvedType;
+import org.aspectj.weaver.World;
 
 /**.
  */
@@ -74,6 +75,17 @@ public class ArgsWeaveTestCase extends WeaveTestCase {
         weaveTest("HelloWorld", "ArgsBeforeAfterHelloWorld", addLexicalOrder(l));        
     }    
 
+    public void testLotsOutlined() throws IOException {
+        // fast packing would leave the unchanged methods unprintable
+        world.performExtraConfiguration(World.xsetINLINE_SIZE_THRESHOLD + "=10," + World.xsetFAST_PACK_METHODS + "=false");
+        List l = new ArrayList();
+        l.add(makeArgsMunger("before"));
+        l.add(makeArgsMunger("afterThrowing"));
+        l.add(makeArgsMunger("afterReturning"));
+
+        weaveTest("HelloWorld", "ArgsOutlinedBeforeAfterHelloWorld", addLexicalOrder(l));
+    }
+
 	/* private */ InstructionList getArgsAdviceTag(BcelShadow shadow, String where) {
 		String methodName =
 			"ajc_" + where + "_" + shadow.getKind().toLegalJavaIdentifier();
@@ -36,6 +36,17 @@ public class AroundWeaveTestCase extends WeaveTestCase {
 		aroundTest("AroundAll", false);
 	}
 	
+	public void testAroundTypedClosures() throws IOException {
+		// fast packing would leave the unchanged methods unprintable
+		world.performExtraConfiguration(World.xsetTYPED_AROUND_CLOSURES + "=true," + World.xsetFAST_PACK_METHODS + "=false");
+		aroundTest("AroundTyped", true);
+	}
+
+	public void testAroundSharedClosures() throws IOException {
+		world.performExtraConfiguration(World.xsetSHARE_AROUND_CLOSURES + "=true," + World.xsetFAST_PACK_METHODS + "=false");
+		aroundTest("AroundShared", true);
+	}
+
     public void testAroundAndOthers() throws IOException {
     	aroundTestAndOthers("AroundAndOthers", true);
     }
@@ -13,14 +13,26 @@
 package org.aspectj.weaver.bcel;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.aspectj.apache.bcel.Constants;
+import org.aspectj.apache.bcel.classfile.JavaClass;
+import org.aspectj.apache.bcel.classfile.Method;
+import org.aspectj.bridge.IMessage;
+import org.aspectj.bridge.MessageHandler;
+import org.aspectj.lang.JoinPoint;
 import org.aspectj.weaver.Advice;
 import org.aspectj.weaver.AdviceKind;
 import org.aspectj.weaver.ResolvedType;
 import org.aspectj.weaver.ShadowMunger;
 import org.aspectj.weaver.TestUtils;
 import org.aspectj.weaver.UnresolvedType;
+import org.aspectj.weaver.World;
 
 public class TjpWeaveTestCase extends WeaveTestCase {
 	{
@@ -49,6 +61,167 @@ public class TjpWeaveTestCase extends WeaveTestCase {
 		weaveTest("HelloWorld", "StaticTjpBeforeHelloWorld", munger);
 	}
 
+	public void testStaticTjpCallSites() throws IOException {
+		useStaticPartCallSites();
+		BcelAdvice munger = new BcelAdvice(AdviceKind.stringToKind("before"), makePointcutAll(),
+				TestUtils.methodFromString("static void Aspect.ajc_before(org.aspectj.lang.JoinPoint$StaticPart)"),
+				Advice.ThisJoinPointStaticPart, -1, -1, null, null);
+
+		weaveJava7Test("HelloWorld", "StaticTjpCallSitesBeforeHelloWorld", munger);
+	}
+
+	public void testTjpCallSites() throws IOException {
+		useStaticPartCallSites();
+		BcelAdvice munger = new BcelAdvice(AdviceKind.stringToKind("before"), makePointcutAll(),
+				TestUtils.methodFromString("static void Aspect.ajc_before(org.aspectj.lang.JoinPoint)"), Advice.ThisJoinPoint, -1,
+				-1, null, null);
+
+		weaveJava7Test("HelloWorld", "TjpCallSitesBeforeHelloWorld", munger);
+	}
+
+	public void testStaticPartCallSitesShareTheStaticPart() throws Exception {
+		useStaticPartCallSites();
+		// two advice on every shadow, so two call sites for each static part
+		String advice = "before(): execution(* *.*(..)) || call(* *.*(..)) || get(* *.*) -> static void "
+				+ StaticPartRecorder.class.getName() + ".record(org.aspectj.lang.JoinPoint$StaticPart)";
+		ShadowMunger first = makeConcreteAdvice(advice, Advice.ThisJoinPointStaticPart);
+		ShadowMunger second = makeConcreteAdvice(advice, Advice.ThisJoinPointStaticPart);
+
+		BcelWeaver weaver = new BcelWeaver(world);
+		world.setBehaveInJava5Way(true);
+		final byte[] bytes;
+		try {
+			UnwovenClassFile classFile = makeUnwovenClassFile(classDir, "HelloWorld", outDirPath);
+			weaver.addClassFile(classFile, false);
+			BcelObjectType classType = BcelWorld.getBcelObjectType(world.resolve("HelloWorld"));
+			classType.getJavaClass().setMajor(Constants.MAJOR_1_7);
+			weaver.setShadowMungers(Arrays.asList(first, second));
+			bytes = weaver.weave(classFile, classType).getJavaClassBytesIncludingReweavable(world);
+		} finally {
+			world.setBehaveInJava5Way(false);
+		}
+
+		ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+			protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+				if (name.equals("HelloWorld")) {
+					Class<?> c = findLoadedClass(name);
+					return c != null ? c : defineClass(name, bytes, 0, bytes.length);
+				}
+				return super.loadClass(name, resolve);
+			}
+		};
+		StaticPartRecorder.recorded.clear();
+		Class<?> helloWorld = loader.loadClass("HelloWorld");
+		for (java.lang.reflect.Field field : helloWorld.getDeclaredFields()) {
+			assertFalse("static part kept in " + field.getName(), field.getName().startsWith("ajc$tjp"));
+		}
+		for (int run = 0; run < 2; run++) {
+			helloWorld.getMethod("main", String[].class).invoke(null, new Object[] { new String[0] });
+		}
+
+		List<JoinPoint.StaticPart> recorded = StaticPartRecorder.recorded;
+		assertFalse(recorded.isEmpty());
+		Map<Integer, JoinPoint.StaticPart> byId = new HashMap<Integer, JoinPoint.StaticPart>();
+		for (JoinPoint.StaticPart staticPart : recorded) {
+			JoinPoint.StaticPart seen = byId.put(staticPart.getId(), staticPart);
+			if (seen != null) {
+				assertSame(staticPart.toString(), seen, staticPart);
+			}
+		}
+		// each join point was recorded by both advice on both runs
+		assertEquals(recorded.size(), byId.size() * 4);
+	}
+
+	public static class StaticPartRecorder {
+		static final List<JoinPoint.StaticPart> recorded = new ArrayList<JoinPoint.StaticPart>();
+
+		public static void record(JoinPoint.StaticPart staticPart) {
+			recorded.add(staticPart);
+		}
+	}
+
+	private void useStaticPartCallSites() {
+		// fast packing would leave the unchanged methods unprintable
+		world.performExtraConfiguration(World.xsetINVOKEDYNAMIC_STATIC_PARTS + "=true," + World.xsetFAST_PACK_METHODS + "=false");
+	}
+
+	// the call sites are only used in classes for Java 7 or later, the test classes are older
+	private void weaveJava7Test(String name, String outName, ShadowMunger planner) throws IOException {
+		BcelWeaver weaver = new BcelWeaver(world);
+		world.setBehaveInJava5Way(true);
+		try {
+			UnwovenClassFile classFile = makeUnwovenClassFile(classDir, name, outDirPath);
+			weaver.addClassFile(classFile, false);
+			BcelWorld.getBcelObjectType(world.resolve(name)).getJavaClass().setMajor(Constants.MAJOR_1_7);
+			weaver.setShadowMungers(Arrays.asList(planner));
+			weaveTestInner(weaver, classFile, name, outName);
+		} finally {
+			world.setBehaveInJava5Way(false);
+		}
+	}
+
+	public void testTjpOutlinedDispatch() throws IOException {
+		// fast packing would leave the unchanged methods unprintable
+		world.performExtraConfiguration(World.xsetINLINE_SIZE_THRESHOLD + "=20," + World.xsetFAST_PACK_METHODS + "=false");
+		BcelAdvice munger = new BcelAdvice(AdviceKind.stringToKind("before"), makePointcutAll(),
+				TestUtils.methodFromString("static void Aspect.ajc_before(org.aspectj.lang.JoinPoint)"), Advice.ThisJoinPoint, -1,
+				-1, null, null);
+
+		MessageHandler handler = new MessageHandler();
+		world.setMessageHandler(handler);
+		weaveTest("HelloWorld", "TjpOutlinedBeforeHelloWorld", munger);
+		// main is under the threshold before weaving and over it after
+		IMessage[] warnings = handler.getMessages(IMessage.WARNING, false);
+		assertEquals(1, warnings.length);
+		assertTrue(warnings[0].getMessage(), warnings[0].getMessage().indexOf("methodNoLongerInlineable") != -1);
+		assertTrue(warnings[0].getMessage(), warnings[0].getMessage().indexOf("HelloWorld.main") != -1);
+	}
+
+	public void testStaticInformationOnlyTjp() {
+		JavaClass aspect = BcelWorld.getBcelObjectType(world.resolve("Aspect")).getJavaClass();
+		// prints "thisJoinPoint: " + thisJoinPoint
+		Method around = findMethod(aspect, "ajc_around",
+				"(Lorg/aspectj/runtime/internal/AroundClosure;Lorg/aspectj/lang/JoinPoint;)Ljava/lang/Object;");
+		assertTrue(BcelAdvice.asksOnlyForStaticInformation(around, aspect.getConstantPool(), Collections.singleton(1)));
+		// also prints getThis(), getTarget() and getArgs()
+		Method before = findMethod(aspect, "ajc_before", "(Lorg/aspectj/lang/JoinPoint;)V");
+		assertFalse(BcelAdvice.asksOnlyForStaticInformation(before, aspect.getConstantPool(), Collections.singleton(0)));
+	}
+
+	public void testStaticInformationOnlyTjpWeaving() throws IOException {
+		// fast packing would leave the unchanged methods unprintable
+		world.performExtraConfiguration(World.xsetELIDE_DYNAMIC_JOIN_POINTS + "=true," + World.xsetFAST_PACK_METHODS + "=false");
+		String advice = StaticInformationAdvice.class.getName();
+		List<ShadowMunger> mungers = new ArrayList<ShadowMunger>();
+		mungers.add(makeConcreteAdvice("before(): execution(* *.*(..)) || call(* *.*(..)) -> static void " + advice
+				+ ".before(org.aspectj.lang.JoinPoint)", Advice.ThisJoinPoint));
+		mungers.add(makeConcreteAdvice("after(): execution(* *.*(..)) || call(* *.*(..)) -> static void " + advice
+				+ ".after(org.aspectj.lang.JoinPoint)", Advice.ThisJoinPoint));
+
+		// the advice are passed a join point from Factory.makeStaticJP(), none is made with Factory.makeJP()
+		weaveTest("HelloWorld", "StaticInformationTjpHelloWorld", mungers);
+	}
+
+	public static class StaticInformationAdvice {
+		public static void before(JoinPoint thisJoinPoint) {
+			System.out.println("before: " + thisJoinPoint.getSignature());
+		}
+
+		public static void after(JoinPoint thisJoinPoint) {
+			System.out.println("after: " + thisJoinPoint);
+		}
+	}
+
+	private Method findMethod(JavaClass javaClass, String name, String signature) {
+		for (Method method : javaClass.getMethods()) {
+			if (method.getName().equals(name) && method.getSignature().equals(signature)) {
+				return method;
+			}
+		}
+		fail("no " + name + signature + " in " + javaClass.getClassName());
+		return null;
+	}
+
 	public void testEnclosingStaticTjp() throws IOException {
 		BcelAdvice munger = new BcelAdvice(AdviceKind.stringToKind("before"), makePointcutAll(),
 				TestUtils.methodFromString("static void Aspect.ajc_before(org.aspectj.lang.JoinPoint$StaticPart)"),
@@ -12,13 +12,31 @@
 
 package org.aspectj.weaver.bcel;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.aspectj.apache.bcel.classfile.Attribute;
+import org.aspectj.apache.bcel.classfile.ClassParser;
+import org.aspectj.apache.bcel.classfile.Code;
+import org.aspectj.apache.bcel.classfile.JavaClass;
+import org.aspectj.apache.bcel.classfile.Method;
+import org.aspectj.apache.bcel.classfile.Unknown;
 
 import org.aspectj.weaver.Advice;
 import org.aspectj.weaver.BcweaverTests;
 import org.aspectj.weaver.CommonWorldTests;
+import org.aspectj.weaver.DemotedTypeDelegate;
 import org.aspectj.weaver.Member;
 import org.aspectj.weaver.MemberImpl;
+import org.aspectj.weaver.ReferenceType;
 import org.aspectj.weaver.ResolvedMember;
 import org.aspectj.weaver.ResolvedType;
 import org.aspectj.weaver.ShadowMunger;
@@ -131,6 +149,280 @@ public class WorldTestCase extends CommonWorldTests {
 		isAspectTest(iter, false);
 	}
 
+	public void testMemberLookupByName() {
+		ResolvedType string = world.resolve(UnresolvedType.JL_STRING);
+		ResolvedMember[] methods = string.getDeclaredMethods();
+		int indexOfs = 0;
+		for (int i = 0; i < methods.length; i++) {
+			if (methods[i].getName().equals("indexOf")) {
+				assertSame(methods[i], string.getDeclaredMethodsNamed("indexOf")[indexOfs++]);
+			}
+		}
+		assertTrue(indexOfs > 1);
+		assertEquals(indexOfs, string.getDeclaredMethodsNamed("indexOf").length);
+		assertEquals(0, string.getDeclaredMethodsNamed("noSuchMethod").length);
+		assertEquals(1, string.getDeclaredFieldsNamed("CASE_INSENSITIVE_ORDER").length);
+
+		assertNotNull(string.lookupMethod(MemberImpl.method(string, 0, "valueOf", "(I)Ljava/lang/String;")));
+		assertNull(string.lookupMethod(MemberImpl.method(string, 0, "valueOf", "(Ljava/lang/Thread;)Ljava/lang/String;")));
+		assertNotNull(string.lookupField(MemberImpl.field("java.lang.String", Modifier.STATIC, "CASE_INSENSITIVE_ORDER",
+				"Ljava/util/Comparator;")));
+
+		// found on a supertype
+		ResolvedType arrayList = world.resolve("java.util.ArrayList");
+		ResolvedMember hashCode = arrayList.lookupMethod(MemberImpl.method(arrayList, 0, "hashCode", "()I"));
+		assertNotNull(hashCode);
+		assertEquals("java.util.AbstractList", hashCode.getDeclaringType().getName());
+		ResolvedMember resolvedHashCode = arrayList.lookupResolvedMember(hashCode, true, true);
+		assertNotNull(resolvedHashCode);
+		assertEquals("hashCode", resolvedHashCode.getName());
+	}
+
+	public void testDemotedTypeRebuiltFromSummary() {
+		ResolvedType thread = world.resolve("java.lang.Thread");
+		int modifiers = thread.getModifiers();
+		int weaverVersion = BcelWorld.getBcelObjectType(thread).getWeaverVersionAttribute().getMajorVersion();
+		world.getTypeMap().demote(thread);
+		// as if the demoted type had been collected
+		world.getTypeMap().getExpendableMap().remove(thread.getSignature());
+		assertNotNull(world.getTypeMap().getSummary(thread.getSignature()));
+
+		ReferenceType rebuilt = (ReferenceType) world.resolve("java.lang.Thread");
+		assertNotSame(thread, rebuilt);
+		assertTrue(rebuilt.getDelegate() instanceof DemotedTypeDelegate);
+		assertEquals(modifiers, rebuilt.getModifiers());
+		isClassTest(rebuilt, true);
+		superclassTest(rebuilt, UnresolvedType.OBJECT);
+		interfacesTest(rebuilt, new ResolvedType[] { world.resolve("java.lang.Runnable") });
+		assertTrue(world.resolve("java.lang.Runnable").isAssignableFrom(rebuilt));
+		// kept for AtAjAttributes, which cannot inflate the delegate it is reading the attributes for
+		assertEquals(weaverVersion, ((DemotedTypeDelegate) rebuilt.getDelegate()).getWeaverVersionAttribute().getMajorVersion());
+		assertTrue(rebuilt.getDelegate() instanceof DemotedTypeDelegate);
+
+		// members need the class file
+		assertTrue(rebuilt.getDeclaredMethodsNamed("start").length > 0);
+		assertTrue(rebuilt.getDelegate() instanceof BcelObjectType);
+	}
+
+	public void testInflationKeepsAssignabilityCache() {
+		ResolvedType thread = world.resolve("java.lang.Thread");
+		world.getTypeMap().demote(thread);
+		world.getTypeMap().getExpendableMap().remove(thread.getSignature());
+		ReferenceType rebuilt = (ReferenceType) world.resolve("java.lang.Thread");
+		ResolvedType runnable = world.resolve("java.lang.Runnable");
+		assertTrue(runnable.isAssignableFrom(rebuilt));
+		// the assignability cache is only ever cleared along with a new type hierarchy version
+		int version = world.getTypeHierarchyVersion();
+
+		assertTrue(rebuilt.getDeclaredMethodsNamed("start").length > 0);
+		assertTrue(rebuilt.getDelegate() instanceof BcelObjectType);
+		assertEquals(version, world.getTypeHierarchyVersion());
+		assertTrue(runnable.isAssignableFrom(rebuilt));
+	}
+
+	public void testDemotedTypeSummariesAreBounded() {
+		int max = World.TypeMap.maxDemotedTypeSummaries;
+		World.TypeMap.maxDemotedTypeSummaries = 1;
+		try {
+			ResolvedType thread = world.resolve("java.lang.Thread");
+			ResolvedType string = world.resolve("java.lang.String");
+			world.getTypeMap().demote(thread);
+			world.getTypeMap().demote(string);
+			assertNull(world.getTypeMap().getSummary(thread.getSignature()));
+			assertNotNull(world.getTypeMap().getSummary(string.getSignature()));
+		} finally {
+			World.TypeMap.maxDemotedTypeSummaries = max;
+		}
+	}
+
+	public void testClassPathFindUsesPackageIndex() throws Exception {
+		ClassPathManager classPath = new ClassPathManager(Arrays.asList(BcweaverTests.TESTDATA_PATH + "/tracing.jar",
+				BcweaverTests.TESTDATA_PATH + "/megatrace.jar"), null);
+		ClassPathManager.ClassFile trace = classPath.find(UnresolvedType.forName("Trace"));
+		assertNotNull(trace);
+		assertEquals("Trace.class", trace.getPath());
+		trace.close();
+		assertNotNull(classPath.find(UnresolvedType.forName("trace.MegaTrace")));
+		assertNull(classPath.find(UnresolvedType.forName("NoSuchType")));
+		assertNull(classPath.find(UnresolvedType.forName("no.such.pkg.Type")));
+
+		// a second manager for the same jars reuses their indexes
+		ClassPathManager another = new ClassPathManager(Arrays.asList(BcweaverTests.TESTDATA_PATH + "/tracing.jar"), null);
+		assertNull(another.find(UnresolvedType.forName("no.such.pkg.Type")));
+		assertNotNull(another.find(UnresolvedType.forName("MyTrace")));
+		classPath.closeArchives();
+		another.closeArchives();
+	}
+
+	public void testClassPathIndexFollowsRewrittenJar() throws Exception {
+		File jar = File.createTempFile("indexed", ".jar");
+		try {
+			writeJar(jar, "a/A.class");
+			ClassPathManager classPath = new ClassPathManager(Arrays.asList(jar.getPath()), null);
+			assertNotNull(classPath.find(UnresolvedType.forName("a.A")));
+			classPath.closeArchives();
+
+			writeJar(jar, "b/B.class");
+			jar.setLastModified(jar.lastModified() - 10000);
+			// a new manager must not be given the index built for the jar as it was
+			classPath = new ClassPathManager(Arrays.asList(jar.getPath()), null);
+			assertNotNull(classPath.find(UnresolvedType.forName("b.B")));
+			assertNull(classPath.find(UnresolvedType.forName("a.A")));
+			classPath.closeArchives();
+		} finally {
+			jar.delete();
+		}
+	}
+
+	private static void writeJar(File jar, String entryName) throws IOException {
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+		try {
+			out.putNextEntry(new ZipEntry(entryName));
+			out.write(new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe });
+			out.closeEntry();
+		} finally {
+			out.close();
+		}
+	}
+
+	public void testUnchangedMethodsKeepTheirFrames() throws Exception {
+		BcelObjectType thread = BcelWorld.getBcelObjectType(world.resolve("java.lang.Thread"));
+		JavaClass original = thread.getJavaClass();
+		if (original.getMajor() <= 50) {
+			return; // frames are all recomputed for Java 6 classes
+		}
+		LazyClassGen lcg = thread.getLazyClassGen();
+		LazyMethodGen changed = null;
+		for (LazyMethodGen mg : lcg.getMethodGens()) {
+			assertTrue(mg.isUnchanged());
+			if (mg.getName().equals("getThreadGroup")) {
+				changed = mg;
+			}
+		}
+		changed.markAsChanged();
+		assertFalse(changed.isUnchanged());
+
+		byte[] bytes = lcg.getJavaClassBytesIncludingReweavable(world);
+		JavaClass woven = new ClassParser(new ByteArrayInputStream(bytes), "Thread.class").parse();
+		Method[] methods = original.getMethods();
+		for (int i = 0; i < methods.length; i++) {
+			if (methods[i].getCode() == null || methods[i].getName().equals("getThreadGroup")) {
+				continue;
+			}
+			Method wovenMethod = null;
+			for (Method m : woven.getMethods()) {
+				if (m.getName().equals(methods[i].getName()) && m.getSignature().equals(methods[i].getSignature())) {
+					wovenMethod = m;
+				}
+			}
+			byte[] frames = stackMapTable(methods[i].getCode());
+			if (frames != null) {
+				assertTrue("Frames should be kept for " + methods[i], Arrays.equals(frames, stackMapTable(wovenMethod.getCode())));
+			}
+		}
+	}
+
+	public void testChangedMethodsGetFramesWhenPacked() throws Exception {
+		BcelObjectType thread = BcelWorld.getBcelObjectType(world.resolve("java.lang.Thread"));
+		JavaClass original = thread.getJavaClass();
+		if (original.getMajor() <= 50) {
+			return; // frames are optional for Java 6 classes
+		}
+		LazyClassGen lcg = thread.getLazyClassGen();
+		for (LazyMethodGen mg : lcg.getMethodGens()) {
+			mg.markAsChanged();
+		}
+
+		byte[] bytes = lcg.getJavaClassBytesIncludingReweavable(world);
+		for (LazyMethodGen mg : lcg.getMethodGens()) {
+			assertTrue("Frames should have been computed for " + mg.getName(), mg.hasComputedFrames());
+		}
+		JavaClass woven = new ClassParser(new ByteArrayInputStream(bytes), "Thread.class").parse();
+		for (Method m : original.getMethods()) {
+			if (m.getCode() != null && stackMapTable(m.getCode()) != null) {
+				Method wovenMethod = null;
+				for (Method wm : woven.getMethods()) {
+					if (wm.getName().equals(m.getName()) && wm.getSignature().equals(m.getSignature())) {
+						wovenMethod = wm;
+					}
+				}
+				assertNotNull("Frames missing for " + m, stackMapTable(wovenMethod.getCode()));
+			}
+		}
+	}
+
+	public void testOnlyChangedMethodsAreRepacked() throws Exception {
+		BcelObjectType thread = BcelWorld.getBcelObjectType(world.resolve("java.lang.Thread"));
+		JavaClass original = thread.getJavaClass();
+		LazyClassGen lcg = thread.getLazyClassGen();
+		LazyMethodGen changed = null;
+		for (LazyMethodGen mg : lcg.getMethodGens()) {
+			if (mg.getName().equals("getName")) {
+				changed = mg;
+				mg.markAsChanged();
+			} else if (mg.hasBody()) {
+				mg.getMethod().getCode().getCode(); // decoded, but not changed
+			}
+		}
+
+		byte[] bytes = lcg.getJavaClassBytesIncludingReweavable(world);
+		assertEquals(1, lcg.getRepackedMethodCount());
+		JavaClass woven = new ClassParser(new ByteArrayInputStream(bytes), "Thread.class").parse();
+		for (Method m : original.getMethods()) {
+			if (m.getCode() == null || m.getName().equals(changed.getName())) {
+				continue;
+			}
+			Method wovenMethod = null;
+			for (Method wm : woven.getMethods()) {
+				if (wm.getName().equals(m.getName()) && wm.getSignature().equals(m.getSignature())) {
+					wovenMethod = wm;
+				}
+			}
+			assertTrue("Code should have been copied as it was for " + m, Arrays.equals(dump(m.getCode()), dump(wovenMethod
+					.getCode())));
+		}
+	}
+
+	private byte[] dump(Code code) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		code.dump(new DataOutputStream(baos));
+		return baos.toByteArray();
+	}
+
+	public void testTypeLatticeAnswersFollowHierarchyChanges() {
+		WorldTypeLattice lattice = WorldTypeLattice.forWorld(world);
+		assertSame(lattice, WorldTypeLattice.forWorld(world));
+		assertEquals("java/lang/Number", lattice.getCommonSuperClass("java/lang/Integer", "java/lang/Long"));
+		assertEquals("java/lang/Number", lattice.getCommonSuperClass("java/lang/Long", "java/lang/Integer"));
+		assertEquals("java/lang/Object", lattice.getCommonSuperClass("java/util/List", "java/lang/StringBuffer"));
+
+		int version = world.getTypeHierarchyVersion();
+		world.resolve("java.lang.StringBuffer").addParent(world.resolve("java.util.List"));
+		assertTrue(world.getTypeHierarchyVersion() != version);
+		assertEquals("java/util/List", lattice.getCommonSuperClass("java/util/List", "java/lang/StringBuffer"));
+		assertEquals("java/util/List", lattice.getCommonSuperClass("java/lang/StringBuffer", "java/util/List"));
+	}
+
+	public void testMethodsArePackedWithTheSharedTypeLattice() {
+		// a Java 8 class file, it needs frames
+		ResolvedType runnable = world.resolve("java.lang.Runnable");
+		assertSame(world.getTypeLattice(), new LazyClassGen(BcelWorld.getBcelObjectType(runnable)).getTypeLattice());
+
+		BcelWorld asmFramesWorld = new BcelWorld(BcweaverTests.TESTDATA_PATH + "/tracing.jar");
+		asmFramesWorld.performExtraConfiguration(World.xsetNATIVE_STACKMAPS + "=false");
+		runnable = asmFramesWorld.resolve("java.lang.Runnable");
+		assertNull(new LazyClassGen(BcelWorld.getBcelObjectType(runnable)).getTypeLattice());
+	}
+
+	private byte[] stackMapTable(Code code) {
+		for (Attribute a : code.getAttributes()) {
+			if (a.getName().equals("StackMapTable")) {
+				return ((Unknown) a).getBytes();
+			}
+		}
+		return null;
+	}
+
 	public void testObjectCoersion() {
 		assertCouldBeCoercibleFrom("java.lang.Object", "java.lang.String");
 		assertCouldBeCoercibleFrom("java.lang.Integer", "java.lang.Object");
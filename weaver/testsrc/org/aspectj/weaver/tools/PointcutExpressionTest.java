@@ -514,6 +514,52 @@ public class PointcutExpressionTest extends TestCase {
 		assertTrue("Will always match B", ex.couldMatchJoinPointsInType(B.class));
 	}
 
+	public void testMatchesDeclaredMembers() {
+		MemberMatchingPointcutExpression ex = (MemberMatchingPointcutExpression) p.parsePointcutExpression(
+				"execution(* *..A.aa*(..)) || execution(*..B.new(String)) || set(int *..B.y) || (within(*..B) && args(Integer))");
+		MemberMatches matches = ex.matchesDeclaredMembers(B.class);
+		assertSame(B.class, matches.getMatchedType());
+		Method[] methods = matches.getMethods();
+		for (int i = 0; i < methods.length; i++) {
+			assertEquals(methods[i].toString(), ex.matchesMethodExecution(methods[i]).alwaysMatches(), matches
+					.getMethodExecutionMatch(i).alwaysMatches());
+			assertEquals(methods[i].toString(), ex.matchesMethodExecution(methods[i]).maybeMatches(), matches
+					.getMatchingMethodExecutions().get(i));
+		}
+		assertTrue("B.aa(int) may match", matches.getMatchingMethodExecutions().get(indexOf(methods, bsaa)));
+		assertTrue("B.b() takes no arguments", matches.getMethodExecutionMatch(indexOf(methods, b)).neverMatches());
+		Constructor[] constructors = matches.getConstructors();
+		assertTrue(matches.getConstructorExecutionMatch(indexOf(constructors, bsStringCons)).alwaysMatches());
+		assertTrue(matches.getConstructorExecutionMatch(indexOf(constructors, bsCons)).neverMatches());
+		assertEquals(1, matches.getFields().length);
+		assertTrue(matches.getFieldSetMatch(0).alwaysMatches());
+		assertFalse(matches.getFieldGetMatch(0).alwaysMatches());
+
+		matches = ex.matchesDeclaredMembers(Client.class);
+		assertTrue("Nothing in Client can match", matches.getMatchingMethodExecutions().isEmpty());
+		assertTrue(matches.getMatchingConstructorExecutions().isEmpty());
+		assertTrue(matches.getMatchingFieldGets().isEmpty());
+		assertTrue(matches.getMatchingFieldSets().isEmpty());
+		assertTrue(matches.getMethodExecutionMatch(0).neverMatches());
+
+		ex = (MemberMatchingPointcutExpression) p.parsePointcutExpression("within(*..A)");
+		assertFalse(ex.couldMatchJoinPointsInType(B.class));
+		matches = ex.matchesDeclaredMembers(B.class);
+		assertTrue(matches.getMatchingMethodExecutions().isEmpty());
+		assertTrue(matches.getFieldGetMatch(0).neverMatches());
+		assertFalse(ex.matchesDeclaredMembers(A.class).getMatchingMethodExecutions().isEmpty());
+	}
+
+	private static int indexOf(Object[] members, Object member) {
+		for (int i = 0; i < members.length; i++) {
+			if (members[i].equals(member)) {
+				return i;
+			}
+		}
+		fail(member + " not found");
+		return -1;
+	}
+
 	public void testMayNeedDynamicTest() {
 		PointcutExpression ex = p.parsePointcutExpression("execution(* org.aspectj.weaver.tools.PointcutExpressionTest.B.*(..))");
 		assertFalse("No dynamic test needed", ex.mayNeedDynamicTest());
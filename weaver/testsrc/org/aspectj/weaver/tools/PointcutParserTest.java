@@ -9,6 +9,7 @@
  * ******************************************************************/
 package org.aspectj.weaver.tools;
 
+import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
@@ -347,6 +348,79 @@ public class PointcutParserTest extends TestCase {
 		}
 	}
 
+	public void testPointcutExpressionCache() {
+		if (needToSkip) {
+			return;
+		}
+
+		PointcutParser parser = PointcutParser
+				.getPointcutParserSupportingAllPrimitivesAndUsingSpecifiedClassloaderForResolution(this.getClass().getClassLoader());
+		PointcutExpression first = parser.parsePointcutExpression("execution(* *.toString())");
+		assertNotSame("cache is off by default", first, parser.parsePointcutExpression("execution(* *.toString())"));
+
+		parser.setPointcutExpressionCacheSize(2);
+		first = parser.parsePointcutExpression("execution(* *.toString())");
+		assertSame(first, parser.parsePointcutExpression("execution(* *.toString())"));
+		assertNotSame("different scope", first, parser.parsePointcutExpression("execution(* *.toString())", String.class,
+				new PointcutParameter[0]));
+		PointcutParameter param = parser.createPointcutParameter("x", String.class);
+		PointcutExpression withFormal = parser.parsePointcutExpression("args(x)", null, new PointcutParameter[] { param });
+		assertSame(withFormal, parser.parsePointcutExpression("args(x)", null, new PointcutParameter[] { parser
+				.createPointcutParameter("x", String.class) }));
+		assertNotSame("different formal type", withFormal, parser.parsePointcutExpression("args(x)", null,
+				new PointcutParameter[] { parser.createPointcutParameter("x", Object.class) }));
+		// only two entries are kept, the unscoped toString() expression was least recently used
+		assertNotSame(first, parser.parsePointcutExpression("execution(* *.toString())"));
+
+		try {
+			parser.parsePointcutExpression("args(String)", null, new PointcutParameter[] { param });
+			fail("Expecting IllegalArgumentException");
+		} catch (IllegalArgumentException ex) {
+			// failures are not cached
+		}
+	}
+
+	public void testShadowMatchCache() throws Exception {
+		if (needToSkip) {
+			return;
+		}
+
+		PointcutParser parser = PointcutParser
+				.getPointcutParserSupportingAllPrimitivesAndUsingSpecifiedClassloaderForResolution(this.getClass().getClassLoader());
+		Method toString = Object.class.getMethod("toString");
+		PointcutExpression pc = parser.parsePointcutExpression("execution(* *.toString())");
+		assertNotSame("cache is off by default", pc.matchesMethodExecution(toString), pc.matchesMethodExecution(toString));
+
+		parser.setShadowMatchCacheSize(10);
+		pc = parser.parsePointcutExpression("execution(* *.toString()) || adviceexecution()");
+		ShadowMatch sm = pc.matchesMethodExecution(toString);
+		assertTrue(sm.alwaysMatches());
+		assertSame(sm, pc.matchesMethodExecution(Object.class.getMethod("toString")));
+		assertNotSame("different join point kind", sm, pc.matchesAdviceExecution(toString));
+		assertTrue(pc.couldMatchJoinPointsInType(Object.class));
+		assertTrue(pc.couldMatchJoinPointsInType(Object.class));
+
+		Method hashCode = Object.class.getMethod("hashCode");
+		ShadowMatch call = pc.matchesMethodCall(hashCode, toString);
+		assertTrue(call.neverMatches());
+		assertSame(call, pc.matchesMethodCall(hashCode, toString));
+		assertNotSame("different caller", call, pc.matchesMethodCall(hashCode, Object.class));
+
+		pc.setMatchingContext(new DefaultMatchingContext());
+		assertNotSame("context change discards cached matches", sm, pc.matchesMethodExecution(toString));
+
+		// the least recently used result goes first
+		parser.setShadowMatchCacheSize(2);
+		pc = parser.parsePointcutExpression("execution(* *.*())");
+		Method getClass = Object.class.getMethod("getClass");
+		sm = pc.matchesMethodExecution(toString);
+		ShadowMatch hashCodeMatch = pc.matchesMethodExecution(hashCode);
+		assertSame(sm, pc.matchesMethodExecution(toString));
+		pc.matchesMethodExecution(getClass);
+		assertSame("recently used", sm, pc.matchesMethodExecution(toString));
+		assertNotSame("least recently used", hashCodeMatch, pc.matchesMethodExecution(hashCode));
+	}
+
 	public void testXLintConfiguration() {
 		if (needToSkip) {
 			return;
@@ -43,13 +43,14 @@ import org.aspectj.weaver.tools.PointcutParameter;
 public class Java15ReflectionBasedReferenceTypeDelegate extends ReflectionBasedReferenceTypeDelegate {
 
 	private AjType<?> myType;
-	private ResolvedType[] annotations;
+	// filled in lazily, under the world's type building lock as the world may be shared between threads
+	private volatile ResolvedType[] annotations;
 	private ResolvedMember[] pointcuts;
-	private ResolvedMember[] methods;
-	private ResolvedMember[] fields;
-	private TypeVariable[] typeVariables;
-	private ResolvedType superclass;
-	private ResolvedType[] superInterfaces;
+	private volatile ResolvedMember[] methods;
+	private volatile ResolvedMember[] fields;
+	private volatile TypeVariable[] typeVariables;
+	private volatile ResolvedType superclass;
+	private volatile ResolvedType[] superInterfaces;
 	private String genericSignature = null;
 	private JavaLangTypeToResolvedTypeConverter typeConverter;
 	private Java15AnnotationFinder annotationFinder = null;
@@ -88,7 +89,11 @@ public class Java15ReflectionBasedReferenceTypeDelegate extends ReflectionBasedR
 	@Override
 	public ResolvedType[] getAnnotationTypes() {
 		if (annotations == null) {
-			annotations = annotationFinder.getAnnotations(getBaseClass(), getWorld());
+			synchronized (getWorld().getTypeBuildingLock()) {
+				if (annotations == null) {
+					annotations = annotationFinder.getAnnotations(getBaseClass(), getWorld());
+				}
+			}
 		}
 		return annotations;
 	}
@@ -109,12 +114,16 @@ public class Java15ReflectionBasedReferenceTypeDelegate extends ReflectionBasedR
 	@Override
 	public ResolvedMember[] getDeclaredFields() {
 		if (fields == null) {
-			Field[] reflectFields = this.myType.getDeclaredFields();
-			ResolvedMember[] rFields = new ResolvedMember[reflectFields.length];
-			for (int i = 0; i < reflectFields.length; i++) {
-				rFields[i] = createGenericFieldMember(reflectFields[i]);
+			synchronized (getWorld().getTypeBuildingLock()) {
+				if (fields == null) {
+					Field[] reflectFields = this.myType.getDeclaredFields();
+					ResolvedMember[] rFields = new ResolvedMember[reflectFields.length];
+					for (int i = 0; i < reflectFields.length; i++) {
+						rFields[i] = createGenericFieldMember(reflectFields[i]);
+					}
+					this.fields = rFields;
+				}
 			}
-			this.fields = rFields;
 		}
 		return fields;
 	}
@@ -131,8 +140,12 @@ public class Java15ReflectionBasedReferenceTypeDelegate extends ReflectionBasedR
 	@Override
 	public ResolvedType[] getDeclaredInterfaces() {
 		if (superInterfaces == null) {
-			Type[] genericInterfaces = getBaseClass().getGenericInterfaces();
-			this.superInterfaces = typeConverter.fromTypes(genericInterfaces);
+			synchronized (getWorld().getTypeBuildingLock()) {
+				if (superInterfaces == null) {
+					Type[] genericInterfaces = getBaseClass().getGenericInterfaces();
+					this.superInterfaces = typeConverter.fromTypes(genericInterfaces);
+				}
+			}
 		}
 		return superInterfaces;
 	}
@@ -143,12 +156,16 @@ public class Java15ReflectionBasedReferenceTypeDelegate extends ReflectionBasedR
 		if (superclass == null && getBaseClass() != Object.class) {// superclass
 			// of Object
 			// is null
-			Type t = this.getBaseClass().getGenericSuperclass();
-			if (t != null) {
-				superclass = typeConverter.fromType(t);
-			}
-			if (t == null) {
-				superclass = getWorld().resolve(UnresolvedType.OBJECT);
+			synchronized (getWorld().getTypeBuildingLock()) {
+				if (superclass == null) {
+					Type t = this.getBaseClass().getGenericSuperclass();
+					if (t != null) {
+						superclass = typeConverter.fromType(t);
+					}
+					if (t == null) {
+						superclass = getWorld().resolve(UnresolvedType.OBJECT);
+					}
+				}
 			}
 		}
 		return superclass;
@@ -156,34 +173,40 @@ public class Java15ReflectionBasedReferenceTypeDelegate extends ReflectionBasedR
 
 	@Override
 	public TypeVariable[] getTypeVariables() {
-		TypeVariable[] workInProgressSetOfVariables = getResolvedTypeX().getWorld().getTypeVariablesCurrentlyBeingProcessed(
-				getBaseClass());
-		if (workInProgressSetOfVariables != null) {
-			return workInProgressSetOfVariables;
+		TypeVariable[] vars = this.typeVariables;
+		if (vars != null) {
+			return vars;
 		}
-		if (this.typeVariables == null) {
-			java.lang.reflect.TypeVariable[] tVars = this.getBaseClass().getTypeParameters();
-			TypeVariable[] rTypeVariables = new TypeVariable[tVars.length];
-			// basic initialization
-			for (int i = 0; i < tVars.length; i++) {
-				rTypeVariables[i] = new TypeVariable(tVars[i].getName());
+		synchronized (getWorld().getTypeBuildingLock()) {
+			TypeVariable[] workInProgressSetOfVariables = getResolvedTypeX().getWorld().getTypeVariablesCurrentlyBeingProcessed(
+					getBaseClass());
+			if (workInProgressSetOfVariables != null) {
+				return workInProgressSetOfVariables;
 			}
-			// stash it
-			this.getResolvedTypeX().getWorld().recordTypeVariablesCurrentlyBeingProcessed(getBaseClass(), rTypeVariables);
-			// now fill in the details...
-			for (int i = 0; i < tVars.length; i++) {
-				TypeVariableReferenceType tvrt = ((TypeVariableReferenceType) typeConverter.fromType(tVars[i]));
-				TypeVariable tv = tvrt.getTypeVariable();
-				rTypeVariables[i].setSuperclass(tv.getSuperclass());
-				rTypeVariables[i].setAdditionalInterfaceBounds(tv.getSuperInterfaces());
-				rTypeVariables[i].setDeclaringElement(tv.getDeclaringElement());
-				rTypeVariables[i].setDeclaringElementKind(tv.getDeclaringElementKind());
-				rTypeVariables[i].setRank(tv.getRank());
+			if (this.typeVariables == null) {
+				java.lang.reflect.TypeVariable[] tVars = this.getBaseClass().getTypeParameters();
+				TypeVariable[] rTypeVariables = new TypeVariable[tVars.length];
+				// basic initialization
+				for (int i = 0; i < tVars.length; i++) {
+					rTypeVariables[i] = new TypeVariable(tVars[i].getName());
+				}
+				// stash it
+				this.getResolvedTypeX().getWorld().recordTypeVariablesCurrentlyBeingProcessed(getBaseClass(), rTypeVariables);
+				// now fill in the details...
+				for (int i = 0; i < tVars.length; i++) {
+					TypeVariableReferenceType tvrt = ((TypeVariableReferenceType) typeConverter.fromType(tVars[i]));
+					TypeVariable tv = tvrt.getTypeVariable();
+					rTypeVariables[i].setSuperclass(tv.getSuperclass());
+					rTypeVariables[i].setAdditionalInterfaceBounds(tv.getSuperInterfaces());
+					rTypeVariables[i].setDeclaringElement(tv.getDeclaringElement());
+					rTypeVariables[i].setDeclaringElementKind(tv.getDeclaringElementKind());
+					rTypeVariables[i].setRank(tv.getRank());
+				}
+				this.typeVariables = rTypeVariables;
+				this.getResolvedTypeX().getWorld().forgetTypeVariablesCurrentlyBeingProcessed(getBaseClass());
 			}
-			this.typeVariables = rTypeVariables;
-			this.getResolvedTypeX().getWorld().forgetTypeVariablesCurrentlyBeingProcessed(getBaseClass());
+			return this.typeVariables;
 		}
-		return this.typeVariables;
 	}
 
 	// overrides super method since by using the MAP we can filter out advice
@@ -191,16 +214,20 @@ public class Java15ReflectionBasedReferenceTypeDelegate extends ReflectionBasedR
 	@Override
 	public ResolvedMember[] getDeclaredMethods() {
 		if (methods == null) {
-			Method[] reflectMethods = this.myType.getDeclaredMethods();
-			Constructor[] reflectCons = this.myType.getDeclaredConstructors();
-			ResolvedMember[] rMethods = new ResolvedMember[reflectMethods.length + reflectCons.length];
-			for (int i = 0; i < reflectMethods.length; i++) {
-				rMethods[i] = createGenericMethodMember(reflectMethods[i]);
-			}
-			for (int i = 0; i < reflectCons.length; i++) {
-				rMethods[i + reflectMethods.length] = createGenericConstructorMember(reflectCons[i]);
+			synchronized (getWorld().getTypeBuildingLock()) {
+				if (methods == null) {
+					Method[] reflectMethods = this.myType.getDeclaredMethods();
+					Constructor[] reflectCons = this.myType.getDeclaredConstructors();
+					ResolvedMember[] rMethods = new ResolvedMember[reflectMethods.length + reflectCons.length];
+					for (int i = 0; i < reflectMethods.length; i++) {
+						rMethods[i] = createGenericMethodMember(reflectMethods[i]);
+					}
+					for (int i = 0; i < reflectCons.length; i++) {
+						rMethods[i + reflectMethods.length] = createGenericConstructorMember(reflectCons[i]);
+					}
+					this.methods = rMethods;
+				}
 			}
-			this.methods = rMethods;
 		}
 		return methods;
 	}
@@ -249,64 +276,68 @@ public class Java15ReflectionBasedReferenceTypeDelegate extends ReflectionBasedR
 
 	@Override
 	public ResolvedMember[] getDeclaredPointcuts() {
-		if (pointcuts == null) {
-			Pointcut[] pcs = this.myType.getDeclaredPointcuts();
-			pointcuts = new ResolvedMember[pcs.length];
-			InternalUseOnlyPointcutParser parser = null;
-			World world = getWorld();
-			if (world instanceof ReflectionWorld) {
-				parser = new InternalUseOnlyPointcutParser(classLoaderReference.getClassLoader(), (ReflectionWorld) getWorld());
-			} else {
-				parser = new InternalUseOnlyPointcutParser(classLoaderReference.getClassLoader());
-			}
-			Set additionalPointcutHandlers = world.getRegisteredPointcutHandlers();
-			for (Iterator handlerIterator = additionalPointcutHandlers.iterator(); handlerIterator.hasNext();) {
-				PointcutDesignatorHandler handler = (PointcutDesignatorHandler) handlerIterator.next();
-				parser.registerPointcutDesignatorHandler(handler);
-			}
+		// not double checked: the array is published before it is complete, so that resolving the pointcuts can recurse
+		synchronized (getWorld().getTypeBuildingLock()) {
+			if (pointcuts == null) {
+				Pointcut[] pcs = this.myType.getDeclaredPointcuts();
+				pointcuts = new ResolvedMember[pcs.length];
+				InternalUseOnlyPointcutParser parser = null;
+				World world = getWorld();
+				if (world instanceof ReflectionWorld) {
+					parser = new InternalUseOnlyPointcutParser(classLoaderReference.getClassLoader(), (ReflectionWorld) getWorld());
+				} else {
+					parser = new InternalUseOnlyPointcutParser(classLoaderReference.getClassLoader());
+				}
+				Set additionalPointcutHandlers = world.getRegisteredPointcutHandlers();
+				for (Iterator handlerIterator = additionalPointcutHandlers.iterator(); handlerIterator.hasNext();) {
+					PointcutDesignatorHandler handler = (PointcutDesignatorHandler) handlerIterator.next();
+					parser.registerPointcutDesignatorHandler(handler);
+				}
 
-			// phase 1, create legitimate entries in pointcuts[] before we
-			// attempt to resolve *any* of the pointcuts
-			// resolution can sometimes cause us to recurse, and this two stage
-			// process allows us to cope with that
-			for (int i = 0; i < pcs.length; i++) {
-				AjType<?>[] ptypes = pcs[i].getParameterTypes();
-				UnresolvedType[] weaverPTypes = new UnresolvedType[ptypes.length];
-				for (int j = 0; j < weaverPTypes.length; j++) {
-					weaverPTypes[j] = this.typeConverter.fromType(ptypes[j].getJavaClass());
+				// phase 1, create legitimate entries in pointcuts[] before we
+				// attempt to resolve *any* of the pointcuts
+				// resolution can sometimes cause us to recurse, and this two stage
+				// process allows us to cope with that
+				for (int i = 0; i < pcs.length; i++) {
+					AjType<?>[] ptypes = pcs[i].getParameterTypes();
+					UnresolvedType[] weaverPTypes = new UnresolvedType[ptypes.length];
+					for (int j = 0; j < weaverPTypes.length; j++) {
+						weaverPTypes[j] = this.typeConverter.fromType(ptypes[j].getJavaClass());
+					}
+					pointcuts[i] = new DeferredResolvedPointcutDefinition(getResolvedTypeX(), pcs[i].getModifiers(), pcs[i].getName(),
+							weaverPTypes);
 				}
-				pointcuts[i] = new DeferredResolvedPointcutDefinition(getResolvedTypeX(), pcs[i].getModifiers(), pcs[i].getName(),
-						weaverPTypes);
-			}
-			// phase 2, now go back round and resolve in-place all of the
-			// pointcuts
-			PointcutParameter[][] parameters = new PointcutParameter[pcs.length][];
-			for (int i = 0; i < pcs.length; i++) {
-				AjType<?>[] ptypes = pcs[i].getParameterTypes();
-				String[] pnames = pcs[i].getParameterNames();
-				if (pnames.length != ptypes.length) {
-					pnames = tryToDiscoverParameterNames(pcs[i]);
-					if (pnames == null || (pnames.length != ptypes.length)) {
-						throw new IllegalStateException("Required parameter names not available when parsing pointcut "
-								+ pcs[i].getName() + " in type " + getResolvedTypeX().getName());
+				// phase 2, now go back round and resolve in-place all of the
+				// pointcuts
+				PointcutParameter[][] parameters = new PointcutParameter[pcs.length][];
+				for (int i = 0; i < pcs.length; i++) {
+					AjType<?>[] ptypes = pcs[i].getParameterTypes();
+					String[] pnames = pcs[i].getParameterNames();
+					if (pnames.length != ptypes.length) {
+						pnames = tryToDiscoverParameterNames(pcs[i]);
+						if (pnames == null || (pnames.length != ptypes.length)) {
+							throw new IllegalStateException("Required parameter names not available when parsing pointcut "
+									+ pcs[i].getName() + " in type " + getResolvedTypeX().getName());
+						}
+					}
+					parameters[i] = new PointcutParameter[ptypes.length];
+					for (int j = 0; j < parameters[i].length; j++) {
+						parameters[i][j] = parser.createPointcutParameter(pnames[j], ptypes[j].getJavaClass());
 					}
+					String pcExpr = pcs[i].getPointcutExpression().toString();
+					org.aspectj.weaver.patterns.Pointcut pc = parser.resolvePointcutExpression(pcExpr, getBaseClass(),
+							parameters[i]);
+					((ResolvedPointcutDefinition) pointcuts[i]).setParameterNames(pnames);
+					((ResolvedPointcutDefinition) pointcuts[i]).setPointcut(pc);
 				}
-				parameters[i] = new PointcutParameter[ptypes.length];
-				for (int j = 0; j < parameters[i].length; j++) {
-					parameters[i][j] = parser.createPointcutParameter(pnames[j], ptypes[j].getJavaClass());
+				// phase 3, now concretize them all
+				for (int i = 0; i < pointcuts.length; i++) {
+					ResolvedPointcutDefinition rpd = (ResolvedPointcutDefinition) pointcuts[i];
+					rpd.setPointcut(parser.concretizePointcutExpression(rpd.getPointcut(), getBaseClass(), parameters[i]));
 				}
-				String pcExpr = pcs[i].getPointcutExpression().toString();
-				org.aspectj.weaver.patterns.Pointcut pc = parser.resolvePointcutExpression(pcExpr, getBaseClass(), parameters[i]);
-				((ResolvedPointcutDefinition) pointcuts[i]).setParameterNames(pnames);
-				((ResolvedPointcutDefinition) pointcuts[i]).setPointcut(pc);
-			}
-			// phase 3, now concretize them all
-			for (int i = 0; i < pointcuts.length; i++) {
-				ResolvedPointcutDefinition rpd = (ResolvedPointcutDefinition) pointcuts[i];
-				rpd.setPointcut(parser.concretizePointcutExpression(rpd.getPointcut(), getBaseClass(), parameters[i]));
 			}
+			return pointcuts;
 		}
-		return pointcuts;
 	}
 
 	// for @AspectJ pointcuts compiled by javac only...
@@ -11,6 +11,8 @@
  * ******************************************************************/
 package org.aspectj.weaver.reflect;
 
+import java.util.concurrent.CountDownLatch;
+
 import junit.framework.TestCase;
 
 import org.aspectj.weaver.ResolvedType;
@@ -39,4 +41,49 @@ public class ReflectionWorldTest extends TestCase {
 		assertEquals("void", UnresolvedType.VOID, world.resolve(void.class));
 	}
 
+	public void testConcurrentResolution() throws Exception {
+		final World world = new ReflectionWorld(getClass().getClassLoader());
+		final String[] names = { "java.util.HashMap", "java.util.ArrayList", "java.lang.String", "java.util.concurrent.ConcurrentHashMap",
+				"java.lang.Thread" };
+		final ResolvedType[][] results = new ResolvedType[8][];
+		final Throwable[] failures = new Throwable[results.length];
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[results.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int index = t;
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						start.await();
+						ResolvedType[] resolved = new ResolvedType[names.length];
+						for (int i = 0; i < names.length; i++) {
+							resolved[i] = world.resolve(names[i]);
+							// fill in the lazily built structure as well
+							resolved[i].getDeclaredMethods();
+							resolved[i].getDeclaredFields();
+							resolved[i].getSuperclass();
+						}
+						results[index] = resolved;
+					} catch (Throwable th) {
+						failures[index] = th;
+					}
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+			if (failures[t] != null) {
+				throw new AssertionError(failures[t]);
+			}
+		}
+		for (int t = 1; t < results.length; t++) {
+			for (int i = 0; i < names.length; i++) {
+				assertSame(names[i], results[0][i], results[t][i]);
+				assertSame(names[i], results[0][i].getDeclaredMethods(), results[t][i].getDeclaredMethods());
+			}
+		}
+	}
+
 }